@@ -0,0 +1,133 @@
+package com.jair.battleship.battleshipbackend.broker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Sends whole-state topics (rankings, room lists, room "UPDATE" pings) at most
+ * once per destination per window. The first change after a quiet window goes
+ * out at once; changes inside the window only replace the pending state, which
+ * {@link #flush} sends when the window closes. The state supplier runs at send
+ * time, so the send carries the latest state and a burst of N changes costs one
+ * build. Table events are sequenced diffs and never go through here.
+ */
+@Component
+public class BroadcastCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(BroadcastCoalescer.class);
+
+    private final SimpMessageSendingOperations messagingTemplate;
+    private final Duration window;
+    private final Map<String, Slot> slots = new HashMap<>();
+    private long requested;
+    private long sent;
+    private long suppressed;
+
+    public BroadcastCoalescer(SimpMessageSendingOperations messagingTemplate,
+                              @Value("${app.broadcast.coalesce-ms:200}") long windowMs) {
+        this.messagingTemplate = messagingTemplate;
+        this.window = Duration.ofMillis(Math.max(0, windowMs));
+    }
+
+    public void publish(String destination, Supplier<?> state) {
+        publish(destination, state, Instant.now());
+    }
+
+    public void publish(String destination, Supplier<?> state, Instant now) {
+        synchronized (this) {
+            requested++;
+            Slot slot = slots.computeIfAbsent(destination, d -> new Slot());
+            if (slot.pending != null) {
+                suppressed++;
+                slot.pending = state;
+                return;
+            }
+            if (slot.lastSentAt != null && now.isBefore(slot.lastSentAt.plus(window))) {
+                slot.pending = state;
+                return;
+            }
+            slot.lastSentAt = now;
+            sent++;
+        }
+        send(destination, state);
+    }
+
+    /**
+     * Runs on the job pool from {@code SchedulingConfig}, not on the broker's
+     * scheduler, because suppliers may hit the database.
+     */
+    @Scheduled(fixedDelayString = "${app.broadcast.flush-ms:50}")
+    public void flush() {
+        flush(Instant.now());
+    }
+
+    /**
+     * Sends the pending state of every destination whose window closed by
+     * {@code now}, and forgets destinations that have been quiet for a window.
+     */
+    public void flush(Instant now) {
+        List<Map.Entry<String, Supplier<?>>> due = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Map.Entry<String, Slot>> it = slots.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Slot> entry = it.next();
+                Slot slot = entry.getValue();
+                if (now.isBefore(slot.lastSentAt.plus(window))) {
+                    continue;
+                }
+                if (slot.pending == null) {
+                    it.remove();
+                    continue;
+                }
+                due.add(Map.entry(entry.getKey(), slot.pending));
+                slot.pending = null;
+                slot.lastSentAt = now;
+                sent++;
+            }
+        }
+        due.forEach(entry -> send(entry.getKey(), entry.getValue()));
+    }
+
+    public synchronized CoalescerStats stats() {
+        int pending = 0;
+        for (Slot slot : slots.values()) {
+            if (slot.pending != null) {
+                pending++;
+            }
+        }
+        return new CoalescerStats(requested, sent, suppressed, pending);
+    }
+
+    private void send(String destination, Supplier<?> state) {
+        try {
+            messagingTemplate.convertAndSend(destination, state.get());
+        } catch (RuntimeException e) {
+            log.debug("No se pudo difundir {}", destination, e);
+        }
+    }
+
+    private static final class Slot {
+        private Instant lastSentAt;
+        private Supplier<?> pending;
+    }
+
+    /**
+     * Lifetime counters: publish calls, sends, and calls whose state was
+     * replaced by a newer one before it went out.
+     */
+    public record CoalescerStats(long requested, long sent, long suppressed, int pending) {
+    }
+}
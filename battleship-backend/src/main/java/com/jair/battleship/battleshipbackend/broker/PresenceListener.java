@@ -0,0 +1,67 @@
+package com.jair.battleship.battleshipbackend.broker;
+
+import com.jair.battleship.battleshipbackend.services.engine.PresenceRegistry;
+import com.jair.battleship.battleshipbackend.services.engine.SessionActivity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.AbstractSubProtocolEvent;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.time.Instant;
+
+/**
+ * Feeds the {@link PresenceRegistry} from the STOMP session lifecycle. A
+ * connection authenticated at CONNECT also marks its session as seen when it
+ * opens and when it closes.
+ */
+@Component
+public class PresenceListener {
+
+    @Autowired
+    private PresenceRegistry presence;
+    @Autowired
+    private SessionActivity sessionActivity;
+
+    @EventListener
+    public void connected(SessionConnectedEvent event) {
+        Long sessionId = sessionId(event);
+        presence.connected(connectionId(event), sessionId);
+        if (sessionId != null) {
+            sessionActivity.seen(sessionId, Instant.now());
+        }
+    }
+
+    @EventListener
+    public void disconnected(SessionDisconnectEvent event) {
+        presence.disconnected(event.getSessionId());
+        Long sessionId = sessionId(event);
+        if (sessionId != null) {
+            sessionActivity.seen(sessionId, Instant.now());
+        }
+    }
+
+    @EventListener
+    public void subscribed(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        presence.subscribed(accessor.getSessionId(), accessor.getSubscriptionId(), accessor.getDestination());
+    }
+
+    @EventListener
+    public void unsubscribed(SessionUnsubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        presence.unsubscribed(accessor.getSessionId(), accessor.getSubscriptionId());
+    }
+
+    private String connectionId(AbstractSubProtocolEvent event) {
+        return SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+    }
+
+    private Long sessionId(AbstractSubProtocolEvent event) {
+        return event.getUser() instanceof SessionPrincipal session ? session.sessionId() : null;
+    }
+}
@@ -0,0 +1,78 @@
+package com.jair.battleship.battleshipbackend.broker;
+
+import org.springframework.messaging.Message;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Broker messages waiting for one WebSocket session. At most one message is
+ * in flight; the rest wait here in order. A message with a conflation key
+ * replaces the waiting one with the same key in its slot, and when the queue
+ * is full the oldest waiting message is dropped.
+ */
+final class SessionOutbox {
+
+    enum Offer { SEND, QUEUED, CONFLATED, DROPPED_OLDEST }
+
+    private final int capacity;
+    private final Map<Object, Message<?>> waiting = new LinkedHashMap<>();
+    private Message<?> inFlight;
+    private volatile int depth;
+
+    SessionOutbox(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * Queues the message, or hands it straight back with SEND when nothing is
+     * in flight; the caller must then send it.
+     */
+    synchronized Offer offer(Message<?> message, Object conflationKey) {
+        if (inFlight == null) {
+            inFlight = message;
+            return Offer.SEND;
+        }
+        Object key = conflationKey == null ? new Object() : conflationKey;
+        if (waiting.replace(key, message) != null) {
+            return Offer.CONFLATED;
+        }
+        Offer offer = Offer.QUEUED;
+        if (waiting.size() >= capacity) {
+            Iterator<Message<?>> oldest = waiting.values().iterator();
+            oldest.next();
+            oldest.remove();
+            offer = Offer.DROPPED_OLDEST;
+        }
+        waiting.put(key, message);
+        depth = waiting.size();
+        return offer;
+    }
+
+    synchronized boolean isInFlight(Message<?> message) {
+        return inFlight == message;
+    }
+
+    /**
+     * Marks the in-flight message as done and returns the next one to send, or
+     * null when nothing is waiting. A message that is not the one in flight is
+     * ignored.
+     */
+    synchronized Message<?> next(Message<?> done) {
+        if (inFlight != done) {
+            return null;
+        }
+        Iterator<Message<?>> first = waiting.values().iterator();
+        inFlight = first.hasNext() ? first.next() : null;
+        if (inFlight != null) {
+            first.remove();
+        }
+        depth = waiting.size();
+        return inFlight;
+    }
+
+    int depth() {
+        return depth;
+    }
+}
@@ -0,0 +1,168 @@
+package com.jair.battleship.battleshipbackend.broker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Backpressure between the broker and the WebSocket sessions. Installed on the
+ * client outbound channel, it takes every message the broker fans out to a
+ * subscriber and parks it in that session's {@link SessionOutbox}; the next
+ * one is only handed to the channel once the previous one was written. A slow
+ * client therefore holds at most one outbound task and a bounded queue instead
+ * of an ever-growing executor queue and send buffer.
+ * <p>
+ * Destinations that publish whole states (lobby, room list, rankings) are
+ * conflated: a newer state replaces the one still waiting. Everything else is
+ * dropped oldest first once the queue is full; table events are sequenced, so a
+ * client that lost some sees the gap and resumes. Only {@code MESSAGE} frames
+ * that carry a subscription id go through the outbox, and that includes
+ * replies to {@code @SubscribeMapping}; connect and disconnect acks,
+ * heartbeats, receipts and errors pass straight through.
+ */
+@Component
+public class SessionOutboxes implements ExecutorChannelInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionOutboxes.class);
+
+    private final ConcurrentMap<String, SessionOutbox> outboxes = new ConcurrentHashMap<>();
+    private final int capacity;
+    private final List<String> conflated;
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong conflatedTotal = new AtomicLong();
+    private final AtomicLong droppedTotal = new AtomicLong();
+
+    public SessionOutboxes(@Value("${app.broker.session-queue:64}") int capacity,
+                           @Value("${app.broker.conflate:/topic/lobby,/topic/salas,/topic/ranking/}") String conflate) {
+        this.capacity = Math.max(1, capacity);
+        this.conflated = Arrays.stream(conflate.split(","))
+                .map(String::trim)
+                .filter(prefix -> !prefix.isBlank())
+                .toList();
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        if (sessionId == null) {
+            return message;
+        }
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(headers);
+        if (type == SimpMessageType.DISCONNECT_ACK) {
+            outboxes.remove(sessionId);
+            return message;
+        }
+        String subscriptionId = SimpMessageHeaderAccessor.getSubscriptionId(headers);
+        if (type != SimpMessageType.MESSAGE || subscriptionId == null) {
+            return message;
+        }
+        SessionOutbox outbox = outboxes.computeIfAbsent(sessionId, id -> new SessionOutbox(capacity));
+        if (outbox.isInFlight(message)) {
+            return message;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        switch (outbox.offer(message, conflationKey(destination, subscriptionId))) {
+            case SEND -> release(outbox, message, channel);
+            case CONFLATED -> conflatedTotal.incrementAndGet();
+            case DROPPED_OLDEST -> {
+                droppedTotal.incrementAndGet();
+                log.debug("Sesion {} lenta: se descarto el mensaje mas antiguo en espera", sessionId);
+            }
+            case QUEUED -> {
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler,
+                                    Exception ex) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        SessionOutbox outbox = sessionId == null ? null : outboxes.get(sessionId);
+        if (outbox == null) {
+            return;
+        }
+        if (!outbox.isInFlight(message)) {
+            return;
+        }
+        delivered.incrementAndGet();
+        Message<?> next = outbox.next(message);
+        if (next != null) {
+            release(outbox, next, channel);
+        }
+    }
+
+    public OutboxStats stats() {
+        int sessions = 0;
+        long queued = 0;
+        int deepest = 0;
+        for (SessionOutbox outbox : outboxes.values()) {
+            int depth = outbox.depth();
+            sessions++;
+            queued += depth;
+            deepest = Math.max(deepest, depth);
+        }
+        return new OutboxStats(sessions, queued, deepest, capacity, delivered.get(), conflatedTotal.get(),
+                droppedTotal.get());
+    }
+
+    /**
+     * Sends the released message; if the channel refuses it, counts it as
+     * dropped and moves on to the next one so the outbox does not stall.
+     */
+    private void release(SessionOutbox outbox, Message<?> message, MessageChannel channel) {
+        Message<?> current = message;
+        while (current != null) {
+            try {
+                channel.send(current);
+                return;
+            } catch (RuntimeException e) {
+                droppedTotal.incrementAndGet();
+                log.debug("No se pudo entregar un mensaje a la sesion", e);
+                current = outbox.next(current);
+            }
+        }
+    }
+
+    private Object conflationKey(String destination, String subscriptionId) {
+        if (destination == null) {
+            return null;
+        }
+        for (String prefix : conflated) {
+            boolean matches = prefix.endsWith("/") ? destination.startsWith(prefix) : destination.equals(prefix);
+            if (matches) {
+                return subscriptionId + "|" + destination;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Queue depth across sessions and lifetime frame counters.
+     */
+    public record OutboxStats(
+            int sessions,
+            long queued,
+            int deepestQueue,
+            int capacity,
+            long delivered,
+            long conflated,
+            long dropped
+    ) {
+    }
+}
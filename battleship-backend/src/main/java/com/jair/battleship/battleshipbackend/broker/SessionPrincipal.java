@@ -0,0 +1,20 @@
+package com.jair.battleship.battleshipbackend.broker;
+
+import java.security.Principal;
+
+/**
+ * The player session a STOMP connection authenticated as at CONNECT. Named by
+ * the session id so the token never shows up in user destinations.
+ */
+public record SessionPrincipal(Long sessionId, String token) implements Principal {
+
+    @Override
+    public String getName() {
+        return String.valueOf(sessionId);
+    }
+
+    @Override
+    public String toString() {
+        return "SessionPrincipal[" + sessionId + "]";
+    }
+}
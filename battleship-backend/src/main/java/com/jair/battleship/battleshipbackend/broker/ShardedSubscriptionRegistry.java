@@ -0,0 +1,95 @@
+package com.jair.battleship.battleshipbackend.broker;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.broker.DefaultSubscriptionRegistry;
+import org.springframework.messaging.simp.broker.SubscriptionRegistry;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.PathMatcher;
+
+/**
+ * Subscriptions of the simple broker split by destination. Every exact
+ * destination lives in one shard picked by its hash, so a lookup only touches
+ * the subscribers and the destination cache of that shard instead of one
+ * registry shared by every mesa topic. Pattern subscriptions can match any
+ * destination and are kept apart in a registry consulted on every lookup.
+ * <p>
+ * Unsubscribe frames carry no destination, so they are passed to every shard;
+ * a shard that does not know the session ignores them.
+ */
+public class ShardedSubscriptionRegistry implements SubscriptionRegistry {
+
+    private final DefaultSubscriptionRegistry[] shards;
+    private final DefaultSubscriptionRegistry patterns = newRegistry();
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+
+    public ShardedSubscriptionRegistry(int shardCount) {
+        this.shards = new DefaultSubscriptionRegistry[Math.max(1, shardCount)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = newRegistry();
+        }
+    }
+
+    @Override
+    public void registerSubscription(Message<?> message) {
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination == null) {
+            return;
+        }
+        registryFor(destination).registerSubscription(message);
+    }
+
+    @Override
+    public void unregisterSubscription(Message<?> message) {
+        patterns.unregisterSubscription(message);
+        for (DefaultSubscriptionRegistry shard : shards) {
+            shard.unregisterSubscription(message);
+        }
+    }
+
+    @Override
+    public void unregisterAllSubscriptions(String sessionId) {
+        patterns.unregisterAllSubscriptions(sessionId);
+        for (DefaultSubscriptionRegistry shard : shards) {
+            shard.unregisterAllSubscriptions(sessionId);
+        }
+    }
+
+    @Override
+    public MultiValueMap<String, String> findSubscriptions(Message<?> message) {
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination == null) {
+            return new LinkedMultiValueMap<>();
+        }
+        MultiValueMap<String, String> exact = shard(destination).findSubscriptions(message);
+        MultiValueMap<String, String> matched = patterns.findSubscriptions(message);
+        if (matched.isEmpty()) {
+            return exact;
+        }
+        MultiValueMap<String, String> merged = new LinkedMultiValueMap<>(exact.size() + matched.size());
+        exact.forEach(merged::addAll);
+        matched.forEach(merged::addAll);
+        return merged;
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    private static DefaultSubscriptionRegistry newRegistry() {
+        DefaultSubscriptionRegistry registry = new DefaultSubscriptionRegistry();
+        // Same as the simple broker's default: no SpEL selectors on subscriptions.
+        registry.setSelectorHeaderName(null);
+        return registry;
+    }
+
+    private DefaultSubscriptionRegistry registryFor(String destination) {
+        return pathMatcher.isPattern(destination) ? patterns : shard(destination);
+    }
+
+    private DefaultSubscriptionRegistry shard(String destination) {
+        return shards[Math.floorMod(destination.hashCode(), shards.length)];
+    }
+}
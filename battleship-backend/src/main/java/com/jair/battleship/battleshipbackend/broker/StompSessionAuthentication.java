@@ -0,0 +1,45 @@
+package com.jair.battleship.battleshipbackend.broker;
+
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.SessionUser;
+import com.jair.battleship.battleshipbackend.services.MultiplayerService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Checks the {@code X-Session-Token} header of a STOMP CONNECT once and binds
+ * the connection to that session, so commands sent on it need no token. A
+ * connection without the header stays anonymous (spectators); a bad token
+ * fails the CONNECT with an ERROR frame.
+ */
+@Component
+public class StompSessionAuthentication implements ChannelInterceptor {
+
+    public static final String TOKEN_HEADER = "X-Session-Token";
+
+    // Lazy: the service depends on the messaging template this channel belongs to.
+    @Lazy
+    @Autowired
+    private MultiplayerService multiplayerService;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.CONNECT) {
+            return message;
+        }
+        String token = accessor.getFirstNativeHeader(TOKEN_HEADER);
+        if (token == null || token.isBlank()) {
+            return message;
+        }
+        SessionUser session = multiplayerService.currentSession(token);
+        accessor.setUser(new SessionPrincipal(session.id(), session.token()));
+        return message;
+    }
+}
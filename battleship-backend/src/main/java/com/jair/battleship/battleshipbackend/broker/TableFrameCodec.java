@@ -0,0 +1,666 @@
+package com.jair.battleship.battleshipbackend.broker;
+
+import com.jair.battleship.battleshipbackend.models.board.BitBoard;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.FleetShipSpec;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.PrivateMatchView;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.SeatSnapshot;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.ShotSnapshot;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.SpectatorMatchView;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.TableEvent;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.TableResume;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.TableSnapshot;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary form of table events, snapshots and resumes for clients on the native
+ * /ws-native endpoint; the JSON on /ws is unchanged. Mirrored by
+ * {@code lib/tableFrames.ts} in the frontend, so both sides change together.
+ * <p>
+ * A frame is a version byte, a kind byte and the body. Integers are LEB128
+ * varints (zigzag for ids and relative times, 0 meaning null). Known strings
+ * (states, seats, results, ship keys) are one byte, their index in
+ * {@link #TOKENS} plus two; 1 marks a length-prefixed UTF-8 literal instead.
+ * Cells are one byte, 0-99, and board maps are grouped by value so a board
+ * costs a byte per cell.
+ * Times other than {@code serverNow} are sent as milliseconds relative to it.
+ */
+public final class TableFrameCodec {
+
+    public static final int VERSION = 1;
+    public static final int EVENT = 1;
+    public static final int SNAPSHOT = 2;
+    public static final int RESUME = 3;
+
+    private static final List<String> EVENT_TYPES = List.of(TableEvent.SHOT_APPLIED, TableEvent.SEAT_CHANGED,
+            TableEvent.READY_TOGGLED, TableEvent.PHASE_CHANGED, TableEvent.DEADLINE_UPDATED,
+            TableEvent.TABLE_UPDATED, TableEvent.RESYNC);
+
+    /**
+     * Append only: clients decode by position.
+     */
+    static final List<String> TOKENS = List.of(
+            "A", "B", "PLAYER", "MISS", "HIT", "SUNK", "WIN", "MANUAL", "SHOT_TIMEOUT", "SEA_BATTLE_2_CLASSIC",
+            "WAITING_FOR_PLAYERS", "PLAYERS_SEATED", "PLACING_SHIPS", "READY_TO_START", "IN_PROGRESS",
+            "FINISHED", "ABANDONED", "CANCELLED", "CREADA", "EN_CURSO", "FINALIZADA", "CANCELADA",
+            "battleship_1", "cruiser_1", "cruiser_2", "destroyer_1", "destroyer_2", "destroyer_3",
+            "boat_1", "boat_2", "boat_3", "boat_4",
+            "Acorazado", "Crucero 1", "Crucero 2", "Destructor 1", "Destructor 2", "Destructor 3",
+            "Lancha 1", "Lancha 2", "Lancha 3", "Lancha 4");
+
+    private static final Map<String, Integer> TOKEN_IDS = new HashMap<>();
+    private static final int LITERAL = 1;
+    private static final int NO_CELL = 0xFF;
+
+    static {
+        for (int i = 0; i < TOKENS.size(); i++) {
+            TOKEN_IDS.put(TOKENS.get(i), i + 2);
+        }
+    }
+
+    private TableFrameCodec() {
+    }
+
+    public static byte[] encode(TableEvent event) {
+        Writer out = new Writer(EVENT);
+        writeEvent(out, event);
+        return out.toByteArray();
+    }
+
+    public static byte[] encode(TableSnapshot snapshot) {
+        Writer out = new Writer(SNAPSHOT);
+        writeSnapshot(out, snapshot);
+        return out.toByteArray();
+    }
+
+    public static byte[] encode(TableResume resume) {
+        Writer out = new Writer(RESUME);
+        out.optLong(resume.mesaId());
+        out.varint(resume.seq());
+        out.varint(resume.events().size());
+        for (TableEvent event : resume.events()) {
+            writeEvent(out, event);
+        }
+        out.flag(resume.snapshot() != null);
+        if (resume.snapshot() != null) {
+            writeSnapshot(out, resume.snapshot());
+        }
+        return out.toByteArray();
+    }
+
+    public static TableEvent decodeEvent(byte[] frame) {
+        return readEvent(new Reader(frame, EVENT));
+    }
+
+    public static TableSnapshot decodeSnapshot(byte[] frame) {
+        return readSnapshot(new Reader(frame, SNAPSHOT));
+    }
+
+    public static TableResume decodeResume(byte[] frame) {
+        Reader in = new Reader(frame, RESUME);
+        Long mesaId = in.optLong();
+        long seq = in.varint();
+        int count = in.count();
+        List<TableEvent> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            events.add(readEvent(in));
+        }
+        TableSnapshot snapshot = in.flag() ? readSnapshot(in) : null;
+        return new TableResume(mesaId, seq, events, snapshot);
+    }
+
+    private static void writeEvent(Writer out, TableEvent event) {
+        int type = EVENT_TYPES.indexOf(event.type());
+        if (type < 0) {
+            throw new IllegalArgumentException("Tipo de evento sin codigo binario: " + event.type());
+        }
+        out.put(type);
+        out.optLong(event.mesaId());
+        out.optLong(event.salaId());
+        out.varint(event.seq());
+        out.base(event.serverNow());
+        switch (event.data()) {
+            case TableEvent.ShotApplied shot -> {
+                out.optLong(shot.partidaId());
+                out.varint(shot.index());
+                writeShot(out, shot.shot());
+                out.optLong(shot.turnoActualJugadorId());
+                out.optInstant(shot.turnDeadlineAt());
+                out.optLong(shot.ganadorId());
+            }
+            case TableEvent.SeatChanged seat -> writeSeat(out, seat.seat());
+            case TableEvent.ReadyToggled ready -> {
+                out.token(ready.seat());
+                out.flag(ready.ready());
+            }
+            case TableEvent.PhaseChanged phase -> {
+                out.token(phase.estado());
+                out.optLong(phase.partidaId());
+                out.optLong(phase.turnoActualJugadorId());
+                out.optLong(phase.ganadorId());
+            }
+            case TableEvent.DeadlineUpdated deadlines -> {
+                out.optInstant(deadlines.readyDeadlineAt());
+                out.optInstant(deadlines.placementDeadlineAt());
+                out.optInstant(deadlines.turnDeadlineAt());
+                out.optLong(deadlines.turnoActualJugadorId());
+            }
+            case TableEvent.TableUpdated table -> {
+                out.string(table.nombre());
+                out.varint(table.spectators());
+                out.flags(table.rematchA(), table.rematchB());
+            }
+            case null -> {
+            }
+            default -> throw new IllegalArgumentException("Datos de evento sin codigo binario: " + event.type());
+        }
+    }
+
+    private static TableEvent readEvent(Reader in) {
+        int code = in.get();
+        if (code >= EVENT_TYPES.size()) {
+            throw new IllegalArgumentException("Tipo de evento binario desconocido: " + code);
+        }
+        String type = EVENT_TYPES.get(code);
+        Long mesaId = in.optLong();
+        Long salaId = in.optLong();
+        long seq = in.varint();
+        Instant serverNow = in.base();
+        Object data = switch (type) {
+            case TableEvent.SHOT_APPLIED -> new TableEvent.ShotApplied(in.optLong(), in.count(), readShot(in),
+                    in.optLong(), in.optInstant(), in.optLong());
+            case TableEvent.SEAT_CHANGED -> new TableEvent.SeatChanged(readSeat(in));
+            case TableEvent.READY_TOGGLED -> new TableEvent.ReadyToggled(in.token(), in.flag());
+            case TableEvent.PHASE_CHANGED -> new TableEvent.PhaseChanged(in.token(), in.optLong(), in.optLong(),
+                    in.optLong());
+            case TableEvent.DEADLINE_UPDATED -> new TableEvent.DeadlineUpdated(in.optInstant(), in.optInstant(),
+                    in.optInstant(), in.optLong());
+            case TableEvent.TABLE_UPDATED -> {
+                String nombre = in.string();
+                int spectators = in.count();
+                int flags = in.get();
+                yield new TableEvent.TableUpdated(nombre, spectators, (flags & 1) != 0, (flags & 2) != 0);
+            }
+            default -> null;
+        };
+        return new TableEvent(type, mesaId, salaId, seq, serverNow, data);
+    }
+
+    private static void writeSnapshot(Writer out, TableSnapshot table) {
+        out.optLong(table.id());
+        out.optLong(table.salaId());
+        out.string(table.salaNombre());
+        out.string(table.nombre());
+        out.token(table.estado());
+        out.base(table.serverNow());
+        out.optInstant(table.readyDeadlineAt());
+        out.optInstant(table.placementDeadlineAt());
+        out.optInstant(table.turnDeadlineAt());
+        out.token(table.ruleset());
+        if (out.size(table.fleetSpec())) {
+            for (FleetShipSpec ship : table.fleetSpec()) {
+                out.token(ship.key());
+                out.token(ship.name());
+                out.varint(ship.size());
+            }
+        }
+        writeSeat(out, table.seatA());
+        writeSeat(out, table.seatB());
+        out.token(table.mySeat());
+        out.varint(table.spectators());
+        out.optLong(table.partidaId());
+        out.optLong(table.turnoActualJugadorId());
+        out.optLong(table.ganadorId());
+        out.flags(table.rematchA(), table.rematchB(), table.privateView() != null, table.spectatorView() != null);
+        if (table.privateView() != null) {
+            PrivateMatchView view = table.privateView();
+            out.token(view.role());
+            out.token(view.mySeat());
+            out.optLong(view.myJugadorId());
+            out.cells(view.ownShips());
+            out.cells(view.ownReceivedShots());
+            out.cells(view.targetShots());
+            out.flags(view.ownShipsPlaced(), view.opponentShipsPlaced());
+            writeBoards(out, view.revealedShips());
+            writeShots(out, view.history());
+            out.varint(view.shotSeq());
+        }
+        if (table.spectatorView() != null) {
+            SpectatorMatchView view = table.spectatorView();
+            if (out.size(view.players())) {
+                for (Map.Entry<Long, String> player : view.players().entrySet()) {
+                    out.optLong(player.getKey());
+                    out.string(player.getValue());
+                }
+            }
+            writeBoards(out, view.publicShots());
+            writeBoards(out, view.revealedShips());
+            writeShots(out, view.history());
+            out.varint(view.shotSeq());
+        }
+        out.varint(table.eventSeq());
+        out.varint(table.version());
+    }
+
+    private static TableSnapshot readSnapshot(Reader in) {
+        Long id = in.optLong();
+        Long salaId = in.optLong();
+        String salaNombre = in.string();
+        String nombre = in.string();
+        String estado = in.token();
+        Instant serverNow = in.base();
+        Instant readyDeadlineAt = in.optInstant();
+        Instant placementDeadlineAt = in.optInstant();
+        Instant turnDeadlineAt = in.optInstant();
+        String ruleset = in.token();
+        List<FleetShipSpec> fleetSpec = null;
+        int ships = in.size();
+        if (ships >= 0) {
+            fleetSpec = new ArrayList<>(ships);
+            for (int i = 0; i < ships; i++) {
+                fleetSpec.add(new FleetShipSpec(in.token(), in.token(), in.count()));
+            }
+        }
+        SeatSnapshot seatA = readSeat(in);
+        SeatSnapshot seatB = readSeat(in);
+        String mySeat = in.token();
+        int spectators = in.count();
+        Long partidaId = in.optLong();
+        Long turnoActualJugadorId = in.optLong();
+        Long ganadorId = in.optLong();
+        int flags = in.get();
+        PrivateMatchView privateView = null;
+        if ((flags & 4) != 0) {
+            String role = in.token();
+            String viewSeat = in.token();
+            Long myJugadorId = in.optLong();
+            Map<String, String> ownShips = in.cells();
+            Map<String, String> ownReceivedShots = in.cells();
+            Map<String, String> targetShots = in.cells();
+            int placed = in.get();
+            privateView = new PrivateMatchView(role, viewSeat, myJugadorId, ownShips, ownReceivedShots,
+                    targetShots, (placed & 1) != 0, (placed & 2) != 0, readBoards(in), readShots(in), in.count());
+        }
+        SpectatorMatchView spectatorView = null;
+        if ((flags & 8) != 0) {
+            Map<Long, String> players = null;
+            int count = in.size();
+            if (count >= 0) {
+                players = new LinkedHashMap<>();
+                for (int i = 0; i < count; i++) {
+                    players.put(in.optLong(), in.string());
+                }
+            }
+            spectatorView = new SpectatorMatchView(players, readBoards(in), readBoards(in), readShots(in),
+                    in.count());
+        }
+        return new TableSnapshot(id, salaId, salaNombre, nombre, estado, serverNow, readyDeadlineAt,
+                placementDeadlineAt, turnDeadlineAt, ruleset, fleetSpec, seatA, seatB, mySeat, spectators,
+                partidaId, turnoActualJugadorId, ganadorId, (flags & 1) != 0, (flags & 2) != 0, privateView,
+                spectatorView, in.varint(), in.varint());
+    }
+
+    /**
+     * Flags first; bit 0x80 stands for a missing seat.
+     */
+    private static void writeSeat(Writer out, SeatSnapshot seat) {
+        if (seat == null) {
+            out.put(0x80);
+            return;
+        }
+        out.flags(seat.guest(), seat.ready(), seat.occupied(), seat.shipsPlaced(), seat.rating() != null);
+        out.token(seat.seat());
+        out.optLong(seat.jugadorId());
+        out.string(seat.displayName());
+        if (seat.rating() != null) {
+            out.signed(seat.rating());
+        }
+    }
+
+    private static SeatSnapshot readSeat(Reader in) {
+        int flags = in.get();
+        if ((flags & 0x80) != 0) {
+            return null;
+        }
+        String seat = in.token();
+        Long jugadorId = in.optLong();
+        String displayName = in.string();
+        Integer rating = (flags & 16) != 0 ? (int) in.signed() : null;
+        return new SeatSnapshot(seat, jugadorId, displayName, (flags & 1) != 0, rating, (flags & 2) != 0,
+                (flags & 4) != 0, (flags & 8) != 0);
+    }
+
+    private static void writeShots(Writer out, List<ShotSnapshot> shots) {
+        if (out.size(shots)) {
+            for (ShotSnapshot shot : shots) {
+                writeShot(out, shot);
+            }
+        }
+    }
+
+    private static List<ShotSnapshot> readShots(Reader in) {
+        int count = in.size();
+        if (count < 0) {
+            return null;
+        }
+        List<ShotSnapshot> shots = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            shots.add(readShot(in));
+        }
+        return shots;
+    }
+
+    private static void writeShot(Writer out, ShotSnapshot shot) {
+        out.optLong(shot.atacanteId());
+        out.optLong(shot.defensorId());
+        out.cell(shot.posicion());
+        out.flags(shot.acierto(), shot.automatic());
+        out.token(shot.resultado());
+        out.token(shot.barcoHundido());
+        out.token(shot.reason());
+        out.optInstant(shot.ts());
+    }
+
+    private static ShotSnapshot readShot(Reader in) {
+        Long atacanteId = in.optLong();
+        Long defensorId = in.optLong();
+        String posicion = in.cell();
+        int flags = in.get();
+        return new ShotSnapshot(atacanteId, defensorId, posicion, (flags & 1) != 0, in.token(), in.token(),
+                (flags & 2) != 0, in.token(), in.optInstant());
+    }
+
+    private static void writeBoards(Writer out, Map<Long, Map<String, String>> boards) {
+        if (out.size(boards)) {
+            for (Map.Entry<Long, Map<String, String>> board : boards.entrySet()) {
+                out.optLong(board.getKey());
+                out.cells(board.getValue());
+            }
+        }
+    }
+
+    private static Map<Long, Map<String, String>> readBoards(Reader in) {
+        int count = in.size();
+        if (count < 0) {
+            return null;
+        }
+        Map<Long, Map<String, String>> boards = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            boards.put(in.optLong(), in.cells());
+        }
+        return boards;
+    }
+
+    private static final class Writer {
+
+        private byte[] buf = new byte[128];
+        private int length;
+        private long base;
+
+        Writer(int kind) {
+            put(VERSION);
+            put(kind);
+        }
+
+        void put(int b) {
+            if (length == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+            buf[length++] = (byte) b;
+        }
+
+        void varint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                put((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            put((int) value);
+        }
+
+        void signed(long value) {
+            varint((value << 1) ^ (value >> 63));
+        }
+
+        void optLong(Long value) {
+            varint(value == null ? 0 : ((value << 1) ^ (value >> 63)) + 1);
+        }
+
+        void flag(boolean value) {
+            put(value ? 1 : 0);
+        }
+
+        void flags(boolean... bits) {
+            int flags = 0;
+            for (int i = 0; i < bits.length; i++) {
+                if (bits[i]) {
+                    flags |= 1 << i;
+                }
+            }
+            put(flags);
+        }
+
+        /**
+         * Absolute time that the relative ones after it are measured from.
+         */
+        void base(Instant instant) {
+            base = instant == null ? 0 : instant.toEpochMilli();
+            varint(base);
+        }
+
+        void optInstant(Instant instant) {
+            if (instant == null) {
+                varint(0);
+            } else {
+                long delta = instant.toEpochMilli() - base;
+                varint(((delta << 1) ^ (delta >> 63)) + 1);
+            }
+        }
+
+        void string(String value) {
+            if (value == null) {
+                varint(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length + 1L);
+            for (byte b : bytes) {
+                put(b);
+            }
+        }
+
+        void token(String value) {
+            Integer id = value == null ? Integer.valueOf(0) : TOKEN_IDS.get(value);
+            if (id != null) {
+                varint(id);
+            } else {
+                varint(LITERAL);
+                string(value);
+            }
+        }
+
+        void cell(String label) {
+            int cell = label == null ? -1 : BitBoard.parse(label);
+            if (cell >= 0) {
+                put(cell);
+            } else {
+                put(NO_CELL);
+                string(label);
+            }
+        }
+
+        /**
+         * Writes the size of a collection plus one, or 0 for null; returns
+         * whether its elements follow.
+         */
+        boolean size(Object collection) {
+            int size = collection == null ? -1
+                    : collection instanceof Map<?, ?> map ? map.size() : ((List<?>) collection).size();
+            varint(size + 1L);
+            return size > 0;
+        }
+
+        /**
+         * Cell -> value maps grouped by value: each distinct value once, then
+         * its cells.
+         */
+        void cells(Map<String, String> board) {
+            if (board == null) {
+                varint(0);
+                return;
+            }
+            Map<String, List<String>> groups = new LinkedHashMap<>();
+            for (Map.Entry<String, String> cell : board.entrySet()) {
+                groups.computeIfAbsent(cell.getValue(), value -> new ArrayList<>()).add(cell.getKey());
+            }
+            varint(groups.size() + 1L);
+            for (Map.Entry<String, List<String>> group : groups.entrySet()) {
+                token(group.getKey());
+                varint(group.getValue().size());
+                for (String label : group.getValue()) {
+                    cell(label);
+                }
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, length);
+        }
+    }
+
+    private static final class Reader {
+
+        private final byte[] buf;
+        private int pos;
+        private long base;
+
+        Reader(byte[] frame, int kind) {
+            this.buf = frame;
+            int version = get();
+            int actual = get();
+            if (version != VERSION || actual != kind) {
+                throw new IllegalArgumentException("Trama binaria no soportada: version " + version
+                        + ", tipo " + actual);
+            }
+        }
+
+        int get() {
+            if (pos >= buf.length) {
+                throw new IllegalArgumentException("Trama binaria truncada");
+            }
+            return buf[pos++] & 0xFF;
+        }
+
+        long varint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = get();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Varint demasiado largo");
+        }
+
+        int count() {
+            return (int) varint();
+        }
+
+        long signed() {
+            long value = varint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        Long optLong() {
+            long value = varint();
+            if (value == 0) {
+                return null;
+            }
+            value--;
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        boolean flag() {
+            return get() != 0;
+        }
+
+        Instant base() {
+            base = varint();
+            return Instant.ofEpochMilli(base);
+        }
+
+        Instant optInstant() {
+            long value = varint();
+            if (value == 0) {
+                return null;
+            }
+            value--;
+            return Instant.ofEpochMilli(base + ((value >>> 1) ^ -(value & 1)));
+        }
+
+        String string() {
+            int length = count() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (pos + length > buf.length) {
+                throw new IllegalArgumentException("Trama binaria truncada");
+            }
+            String value = new String(buf, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return value;
+        }
+
+        String token(int id) {
+            if (id == 0) {
+                return null;
+            }
+            if (id == LITERAL) {
+                return string();
+            }
+            if (id - 2 >= TOKENS.size()) {
+                throw new IllegalArgumentException("Token binario desconocido: " + id);
+            }
+            return TOKENS.get(id - 2);
+        }
+
+        String token() {
+            return token(count());
+        }
+
+        String cell() {
+            int cell = get();
+            return cell == NO_CELL ? string() : BitBoard.label(cell);
+        }
+
+        /**
+         * The size written by {@link Writer#size}, or -1 for null.
+         */
+        int size() {
+            return count() - 1;
+        }
+
+        Map<String, String> cells() {
+            int groups = size();
+            if (groups < 0) {
+                return null;
+            }
+            Map<String, String> board = new HashMap<>();
+            for (int i = 0; i < groups; i++) {
+                String value = token();
+                int count = count();
+                for (int j = 0; j < count; j++) {
+                    board.put(cell(), value);
+                }
+            }
+            return board;
+        }
+    }
+}
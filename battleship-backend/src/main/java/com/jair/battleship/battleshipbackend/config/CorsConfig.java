@@ -23,7 +23,7 @@ public class CorsConfig {
                         .allowedOriginPatterns(parseAllowedOriginPatterns())
                         .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                         .allowedHeaders("*")
-                        .exposedHeaders("Location")
+                        .exposedHeaders("Location", "ETag")
                         .allowCredentials(true)
                         .maxAge(3600);
             }
@@ -2,10 +2,19 @@ package com.jair.battleship.battleshipbackend.config;
 
 import java.util.Arrays;
 
+import com.jair.battleship.battleshipbackend.broker.SessionOutboxes;
+import com.jair.battleship.battleshipbackend.broker.ShardedSubscriptionRegistry;
+import com.jair.battleship.battleshipbackend.broker.StompSessionAuthentication;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 @Configuration
 @EnableWebSocketMessageBroker
@@ -14,17 +23,72 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     @Value("${app.allowed-origin-patterns}")
     private String allowedOriginPatterns;
 
+    @Value("${app.broker.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${app.broker.send-buffer-kb:256}")
+    private int sendBufferKb;
+
+    @Autowired
+    private SessionOutboxes sessionOutboxes;
+
+    @Autowired
+    private StompSessionAuthentication stompSessionAuthentication;
+
+    /**
+     * Swaps the simple broker's single subscription registry for one sharded
+     * by destination before the broker starts.
+     */
+    @Bean
+    static BeanPostProcessor shardedBrokerSubscriptions(@Value("${app.broker.shards:16}") int shards) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof SimpleBrokerMessageHandler broker) {
+                    broker.setSubscriptionRegistry(new ShardedSubscriptionRegistry(shards));
+                }
+                return bean;
+            }
+        };
+    }
+
     @Override
     public void configureMessageBroker(org.springframework.messaging.simp.config.MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic");
+        // /queue only carries replies to user destinations (/user/queue/...).
+        config.enableSimpleBroker("/topic", "/queue");
         config.setApplicationDestinationPrefixes("/app");
     }
 
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(stompSessionAuthentication);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(sessionOutboxes);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // Backstop behind the per-session outboxes: a socket that cannot take a
+        // frame for this long, or falls this far behind, is closed.
+        registration.setSendTimeLimit(sendTimeLimitMs);
+        registration.setSendBufferSizeLimit(sendBufferKb * 1024);
+    }
+
     @Override
     public void registerStompEndpoints(org.springframework.web.socket.config.annotation.StompEndpointRegistry registry) {
         registry.addEndpoint("/ws")
             .setAllowedOriginPatterns(parseAllowedOriginPatterns())
             .withSockJS();
+        // Plain WebSocket, no SockJS framing or HTTP fallbacks. Clients here may
+        // also take table frames in binary from /topic/bin/... (TableFrameCodec).
+        registry.addEndpoint("/ws-native")
+            .setAllowedOriginPatterns(parseAllowedOriginPatterns());
+        // Frames of one connection are handled in order, so a command sent right
+        // after subscribing to its reply queue cannot overtake the SUBSCRIBE.
+        registry.setPreserveReceiveOrder(true);
     }
 
     private String[] parseAllowedOriginPatterns() {
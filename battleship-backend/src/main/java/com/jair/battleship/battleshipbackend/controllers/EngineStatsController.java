@@ -0,0 +1,41 @@
+package com.jair.battleship.battleshipbackend.controllers;
+
+import com.jair.battleship.battleshipbackend.broker.BroadcastCoalescer;
+import com.jair.battleship.battleshipbackend.broker.SessionOutboxes;
+import com.jair.battleship.battleshipbackend.services.engine.DomainEvents;
+import com.jair.battleship.battleshipbackend.services.engine.MesaSweeper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/engine")
+public class EngineStatsController {
+
+    @Autowired
+    private MesaSweeper sweeper;
+
+    @Autowired
+    private SessionOutboxes outboxes;
+
+    @Autowired
+    private BroadcastCoalescer broadcasts;
+
+    @Autowired
+    private DomainEvents events;
+
+    @GetMapping("/stats")
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sweeps", Map.of(
+                "last", sweeper.lastSweeps(),
+                "processedTotal", sweeper.processedTotal(),
+                "failuresTotal", sweeper.failuresTotal()));
+        stats.put("outboxes", outboxes.stats());
+        stats.put("broadcasts", broadcasts.stats());
+        stats.put("events", events.stats());
+        return stats;
+    }
+}
@@ -1,9 +1,11 @@
 package com.jair.battleship.battleshipbackend.controllers;
 
-import com.jair.battleship.battleshipbackend.models.dto.multiplayer.LobbySnapshot;
 import com.jair.battleship.battleshipbackend.services.MultiplayerService;
+import com.jair.battleship.battleshipbackend.services.engine.VersionWatch;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 @RestController
 @RequestMapping("/api/lobby")
@@ -12,8 +14,17 @@ public class LobbyController {
     @Autowired
     private MultiplayerService multiplayerService;
 
+    @Autowired
+    private VersionedJsonResponses responses;
+
     @GetMapping
-    public LobbySnapshot lobby(@RequestHeader(value = "X-Session-Token", required = false) String token) {
-        return multiplayerService.lobby(token);
+    public ResponseEntity<byte[]> lobby(@RequestHeader(value = "X-Session-Token", required = false) String token) {
+        return responses.ok(multiplayerService.lobbyJson(token));
+    }
+
+    @GetMapping(params = "sinceVersion")
+    public DeferredResult<ResponseEntity<byte[]>> awaitLobby(@RequestParam long sinceVersion,
+            @RequestHeader(value = "X-Session-Token", required = false) String token) {
+        return responses.poll(VersionWatch.LOBBY, sinceVersion, () -> multiplayerService.lobbyJson(token));
     }
 }
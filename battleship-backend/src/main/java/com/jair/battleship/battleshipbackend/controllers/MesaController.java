@@ -2,8 +2,11 @@ package com.jair.battleship.battleshipbackend.controllers;
 
 import com.jair.battleship.battleshipbackend.models.dto.multiplayer.*;
 import com.jair.battleship.battleshipbackend.services.MultiplayerService;
+import com.jair.battleship.battleshipbackend.services.engine.VersionWatch;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 @RestController
 @RequestMapping("/api/mesas")
@@ -12,10 +15,33 @@ public class MesaController {
     @Autowired
     private MultiplayerService multiplayerService;
 
+    @Autowired
+    private VersionedJsonResponses responses;
+
     @GetMapping("/{mesaId}")
-    public TableSnapshot table(@PathVariable Long mesaId,
+    public ResponseEntity<byte[]> table(@PathVariable Long mesaId,
+            @RequestHeader(value = "X-Session-Token", required = false) String token) {
+        return responses.ok(multiplayerService.tableJson(mesaId, token));
+    }
+
+    @GetMapping(value = "/{mesaId}", params = "sinceVersion")
+    public DeferredResult<ResponseEntity<byte[]>> awaitTable(@PathVariable Long mesaId,
+            @RequestParam long sinceVersion,
             @RequestHeader(value = "X-Session-Token", required = false) String token) {
-        return multiplayerService.table(mesaId, token);
+        return responses.poll(VersionWatch.mesa(mesaId), sinceVersion,
+                () -> multiplayerService.tableJson(mesaId, token));
+    }
+
+    @GetMapping("/{mesaId}/events")
+    public TableResume events(@PathVariable Long mesaId, @RequestParam long after,
+            @RequestHeader(value = "X-Session-Token", required = false) String token) {
+        return multiplayerService.resume(mesaId, token, after);
+    }
+
+    @GetMapping("/{mesaId}/history")
+    public ShotPage history(@PathVariable Long mesaId, @RequestParam(defaultValue = "0") int afterShotSeq,
+            @RequestParam(defaultValue = "100") int limit) {
+        return multiplayerService.history(mesaId, afterShotSeq, limit);
     }
 
     @PostMapping("/{mesaId}/join")
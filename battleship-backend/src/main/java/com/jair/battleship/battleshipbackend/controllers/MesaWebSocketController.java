@@ -0,0 +1,140 @@
+package com.jair.battleship.battleshipbackend.controllers;
+
+import com.jair.battleship.battleshipbackend.broker.SessionPrincipal;
+import com.jair.battleship.battleshipbackend.broker.TableFrameCodec;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.ErrorResponse;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.ShipPlacementRequest;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.ShotRequest;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.ShotResult;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.TableResume;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.TableSnapshot;
+import com.jair.battleship.battleshipbackend.services.MultiplayerService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.security.Principal;
+import java.time.Instant;
+
+/**
+ * Mesa reads and commands over STOMP. Commands act as the session the
+ * connection authenticated as at CONNECT and answer only the sending
+ * connection, on /user/queue/mesas/{id}/...; failures go to /user/queue/errors
+ * with the same body and status the REST endpoints would return. Every command
+ * gets exactly one reply, and a command sent with an {@code x-command-id}
+ * header gets it back on that reply so the client can match them by id.
+ */
+@Controller
+public class MesaWebSocketController {
+
+    private static final String COMMAND_ID = "x-command-id";
+
+    private static final Logger log = LoggerFactory.getLogger(MesaWebSocketController.class);
+
+    @Autowired
+    private MultiplayerService multiplayerService;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    /**
+     * Subscribing to /app/mesas/{id}/events with an {@code after} header answers
+     * once, to that subscriber only, with what {@code GET /api/mesas/{id}/events}
+     * would return. Live events keep coming on /topic/mesas/{id}.
+     */
+    @SubscribeMapping("/mesas/{mesaId}/events")
+    public TableResume events(@DestinationVariable Long mesaId, @Header("after") long after,
+            @Header(name = "X-Session-Token", required = false) String token,
+            @Header(name = SimpMessageHeaderAccessor.USER_HEADER, required = false) Principal user) {
+        return multiplayerService.resume(mesaId, token != null ? token : token(user), after);
+    }
+
+    /**
+     * Same answer as {@link #events}, as a binary {@link TableFrameCodec} frame
+     * for clients on /ws-native that follow /topic/bin/mesas/{id}.
+     */
+    @SubscribeMapping("/bin/mesas/{mesaId}/events")
+    public byte[] binaryEvents(@DestinationVariable Long mesaId, @Header("after") long after,
+            @Header(name = "X-Session-Token", required = false) String token,
+            @Header(name = SimpMessageHeaderAccessor.USER_HEADER, required = false) Principal user) {
+        return TableFrameCodec.encode(multiplayerService.resume(mesaId, token != null ? token : token(user), after));
+    }
+
+    @MessageMapping("/mesas/{mesaId}/shots")
+    public void shot(@DestinationVariable Long mesaId, ShotRequest request, SimpMessageHeaderAccessor headers) {
+        ShotResult result = multiplayerService.shoot(mesaId, token(headers.getUser()), request);
+        reply(headers, "/queue/mesas/" + mesaId + "/shots", result);
+    }
+
+    @MessageMapping("/mesas/{mesaId}/ready")
+    public void ready(@DestinationVariable Long mesaId, SimpMessageHeaderAccessor headers) {
+        TableSnapshot table = multiplayerService.ready(mesaId, token(headers.getUser()));
+        reply(headers, "/queue/mesas/" + mesaId + "/ready", table);
+    }
+
+    @MessageMapping("/mesas/{mesaId}/ships")
+    public void ships(@DestinationVariable Long mesaId, ShipPlacementRequest request,
+            SimpMessageHeaderAccessor headers) {
+        TableSnapshot table = multiplayerService.placeShips(mesaId, token(headers.getUser()), request);
+        reply(headers, "/queue/mesas/" + mesaId + "/ships", table);
+    }
+
+    /**
+     * Answers every failure, expected or not, so a client waiting on a command
+     * always gets its reply.
+     */
+    @MessageExceptionHandler
+    public void error(RuntimeException ex, SimpMessageHeaderAccessor headers) {
+        reply(headers, "/queue/errors", errorResponse(ex, headers.getDestination()));
+    }
+
+    private ErrorResponse errorResponse(RuntimeException ex, String destination) {
+        if (ex instanceof ResponseStatusException status) {
+            int code = status.getStatusCode().value();
+            String message = status.getReason() == null ? "Error de solicitud" : status.getReason();
+            return new ErrorResponse(message, code, Instant.now());
+        }
+        if (ex instanceof MessageConversionException) {
+            return new ErrorResponse("Cuerpo de solicitud invalido", 400, Instant.now());
+        }
+        if (ex instanceof IllegalArgumentException || ex instanceof IllegalStateException) {
+            int code = ex instanceof IllegalArgumentException ? 400 : 409;
+            return new ErrorResponse(ex.getMessage(), code, Instant.now());
+        }
+        log.error("Fallo inesperado atendiendo {}", destination, ex);
+        return new ErrorResponse("Error interno del servidor", 500, Instant.now());
+    }
+
+    /**
+     * Sends to the requesting connection only, like {@code @SendToUser} with
+     * {@code broadcast = false}, echoing the command id.
+     */
+    private void reply(SimpMessageHeaderAccessor request, String destination, Object payload) {
+        String sessionId = request.getSessionId();
+        Principal user = request.getUser();
+        SimpMessageHeaderAccessor reply = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        reply.setSessionId(sessionId);
+        String commandId = request.getFirstNativeHeader(COMMAND_ID);
+        if (commandId != null) {
+            reply.setNativeHeader(COMMAND_ID, commandId);
+        }
+        reply.setLeaveMutable(true);
+        messagingTemplate.convertAndSendToUser(user != null ? user.getName() : sessionId, destination, payload,
+                reply.getMessageHeaders());
+    }
+
+    private String token(Principal user) {
+        return user instanceof SessionPrincipal session ? session.token() : null;
+    }
+}
@@ -19,6 +19,12 @@ public class RankingController {
         return rankingService.obtenerRanking(periodo);
     }
 
+    @GetMapping("/usuario/{usuarioId}")
+    public Map<String, Object> obtenerPosicion(@PathVariable Long usuarioId,
+                                               @RequestParam(defaultValue = "5") int radio) {
+        return rankingService.obtenerPosicion(usuarioId, radio);
+    }
+
     @GetMapping("/partida/{partidaId}/jugador/{jugadorId}")
     public Map<String, Object> obtenerPuntuacion(@PathVariable Long partidaId, @PathVariable Long jugadorId) {
         return rankingService.obtenerPuntuacion(partidaId, jugadorId);
@@ -1,10 +1,12 @@
 package com.jair.battleship.battleshipbackend.controllers;
 
-import com.jair.battleship.battleshipbackend.models.dto.multiplayer.RoomSnapshot;
 import com.jair.battleship.battleshipbackend.models.dto.multiplayer.TableSnapshot;
 import com.jair.battleship.battleshipbackend.services.MultiplayerService;
+import com.jair.battleship.battleshipbackend.services.engine.VersionWatch;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.util.Map;
 
@@ -15,10 +17,21 @@ public class SalasV2Controller {
     @Autowired
     private MultiplayerService multiplayerService;
 
+    @Autowired
+    private VersionedJsonResponses responses;
+
     @GetMapping("/{salaId}")
-    public RoomSnapshot room(@PathVariable Long salaId,
+    public ResponseEntity<byte[]> room(@PathVariable Long salaId,
+            @RequestHeader(value = "X-Session-Token", required = false) String token) {
+        return responses.ok(multiplayerService.roomJson(salaId, token));
+    }
+
+    @GetMapping(value = "/{salaId}", params = "sinceVersion")
+    public DeferredResult<ResponseEntity<byte[]>> awaitRoom(@PathVariable Long salaId,
+            @RequestParam long sinceVersion,
             @RequestHeader(value = "X-Session-Token", required = false) String token) {
-        return multiplayerService.room(salaId, token);
+        return responses.poll(VersionWatch.sala(salaId), sinceVersion,
+                () -> multiplayerService.roomJson(salaId, token));
     }
 
     @PostMapping("/{salaId}/mesas")
@@ -0,0 +1,85 @@
+package com.jair.battleship.battleshipbackend.controllers;
+
+import com.jair.battleship.battleshipbackend.services.engine.VersionWatch;
+import com.jair.battleship.battleshipbackend.services.engine.VersionedJson;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.function.Supplier;
+
+/**
+ * Responses for versioned JSON reads. The version is a strong ETag, so polling
+ * clients get a 304 while nothing changed, and {@link #poll} parks a request
+ * without a servlet thread until the version moves past the one it has.
+ */
+@Component
+public class VersionedJsonResponses {
+
+    @Autowired
+    private VersionWatch versionWatch;
+
+    @Value("${app.http.long-poll-ms:25000}")
+    private long longPollMs;
+
+    public ResponseEntity<byte[]> ok(VersionedJson payload) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag(payload.version()))
+                .cacheControl(CacheControl.noCache())
+                .varyBy("X-Session-Token")
+                .body(payload.json());
+    }
+
+    /**
+     * Answers as soon as the version read is greater than {@code sinceVersion},
+     * or with a 304 once the long-poll timeout expires. Every change of the key
+     * re-reads the payload on a virtual thread.
+     */
+    public DeferredResult<ResponseEntity<byte[]>> poll(String key, long sinceVersion, Supplier<VersionedJson> read) {
+        ResponseEntity<byte[]> notModified = ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag(sinceVersion))
+                .cacheControl(CacheControl.noCache())
+                .build();
+        DeferredResult<ResponseEntity<byte[]>> result = new DeferredResult<>(longPollMs, notModified);
+        Runnable[] waiter = new Runnable[1];
+        waiter[0] = () -> {
+            if (result.isSetOrExpired()) {
+                return;
+            }
+            versionWatch.await(key, waiter[0]);
+            try {
+                VersionedJson payload = read.get();
+                if (payload.version() > sinceVersion) {
+                    result.setResult(ok(payload));
+                }
+            } catch (RuntimeException e) {
+                result.setErrorResult(e);
+            }
+        };
+        result.onCompletion(() -> versionWatch.cancel(key, waiter[0]));
+        // Armed before the first read, so a change in between still wakes it.
+        versionWatch.await(key, waiter[0]);
+        VersionedJson current;
+        try {
+            current = read.get();
+        } catch (RuntimeException e) {
+            versionWatch.cancel(key, waiter[0]);
+            throw e;
+        }
+        if (current.version() > sinceVersion) {
+            versionWatch.cancel(key, waiter[0]);
+            result.setResult(ok(current));
+        }
+        return result;
+    }
+
+    private static String etag(long version) {
+        return "\"" + version + "\"";
+    }
+}
@@ -0,0 +1,306 @@
+package com.jair.battleship.battleshipbackend.models.board;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Primitive 10x10 board used by the classic rules engine. Cell {@code i} is
+ * {@code row * 10 + col}; cells 0..63 live in the low word and 64..99 in the
+ * high word. Ship identity is kept per cell as the {@link ClassicFleet} ship id.
+ * String coordinates like "B7" only appear at the API edge.
+ */
+public final class BitBoard {
+
+    public static final int SIZE = 10;
+    public static final int CELLS = SIZE * SIZE;
+    public static final int MAX_SHIPS = 15;
+    private static final long HI_MASK = (1L << (CELLS - 64)) - 1;
+    private static final long[] HALO_LO = new long[CELLS];
+    private static final long[] HALO_HI = new long[CELLS];
+
+    static {
+        for (int cell = 0; cell < CELLS; cell++) {
+            for (int row = row(cell) - 1; row <= row(cell) + 1; row++) {
+                for (int col = col(cell) - 1; col <= col(cell) + 1; col++) {
+                    if (row < 0 || row >= SIZE || col < 0 || col >= SIZE) {
+                        continue;
+                    }
+                    int neighbour = index(row, col);
+                    if (neighbour < 64) {
+                        HALO_LO[cell] |= 1L << neighbour;
+                    } else {
+                        HALO_HI[cell] |= 1L << (neighbour - 64);
+                    }
+                }
+            }
+        }
+    }
+
+    private final byte[] shipAt = new byte[CELLS];
+    private final long[] shipLo = new long[MAX_SHIPS + 1];
+    private final long[] shipHi = new long[MAX_SHIPS + 1];
+    private long shipsLo;
+    private long shipsHi;
+    private long shotsLo;
+    private long shotsHi;
+
+    public static int index(int row, int col) {
+        return row * SIZE + col;
+    }
+
+    public static int row(int cell) {
+        return cell / SIZE;
+    }
+
+    public static int col(int cell) {
+        return cell % SIZE;
+    }
+
+    public static String label(int cell) {
+        return String.valueOf((char) ('A' + row(cell))) + (col(cell) + 1);
+    }
+
+    /**
+     * Parses labels like "B7" without allocating; returns -1 when the label is not
+     * on the board. Callers that need user-facing errors validate first.
+     */
+    public static int parse(String label) {
+        if (label == null || label.length() < 2 || label.length() > 3) {
+            return -1;
+        }
+        int row = label.charAt(0) - 'A';
+        int col = 0;
+        for (int i = 1; i < label.length(); i++) {
+            char c = label.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            col = col * 10 + (c - '0');
+        }
+        if (row < 0 || row >= SIZE || col < 1 || col > SIZE) {
+            return -1;
+        }
+        return index(row, col - 1);
+    }
+
+    /**
+     * Builds a board from the string-keyed representation (cell -> ship key,
+     * cell -> hit flag). Unknown ship keys are ignored.
+     */
+    public static BitBoard fromCells(Map<String, String> shipsByCell, Map<String, Boolean> attacked) {
+        BitBoard board = new BitBoard();
+        if (shipsByCell != null) {
+            for (Map.Entry<String, String> entry : shipsByCell.entrySet()) {
+                int cell = parse(entry.getKey());
+                int shipId = ClassicFleet.shipId(entry.getValue());
+                if (cell >= 0 && shipId > 0) {
+                    board.place(shipId, cell);
+                }
+            }
+        }
+        if (attacked != null) {
+            for (String label : attacked.keySet()) {
+                int cell = parse(label);
+                if (cell >= 0) {
+                    board.markShot(cell);
+                }
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Rebuilds a board from its persisted form: one ship id byte per cell and the
+     * attacked-cell mask split in two words.
+     */
+    public static BitBoard restore(byte[] layout, long shotsLo, long shotsHi) {
+        BitBoard board = new BitBoard();
+        if (layout != null) {
+            for (int cell = 0; cell < Math.min(layout.length, CELLS); cell++) {
+                if (layout[cell] > 0 && layout[cell] <= MAX_SHIPS) {
+                    board.place(layout[cell], cell);
+                }
+            }
+        }
+        board.shotsLo = shotsLo;
+        board.shotsHi = shotsHi & HI_MASK;
+        return board;
+    }
+
+    public byte[] layout() {
+        return shipAt.clone();
+    }
+
+    public long shotsLo() {
+        return shotsLo;
+    }
+
+    public long shotsHi() {
+        return shotsHi;
+    }
+
+    public void place(int shipId, int... cells) {
+        for (int cell : cells) {
+            shipAt[cell] = (byte) shipId;
+            if (cell < 64) {
+                long bit = 1L << cell;
+                shipLo[shipId] |= bit;
+                shipsLo |= bit;
+            } else {
+                long bit = 1L << (cell - 64);
+                shipHi[shipId] |= bit;
+                shipsHi |= bit;
+            }
+        }
+    }
+
+    public boolean occupied(int... cells) {
+        for (int cell : cells) {
+            if (shipAt[cell] != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * True when any of the given (not yet placed) cells is on or next to an
+     * existing ship, including diagonals.
+     */
+    public boolean touches(int... cells) {
+        long lo = 0;
+        long hi = 0;
+        for (int cell : cells) {
+            lo |= HALO_LO[cell];
+            hi |= HALO_HI[cell];
+        }
+        return (lo & shipsLo) != 0 || (hi & shipsHi) != 0;
+    }
+
+    /**
+     * True when the placed ship has another ship on or next to one of its cells.
+     */
+    public boolean touchesOtherShips(int shipId) {
+        long lo = 0;
+        long hi = 0;
+        for (int cell = 0; cell < CELLS; cell++) {
+            if (shipAt[cell] == shipId) {
+                lo |= HALO_LO[cell];
+                hi |= HALO_HI[cell];
+            }
+        }
+        return (lo & shipsLo & ~shipLo[shipId]) != 0 || (hi & shipsHi & ~shipHi[shipId]) != 0;
+    }
+
+    public boolean hasShip(int cell) {
+        return shipAt[cell] != 0;
+    }
+
+    public int shipAt(int cell) {
+        return shipAt[cell];
+    }
+
+    public boolean isShot(int cell) {
+        return cell < 64 ? (shotsLo & (1L << cell)) != 0 : (shotsHi & (1L << (cell - 64))) != 0;
+    }
+
+    /**
+     * Marks the cell as attacked and returns the ship id found there (0 = water).
+     */
+    public int fire(int cell) {
+        markShot(cell);
+        return shipAt[cell];
+    }
+
+    public boolean isSunk(int shipId) {
+        if (shipId <= 0 || (shipLo[shipId] | shipHi[shipId]) == 0) {
+            return false;
+        }
+        return (shipLo[shipId] & ~shotsLo) == 0 && (shipHi[shipId] & ~shotsHi) == 0;
+    }
+
+    public boolean allSunk() {
+        return (shipsLo | shipsHi) != 0 && (shipsLo & ~shotsLo) == 0 && (shipsHi & ~shotsHi) == 0;
+    }
+
+    public int shipCells() {
+        return Long.bitCount(shipsLo) + Long.bitCount(shipsHi);
+    }
+
+    public int shotCount() {
+        return Long.bitCount(shotsLo) + Long.bitCount(shotsHi);
+    }
+
+    /**
+     * Uniformly picks a cell that has not been attacked yet, or -1 when the
+     * board is exhausted.
+     */
+    public int randomUnshotCell(Random random) {
+        long freeLo = ~shotsLo;
+        long freeHi = ~shotsHi & HI_MASK;
+        int free = Long.bitCount(freeLo) + Long.bitCount(freeHi);
+        if (free == 0) {
+            return -1;
+        }
+        int pick = random.nextInt(free);
+        int lowCount = Long.bitCount(freeLo);
+        long word = pick < lowCount ? freeLo : freeHi;
+        int offset = pick < lowCount ? 0 : 64;
+        int skip = pick < lowCount ? pick : pick - lowCount;
+        for (int i = 0; i < skip; i++) {
+            word &= word - 1;
+        }
+        return offset + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Cell -> ship key for every ship cell, for the owner and revealed views.
+     */
+    public Map<String, String> shipsByCell() {
+        Map<String, String> result = new HashMap<>();
+        for (int cell = 0; cell < CELLS; cell++) {
+            if (shipAt[cell] != 0) {
+                result.put(label(cell), ClassicFleet.key(shipAt[cell]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Cell -> MISS/HIT/SUNK for every attacked cell. Sunk ships are resolved once
+     * into a mask, so this stays linear in the number of shots.
+     */
+    public Map<String, String> shotStatus() {
+        long sunkLo = 0;
+        long sunkHi = 0;
+        for (int shipId = 1; shipId <= MAX_SHIPS; shipId++) {
+            if (isSunk(shipId)) {
+                sunkLo |= shipLo[shipId];
+                sunkHi |= shipHi[shipId];
+            }
+        }
+        Map<String, String> result = new HashMap<>();
+        collectShots(result, shotsLo, shipsLo, sunkLo, 0);
+        collectShots(result, shotsHi, shipsHi, sunkHi, 64);
+        return result;
+    }
+
+    private void collectShots(Map<String, String> result, long shots, long ships, long sunk, int offset) {
+        while (shots != 0) {
+            int bit = Long.numberOfTrailingZeros(shots);
+            long mask = 1L << bit;
+            String status = (ships & mask) == 0 ? "MISS" : (sunk & mask) != 0 ? "SUNK" : "HIT";
+            result.put(label(offset + bit), status);
+            shots &= shots - 1;
+        }
+    }
+
+    private void markShot(int cell) {
+        if (cell < 64) {
+            shotsLo |= 1L << cell;
+        } else {
+            shotsHi |= 1L << (cell - 64);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.jair.battleship.battleshipbackend.models.board;
+
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.FleetShipSpec;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sea Battle 2 classic fleet. Ship ids used by {@link BitBoard} are the 1-based
+ * position of each ship in {@link #SHIPS}; 0 always means water.
+ */
+public final class ClassicFleet {
+
+    public static final List<FleetShipSpec> SHIPS = List.of(
+            new FleetShipSpec("battleship_1", "Acorazado", 4),
+            new FleetShipSpec("cruiser_1", "Crucero 1", 3),
+            new FleetShipSpec("cruiser_2", "Crucero 2", 3),
+            new FleetShipSpec("destroyer_1", "Destructor 1", 2),
+            new FleetShipSpec("destroyer_2", "Destructor 2", 2),
+            new FleetShipSpec("destroyer_3", "Destructor 3", 2),
+            new FleetShipSpec("boat_1", "Lancha 1", 1),
+            new FleetShipSpec("boat_2", "Lancha 2", 1),
+            new FleetShipSpec("boat_3", "Lancha 3", 1),
+            new FleetShipSpec("boat_4", "Lancha 4", 1));
+    public static final int CELLS = SHIPS.stream().mapToInt(FleetShipSpec::size).sum();
+
+    private static final Map<String, Integer> IDS_BY_KEY = new LinkedHashMap<>();
+
+    static {
+        for (int i = 0; i < SHIPS.size(); i++) {
+            IDS_BY_KEY.put(SHIPS.get(i).key(), i + 1);
+        }
+    }
+
+    private ClassicFleet() {
+    }
+
+    public static Map<String, Integer> idsByKey() {
+        return IDS_BY_KEY;
+    }
+
+    public static int shipId(String key) {
+        return key == null ? 0 : IDS_BY_KEY.getOrDefault(key, 0);
+    }
+
+    public static String key(int shipId) {
+        return shipId < 1 || shipId > SHIPS.size() ? null : SHIPS.get(shipId - 1).key();
+    }
+
+    public static FleetShipSpec spec(int shipId) {
+        return SHIPS.get(shipId - 1);
+    }
+}
@@ -4,5 +4,6 @@ import java.util.List;
 
 public record LobbySnapshot(
         List<RoomSnapshot> salas,
-        List<SessionUser> onlinePlayers) {
+        List<SessionUser> onlinePlayers,
+        long version) {
 }
@@ -3,6 +3,10 @@ package com.jair.battleship.battleshipbackend.models.dto.multiplayer;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * {@code history} holds only the latest shots; {@code shotSeq} is the number of
+ * the last one. Older shots are paged from /api/mesas/{id}/history.
+ */
 public record PrivateMatchView(
         String role,
         String mySeat,
@@ -13,5 +17,6 @@ public record PrivateMatchView(
         boolean ownShipsPlaced,
         boolean opponentShipsPlaced,
         Map<Long, Map<String, String>> revealedShips,
-        List<ShotSnapshot> history) {
+        List<ShotSnapshot> history,
+        int shotSeq) {
 }
@@ -8,5 +8,6 @@ public record RoomSnapshot(
         boolean disponible,
         int onlinePlayers,
         int spectators,
-        List<TableSnapshot> mesas) {
+        List<TableSnapshot> mesas,
+        long version) {
 }
@@ -7,5 +7,6 @@ public record SeatSnapshot(
         boolean guest,
         Integer rating,
         boolean ready,
-        boolean occupied) {
+        boolean occupied,
+        boolean shipsPlaced) {
 }
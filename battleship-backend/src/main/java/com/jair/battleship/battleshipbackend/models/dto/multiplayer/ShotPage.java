@@ -0,0 +1,16 @@
+package com.jair.battleship.battleshipbackend.models.dto.multiplayer;
+
+import java.util.List;
+
+/**
+ * A page of the shot history of the current match. {@code shots} follow the
+ * shot numbered {@code afterShotSeq}; {@code shotSeq} is the number of the last
+ * shot fired so far.
+ */
+public record ShotPage(
+        Long mesaId,
+        Long partidaId,
+        int afterShotSeq,
+        int shotSeq,
+        List<ShotSnapshot> shots) {
+}
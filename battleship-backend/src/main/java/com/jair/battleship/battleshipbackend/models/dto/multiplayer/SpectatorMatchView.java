@@ -3,9 +3,14 @@ package com.jair.battleship.battleshipbackend.models.dto.multiplayer;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * {@code history} holds only the latest shots; {@code shotSeq} is the number of
+ * the last one. Older shots are paged from /api/mesas/{id}/history.
+ */
 public record SpectatorMatchView(
         Map<Long, String> players,
         Map<Long, Map<String, String>> publicShots,
         Map<Long, Map<String, String>> revealedShips,
-        List<ShotSnapshot> history) {
+        List<ShotSnapshot> history,
+        int shotSeq) {
 }
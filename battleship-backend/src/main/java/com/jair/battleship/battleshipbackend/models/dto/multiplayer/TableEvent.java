@@ -0,0 +1,57 @@
+package com.jair.battleship.battleshipbackend.models.dto.multiplayer;
+
+import java.time.Instant;
+
+/**
+ * Delta pushed on /topic/mesas/{id} and /topic/salas/{id}. {@code seq} grows by
+ * one per event of the mesa; a client that sees a gap refetches the table and
+ * continues from the snapshot's {@code eventSeq}. Every payload carries absolute
+ * values, so applying an event the snapshot already reflects is harmless.
+ */
+public record TableEvent(
+        String type,
+        Long mesaId,
+        Long salaId,
+        long seq,
+        Instant serverNow,
+        Object data) {
+
+    public static final String SHOT_APPLIED = "SHOT_APPLIED";
+    public static final String SEAT_CHANGED = "SEAT_CHANGED";
+    public static final String READY_TOGGLED = "READY_TOGGLED";
+    public static final String PHASE_CHANGED = "PHASE_CHANGED";
+    public static final String DEADLINE_UPDATED = "DEADLINE_UPDATED";
+    public static final String TABLE_UPDATED = "TABLE_UPDATED";
+    public static final String RESYNC = "RESYNC";
+
+    /**
+     * {@code index} is the position of the shot in the match history, its shotSeq minus one.
+     */
+    public record ShotApplied(
+            Long partidaId,
+            int index,
+            ShotSnapshot shot,
+            Long turnoActualJugadorId,
+            Instant turnDeadlineAt,
+            Long ganadorId) {
+    }
+
+    public record SeatChanged(SeatSnapshot seat) {
+    }
+
+    public record ReadyToggled(String seat, boolean ready) {
+    }
+
+    public record PhaseChanged(String estado, Long partidaId, Long turnoActualJugadorId, Long ganadorId) {
+    }
+
+    public record DeadlineUpdated(
+            Instant readyDeadlineAt,
+            Instant placementDeadlineAt,
+            Instant turnDeadlineAt,
+            Long turnoActualJugadorId) {
+    }
+
+    public record TableUpdated(String nombre, int spectators, boolean rematchA, boolean rematchB) {
+    }
+}
@@ -0,0 +1,15 @@
+package com.jair.battleship.battleshipbackend.models.dto.multiplayer;
+
+import java.util.List;
+
+/**
+ * Answer to a resume request: the events missed since the client's sequence
+ * number or, when those are no longer buffered, a full snapshot to restart
+ * from. {@code seq} is the sequence number the client is at afterwards.
+ */
+public record TableResume(
+        Long mesaId,
+        long seq,
+        List<TableEvent> events,
+        TableSnapshot snapshot) {
+}
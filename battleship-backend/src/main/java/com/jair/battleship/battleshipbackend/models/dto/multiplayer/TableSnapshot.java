@@ -25,5 +25,19 @@ public record TableSnapshot(
         boolean rematchA,
         boolean rematchB,
         PrivateMatchView privateView,
-        SpectatorMatchView spectatorView) {
+        SpectatorMatchView spectatorView,
+        long eventSeq,
+        long version) {
+
+    public TableSnapshot withServerNow(Instant now) {
+        return new TableSnapshot(id, salaId, salaNombre, nombre, estado, now, readyDeadlineAt, placementDeadlineAt,
+                turnDeadlineAt, ruleset, fleetSpec, seatA, seatB, mySeat, spectators, partidaId, turnoActualJugadorId,
+                ganadorId, rematchA, rematchB, privateView, spectatorView, eventSeq, version);
+    }
+
+    public TableSnapshot withEventSeq(long seq) {
+        return new TableSnapshot(id, salaId, salaNombre, nombre, estado, serverNow, readyDeadlineAt,
+                placementDeadlineAt, turnDeadlineAt, ruleset, fleetSpec, seatA, seatB, mySeat, spectators, partidaId,
+                turnoActualJugadorId, ganadorId, rematchA, rematchB, privateView, spectatorView, seq, version);
+    }
 }
@@ -3,6 +3,7 @@ package com.jair.battleship.battleshipbackend.models.entities;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.jair.battleship.battleshipbackend.models.enums.EstadoPartida;
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -47,8 +48,14 @@ public class Mesa {
     private boolean rematchB = false;
     private Instant readyDeadlineAt;
 
+    // Latest partida played at this mesa, set when it is created.
+    private Long currentPartidaId;
+
+    // Written in batches by PresenceRegistry; never loaded through the entity.
     @JsonIgnore
     @ElementCollection
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
     private Set<Long> spectatorSessionIds = new HashSet<>();
 
     private Instant createdAt = Instant.now();
@@ -61,8 +68,5 @@ public class Mesa {
         if (estado == null) {
             estado = EstadoPartida.WAITING_FOR_PLAYERS;
         }
-        if (spectatorSessionIds == null) {
-            spectatorSessionIds = new HashSet<>();
-        }
     }
 }
@@ -0,0 +1,30 @@
+package com.jair.battleship.battleshipbackend.models.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Running sum of the puntuacion totals of one person, never below zero. The
+ * clave is "u" + usuario id for registered players and "j" + jugador id for
+ * guests.
+ */
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class PuntajeJugador {
+
+    @Id
+    @Column(length = 32)
+    private String clave;
+
+    private int total;
+
+    private Instant actualizadoAt;
+}
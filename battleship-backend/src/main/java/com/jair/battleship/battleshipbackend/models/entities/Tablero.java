@@ -6,6 +6,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.jair.battleship.battleshipbackend.models.board.BitBoard;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -30,7 +31,19 @@ public class Tablero {
     @JoinColumn(name = "partida_id")
     private Partida partida;
 
-    // Posiciones donde hay barcos colocados
+    // Classic boards: ship id per cell (BitBoard layout) plus the attacked-cell
+    // mask, so a board is read and written as a single row.
+    @JsonIgnore
+    @Column(name = "ship_layout", length = BitBoard.CELLS)
+    private byte[] shipLayout;
+
+    @Column(name = "shots_lo")
+    private long shotsLo;
+
+    @Column(name = "shots_hi")
+    private long shotsHi;
+
+    // Legacy sala flow: posiciones donde hay barcos colocados
     @ElementCollection
     private Map<String, Boolean> posicionesBarcos = new HashMap<>();
 
@@ -42,4 +55,14 @@ public class Tablero {
     // Posiciones que ya fueron atacadas en esta partida
     @ElementCollection
     private Map<String, Boolean> posicionesAtacadas = new HashMap<>();
+
+    public BitBoard toBitBoard() {
+        return BitBoard.restore(shipLayout, shotsLo, shotsHi);
+    }
+
+    public void storeBitBoard(BitBoard board) {
+        this.shipLayout = board.layout();
+        this.shotsLo = board.shotsLo();
+        this.shotsHi = board.shotsHi();
+    }
 }
@@ -1,7 +1,10 @@
 package com.jair.battleship.battleshipbackend.repositories;
 
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.ShotSnapshot;
 import com.jair.battleship.battleshipbackend.models.entities.Disparo;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
@@ -11,4 +14,9 @@ public interface DisparoRepository extends JpaRepository<Disparo, Long> {
     Optional<Disparo> findTopByPartidaIdOrderByTimestampDesc(Long partidaId);
     boolean existsByPartidaIdAndAtacanteIdAndPosicion(Long partidaId, Long atacanteId, String posicion);
     long countByPartidaId(Long partidaId);
+
+    @Query("select new com.jair.battleship.battleshipbackend.models.dto.multiplayer.ShotSnapshot("
+            + "d.atacante.id, d.defensor.id, d.posicion, d.acierto, d.resultado, d.barcoHundido, d.automatic, "
+            + "d.reason, d.timestamp) from Disparo d where d.partida.id = :partidaId order by d.timestamp, d.id")
+    List<ShotSnapshot> findShotsByPartidaId(@Param("partidaId") Long partidaId);
 }
@@ -1,22 +1,19 @@
 package com.jair.battleship.battleshipbackend.repositories;
 
 import com.jair.battleship.battleshipbackend.models.entities.Mesa;
-import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
 
 import java.time.Instant;
 import java.util.List;
-import java.util.Optional;
 
 public interface MesaRepository extends JpaRepository<Mesa, Long> {
     List<Mesa> findBySalaIdOrderByIdAsc(Long salaId);
 
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
-    @Query("select m from Mesa m where m.id = :id")
-    Optional<Mesa> findByIdForUpdate(@Param("id") Long id);
-
     List<Mesa> findByReadyDeadlineAtBefore(Instant deadline);
+
+    List<Mesa> findByReadyDeadlineAtIsNotNull();
+
+    @Query("select m.id from Mesa m")
+    List<Long> findAllIds();
 }
@@ -3,7 +3,11 @@ package com.jair.battleship.battleshipbackend.repositories;
 import com.jair.battleship.battleshipbackend.models.entities.Partida;
 import com.jair.battleship.battleshipbackend.models.enums.EstadoPartida;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Collection;
 
@@ -11,5 +15,28 @@ public interface PartidaRepository extends JpaRepository<Partida, Long> {
     List<Partida> findByEstado(EstadoPartida estado);
     List<Partida> findByEstadoIn(Collection<EstadoPartida> estados);
     List<Partida> findBySalaIdAndEstado(Long salaId, EstadoPartida estado);
-    List<Partida> findByMesaIdOrderByIdDesc(Long mesaId);
+
+    @Query("select distinct p.mesa.id from Partida p where p.mesa is not null and p.estado in :estados and ("
+            + "p.ruleset is null or p.ruleset <> :ruleset "
+            + "or (p.estado = :inProgress and (p.turnDeadlineAt is null or p.turnDeadlineAt <= :now)) "
+            + "or (p.estado <> :inProgress and (p.placementDeadlineAt is null or p.placementDeadlineAt <= :now)))")
+    List<Long> findDueMesaIds(@Param("estados") Collection<EstadoPartida> estados,
+                              @Param("inProgress") EstadoPartida inProgress,
+                              @Param("ruleset") String ruleset,
+                              @Param("now") Instant now);
+
+    @Query("select p from Partida p where p.ratingProcessed = false and p.ruleset = :ruleset "
+            + "and p.estado in :estados and p.fin >= :since and p.ganador.usuario is not null "
+            + "and not exists (select x from Participacion x where x.partida = p and x.jugador.usuario is null)")
+    List<Partida> findUnrated(@Param("estados") Collection<EstadoPartida> estados,
+                              @Param("ruleset") String ruleset,
+                              @Param("since") Instant since);
+
+    @Modifying(flushAutomatically = true)
+    @Query("update Partida p set p.turnoActualJugadorId = :turno, p.turnDeadlineAt = :turnDeadlineAt, "
+            + "p.lastAutoActionAt = coalesce(:lastAutoActionAt, p.lastAutoActionAt) where p.id = :id")
+    int updateTurn(@Param("id") Long id,
+                   @Param("turno") Long turnoActualJugadorId,
+                   @Param("turnDeadlineAt") Instant turnDeadlineAt,
+                   @Param("lastAutoActionAt") Instant lastAutoActionAt);
 }
@@ -0,0 +1,17 @@
+package com.jair.battleship.battleshipbackend.repositories;
+
+import com.jair.battleship.battleshipbackend.models.entities.PuntajeJugador;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface PuntajeJugadorRepository extends JpaRepository<PuntajeJugador, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM PuntajeJugador p WHERE p.clave = :clave")
+    Optional<PuntajeJugador> findForUpdate(@Param("clave") String clave);
+}
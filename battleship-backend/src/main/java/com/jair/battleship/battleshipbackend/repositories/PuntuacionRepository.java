@@ -23,11 +23,5 @@ public interface PuntuacionRepository extends JpaRepository<Puntuacion, Long> {
                         "ORDER BY totalPuntos DESC")
         List<Object[]> findLeaderboardSince(@Param("startDate") Instant startDate, Pageable pageable);
 
-        @Query("SELECT p.jugador.nombre, p.jugador.nombre, SUM(p.total) as totalPuntos " +
-                        "FROM Puntuacion p " +
-                        "GROUP BY p.jugador.nombre " +
-                        "ORDER BY totalPuntos DESC")
-        List<Object[]> findGlobalLeaderboard(Pageable pageable);
-
         Optional<Puntuacion> findByPartidaIdAndJugadorId(Long partidaId, Long jugadorId);
 }
@@ -3,8 +3,11 @@ package com.jair.battleship.battleshipbackend.repositories;
 import com.jair.battleship.battleshipbackend.models.entities.SesionJugador;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface SesionJugadorRepository extends JpaRepository<SesionJugador, Long> {
     Optional<SesionJugador> findByToken(String token);
+
+    List<SesionJugador> findTop50ByOrderByLastSeenAtDesc();
 }
@@ -2,10 +2,18 @@ package com.jair.battleship.battleshipbackend.repositories;
 
 import com.jair.battleship.battleshipbackend.models.entities.Tablero;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
 import java.util.Optional;
 
 public interface TableroRepository extends JpaRepository<Tablero, Long> {
     Optional<Tablero> findByJugadorId(Long jugadorId);
     Optional<Tablero> findByJugadorIdAndPartidaId(Long jugadorId, Long partidaId);
     Optional<Tablero> findByJugadorIdAndPartidaIsNull(Long jugadorId);
+
+    @Modifying(flushAutomatically = true)
+    @Query("update Tablero t set t.shotsLo = :shotsLo, t.shotsHi = :shotsHi where t.id = :id")
+    int updateShots(@Param("id") Long id, @Param("shotsLo") long shotsLo, @Param("shotsHi") long shotsHi);
 }
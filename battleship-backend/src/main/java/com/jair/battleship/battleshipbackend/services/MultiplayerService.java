@@ -1,28 +1,68 @@
 package com.jair.battleship.battleshipbackend.services;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jair.battleship.battleshipbackend.broker.BroadcastCoalescer;
+import com.jair.battleship.battleshipbackend.broker.TableFrameCodec;
+import com.jair.battleship.battleshipbackend.models.board.BitBoard;
+import com.jair.battleship.battleshipbackend.models.board.ClassicFleet;
 import com.jair.battleship.battleshipbackend.models.dto.multiplayer.*;
 import com.jair.battleship.battleshipbackend.models.entities.*;
 import com.jair.battleship.battleshipbackend.models.enums.EstadoPartida;
 import com.jair.battleship.battleshipbackend.models.enums.ResultadoParticipacion;
 import com.jair.battleship.battleshipbackend.repositories.*;
+import com.jair.battleship.battleshipbackend.services.engine.DeadlineScheduler;
+import com.jair.battleship.battleshipbackend.services.engine.DomainEvents;
+import com.jair.battleship.battleshipbackend.services.engine.Leaderboard;
+import com.jair.battleship.battleshipbackend.services.engine.LiveSessions;
+import com.jair.battleship.battleshipbackend.services.engine.LobbyView;
+import com.jair.battleship.battleshipbackend.services.engine.MatchState;
+import com.jair.battleship.battleshipbackend.services.engine.MatchStateStore;
+import com.jair.battleship.battleshipbackend.services.engine.MatchWriteBehind;
+import com.jair.battleship.battleshipbackend.services.engine.MesaCommandExecutor;
+import com.jair.battleship.battleshipbackend.services.engine.MesaSweeper;
+import com.jair.battleship.battleshipbackend.services.engine.PresenceRegistry;
+import com.jair.battleship.battleshipbackend.services.engine.RankingWindows;
+import com.jair.battleship.battleshipbackend.services.engine.SessionActivity;
+import com.jair.battleship.battleshipbackend.services.engine.SessionTokens;
+import com.jair.battleship.battleshipbackend.services.engine.ShotHistory;
+import com.jair.battleship.battleshipbackend.services.engine.TableEventLog;
+import com.jair.battleship.battleshipbackend.services.engine.TableSnapshotCache;
+import com.jair.battleship.battleshipbackend.services.engine.VersionWatch;
+import com.jair.battleship.battleshipbackend.services.engine.VersionedJson;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.Instant;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 public class MultiplayerService {
 
+    private static final Logger log = LoggerFactory.getLogger(MultiplayerService.class);
     public static final int BOARD_SIZE = 10;
     private static final int RATING_FLOOR = 100;
     private static final int PROVISIONAL_GAMES = 10;
@@ -30,25 +70,18 @@ public class MultiplayerService {
     private static final int K_ESTABLISHED = 24;
     private static final int K_HIGH_RATED = 20;
     private static final int HIGH_RATING_THRESHOLD = 1800;
+    private static final int RANKING_SIZE = 10;
     private static final int MAX_RATING_DELTA = 36;
+    private static final Duration RATING_RECOVERY = Duration.ofDays(1);
+    private static final Duration RATING_RETRY = Duration.ofSeconds(1);
+    private static final int RATING_ATTEMPTS = 4;
     private static final String RULESET = "SEA_BATTLE_2_CLASSIC";
     private static final Duration READY_LIMIT = Duration.ofSeconds(15);
     private static final Duration PLACEMENT_LIMIT = Duration.ofSeconds(60);
     private static final Duration TURN_LIMIT = Duration.ofSeconds(30);
-    private static final List<FleetShipSpec> FLEET = List.of(
-            new FleetShipSpec("battleship_1", "Acorazado", 4),
-            new FleetShipSpec("cruiser_1", "Crucero 1", 3),
-            new FleetShipSpec("cruiser_2", "Crucero 2", 3),
-            new FleetShipSpec("destroyer_1", "Destructor 1", 2),
-            new FleetShipSpec("destroyer_2", "Destructor 2", 2),
-            new FleetShipSpec("destroyer_3", "Destructor 3", 2),
-            new FleetShipSpec("boat_1", "Lancha 1", 1),
-            new FleetShipSpec("boat_2", "Lancha 2", 1),
-            new FleetShipSpec("boat_3", "Lancha 3", 1),
-            new FleetShipSpec("boat_4", "Lancha 4", 1));
-    private static final Map<String, FleetShipSpec> FLEET_BY_KEY = FLEET.stream()
-            .collect(Collectors.toMap(FleetShipSpec::key, spec -> spec, (a, b) -> a, LinkedHashMap::new));
-    private static final int FLEET_CELLS = FLEET.stream().mapToInt(FleetShipSpec::size).sum();
+    private static final int SNAPSHOT_SHOTS = 10;
+    private static final int HISTORY_PAGE = 100;
+    private static final List<FleetShipSpec> FLEET = ClassicFleet.SHIPS;
     private static final List<EstadoPartida> ACTIVE_STATES = List.of(
             EstadoPartida.PLACING_SHIPS,
             EstadoPartida.READY_TO_START,
@@ -76,6 +109,97 @@ public class MultiplayerService {
     private PuntuacionRepository puntuacionRepository;
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private MesaCommandExecutor mesaExecutor;
+    @Autowired
+    private MatchStateStore matchStates;
+    @Autowired
+    private MatchWriteBehind writeBehind;
+    @Autowired
+    private DeadlineScheduler deadlines;
+    @Autowired
+    private MesaSweeper sweeper;
+    @Autowired
+    private TableSnapshotCache tableSnapshots;
+    @Autowired
+    private LobbyView lobbyView;
+    @Autowired
+    private TableEventLog tableEvents;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private VersionWatch versionWatch;
+    @Autowired
+    private SessionTokens sessionTokens;
+    @Autowired
+    private LiveSessions liveSessions;
+    @Autowired
+    private SessionActivity sessionActivity;
+    @Autowired
+    private PresenceRegistry presence;
+    @Autowired
+    private Leaderboard leaderboard;
+    @Autowired
+    private RankingWindows rankingWindows;
+    @Autowired
+    private BroadcastCoalescer broadcasts;
+    @Autowired
+    private DomainEvents events;
+    private final Set<Long> pendingTableEvents = ConcurrentHashMap.newKeySet();
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    void initEngine() {
+        readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnlyTransaction.setReadOnly(true);
+        subscribeConsumers();
+    }
+
+    /**
+     * What a committed match command sets off, each on its own consumer: the
+     * rating of a finished match, the all-time leaderboard, the period
+     * rankings, and the table events. Ranking topics are queued by the consumer
+     * that changed them, so they never go out ahead of the change.
+     */
+    private void subscribeConsumers() {
+        events.subscribe("rating", event -> {
+            if (event instanceof DomainEvents.MatchFinished finished) {
+                rateMatch(finished);
+            }
+        });
+        events.subscribe("leaderboard", event -> {
+            if (event instanceof DomainEvents.RatingChanged rating) {
+                leaderboard.put(rating.winner());
+                leaderboard.put(rating.loser());
+                broadcasts.publish("/topic/ranking/historico", this::rankingPayload);
+            }
+        });
+        events.subscribe("stats", event -> {
+            if (event instanceof DomainEvents.RatingChanged rating) {
+                rankingWindows.record(rating.winner().id(), rating.winner().username(), rating.delta(), true,
+                        rating.at());
+                rankingWindows.record(rating.loser().id(), rating.loser().username(), -rating.delta(), false,
+                        rating.at());
+                for (RankingWindows.Window window : RankingWindows.Window.values()) {
+                    publishRanking(window);
+                }
+            }
+        });
+        events.subscribe("broadcast", event -> {
+            switch (event) {
+                case DomainEvents.ShotApplied shot -> queueTableEvents(shot.mesaId());
+                case DomainEvents.SeatChanged seat -> queueTableEvents(seat.mesaId());
+                case DomainEvents.MatchFinished finished -> queueTableEvents(finished.mesaId());
+                case DomainEvents.RatingChanged rating -> {
+                    if (rating.mesaId() != null) {
+                        broadcastRoomAndTable(rating.mesaId(), rating.salaId());
+                    }
+                }
+            }
+        });
+    }
 
     @EventListener(ApplicationReadyEvent.class)
     @Transactional
@@ -101,16 +225,121 @@ public class MultiplayerService {
                 mesa.setReadyDeadlineAt(null);
                 mesa.setEstado(EstadoPartida.WAITING_FOR_PLAYERS);
                 mesaRepository.save(mesa);
+                invalidateState(mesa.getId());
                 broadcastRoomAndTable(mesa);
             }
         }
     }
 
-    @Scheduled(fixedDelay = 1000)
-    @Transactional
+    /**
+     * Loads every stored deadline into the wheel and starts firing due mesas.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startDeadlineScheduler() {
+        for (Mesa mesa : mesaRepository.findByReadyDeadlineAtIsNotNull()) {
+            deadlines.schedule(mesa.getId(), DeadlineScheduler.Kind.READY, mesa.getReadyDeadlineAt());
+        }
+        for (Partida partida : partidaRepository.findByEstadoIn(ACTIVE_STATES)) {
+            if (partida.getMesa() == null) {
+                continue;
+            }
+            if (partida.getEstado() == EstadoPartida.IN_PROGRESS) {
+                deadlines.schedule(partida.getMesa().getId(), DeadlineScheduler.Kind.TURN, partida.getTurnDeadlineAt());
+            } else {
+                deadlines.schedule(partida.getMesa().getId(), DeadlineScheduler.Kind.PLACEMENT,
+                        partida.getPlacementDeadlineAt());
+            }
+        }
+        deadlines.start(this::resolveDue);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureDefaultTablesOnStartup() {
+        roomsChanged(transactionTemplate.execute(status -> ensureDefaultTables()));
+        reloadLobby();
+        publishLobby();
+    }
+
+    /**
+     * Safety net behind the deadline wheel: resolves the tables whose stored
+     * deadlines are already due or missing, e.g. rows written by hand or before
+     * a restart. Only due rows are read, and every mesa is resolved in its own
+     * transaction on the parallel sweeper. Finished matches that missed their
+     * rating go back to the rating consumer, rooms created since startup get
+     * their default table here, and the lobby view is re-read to correct any
+     * drift.
+     */
+    @Scheduled(fixedDelayString = "${app.engine.reconcile-ms:30000}")
     public void processDueAutoActions() {
         resolveReadyTimeoutsForAllTables();
         resolveDueTimeoutsForAllActive();
+        writeBehind.flush();
+        recoverUnratedMatches();
+        roomsChanged(transactionTemplate.execute(status -> ensureDefaultTables()));
+        reloadLobby();
+    }
+
+    /**
+     * Folds pending table and session changes into a new lobby version and
+     * pushes its JSON to /topic/lobby. Bursts of changes coalesce into one
+     * version per run.
+     */
+    @Scheduled(fixedDelayString = "${app.lobby.publish-ms:250}")
+    public void publishLobby() {
+        LobbyView.Published published = lobbyView.publish(this::lobbyTable);
+        if (published != null) {
+            sendJson("/topic/lobby", published.json());
+            versionWatch.changed(VersionWatch.LOBBY);
+        }
+    }
+
+    /**
+     * Writes the lastSeenAt recorded since the last run and moves those
+     * sessions, and every session with a realtime connection open, up the
+     * lobby's online list. Sessions the list does not hold yet are read once,
+     * in one query, to build their entry.
+     */
+    @Scheduled(fixedDelayString = "${app.session.seen-flush-ms:2000}")
+    public void flushSessionActivity() {
+        Map<Long, Instant> seen = new HashMap<>(sessionActivity.flush());
+        Instant now = Instant.now();
+        presence.connectedSessionIds().forEach(sessionId -> seen.put(sessionId, now));
+        Set<Long> untracked = lobbyView.sessionsSeen(seen);
+        if (untracked.isEmpty()) {
+            return;
+        }
+        readOnlyTransaction.executeWithoutResult(status -> sesionRepository.findAllById(untracked)
+                .forEach(session -> lobbyView.sessionSeen(toSessionUser(session), seen.get(session.getId()))));
+    }
+
+    /**
+     * Writes the joins and leaves recorded by the presence registry and
+     * republishes the mesas whose spectator count moved since the last run,
+     * so a burst of subscriptions costs one table diff.
+     */
+    @Scheduled(fixedDelayString = "${app.presence.flush-ms:1000}")
+    public void flushPresence() {
+        presence.flush();
+        Set<Long> changed = presence.drainChanged();
+        if (changed.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> salaIds = new HashMap<>();
+        readOnlyTransaction.executeWithoutResult(status -> mesaRepository.findAllById(changed)
+                .forEach(mesa -> salaIds.put(mesa.getId(), mesa.getSala() == null ? null : mesa.getSala().getId())));
+        salaIds.forEach(this::broadcastRoomAndTable);
+    }
+
+    /**
+     * Writes the ranking buckets recorded since the last run and republishes
+     * the periods whose oldest bucket just slid out of the window.
+     */
+    @Scheduled(fixedDelayString = "${app.ranking.flush-ms:2000}")
+    public void flushRanking() {
+        rankingWindows.flush();
+        for (RankingWindows.Window window : rankingWindows.slide(Instant.now())) {
+            publishRanking(window);
+        }
     }
 
     @Transactional
@@ -120,366 +349,521 @@ public class MultiplayerService {
             name = "Guest " + (1000 + new Random().nextInt(9000));
         }
         SesionJugador session = new SesionJugador();
-        session.setToken(UUID.randomUUID().toString().replace("-", "") + UUID.randomUUID().toString().substring(0, 8));
+        session.setToken(UUID.randomUUID().toString());
         session.setDisplayName(name);
         session.setGuest(true);
         session = sesionRepository.save(session);
-        broadcastLobby();
+        session.setToken(sessionTokens.issue(session.getId(), null, true));
+        sessionSeen(session);
         return toSessionUser(session);
     }
 
     @Transactional
     public SessionUser createSessionForUser(Usuario usuario) {
         SesionJugador session = new SesionJugador();
-        session.setToken(UUID.randomUUID().toString().replace("-", "") + UUID.randomUUID().toString().substring(0, 8));
+        session.setToken(UUID.randomUUID().toString());
         session.setDisplayName(usuario.getUsername());
         session.setGuest(false);
         session.setUsuario(usuario);
         session = sesionRepository.save(session);
-        broadcastLobby();
+        session.setToken(sessionTokens.issue(session.getId(), usuario.getId(), false));
+        sessionSeen(session);
         return toSessionUser(session);
     }
 
     @Transactional
     public SessionUser currentSession(String token) {
-        return toSessionUser(requireSession(token));
+        return toSessionUser(loadSession(requireSession(token)));
     }
 
-    @Transactional
+    /**
+     * Pure read of the published lobby view; the same for every caller, so its
+     * cost does not depend on the number of tables or sessions.
+     */
     public LobbySnapshot lobby(String token) {
+        return currentLobby(token).snapshot();
+    }
+
+    /**
+     * The published lobby already serialized, for the REST endpoint.
+     */
+    public VersionedJson lobbyJson(String token) {
+        LobbyView.Published published = currentLobby(token);
+        return new VersionedJson(published.version(), published.json());
+    }
+
+    private LobbyView.Published currentLobby(String token) {
         if (token != null && !token.isBlank()) {
-            requireSession(token);
+            requireKnownSession(token);
         }
-        resolveReadyTimeoutsForAllTables();
-        resolveDueTimeoutsForAllActive();
-        ensureDefaultTables();
-        List<RoomSnapshot> rooms = salaRepository.findAll().stream()
-                .sorted(Comparator.comparing(Sala::getId))
-                .map(sala -> roomSnapshot(sala, null))
-                .toList();
-        List<SessionUser> online = sesionRepository.findAll().stream()
-                .sorted(Comparator.comparing(SesionJugador::getLastSeenAt).reversed())
-                .limit(50)
-                .map(this::toSessionUser)
-                .toList();
-        return new LobbySnapshot(rooms, online);
+        LobbyView.Published published = lobbyView.current();
+        if (published == null) {
+            publishLobby();
+            published = lobbyView.current();
+        }
+        return published;
+    }
+
+    private TableSnapshot lobbyTable(Long mesaId) {
+        try {
+            return cachedTable(mesaId, null);
+        } catch (ResponseStatusException e) {
+            if (e.getStatusCode() == HttpStatus.NOT_FOUND) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    private void reloadLobby() {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            Map<Long, String> salas = new LinkedHashMap<>();
+            salaRepository.findAll().forEach(sala -> salas.put(sala.getId(), sala.getNombre()));
+            Map<SessionUser, Instant> seen = new LinkedHashMap<>();
+            sesionRepository.findTop50ByOrderByLastSeenAtDesc()
+                    .forEach(session -> seen.put(toSessionUser(session), session.getLastSeenAt()));
+            lobbyView.reload(salas, mesaRepository.findAllIds(), seen);
+        });
+    }
+
+    private void sessionSeen(SesionJugador session) {
+        lobbyView.sessionSeen(toSessionUser(session), session.getLastSeenAt());
     }
 
-    @Transactional
     public RoomSnapshot room(Long salaId, String token) {
         if (token != null && !token.isBlank()) {
-            requireSession(token);
+            requireKnownSession(token);
         }
-        resolveReadyTimeoutsForAllTables();
-        resolveDueTimeoutsForAllActive();
         Sala sala = salaRepository.findById(salaId).orElseThrow(() -> notFound("Sala no encontrada"));
-        ensureTableForRoom(sala);
         return roomSnapshot(sala, token);
     }
 
-    @Transactional
-    public TableSnapshot createTable(Long salaId, String token, String requestedName) {
-        SesionJugador session = requireSession(token);
-        Sala sala = salaRepository.findById(salaId).orElseThrow(() -> notFound("Sala no encontrada"));
-        Mesa mesa = new Mesa();
-        mesa.setSala(sala);
-        mesa.setNombre(sanitizeTableName(requestedName, "Mesa " + (mesaRepository.findBySalaIdOrderByIdAsc(salaId).size() + 1)));
-        mesa.setEstado(EstadoPartida.WAITING_FOR_PLAYERS);
-        mesa.getSpectatorSessionIds().add(session.getId());
-        mesa = mesaRepository.save(mesa);
-        broadcastRoomAndTable(mesa);
-        return tableSnapshot(mesa, token);
+    public VersionedJson roomJson(Long salaId, String token) {
+        RoomSnapshot room = room(salaId, token);
+        try {
+            return new VersionedJson(room.version(), objectMapper.writeValueAsBytes(room));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar la sala", e);
+        }
     }
 
-    @Transactional
+    public TableSnapshot createTable(Long salaId, String token, String requestedName) {
+        SessionRef session = requireSession(token);
+        Mesa created = transactionTemplate.execute(status -> {
+            Sala sala = salaRepository.findById(salaId).orElseThrow(() -> notFound("Sala no encontrada"));
+            Mesa mesa = new Mesa();
+            mesa.setSala(sala);
+            mesa.setNombre(sanitizeTableName(requestedName, "Mesa " + (mesaRepository.findBySalaIdOrderByIdAsc(salaId).size() + 1)));
+            mesa.setEstado(EstadoPartida.WAITING_FOR_PLAYERS);
+            return mesaRepository.save(mesa);
+        });
+        presence.joined(created.getId(), session.id());
+        broadcastRoomAndTable(created);
+        return onMesa(created.getId(), () -> tableSnapshot(loadMesa(created.getId()), token));
+    }
+
+    /**
+     * Read-only table view. Served from the snapshot cache when the table has not
+     * changed; otherwise built once on the mesa lane in a read-only transaction.
+     * Never locks or writes the mesa, and timeouts are left to the deadline
+     * scheduler, so polling clients and spectators do not hold up the players.
+     */
     public TableSnapshot table(Long mesaId, String token) {
-        if (token != null && !token.isBlank()) {
-            requireSession(token);
-        }
-        Mesa mesa = lockMesa(mesaId);
-        resolveReadyTimeout(mesa);
-        resolveDueTimeouts(mesa);
-        syncMesaState(mesa);
-        mesa = mesaRepository.save(mesa);
-        return tableSnapshot(mesa, token);
+        return cachedTable(mesaId, viewerToken(mesaId, token));
+    }
+
+    /**
+     * The table for the REST endpoint, written from the bytes cached for the
+     * viewer's role; only the server clock differs between callers.
+     */
+    public VersionedJson tableJson(Long mesaId, String token) {
+        String sessionToken = viewerToken(mesaId, token);
+        TableSnapshotCache.Role role = tableRole(matchStates.peek(mesaId), sessionToken);
+        VersionedJson json = role == null ? null : tableSnapshots.json(mesaId, role, Instant.now());
+        if (json != null) {
+            return json;
+        }
+        TableSnapshot snapshot = cachedTable(mesaId, sessionToken);
+        json = tableSnapshots.json(mesaId, tableRole(matchStates.peek(mesaId), sessionToken), Instant.now());
+        return json != null ? json : new VersionedJson(snapshot.version(), tableSnapshots.toJson(snapshot));
+    }
+
+    /**
+     * Catches a reconnecting client up from the last event it applied. Events
+     * are the same for every viewer; only the snapshot fallback, used once the
+     * buffer no longer reaches back to {@code afterSeq}, depends on the token.
+     */
+    public TableResume resume(Long mesaId, String token, long afterSeq) {
+        String sessionToken = viewerToken(mesaId, token);
+        List<TableEvent> events = tableEvents.since(mesaId, afterSeq);
+        if (events == null) {
+            TableSnapshot snapshot = cachedTable(mesaId, sessionToken);
+            return new TableResume(mesaId, snapshot.eventSeq(), List.of(), snapshot);
+        }
+        long seq = events.isEmpty() ? afterSeq : events.get(events.size() - 1).seq();
+        return new TableResume(mesaId, seq, events, null);
+    }
+
+    /**
+     * Shots of the current match after the client's cursor, oldest first. The
+     * resident history is read without entering the lane; only a mesa whose
+     * state is not loaded yet goes through it.
+     */
+    public ShotPage history(Long mesaId, int afterShotSeq, int limit) {
+        MatchState state = matchStates.peek(mesaId);
+        if (state == null) {
+            state = mesaExecutor.call(mesaId, () -> state(mesaId));
+        }
+        ShotHistory history = state.getHistory();
+        int shotSeq = history.size();
+        int from = Math.max(0, Math.min(afterShotSeq, shotSeq));
+        int pageSize = Math.max(1, Math.min(limit, HISTORY_PAGE));
+        return new ShotPage(mesaId, state.getPartidaId(), from, shotSeq,
+                history.after(from, Math.min(pageSize, shotSeq - from)));
+    }
+
+    /**
+     * Seated players are recognized from the resident state; any other token
+     * must still belong to a session.
+     */
+    private String viewerToken(Long mesaId, String token) {
+        String sessionToken = token == null || token.isBlank() ? null : token;
+        TableSnapshotCache.Role role = tableRole(matchStates.peek(mesaId), sessionToken);
+        boolean seated = role == TableSnapshotCache.Role.SEAT_A || role == TableSnapshotCache.Role.SEAT_B;
+        if (sessionToken != null && !seated) {
+            requireKnownSession(sessionToken);
+        }
+        return sessionToken;
     }
 
-    @Transactional
     public TableSnapshot joinTable(Long mesaId, String token) {
-        SesionJugador session = requireSession(token);
-        Mesa mesa = lockMesa(mesaId);
-        resolveReadyTimeout(mesa);
-        resolveDueTimeouts(mesa);
-        mesa.getSpectatorSessionIds().add(session.getId());
-        syncMesaState(mesa);
-        mesa = mesaRepository.save(mesa);
-        broadcastRoomAndTable(mesa);
-        return tableSnapshot(mesa, token);
+        return onMesa(mesaId, () -> {
+            SessionRef session = requireSession(token);
+            Mesa mesa = loadMesa(mesaId);
+            resolveReadyTimeout(mesa);
+            resolveDueTimeouts(mesaId);
+            presence.joined(mesaId, session.id());
+            syncMesaState(mesa);
+            mesa = mesaRepository.save(mesa);
+            seatChanged(mesa);
+            return tableSnapshot(mesa, token);
+        });
     }
 
-    @Transactional
     public TableSnapshot leaveTable(Long mesaId, String token) {
-        SesionJugador session = requireSession(token);
-        Mesa mesa = lockMesa(mesaId);
-        resolveReadyTimeout(mesa);
-        resolveDueTimeouts(mesa);
-        if (isSeat(mesa.getSeatA(), session)) {
-            if (requiresForfeit(mesa)) {
-                resignLocked(mesa, session, false);
-            } else {
-                mesa.setSeatA(null);
-                clearReadyState(mesa);
+        return onMesa(mesaId, () -> {
+            SessionRef session = requireSession(token);
+            Mesa mesa = loadMesa(mesaId);
+            resolveReadyTimeout(mesa);
+            resolveDueTimeouts(mesaId);
+            if (isSeat(mesa.getSeatA(), session)) {
+                if (requiresForfeit(mesa)) {
+                    resignLocked(mesa, session, false);
+                } else {
+                    mesa.setSeatA(null);
+                    clearReadyState(mesa);
+                }
             }
-        }
-        if (isSeat(mesa.getSeatB(), session)) {
-            if (requiresForfeit(mesa)) {
-                resignLocked(mesa, session, false);
-            } else {
-                mesa.setSeatB(null);
-                clearReadyState(mesa);
+            if (isSeat(mesa.getSeatB(), session)) {
+                if (requiresForfeit(mesa)) {
+                    resignLocked(mesa, session, false);
+                } else {
+                    mesa.setSeatB(null);
+                    clearReadyState(mesa);
+                }
             }
-        }
-        mesa.getSpectatorSessionIds().remove(session.getId());
-        syncMesaState(mesa);
-        mesa = mesaRepository.save(mesa);
-        broadcastRoomAndTable(mesa);
-        return tableSnapshot(mesa, token);
+            presence.left(mesaId, session.id());
+            syncMesaState(mesa);
+            mesa = mesaRepository.save(mesa);
+            invalidateState(mesaId);
+            seatChanged(mesa);
+            return tableSnapshot(mesa, token);
+        });
     }
 
-    @Transactional
     public TableSnapshot sit(Long mesaId, String seat, String token) {
-        SesionJugador session = requireSession(token);
-        Mesa mesa = lockMesa(mesaId);
-        resolveReadyTimeout(mesa);
-        resolveDueTimeouts(mesa);
-        if (currentPartida(mesa).filter(p -> p.getEstado() == EstadoPartida.IN_PROGRESS
-                || p.getEstado() == EstadoPartida.PLACING_SHIPS
-                || p.getEstado() == EstadoPartida.READY_TO_START).isPresent()) {
-            throw conflict("No puedes sentarte mientras la partida esta activa");
-        }
-        if (isSeat(mesa.getSeatA(), session) || isSeat(mesa.getSeatB(), session)) {
-            throw conflict("Ya estas sentado en esta mesa");
-        }
-        Jugador jugador = getOrCreateJugador(session, mesa.getSala());
-        String normalized = normalizeSeat(seat);
-        if ("A".equals(normalized)) {
-            if (mesa.getSeatA() != null) {
-                throw conflict("El asiento A esta ocupado");
+        return onMesa(mesaId, () -> {
+            SessionRef session = requireSession(token);
+            Mesa mesa = loadMesa(mesaId);
+            resolveReadyTimeout(mesa);
+            resolveDueTimeouts(mesaId);
+            if (state(mesaId).isActive()) {
+                throw conflict("No puedes sentarte mientras la partida esta activa");
             }
-            mesa.setSeatA(jugador);
-        } else {
-            if (mesa.getSeatB() != null) {
-                throw conflict("El asiento B esta ocupado");
+            if (isSeat(mesa.getSeatA(), session) || isSeat(mesa.getSeatB(), session)) {
+                throw conflict("Ya estas sentado en esta mesa");
             }
-            mesa.setSeatB(jugador);
-        }
-        clearReadyState(mesa);
-        mesa.getSpectatorSessionIds().add(session.getId());
-        syncMesaState(mesa);
-        mesa = mesaRepository.save(mesa);
-        broadcastRoomAndTable(mesa);
-        return tableSnapshot(mesa, token);
+            Jugador jugador = getOrCreateJugador(session, mesa.getSala());
+            String normalized = normalizeSeat(seat);
+            if ("A".equals(normalized)) {
+                if (mesa.getSeatA() != null) {
+                    throw conflict("El asiento A esta ocupado");
+                }
+                mesa.setSeatA(jugador);
+            } else {
+                if (mesa.getSeatB() != null) {
+                    throw conflict("El asiento B esta ocupado");
+                }
+                mesa.setSeatB(jugador);
+            }
+            clearReadyState(mesa);
+            presence.joined(mesaId, session.id());
+            syncMesaState(mesa);
+            mesa = mesaRepository.save(mesa);
+            invalidateState(mesaId);
+            seatChanged(mesa);
+            return tableSnapshot(mesa, token);
+        });
     }
 
-    @Transactional
     public TableSnapshot stand(Long mesaId, String token) {
-        SesionJugador session = requireSession(token);
-        Mesa mesa = lockMesa(mesaId);
-        resolveReadyTimeout(mesa);
-        resolveDueTimeouts(mesa);
-        if (requiresForfeit(mesa)) {
-            resignLocked(mesa, session, true);
-        } else if (isSeat(mesa.getSeatA(), session)) {
-            mesa.setSeatA(null);
-            clearReadyState(mesa);
-        } else if (isSeat(mesa.getSeatB(), session)) {
-            mesa.setSeatB(null);
-            clearReadyState(mesa);
-        } else {
-            throw forbidden("Solo un jugador sentado puede liberar su asiento");
-        }
-        syncMesaState(mesa);
-        mesa = mesaRepository.save(mesa);
-        broadcastRoomAndTable(mesa);
-        return tableSnapshot(mesa, token);
+        return onMesa(mesaId, () -> {
+            SessionRef session = requireSession(token);
+            Mesa mesa = loadMesa(mesaId);
+            resolveReadyTimeout(mesa);
+            resolveDueTimeouts(mesaId);
+            if (requiresForfeit(mesa)) {
+                resignLocked(mesa, session, true);
+            } else if (isSeat(mesa.getSeatA(), session)) {
+                mesa.setSeatA(null);
+                clearReadyState(mesa);
+            } else if (isSeat(mesa.getSeatB(), session)) {
+                mesa.setSeatB(null);
+                clearReadyState(mesa);
+            } else {
+                throw forbidden("Solo un jugador sentado puede liberar su asiento");
+            }
+            syncMesaState(mesa);
+            mesa = mesaRepository.save(mesa);
+            invalidateState(mesaId);
+            seatChanged(mesa);
+            return tableSnapshot(mesa, token);
+        });
     }
 
-    @Transactional
     public TableSnapshot ready(Long mesaId, String token) {
-        SesionJugador session = requireSession(token);
-        Mesa mesa = lockMesa(mesaId);
-        resolveReadyTimeout(mesa);
-        resolveDueTimeouts(mesa);
-        if (mesa.getSeatA() == null || mesa.getSeatB() == null) {
-            throw conflict("Se necesitan dos jugadores sentados");
-        }
-        if (currentPartida(mesa).filter(p -> p.getEstado() == EstadoPartida.IN_PROGRESS
-                || p.getEstado() == EstadoPartida.PLACING_SHIPS
-                || p.getEstado() == EstadoPartida.READY_TO_START).isPresent()) {
-            throw conflict("La partida ya esta en preparacion o en curso");
-        }
-        if (isSeat(mesa.getSeatA(), session)) {
-            mesa.setReadyA(true);
-        } else if (isSeat(mesa.getSeatB(), session)) {
-            mesa.setReadyB(true);
-        } else {
-            throw forbidden("Solo jugadores sentados pueden marcarse listos");
-        }
-        if (mesa.isReadyA() && mesa.isReadyB()) {
-            Partida partida = createMatchForMesa(mesa);
-            mesa.setReadyDeadlineAt(null);
-            mesa.setEstado(partida.getEstado());
-        } else {
-            if (mesa.getReadyDeadlineAt() == null) {
-                mesa.setReadyDeadlineAt(Instant.now().plus(READY_LIMIT));
+        return onMesa(mesaId, () -> {
+            SessionRef session = requireSession(token);
+            Mesa mesa = loadMesa(mesaId);
+            resolveReadyTimeout(mesa);
+            resolveDueTimeouts(mesaId);
+            if (mesa.getSeatA() == null || mesa.getSeatB() == null) {
+                throw conflict("Se necesitan dos jugadores sentados");
             }
-            mesa.setEstado(EstadoPartida.PLAYERS_SEATED);
-        }
-        mesa = mesaRepository.save(mesa);
-        broadcastRoomAndTable(mesa);
-        return tableSnapshot(mesa, token);
+            if (state(mesaId).isActive()) {
+                throw conflict("La partida ya esta en preparacion o en curso");
+            }
+            if (isSeat(mesa.getSeatA(), session)) {
+                mesa.setReadyA(true);
+            } else if (isSeat(mesa.getSeatB(), session)) {
+                mesa.setReadyB(true);
+            } else {
+                throw forbidden("Solo jugadores sentados pueden marcarse listos");
+            }
+            if (mesa.isReadyA() && mesa.isReadyB()) {
+                Partida partida = createMatchForMesa(mesa);
+                mesa.setReadyDeadlineAt(null);
+                mesa.setEstado(partida.getEstado());
+            } else {
+                if (mesa.getReadyDeadlineAt() == null) {
+                    mesa.setReadyDeadlineAt(Instant.now().plus(READY_LIMIT));
+                    deadlines.schedule(mesaId, DeadlineScheduler.Kind.READY, mesa.getReadyDeadlineAt());
+                }
+                mesa.setEstado(EstadoPartida.PLAYERS_SEATED);
+            }
+            mesa = mesaRepository.save(mesa);
+            seatChanged(mesa);
+            return tableSnapshot(mesa, token);
+        });
     }
 
-    @Transactional
     public TableSnapshot placeShips(Long mesaId, String token, ShipPlacementRequest request) {
-        SesionJugador session = requireSession(token);
-        Mesa mesa = lockMesa(mesaId);
-        resolveDueTimeouts(mesa);
-        Partida partida = currentPartida(mesa).orElseThrow(() -> conflict("No hay partida en preparacion"));
-        if (partida.getEstado() != EstadoPartida.PLACING_SHIPS && partida.getEstado() != EstadoPartida.READY_TO_START) {
-            throw conflict("No se pueden colocar barcos en el estado actual");
-        }
-        Jugador jugador = seatedJugador(mesa, session);
-        if (boardPlaced(partida, jugador)) {
-            throw conflict("Tu flota ya fue colocada");
-        }
-        BoardBuild board = validateFleet(request);
-        Tablero tablero = tableroRepository.findByJugadorIdAndPartidaId(jugador.getId(), partida.getId())
-                .orElseGet(() -> {
-                    Tablero t = new Tablero();
-                    t.setPartida(partida);
-                    t.setJugador(jugador);
-                    return t;
-                });
-        tablero.setPosicionesBarcos(board.positions());
-        tablero.setBarcosPorCelda(board.shipsByCell());
-        tablero.setPosicionesAtacadas(new HashMap<>());
-        tableroRepository.save(tablero);
+        return onMesa(mesaId, () -> {
+            SessionRef session = requireSession(token);
+            Mesa mesa = loadMesa(mesaId);
+            resolveDueTimeouts(mesaId);
+            MatchState state = state(mesaId);
+            if (!state.hasMatch()) {
+                throw conflict("No hay partida en preparacion");
+            }
+            if (state.getEstado() != EstadoPartida.PLACING_SHIPS && state.getEstado() != EstadoPartida.READY_TO_START) {
+                throw conflict("No se pueden colocar barcos en el estado actual");
+            }
+            Jugador jugador = seatedJugador(mesa, session);
+            if (boardPlaced(state, jugador)) {
+                throw conflict("Tu flota ya fue colocada");
+            }
+            BitBoard board = validateFleet(request);
+            Partida partida = loadPartida(state);
+            storeBoard(state, partida, jugador, board);
 
-        boolean bothPlaced = boardPlaced(partida, mesa.getSeatA()) && boardPlaced(partida, mesa.getSeatB());
-        if (bothPlaced) {
-            startInProgress(partida, mesa);
-        } else {
-            partida.setEstado(EstadoPartida.PLACING_SHIPS);
-        }
-        partidaRepository.save(partida);
-        mesa.setEstado(partida.getEstado());
-        mesa = mesaRepository.save(mesa);
-        broadcastRoomAndTable(mesa);
-        return tableSnapshot(mesa, token);
+            boolean bothPlaced = boardPlaced(state, mesa.getSeatA()) && boardPlaced(state, mesa.getSeatB());
+            if (bothPlaced) {
+                startInProgress(partida, mesa);
+            } else {
+                partida.setEstado(EstadoPartida.PLACING_SHIPS);
+            }
+            partidaRepository.save(partida);
+            mesa.setEstado(partida.getEstado());
+            mesa = mesaRepository.save(mesa);
+            invalidateState(mesaId);
+            broadcastRoomAndTable(mesa);
+            return tableSnapshot(mesa, token);
+        });
     }
 
-    @Transactional
+    /**
+     * Shots are applied to the resident match state without a transaction; the
+     * resulting rows are written behind by {@link MatchWriteBehind}. Only the
+     * winning shot touches the database synchronously, and only to close the
+     * match; ratings, rankings and table events follow on the {@link DomainEvents}
+     * consumers after the shot returns.
+     */
     public ShotResult shoot(Long mesaId, String token, ShotRequest request) {
-        SesionJugador session = requireSession(token);
-        Mesa mesa = lockMesa(mesaId);
-        resolveDueTimeouts(mesa);
-        Partida partida = currentPartida(mesa).orElseThrow(() -> conflict("No hay partida activa"));
-        if (partida.getEstado() != EstadoPartida.IN_PROGRESS) {
-            throw conflict("La partida no esta en curso");
-        }
-        Jugador atacante = seatedJugador(mesa, session);
-        if (!Objects.equals(partida.getTurnoActualJugadorId(), atacante.getId())) {
-            throw conflict("No es tu turno");
-        }
-        String position = normalizePosition(request == null ? null : request.position());
-        return applyShot(mesa, partida, atacante, position, false, "MANUAL");
+        return mesaExecutor.call(mesaId, () -> {
+            try {
+                SessionRef session = requireSession(token);
+                MatchState state = state(mesaId);
+                if (turnTimedOut(state, Instant.now())) {
+                    resolveTurnTimeout(state);
+                    state = state(mesaId);
+                }
+                if (!state.hasMatch()) {
+                    throw conflict("No hay partida activa");
+                }
+                if (state.getEstado() != EstadoPartida.IN_PROGRESS) {
+                    throw conflict("La partida no esta en curso");
+                }
+                MatchState.Seat atacante = state.seatForToken(session.token());
+                if (atacante == null) {
+                    throw forbidden("Solo jugadores sentados pueden realizar esta accion");
+                }
+                if (!Objects.equals(state.getTurnoActualJugadorId(), atacante.getJugadorId())) {
+                    throw conflict("No es tu turno");
+                }
+                String position = normalizePosition(request == null ? null : request.position());
+                return applyShot(state, atacante, position, false, "MANUAL");
+            } catch (ResponseStatusException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                matchStates.evict(mesaId);
+                throw e;
+            }
+        });
     }
 
-    private ShotResult applyShot(Mesa mesa, Partida partida, Jugador atacante, String position, boolean automatic,
+    private ShotResult applyShot(MatchState state, MatchState.Seat atacante, String position, boolean automatic,
             String reason) {
-        Jugador defensor = opponent(mesa, atacante);
-        Tablero tableroDefensor = tableroRepository.findByJugadorIdAndPartidaId(defensor.getId(), partida.getId())
-                .orElseThrow(() -> conflict("El oponente aun no ha colocado sus barcos"));
-        if (tableroDefensor.getPosicionesAtacadas().containsKey(position)) {
+        MatchState.Seat defensor = state.opponentOf(atacante);
+        if (defensor == null) {
+            throw conflict("No hay oponente");
+        }
+        if (defensor.getBoard() == null) {
+            throw conflict("El oponente aun no ha colocado sus barcos");
+        }
+        BitBoard board = defensor.getBoard();
+        int cell = BitBoard.parse(position);
+        if (board.isShot(cell)) {
             throw conflict("Esa coordenada ya fue atacada");
         }
 
-        boolean hit = Boolean.TRUE.equals(tableroDefensor.getPosicionesBarcos().get(position));
-        tableroDefensor.getPosicionesAtacadas().put(position, hit);
+        int shipId = board.fire(cell);
+        boolean hit = shipId != 0;
         String result = hit ? "HIT" : "MISS";
         String sunkShip = null;
-        if (hit) {
-            sunkShip = sunkShipAt(tableroDefensor, position);
-            if (sunkShip != null) {
-                result = "SUNK";
-            }
+        if (hit && board.isSunk(shipId)) {
+            sunkShip = ClassicFleet.key(shipId);
+            result = "SUNK";
         }
-        boolean win = allShipsHit(tableroDefensor);
+        boolean win = board.allSunk();
         if (win) {
             result = "WIN";
         }
-        tableroRepository.save(tableroDefensor);
-
-        Disparo disparo = new Disparo();
-        disparo.setPartida(partida);
-        disparo.setAtacante(atacante);
-        disparo.setDefensor(defensor);
-        disparo.setPosicion(position);
-        disparo.setAcierto(hit);
-        disparo.setResultado(result);
-        disparo.setBarcoHundido(sunkShip);
-        disparo.setAutomatic(automatic);
-        disparo.setReason(reason);
-        disparo.setTimestamp(Instant.now());
-        disparoRepository.save(disparo);
 
+        Instant now = Instant.now();
         Long winnerId = null;
         if (win) {
-            partida.setTurnDeadlineAt(null);
-            partida.setTurnoActualJugadorId(null);
-            finishMatch(partida, atacante, defensor, false);
-            mesa.setEstado(EstadoPartida.FINISHED);
-            winnerId = atacante.getId();
+            state.setTurnDeadlineAt(null);
+            state.setTurnoActualJugadorId(null);
+            winnerId = atacante.getJugadorId();
         } else {
-            partida.setTurnoActualJugadorId(hit ? atacante.getId() : defensor.getId());
-            partida.setTurnDeadlineAt(Instant.now().plus(TURN_LIMIT));
-            partidaRepository.save(partida);
+            state.setTurnoActualJugadorId(hit ? atacante.getJugadorId() : defensor.getJugadorId());
+            state.setTurnDeadlineAt(now.plus(TURN_LIMIT));
         }
         if (automatic) {
-            partida.setLastAutoActionAt(Instant.now());
-            partidaRepository.save(partida);
-        }
-        mesaRepository.save(mesa);
-        broadcastRoomAndTable(mesa);
-        return new ShotResult(mesa.getId(), partida.getId(), atacante.getId(), defensor.getId(), position, result, hit,
-                sunkShip, automatic, reason, winnerId, partida.getTurnoActualJugadorId());
+            state.setLastAutoActionAt(now);
+        }
+        deadlines.schedule(state.getMesaId(), DeadlineScheduler.Kind.TURN, state.getTurnDeadlineAt());
+        state.getHistory().append(new ShotSnapshot(atacante.getJugadorId(), defensor.getJugadorId(), position, hit,
+                result, sunkShip, automatic, reason, now));
+        writeBehind.enqueue(new MatchWriteBehind.ShotWrite(
+                state.getMesaId(),
+                state.getPartidaId(),
+                defensor.getTableroId(),
+                atacante.getJugadorId(),
+                defensor.getJugadorId(),
+                position,
+                hit,
+                result,
+                sunkShip,
+                automatic,
+                reason,
+                now,
+                board.shotsLo(),
+                board.shotsHi(),
+                state.getTurnoActualJugadorId(),
+                state.getTurnDeadlineAt(),
+                state.getLastAutoActionAt()));
+        if (win) {
+            finishWonMatch(state, atacante, defensor);
+        }
+        tableChanged(state.getMesaId(), state.getSalaId(), new DomainEvents.ShotApplied(state.getMesaId(),
+                state.getSalaId(), state.getPartidaId(), atacante.getJugadorId(), position, result));
+        return new ShotResult(state.getMesaId(), state.getPartidaId(), atacante.getJugadorId(),
+                defensor.getJugadorId(), position, result, hit, sunkShip, automatic, reason, winnerId,
+                state.getTurnoActualJugadorId());
+    }
+
+    /**
+     * Writes the pending shots of the mesa and closes the match in the same
+     * transaction, so the winning shot is never persisted without the result;
+     * if the transaction rolls back the shots go back to the write-behind queue.
+     */
+    private void finishWonMatch(MatchState state, MatchState.Seat ganador, MatchState.Seat perdedor) {
+        transactionTemplate.executeWithoutResult(status -> {
+            writeBehind.flush(state.getMesaId());
+            Mesa mesa = loadMesa(state.getMesaId());
+            Partida partida = loadPartida(state);
+            finishMatch(partida, playerById(mesa, ganador.getJugadorId()), playerById(mesa, perdedor.getJugadorId()),
+                    false);
+            mesa.setEstado(EstadoPartida.FINISHED);
+            mesaRepository.save(mesa);
+        });
+        invalidateState(state.getMesaId());
+    }
+
+    private boolean resolveDue(Long mesaId) {
+        return onMesa(mesaId, () -> resolveReadyTimeout(loadMesa(mesaId)) | resolveDueTimeouts(mesaId));
     }
 
     private void resolveDueTimeoutsForAllActive() {
-        Set<Long> mesaIds = partidaRepository.findByEstadoIn(ACTIVE_STATES).stream()
-                .map(Partida::getMesa)
-                .filter(Objects::nonNull)
-                .map(Mesa::getId)
-                .collect(Collectors.toCollection(LinkedHashSet::new));
-        for (Long mesaId : mesaIds) {
-            mesaRepository.findByIdForUpdate(mesaId).ifPresent(this::resolveDueTimeouts);
-        }
+        List<Long> mesaIds = partidaRepository.findDueMesaIds(ACTIVE_STATES, EstadoPartida.IN_PROGRESS, RULESET,
+                Instant.now());
+        sweeper.sweep("matches", mesaIds, 0, mesaId -> onMesa(mesaId, () -> resolveDueTimeouts(mesaId)));
     }
 
     private void resolveReadyTimeoutsForAllTables() {
-        Instant now = Instant.now();
-        List<Mesa> dueTables = mesaRepository.findByReadyDeadlineAtBefore(now);
-        for (Mesa dueTable : dueTables) {
-            mesaRepository.findByIdForUpdate(dueTable.getId()).ifPresent(this::resolveReadyTimeout);
-        }
+        List<Long> mesaIds = mesaRepository.findByReadyDeadlineAtBefore(Instant.now()).stream()
+                .map(Mesa::getId)
+                .toList();
+        sweeper.sweep("ready", mesaIds, 0, mesaId -> onMesa(mesaId, () -> resolveReadyTimeout(loadMesa(mesaId))));
     }
 
     private boolean resolveReadyTimeout(Mesa mesa) {
         if (mesa.getReadyDeadlineAt() == null) {
             return false;
         }
-        if (currentPartida(mesa).filter(p -> ACTIVE_STATES.contains(p.getEstado())).isPresent()) {
+        if (state(mesa.getId()).isActive()) {
             mesa.setReadyDeadlineAt(null);
             mesaRepository.save(mesa);
             return true;
@@ -502,16 +886,19 @@ public class MultiplayerService {
         clearReadyState(mesa);
         syncMesaState(mesa);
         mesaRepository.save(mesa);
+        invalidateState(mesa.getId());
         broadcastRoomAndTable(mesa);
         return true;
     }
 
-    private boolean resolveDueTimeouts(Mesa mesa) {
-        Partida partida = currentPartida(mesa).orElse(null);
-        if (partida == null || !ACTIVE_STATES.contains(partida.getEstado())) {
+    private boolean resolveDueTimeouts(Long mesaId) {
+        MatchState state = state(mesaId);
+        if (!state.hasMatch() || !state.isActive()) {
             return false;
         }
-        if (!RULESET.equals(partida.getRuleset())) {
+        if (!RULESET.equals(state.getRuleset())) {
+            Mesa mesa = loadMesa(mesaId);
+            Partida partida = loadPartida(state);
             partida.setEstado(EstadoPartida.CANCELLED);
             partida.setFin(Instant.now());
             partidaRepository.save(partida);
@@ -522,36 +909,44 @@ public class MultiplayerService {
             mesa.setReadyDeadlineAt(null);
             mesa.setEstado(EstadoPartida.WAITING_FOR_PLAYERS);
             mesaRepository.save(mesa);
+            invalidateState(mesaId);
             broadcastRoomAndTable(mesa);
             return true;
         }
 
         Instant now = Instant.now();
-        if ((partida.getEstado() == EstadoPartida.PLACING_SHIPS || partida.getEstado() == EstadoPartida.READY_TO_START)
-                && partida.getPlacementDeadlineAt() == null) {
+        boolean placing = state.getEstado() == EstadoPartida.PLACING_SHIPS
+                || state.getEstado() == EstadoPartida.READY_TO_START;
+        if (placing && state.getPlacementDeadlineAt() == null) {
+            Partida partida = loadPartida(state);
             partida.setPlacementDeadlineAt(now.plus(PLACEMENT_LIMIT));
             partidaRepository.save(partida);
+            state.setPlacementDeadlineAt(partida.getPlacementDeadlineAt());
+            deadlines.schedule(mesaId, DeadlineScheduler.Kind.PLACEMENT, partida.getPlacementDeadlineAt());
             return true;
         }
-        if (partida.getEstado() == EstadoPartida.IN_PROGRESS && partida.getTurnDeadlineAt() == null) {
+        if (state.getEstado() == EstadoPartida.IN_PROGRESS && state.getTurnDeadlineAt() == null) {
+            Partida partida = loadPartida(state);
             partida.setTurnDeadlineAt(now.plus(TURN_LIMIT));
             partidaRepository.save(partida);
+            state.setTurnDeadlineAt(partida.getTurnDeadlineAt());
+            deadlines.schedule(mesaId, DeadlineScheduler.Kind.TURN, partida.getTurnDeadlineAt());
             return true;
         }
 
-        if ((partida.getEstado() == EstadoPartida.PLACING_SHIPS || partida.getEstado() == EstadoPartida.READY_TO_START)
-                && partida.getPlacementDeadlineAt() != null
-                && !now.isBefore(partida.getPlacementDeadlineAt())) {
+        if (placing && !now.isBefore(state.getPlacementDeadlineAt())) {
+            Mesa mesa = loadMesa(mesaId);
+            Partida partida = loadPartida(state);
             boolean changed = false;
-            if (mesa.getSeatA() != null && !boardPlaced(partida, mesa.getSeatA())) {
-                autoPlaceFleet(partida, mesa.getSeatA());
+            if (mesa.getSeatA() != null && !boardPlaced(state, mesa.getSeatA())) {
+                autoPlaceFleet(state, partida, mesa.getSeatA());
                 changed = true;
             }
-            if (mesa.getSeatB() != null && !boardPlaced(partida, mesa.getSeatB())) {
-                autoPlaceFleet(partida, mesa.getSeatB());
+            if (mesa.getSeatB() != null && !boardPlaced(state, mesa.getSeatB())) {
+                autoPlaceFleet(state, partida, mesa.getSeatB());
                 changed = true;
             }
-            if (boardPlaced(partida, mesa.getSeatA()) && boardPlaced(partida, mesa.getSeatB())) {
+            if (boardPlaced(state, mesa.getSeatA()) && boardPlaced(state, mesa.getSeatB())) {
                 startInProgress(partida, mesa);
                 changed = true;
             }
@@ -559,28 +954,38 @@ public class MultiplayerService {
                 partida.setLastAutoActionAt(now);
                 partidaRepository.save(partida);
                 mesaRepository.save(mesa);
+                invalidateState(mesaId);
                 broadcastRoomAndTable(mesa);
             }
             return changed;
         }
 
-        if (partida.getEstado() == EstadoPartida.IN_PROGRESS
-                && partida.getTurnDeadlineAt() != null
-                && !now.isBefore(partida.getTurnDeadlineAt())) {
-            Jugador atacante = playerById(mesa, partida.getTurnoActualJugadorId());
-            if (atacante == null) {
-                return false;
-            }
-            String position = randomUnattackedPosition(partida, opponent(mesa, atacante));
-            if (position == null) {
-                return false;
-            }
-            applyShot(mesa, partida, atacante, position, true, "SHOT_TIMEOUT");
-            return true;
+        if (turnTimedOut(state, now)) {
+            return resolveTurnTimeout(state);
         }
         return false;
     }
 
+    private boolean turnTimedOut(MatchState state, Instant now) {
+        return state.getEstado() == EstadoPartida.IN_PROGRESS
+                && state.getTurnDeadlineAt() != null
+                && !now.isBefore(state.getTurnDeadlineAt());
+    }
+
+    private boolean resolveTurnTimeout(MatchState state) {
+        MatchState.Seat atacante = state.seat(state.getTurnoActualJugadorId());
+        MatchState.Seat defensor = atacante == null ? null : state.opponentOf(atacante);
+        if (defensor == null || defensor.getBoard() == null) {
+            return false;
+        }
+        int cell = defensor.getBoard().randomUnshotCell(new Random());
+        if (cell < 0) {
+            return false;
+        }
+        applyShot(state, atacante, BitBoard.label(cell), true, "SHOT_TIMEOUT");
+        return true;
+    }
+
     private void startInProgress(Partida partida, Mesa mesa) {
         partida.setEstado(EstadoPartida.IN_PROGRESS);
         partida.setInicio(partida.getInicio() == null ? Instant.now() : partida.getInicio());
@@ -590,6 +995,8 @@ public class MultiplayerService {
         partida.setTurnDeadlineAt(Instant.now().plus(TURN_LIMIT));
         mesa.setReadyDeadlineAt(null);
         mesa.setEstado(EstadoPartida.IN_PROGRESS);
+        deadlines.schedule(mesa.getId(), DeadlineScheduler.Kind.PLACEMENT, null);
+        deadlines.schedule(mesa.getId(), DeadlineScheduler.Kind.TURN, partida.getTurnDeadlineAt());
     }
 
     private Jugador playerById(Mesa mesa, Long jugadorId) {
@@ -605,37 +1012,14 @@ public class MultiplayerService {
         return null;
     }
 
-    private String randomUnattackedPosition(Partida partida, Jugador defender) {
-        Tablero tablero = tableroRepository.findByJugadorIdAndPartidaId(defender.getId(), partida.getId())
-                .orElse(null);
-        if (tablero == null) {
-            return null;
-        }
-        Set<String> attacked = tablero.getPosicionesAtacadas() == null ? Set.of() : tablero.getPosicionesAtacadas().keySet();
-        List<String> candidates = allCells().stream()
-                .filter(cell -> !attacked.contains(cell))
-                .toList();
-        if (candidates.isEmpty()) {
-            return null;
-        }
-        return candidates.get(new Random().nextInt(candidates.size()));
-    }
-
-    private List<String> allCells() {
-        List<String> cells = new ArrayList<>(BOARD_SIZE * BOARD_SIZE);
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            for (int col = 1; col <= BOARD_SIZE; col++) {
-                cells.add(String.valueOf((char) ('A' + row)) + col);
-            }
+    private void autoPlaceFleet(MatchState state, Partida partida, Jugador jugador) {
+        if (jugador == null || boardPlaced(state, jugador)) {
+            return;
         }
-        return cells;
+        storeBoard(state, partida, jugador, randomFleetBuild());
     }
 
-    private void autoPlaceFleet(Partida partida, Jugador jugador) {
-        if (jugador == null || boardPlaced(partida, jugador)) {
-            return;
-        }
-        BoardBuild board = randomFleetBuild();
+    private void storeBoard(MatchState state, Partida partida, Jugador jugador, BitBoard board) {
         Tablero tablero = tableroRepository.findByJugadorIdAndPartidaId(jugador.getId(), partida.getId())
                 .orElseGet(() -> {
                     Tablero t = new Tablero();
@@ -643,117 +1027,96 @@ public class MultiplayerService {
                     t.setJugador(jugador);
                     return t;
                 });
-        tablero.setPosicionesBarcos(board.positions());
-        tablero.setBarcosPorCelda(board.shipsByCell());
-        tablero.setPosicionesAtacadas(new HashMap<>());
-        tableroRepository.save(tablero);
+        tablero.storeBitBoard(board);
+        tablero = tableroRepository.save(tablero);
+        MatchState.Seat seat = state.seat(jugador.getId());
+        if (seat != null) {
+            seat.setTableroId(tablero.getId());
+            seat.setBoard(board);
+        }
     }
 
-    private BoardBuild randomFleetBuild() {
+    private BitBoard randomFleetBuild() {
         Random random = new Random();
         for (int restart = 0; restart < 200; restart++) {
-            Map<String, Boolean> positions = new HashMap<>();
-            Map<String, String> shipsByCell = new HashMap<>();
+            BitBoard board = new BitBoard();
             boolean failed = false;
-            for (FleetShipSpec ship : FLEET) {
+            for (int shipId = 1; shipId <= FLEET.size() && !failed; shipId++) {
+                int size = ClassicFleet.spec(shipId).size();
                 boolean placed = false;
                 for (int attempt = 0; attempt < 300 && !placed; attempt++) {
                     boolean vertical = random.nextBoolean();
-                    int rowLimit = vertical ? BOARD_SIZE - ship.size() : BOARD_SIZE - 1;
-                    int colLimit = vertical ? BOARD_SIZE - 1 : BOARD_SIZE - ship.size();
+                    int rowLimit = vertical ? BOARD_SIZE - size : BOARD_SIZE - 1;
+                    int colLimit = vertical ? BOARD_SIZE - 1 : BOARD_SIZE - size;
                     int row = random.nextInt(rowLimit + 1);
                     int col = random.nextInt(colLimit + 1);
-                    List<String> cells = new ArrayList<>();
-                    for (int i = 0; i < ship.size(); i++) {
-                        int nextRow = vertical ? row + i : row;
-                        int nextCol = vertical ? col : col + i;
-                        cells.add(String.valueOf((char) ('A' + nextRow)) + (nextCol + 1));
+                    int[] cells = new int[size];
+                    for (int i = 0; i < size; i++) {
+                        cells[i] = vertical ? BitBoard.index(row + i, col) : BitBoard.index(row, col + i);
                     }
-                    if (canPlaceRandomShip(cells, shipsByCell)) {
-                        for (String cell : cells) {
-                            positions.put(cell, true);
-                            shipsByCell.put(cell, ship.key());
-                        }
+                    if (!board.touches(cells)) {
+                        board.place(shipId, cells);
                         placed = true;
                     }
                 }
-                if (!placed) {
-                    failed = true;
-                    break;
-                }
+                failed = !placed;
             }
             if (!failed) {
-                return new BoardBuild(positions, shipsByCell);
+                return board;
             }
         }
         throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "No se pudo generar flota automatica");
     }
 
-    private boolean canPlaceRandomShip(List<String> cells, Map<String, String> shipsByCell) {
-        for (String cell : cells) {
-            if (shipsByCell.containsKey(cell)) {
-                return false;
-            }
-            Cell parsed = parseCell(cell);
-            for (int row = parsed.row() - 1; row <= parsed.row() + 1; row++) {
-                for (int col = parsed.col() - 1; col <= parsed.col() + 1; col++) {
-                    if (row < 0 || row >= BOARD_SIZE || col < 0 || col >= BOARD_SIZE) {
-                        continue;
-                    }
-                    String neighbor = String.valueOf((char) ('A' + row)) + (col + 1);
-                    if (shipsByCell.containsKey(neighbor)) {
-                        return false;
-                    }
-                }
-            }
-        }
-        return true;
-    }
-
-    @Transactional
     public TableSnapshot resign(Long mesaId, String token) {
-        SesionJugador session = requireSession(token);
-        Mesa mesa = lockMesa(mesaId);
-        resolveDueTimeouts(mesa);
-        resignLocked(mesa, session, true);
-        mesa = mesaRepository.save(mesa);
-        broadcastRoomAndTable(mesa);
-        return tableSnapshot(mesa, token);
+        return onMesa(mesaId, () -> {
+            SessionRef session = requireSession(token);
+            Mesa mesa = loadMesa(mesaId);
+            resolveDueTimeouts(mesaId);
+            resignLocked(mesa, session, true);
+            mesa = mesaRepository.save(mesa);
+            broadcastRoomAndTable(mesa);
+            return tableSnapshot(mesa, token);
+        });
     }
 
-    @Transactional
     public TableSnapshot rematch(Long mesaId, String token) {
-        SesionJugador session = requireSession(token);
-        Mesa mesa = lockMesa(mesaId);
-        resolveDueTimeouts(mesa);
-        Partida current = currentPartida(mesa).orElseThrow(() -> conflict("No hay partida para revancha"));
-        if (current.getEstado() != EstadoPartida.FINISHED && current.getEstado() != EstadoPartida.ABANDONED) {
-            throw conflict("La revancha solo esta disponible al terminar");
-        }
-        if (isSeat(mesa.getSeatA(), session)) {
-            mesa.setRematchA(true);
-        } else if (isSeat(mesa.getSeatB(), session)) {
-            mesa.setRematchB(true);
-        } else {
-            throw forbidden("Solo jugadores sentados pueden pedir revancha");
-        }
-        if (mesa.isRematchA() && mesa.isRematchB()) {
-            mesa.setRematchA(false);
-            mesa.setRematchB(false);
-            mesa.setReadyA(true);
-            mesa.setReadyB(true);
-            Partida partida = createMatchForMesa(mesa);
-            mesa.setReadyDeadlineAt(null);
-            mesa.setEstado(partida.getEstado());
-        }
-        mesa = mesaRepository.save(mesa);
-        broadcastRoomAndTable(mesa);
-        return tableSnapshot(mesa, token);
+        return onMesa(mesaId, () -> {
+            SessionRef session = requireSession(token);
+            Mesa mesa = loadMesa(mesaId);
+            resolveDueTimeouts(mesaId);
+            MatchState current = state(mesaId);
+            if (!current.hasMatch()) {
+                throw conflict("No hay partida para revancha");
+            }
+            if (current.getEstado() != EstadoPartida.FINISHED && current.getEstado() != EstadoPartida.ABANDONED) {
+                throw conflict("La revancha solo esta disponible al terminar");
+            }
+            if (isSeat(mesa.getSeatA(), session)) {
+                mesa.setRematchA(true);
+            } else if (isSeat(mesa.getSeatB(), session)) {
+                mesa.setRematchB(true);
+            } else {
+                throw forbidden("Solo jugadores sentados pueden pedir revancha");
+            }
+            if (mesa.isRematchA() && mesa.isRematchB()) {
+                mesa.setRematchA(false);
+                mesa.setRematchB(false);
+                mesa.setReadyA(true);
+                mesa.setReadyB(true);
+                Partida partida = createMatchForMesa(mesa);
+                mesa.setReadyDeadlineAt(null);
+                mesa.setEstado(partida.getEstado());
+            }
+            mesa = mesaRepository.save(mesa);
+            broadcastRoomAndTable(mesa);
+            return tableSnapshot(mesa, token);
+        });
     }
 
     @Transactional
     public ChatMessageDto chat(Long mesaId, String token, ChatMessageDto request) {
-        SesionJugador session = requireSession(token);
+        SesionJugador session = loadSession(requireSession(token));
         Mesa mesa = mesaRepository.findById(mesaId).orElseThrow(() -> notFound("Mesa no encontrada"));
         String content = request == null ? "" : Optional.ofNullable(request.content()).orElse("");
         content = content.replaceAll("[\\p{Cntrl}&&[^\r\n\t]]", "").trim();
@@ -768,55 +1131,99 @@ public class MultiplayerService {
         return message;
     }
 
-    private void ensureDefaultTables() {
+    /**
+     * Returns the salas that got a table, so their room version can move once
+     * the transaction has committed.
+     */
+    private List<Long> ensureDefaultTables() {
+        List<Long> salas = new ArrayList<>();
         for (Sala sala : salaRepository.findAll()) {
-            ensureTableForRoom(sala);
+            if (ensureTableForRoom(sala)) {
+                salas.add(sala.getId());
+            }
         }
+        return salas;
     }
 
-    private void ensureTableForRoom(Sala sala) {
-        if (mesaRepository.findBySalaIdOrderByIdAsc(sala.getId()).isEmpty()) {
-            Mesa mesa = new Mesa();
-            mesa.setSala(sala);
-            mesa.setNombre("Mesa 1");
-            mesa.setEstado(EstadoPartida.WAITING_FOR_PLAYERS);
-            mesaRepository.save(mesa);
+    private boolean ensureTableForRoom(Sala sala) {
+        if (!mesaRepository.findBySalaIdOrderByIdAsc(sala.getId()).isEmpty()) {
+            return false;
         }
+        Mesa mesa = new Mesa();
+        mesa.setSala(sala);
+        mesa.setNombre("Mesa 1");
+        mesa.setEstado(EstadoPartida.WAITING_FOR_PLAYERS);
+        mesaRepository.save(mesa);
+        return true;
     }
 
     private RoomSnapshot roomSnapshot(Sala sala, String token) {
+        // Read before the tables, so the version never runs ahead of them.
+        long version = tableSnapshots.roomVersion(sala.getId());
         List<Mesa> mesas = mesaRepository.findBySalaIdOrderByIdAsc(sala.getId());
         List<TableSnapshot> mesaDtos = mesas.stream()
-                .map(m -> tableSnapshot(m, token))
+                .map(m -> cachedTable(m.getId(), token == null || token.isBlank() ? null : token))
                 .toList();
         int players = mesaDtos.stream()
                 .mapToInt(t -> (t.seatA().occupied() ? 1 : 0) + (t.seatB().occupied() ? 1 : 0))
                 .sum();
         int spectators = mesaDtos.stream().mapToInt(TableSnapshot::spectators).sum();
-        return new RoomSnapshot(sala.getId(), sala.getNombre(), true, players, spectators, mesaDtos);
+        return new RoomSnapshot(sala.getId(), sala.getNombre(), true, players, spectators, mesaDtos, version);
+    }
+
+    private TableSnapshot cachedTable(Long mesaId, String token) {
+        TableSnapshotCache.Role role = tableRole(matchStates.peek(mesaId), token);
+        TableSnapshot snapshot = role == null ? null : tableSnapshots.get(mesaId, role);
+        if (snapshot == null) {
+            snapshot = mesaExecutor.call(mesaId, () -> buildTable(mesaId, token));
+        }
+        return snapshot.withServerNow(Instant.now());
+    }
+
+    /**
+     * Builds and caches the snapshot for the role of the token. Runs on the lane
+     * so it cannot interleave with a command; pending shots are written before
+     * the read-only transaction starts.
+     */
+    private TableSnapshot buildTable(Long mesaId, String token) {
+        long version = tableSnapshots.version(mesaId);
+        writeBehind.flush(mesaId);
+        TableSnapshotCache.Role role = tableRole(state(mesaId), token);
+        TableSnapshot snapshot = readOnlyTransaction.execute(status -> tableSnapshot(loadMesa(mesaId),
+                role == TableSnapshotCache.Role.SPECTATOR ? null : token));
+        tableSnapshots.put(mesaId, role, version, snapshot);
+        return snapshot;
+    }
+
+    private TableSnapshotCache.Role tableRole(MatchState state, String token) {
+        if (state == null) {
+            return null;
+        }
+        MatchState.Seat seat = state.seatForToken(token);
+        if (seat == null) {
+            return TableSnapshotCache.Role.SPECTATOR;
+        }
+        return seat == state.getSeatA() ? TableSnapshotCache.Role.SEAT_A : TableSnapshotCache.Role.SEAT_B;
     }
 
     private TableSnapshot tableSnapshot(Mesa mesa, String token) {
-        Optional<Partida> partida = currentPartida(mesa);
-        SeatSnapshot seatA = seatSnapshot("A", mesa.getSeatA(), mesa.isReadyA());
-        SeatSnapshot seatB = seatSnapshot("B", mesa.getSeatB(), mesa.isReadyB());
-        SesionJugador session = findSessionOrNull(token);
+        MatchState state = state(mesa.getId());
+        SeatSnapshot seatA = seatSnapshot("A", mesa.getSeatA(), mesa.isReadyA(), boardPlaced(state, mesa.getSeatA()));
+        SeatSnapshot seatB = seatSnapshot("B", mesa.getSeatB(), mesa.isReadyB(), boardPlaced(state, mesa.getSeatB()));
+        SessionRef session = findSessionOrNull(token);
         String mySeat = null;
         if (isSeat(mesa.getSeatA(), session)) {
             mySeat = "A";
         } else if (isSeat(mesa.getSeatB(), session)) {
             mySeat = "B";
         }
-        Long partidaId = partida.map(Partida::getId).orElse(null);
-        Long turno = partida.map(Partida::getTurnoActualJugadorId).orElse(null);
-        Long ganador = partida.map(p -> p.getGanador() == null ? null : p.getGanador().getId()).orElse(null);
         PrivateMatchView privateView = null;
         SpectatorMatchView spectatorView = null;
-        if (partida.isPresent()) {
-            if (session != null && mySeat != null) {
-                privateView = privateView(partida.get(), mesa, session);
+        if (state.hasMatch()) {
+            if (session != null && mySeat != null && state.seatForToken(session.token()) != null) {
+                privateView = privateView(state, session);
             } else {
-                spectatorView = spectatorView(partida.get(), mesa);
+                spectatorView = spectatorView(state, mesa);
             }
         }
         return new TableSnapshot(
@@ -824,48 +1231,51 @@ public class MultiplayerService {
                 mesa.getSala() == null ? null : mesa.getSala().getId(),
                 mesa.getSala() == null ? null : mesa.getSala().getNombre(),
                 mesa.getNombre(),
-                mesa.getEstado().name(),
+                tableEstado(mesa, state).name(),
                 Instant.now(),
                 mesa.getReadyDeadlineAt(),
-                partida.map(Partida::getPlacementDeadlineAt).orElse(null),
-                partida.map(Partida::getTurnDeadlineAt).orElse(null),
-                partida.map(Partida::getRuleset).orElse(RULESET),
+                state.getPlacementDeadlineAt(),
+                state.getTurnDeadlineAt(),
+                state.getRuleset() == null ? RULESET : state.getRuleset(),
                 FLEET,
                 seatA,
                 seatB,
                 mySeat,
-                mesa.getSpectatorSessionIds() == null ? 0 : mesa.getSpectatorSessionIds().size(),
-                partidaId,
-                turno,
-                ganador,
+                presence.spectators(mesa.getId()),
+                state.getPartidaId(),
+                state.getTurnoActualJugadorId(),
+                state.getGanadorId(),
                 mesa.isRematchA(),
                 mesa.isRematchB(),
                 privateView,
-                spectatorView);
-    }
-
-    private PrivateMatchView privateView(Partida partida, Mesa mesa, SesionJugador session) {
-        Jugador me = isSeat(mesa.getSeatA(), session) ? mesa.getSeatA() : mesa.getSeatB();
-        Jugador op = opponent(mesa, me);
-        Optional<Tablero> ownBoard = tableroRepository.findByJugadorIdAndPartidaId(me.getId(), partida.getId());
-        Optional<Tablero> opBoard = tableroRepository.findByJugadorIdAndPartidaId(op.getId(), partida.getId());
-        Map<Long, Map<String, String>> revealed = shouldReveal(partida)
-                ? revealedShips(seatedPlayers(mesa), partida)
+                spectatorView,
+                tableEvents.seq(mesa.getId()),
+                tableSnapshots.version(mesa.getId()));
+    }
+
+    private PrivateMatchView privateView(MatchState state, SessionRef session) {
+        MatchState.Seat me = state.seatForToken(session.token());
+        MatchState.Seat op = state.opponentOf(me);
+        BitBoard ownBoard = me.getBoard();
+        BitBoard opBoard = op == null ? null : op.getBoard();
+        Map<Long, Map<String, String>> revealed = shouldReveal(state.getEstado())
+                ? revealedShips(state)
                 : Map.of();
         return new PrivateMatchView(
                 "PLAYER",
-                Objects.equals(mesa.getSeatA().getId(), me.getId()) ? "A" : "B",
-                me.getId(),
-                ownBoard.map(t -> new HashMap<>(t.getBarcosPorCelda())).orElseGet(HashMap::new),
-                ownBoard.map(this::shotStatusForBoard).orElseGet(HashMap::new),
-                opBoard.map(this::shotStatusForBoard).orElseGet(HashMap::new),
-                ownBoard.map(this::hasFleet).orElse(false),
-                opBoard.map(this::hasFleet).orElse(false),
+                me == state.getSeatA() ? "A" : "B",
+                me.getJugadorId(),
+                ownBoard == null ? new HashMap<>() : ownBoard.shipsByCell(),
+                ownBoard == null ? new HashMap<>() : ownBoard.shotStatus(),
+                opBoard == null ? new HashMap<>() : opBoard.shotStatus(),
+                me.isPlaced(),
+                op != null && op.isPlaced(),
                 revealed,
-                history(partida.getId()));
+                state.getHistory().tail(SNAPSHOT_SHOTS),
+                state.getHistory().size());
     }
 
-    private SpectatorMatchView spectatorView(Partida partida, Mesa mesa) {
+    private SpectatorMatchView spectatorView(MatchState state, Mesa mesa) {
         Map<Long, String> players = new LinkedHashMap<>();
         if (mesa.getSeatA() != null) {
             players.put(mesa.getSeatA().getId(), mesa.getSeatA().getNombre());
@@ -874,78 +1284,45 @@ public class MultiplayerService {
             players.put(mesa.getSeatB().getId(), mesa.getSeatB().getNombre());
         }
         Map<Long, Map<String, String>> publicShots = new LinkedHashMap<>();
-        for (Jugador jugador : seatedPlayers(mesa)) {
-            tableroRepository.findByJugadorIdAndPartidaId(jugador.getId(), partida.getId())
-                    .ifPresent(tablero -> publicShots.put(jugador.getId(), shotStatusForBoard(tablero)));
+        for (MatchState.Seat seat : seatedBoards(state)) {
+            publicShots.put(seat.getJugadorId(), seat.getBoard().shotStatus());
         }
-        Map<Long, Map<String, String>> revealed = shouldReveal(partida)
-                ? revealedShips(seatedPlayers(mesa), partida)
+        Map<Long, Map<String, String>> revealed = shouldReveal(state.getEstado())
+                ? revealedShips(state)
                 : Map.of();
-        return new SpectatorMatchView(players, publicShots, revealed, history(partida.getId()));
+        return new SpectatorMatchView(players, publicShots, revealed, state.getHistory().tail(SNAPSHOT_SHOTS),
+                state.getHistory().size());
     }
 
-    private List<Jugador> seatedPlayers(Mesa mesa) {
-        List<Jugador> jugadores = new ArrayList<>(2);
-        if (mesa.getSeatA() != null) {
-            jugadores.add(mesa.getSeatA());
+    private List<MatchState.Seat> seatedBoards(MatchState state) {
+        List<MatchState.Seat> seats = new ArrayList<>(2);
+        if (state.getSeatA() != null && state.getSeatA().getBoard() != null) {
+            seats.add(state.getSeatA());
         }
-        if (mesa.getSeatB() != null) {
-            jugadores.add(mesa.getSeatB());
+        if (state.getSeatB() != null && state.getSeatB().getBoard() != null) {
+            seats.add(state.getSeatB());
         }
-        return jugadores;
+        return seats;
     }
 
-    private SeatSnapshot seatSnapshot(String seat, Jugador jugador, boolean ready) {
+    private SeatSnapshot seatSnapshot(String seat, Jugador jugador, boolean ready, boolean shipsPlaced) {
         if (jugador == null) {
-            return new SeatSnapshot(seat, null, null, true, null, false, false);
+            return new SeatSnapshot(seat, null, null, true, null, false, false, false);
         }
         Usuario usuario = jugador.getUsuario();
         return new SeatSnapshot(seat, jugador.getId(), jugador.getNombre(), jugador.isInvitado(),
-                usuario == null ? null : usuario.getRating(), ready, true);
-    }
-
-    private List<ShotSnapshot> history(Long partidaId) {
-        return disparoRepository.findByPartidaIdOrderByTimestampAsc(partidaId).stream()
-                .map(d -> new ShotSnapshot(
-                        d.getAtacante().getId(),
-                        d.getDefensor().getId(),
-                        d.getPosicion(),
-                        d.isAcierto(),
-                        d.getResultado(),
-                        d.getBarcoHundido(),
-                        d.isAutomatic(),
-                        d.getReason(),
-                        d.getTimestamp()))
-                .toList();
+                usuario == null ? null : usuario.getRating(), ready, true, shipsPlaced);
     }
 
-    private Map<Long, Map<String, String>> revealedShips(List<Jugador> jugadores, Partida partida) {
+    private Map<Long, Map<String, String>> revealedShips(MatchState state) {
         Map<Long, Map<String, String>> result = new LinkedHashMap<>();
-        for (Jugador jugador : jugadores) {
-            if (jugador == null) {
-                continue;
-            }
-            tableroRepository.findByJugadorIdAndPartidaId(jugador.getId(), partida.getId())
-                    .ifPresent(t -> result.put(jugador.getId(), new HashMap<>(t.getBarcosPorCelda())));
+        for (MatchState.Seat seat : seatedBoards(state)) {
+            result.put(seat.getJugadorId(), seat.getBoard().shipsByCell());
         }
         return result;
     }
 
-    private Map<String, String> shotStatusForBoard(Tablero tablero) {
-        Map<String, String> result = new HashMap<>();
-        Map<String, Boolean> attacked = tablero.getPosicionesAtacadas() == null ? Map.of() : tablero.getPosicionesAtacadas();
-        for (Map.Entry<String, Boolean> entry : attacked.entrySet()) {
-            if (Boolean.TRUE.equals(entry.getValue())) {
-                String ship = tablero.getBarcosPorCelda() == null ? null : tablero.getBarcosPorCelda().get(entry.getKey());
-                result.put(entry.getKey(), ship != null && isShipSunk(tablero, ship) ? "SUNK" : "HIT");
-            } else {
-                result.put(entry.getKey(), "MISS");
-            }
-        }
-        return result;
-    }
-
-    private BoardBuild validateFleet(ShipPlacementRequest request) {
+    private BitBoard validateFleet(ShipPlacementRequest request) {
         if (request == null || request.ships() == null) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Debes enviar la flota completa");
         }
@@ -953,11 +1330,10 @@ public class MultiplayerService {
                 .collect(Collectors.toMap(s -> normalizeShipKey(s.key()), ship -> ship, (a, b) -> {
                     throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Barco duplicado: " + a.key());
                 }, LinkedHashMap::new));
-        if (!byKey.keySet().equals(FLEET_BY_KEY.keySet())) {
+        if (!byKey.keySet().equals(ClassicFleet.idsByKey().keySet())) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "La flota debe contener los 10 barcos clasicos");
         }
-        Map<String, Boolean> positions = new HashMap<>();
-        Map<String, String> shipsByCell = new HashMap<>();
+        BitBoard board = new BitBoard();
         for (FleetShipSpec required : FLEET) {
             ShipPlacement ship = byKey.get(required.key());
             List<String> cells = ship.cells() == null ? List.of() : ship.cells().stream()
@@ -966,36 +1342,21 @@ public class MultiplayerService {
             if (ship.size() != required.size() || cells.size() != required.size()) {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Tamano incorrecto para " + required.key());
             }
-            validateLine(required.key(), cells);
-            for (String cell : cells) {
-                if (positions.containsKey(cell)) {
-                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Los barcos no pueden superponerse");
-                }
-                positions.put(cell, true);
-                shipsByCell.put(cell, required.key());
+            int[] indices = validateLine(required.key(), cells);
+            if (board.occupied(indices)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Los barcos no pueden superponerse");
             }
+            board.place(ClassicFleet.shipId(required.key()), indices);
         }
-        validateNoAdjacentShips(shipsByCell);
-        return new BoardBuild(positions, shipsByCell);
-    }
-
-    private void validateNoAdjacentShips(Map<String, String> shipsByCell) {
-        List<Map.Entry<String, String>> entries = new ArrayList<>(shipsByCell.entrySet());
-        for (int i = 0; i < entries.size(); i++) {
-            Cell a = parseCell(entries.get(i).getKey());
-            for (int j = i + 1; j < entries.size(); j++) {
-                if (entries.get(i).getValue().equals(entries.get(j).getValue())) {
-                    continue;
-                }
-                Cell b = parseCell(entries.get(j).getKey());
-                if (Math.abs(a.row() - b.row()) <= 1 && Math.abs(a.col() - b.col()) <= 1) {
-                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Los barcos no pueden tocarse");
-                }
+        for (int shipId = 1; shipId <= FLEET.size(); shipId++) {
+            if (board.touchesOtherShips(shipId)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Los barcos no pueden tocarse");
             }
         }
+        return board;
     }
 
-    private void validateLine(String shipKey, List<String> cells) {
+    private int[] validateLine(String shipKey, List<String> cells) {
         List<Cell> parsed = cells.stream().map(this::parseCell).toList();
         boolean sameRow = parsed.stream().allMatch(c -> c.row() == parsed.get(0).row());
         boolean sameCol = parsed.stream().allMatch(c -> c.col() == parsed.get(0).col());
@@ -1008,31 +1369,7 @@ public class MultiplayerService {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, shipKey + " debe ocupar celdas contiguas");
             }
         }
-    }
-
-    private String sunkShipAt(Tablero tablero, String position) {
-        if (tablero.getBarcosPorCelda() == null) {
-            return null;
-        }
-        String ship = tablero.getBarcosPorCelda().get(position);
-        if (ship == null) {
-            return null;
-        }
-        return isShipSunk(tablero, ship) ? ship : null;
-    }
-
-    private boolean isShipSunk(Tablero tablero, String ship) {
-        Map<String, String> ships = tablero.getBarcosPorCelda() == null ? Map.of() : tablero.getBarcosPorCelda();
-        Map<String, Boolean> attacked = tablero.getPosicionesAtacadas() == null ? Map.of() : tablero.getPosicionesAtacadas();
-        return ships.entrySet().stream()
-                .filter(e -> ship.equals(e.getValue()))
-                .allMatch(e -> Boolean.TRUE.equals(attacked.get(e.getKey())));
-    }
-
-    private boolean allShipsHit(Tablero tablero) {
-        Map<String, Boolean> ships = tablero.getPosicionesBarcos() == null ? Map.of() : tablero.getPosicionesBarcos();
-        Map<String, Boolean> attacked = tablero.getPosicionesAtacadas() == null ? Map.of() : tablero.getPosicionesAtacadas();
-        return !ships.isEmpty() && ships.keySet().stream().allMatch(cell -> Boolean.TRUE.equals(attacked.get(cell)));
+        return parsed.stream().mapToInt(c -> BitBoard.index(c.row(), c.col())).toArray();
     }
 
     private Partida createMatchForMesa(Mesa mesa) {
@@ -1051,10 +1388,13 @@ public class MultiplayerService {
         partida.setTurnDeadlineAt(null);
         partida.setTurnoActualJugadorId(new Random().nextBoolean() ? mesa.getSeatA().getId() : mesa.getSeatB().getId());
         partida = partidaRepository.save(partida);
+        mesa.setCurrentPartidaId(partida.getId());
+        deadlines.schedule(mesa.getId(), DeadlineScheduler.Kind.PLACEMENT, partida.getPlacementDeadlineAt());
         createParticipation(partida, mesa.getSeatA(), 1);
         createParticipation(partida, mesa.getSeatB(), 2);
         createBlankBoard(partida, mesa.getSeatA());
         createBlankBoard(partida, mesa.getSeatB());
+        invalidateState(mesa.getId());
         return partida;
     }
 
@@ -1071,9 +1411,7 @@ public class MultiplayerService {
         Tablero tablero = new Tablero();
         tablero.setPartida(partida);
         tablero.setJugador(jugador);
-        tablero.setPosicionesBarcos(new HashMap<>());
-        tablero.setBarcosPorCelda(new HashMap<>());
-        tablero.setPosicionesAtacadas(new HashMap<>());
+        tablero.storeBitBoard(new BitBoard());
         tableroRepository.save(tablero);
     }
 
@@ -1097,7 +1435,99 @@ public class MultiplayerService {
             lose.setResultado(ResultadoParticipacion.PERDIO);
             participacionRepository.save(lose);
         }
-        applyRatingOnce(partida, ganador, perdedor);
+        DomainEvents.MatchFinished finished = new DomainEvents.MatchFinished(mesaIdOf(partida), salaIdOf(partida),
+                partida.getId(), ganador.getId(), perdedor.getId(), abandono);
+        afterCommit(() -> events.publish(finished));
+        if (partida.getMesa() != null) {
+            deadlines.schedule(partida.getMesa().getId(), DeadlineScheduler.Kind.PLACEMENT, null);
+            deadlines.schedule(partida.getMesa().getId(), DeadlineScheduler.Kind.TURN, null);
+            invalidateState(partida.getMesa().getId());
+        }
+    }
+
+    /**
+     * Applies the rating of a finished match in its own transaction, on the
+     * mesa lane so it never interleaves with a command of the table. The
+     * player already got the result; a repeated event finds the rating
+     * processed and does nothing. A failed attempt is retried with backoff;
+     * once those run out the reconcile sweep picks the match up again.
+     */
+    private void rateMatch(DomainEvents.MatchFinished finished) {
+        rateMatch(finished, 1);
+    }
+
+    private void rateMatch(DomainEvents.MatchFinished finished, int attempt) {
+        Supplier<Void> rate = () -> {
+            transactionTemplate.executeWithoutResult(status -> {
+                Partida partida = partidaRepository.findById(finished.partidaId()).orElse(null);
+                Jugador ganador = jugadorRepository.findById(finished.ganadorId()).orElse(null);
+                Jugador perdedor = jugadorRepository.findById(finished.perdedorId()).orElse(null);
+                if (partida != null && ganador != null && perdedor != null) {
+                    applyRatingOnce(partida, ganador, perdedor);
+                }
+            });
+            return null;
+        };
+        CompletableFuture<Void> rated = finished.mesaId() == null
+                ? CompletableFuture.completedFuture(null).thenApply(ignored -> rate.get())
+                : mesaExecutor.submit(finished.mesaId(), rate);
+        rated.whenComplete((ignored, e) -> {
+            if (e == null) {
+                return;
+            }
+            if (attempt >= RATING_ATTEMPTS) {
+                log.warn("No se pudo aplicar el rating de la partida {}; queda para la conciliacion",
+                        finished.partidaId(), e);
+                return;
+            }
+            long delayMs = RATING_RETRY.toMillis() << (attempt - 1);
+            log.warn("No se pudo aplicar el rating de la partida {}; reintento en {} ms", finished.partidaId(),
+                    delayMs, e);
+            CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS)
+                    .execute(() -> rateMatch(finished, attempt + 1));
+        });
+    }
+
+    /**
+     * Re-publishes the classic matches of the last day that finished between
+     * two registered players without moving their ratings, e.g. because the
+     * process stopped before the rating consumer got to them or every retry
+     * failed. Runs on every reconcile sweep.
+     */
+    private void recoverUnratedMatches() {
+        List<DomainEvents.MatchFinished> unrated = readOnlyTransaction.execute(status -> partidaRepository
+                .findUnrated(List.of(EstadoPartida.FINISHED, EstadoPartida.ABANDONED), RULESET,
+                        Instant.now().minus(RATING_RECOVERY))
+                .stream()
+                .map(this::finishedEvent)
+                .filter(Objects::nonNull)
+                .toList());
+        unrated.forEach(events::publish);
+    }
+
+    private DomainEvents.MatchFinished finishedEvent(Partida partida) {
+        Long ganadorId = partida.getGanador().getId();
+        Long perdedorId = partida.getParticipaciones().stream()
+                .map(p -> p.getJugador().getId())
+                .filter(id -> !id.equals(ganadorId))
+                .findFirst()
+                .orElse(null);
+        if (perdedorId == null) {
+            return null;
+        }
+        return new DomainEvents.MatchFinished(mesaIdOf(partida), salaIdOf(partida), partida.getId(), ganadorId,
+                perdedorId, partida.isAbandono());
+    }
+
+    private static Long mesaIdOf(Partida partida) {
+        return partida.getMesa() == null ? null : partida.getMesa().getId();
+    }
+
+    private static Long salaIdOf(Partida partida) {
+        if (partida.getMesa() != null && partida.getMesa().getSala() != null) {
+            return partida.getMesa().getSala().getId();
+        }
+        return partida.getSala() == null ? null : partida.getSala().getId();
     }
 
     private void applyRatingOnce(Partida partida, Jugador ganador, Jugador perdedor) {
@@ -1153,7 +1583,24 @@ public class MultiplayerService {
 
         partida.setRatingProcessed(true);
         partidaRepository.save(partida);
-        broadcastRankingUpdate();
+
+        DomainEvents.RatingChanged changed = new DomainEvents.RatingChanged(mesaIdOf(partida), salaIdOf(partida),
+                partida.getId(), Leaderboard.Player.of(winUser), Leaderboard.Player.of(loseUser), actualDelta,
+                pWin.getFecha());
+        afterCommit(() -> events.publish(changed));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
     }
 
     private int ratingDelta(int winnerRating, int loserRating, int winnerGames, int loserGames) {
@@ -1177,25 +1624,25 @@ public class MultiplayerService {
         return K_ESTABLISHED;
     }
 
-    private void resignLocked(Mesa mesa, SesionJugador session, boolean explicit) {
-        Partida partida = currentPartida(mesa).orElse(null);
-        if (partida == null || (partida.getEstado() != EstadoPartida.IN_PROGRESS
-                && partida.getEstado() != EstadoPartida.PLACING_SHIPS
-                && partida.getEstado() != EstadoPartida.READY_TO_START)) {
+    private void resignLocked(Mesa mesa, SessionRef session, boolean explicit) {
+        MatchState state = state(mesa.getId());
+        if (!state.hasMatch() || !state.isActive()) {
             throw conflict("No hay partida activa para abandonar");
         }
+        Partida partida = loadPartida(state);
         Jugador resigning = seatedJugador(mesa, session);
         Jugador winner = opponent(mesa, resigning);
         finishMatch(partida, winner, resigning, true);
         mesa.setEstado(EstadoPartida.ABANDONED);
         if (!explicit) {
-            mesa.getSpectatorSessionIds().remove(session.getId());
+            presence.left(mesa.getId(), session.id());
         }
     }
 
-    private Jugador getOrCreateJugador(SesionJugador session, Sala sala) {
-        return jugadorRepository.findTopBySessionTokenAndSalaIdOrderByIdDesc(session.getToken(), sala.getId())
+    private Jugador getOrCreateJugador(SessionRef ref, Sala sala) {
+        return jugadorRepository.findTopBySessionTokenAndSalaIdOrderByIdDesc(ref.token(), sala.getId())
                 .orElseGet(() -> {
+                    SesionJugador session = loadSession(ref);
                     Jugador jugador = new Jugador();
                     jugador.setNombre(session.getDisplayName());
                     jugador.setUsername(session.getUsuario() == null ? session.getDisplayName() : session.getUsuario().getUsername());
@@ -1208,14 +1655,44 @@ public class MultiplayerService {
                 });
     }
 
-    private SesionJugador requireSession(String token) {
+    /**
+     * Session check for commands. Signed tokens are verified with the key,
+     * their row is rechecked now and then by {@link LiveSessions}, and their
+     * lastSeenAt is only recorded in memory; opaque tokens from before are
+     * still read from the database while the legacy window is open.
+     */
+    private SessionRef requireSession(String token) {
         if (token == null || token.isBlank()) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Sesion requerida");
         }
-        SesionJugador session = sesionRepository.findByToken(token)
+        SessionRef session = requireKnownSession(token);
+        sessionActivity.seen(session.id(), Instant.now());
+        return session;
+    }
+
+    /**
+     * Session check for read endpoints: same errors as {@link #requireSession},
+     * without touching lastSeenAt.
+     */
+    private SessionRef requireKnownSession(String token) {
+        Instant now = Instant.now();
+        if (sessionTokens.isSigned(token)) {
+            Long sessionId = sessionTokens.verify(token, now).sessionId();
+            liveSessions.requireLive(sessionId, now);
+            return new SessionRef(sessionId, token);
+        }
+        sessionTokens.requireLegacyAllowed(now);
+        return sesionRepository.findByToken(token)
+                .map(session -> new SessionRef(session.getId(), token))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Sesion invalida"));
+    }
+
+    /**
+     * The session row, for the few commands that need its name or account.
+     */
+    private SesionJugador loadSession(SessionRef session) {
+        return sesionRepository.findById(session.id())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Sesion invalida"));
-        session.setLastSeenAt(Instant.now());
-        return sesionRepository.save(session);
     }
 
     private SessionUser toSessionUser(SesionJugador session) {
@@ -1232,27 +1709,132 @@ public class MultiplayerService {
                 user == null ? null : user.getLosses());
     }
 
-    private SesionJugador findSessionOrNull(String token) {
+    private SessionRef findSessionOrNull(String token) {
         if (token == null || token.isBlank()) {
             return null;
         }
-        return sesionRepository.findByToken(token).orElse(null);
+        try {
+            return requireKnownSession(token);
+        } catch (ResponseStatusException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A verified session: its id and the token seats are matched by.
+     */
+    private record SessionRef(Long id, String token) {
+    }
+
+    /**
+     * Runs a structural command on the mesa lane inside its own transaction. The
+     * lane replaces the row lock on mesa: commands of one mesa never overlap.
+     * Pending shots of the mesa are written first so the command sees them, and
+     * the cached table snapshots are dropped once it commits.
+     */
+    private <T> T onMesa(Long mesaId, Supplier<T> command) {
+        return mesaExecutor.call(mesaId, () -> {
+            writeBehind.flush(mesaId);
+            try {
+                T result = transactionTemplate.execute(status -> command.get());
+                tableSnapshots.invalidate(mesaId);
+                return result;
+            } catch (RuntimeException e) {
+                matchStates.evict(mesaId);
+                throw e;
+            }
+        });
     }
 
-    private Mesa lockMesa(Long mesaId) {
-        return mesaRepository.findByIdForUpdate(mesaId).orElseThrow(() -> notFound("Mesa no encontrada"));
+    private MatchState state(Long mesaId) {
+        return matchStates.get(mesaId, () -> transactionTemplate.execute(status -> loadState(mesaId)));
+    }
+
+    private void invalidateState(Long mesaId) {
+        matchStates.evict(mesaId);
+    }
+
+    /**
+     * Rebuilds the match state of a mesa from the database: seats, the latest
+     * partida, both boards and the shot history.
+     */
+    private MatchState loadState(Long mesaId) {
+        writeBehind.flush(mesaId);
+        Mesa mesa = loadMesa(mesaId);
+        MatchState state = new MatchState(mesaId, mesa.getSala() == null ? null : mesa.getSala().getId(),
+                stateSeat(mesa.getSeatA()), stateSeat(mesa.getSeatB()));
+        Partida partida = currentPartida(mesa).orElse(null);
+        if (partida == null) {
+            return state;
+        }
+        state.setPartidaId(partida.getId());
+        state.setEstado(partida.getEstado());
+        state.setRuleset(partida.getRuleset());
+        state.setTurnoActualJugadorId(partida.getTurnoActualJugadorId());
+        state.setPlacementDeadlineAt(partida.getPlacementDeadlineAt());
+        state.setTurnDeadlineAt(partida.getTurnDeadlineAt());
+        state.setLastAutoActionAt(partida.getLastAutoActionAt());
+        state.setGanadorId(partida.getGanador() == null ? null : partida.getGanador().getId());
+        for (MatchState.Seat seat : Arrays.asList(state.getSeatA(), state.getSeatB())) {
+            if (seat == null) {
+                continue;
+            }
+            tableroRepository.findByJugadorIdAndPartidaId(seat.getJugadorId(), partida.getId())
+                    .ifPresent(tablero -> {
+                        seat.setTableroId(tablero.getId());
+                        seat.setBoard(tablero.toBitBoard());
+                    });
+        }
+        disparoRepository.findShotsByPartidaId(partida.getId()).forEach(state.getHistory()::append);
+        return state;
+    }
+
+    private MatchState.Seat stateSeat(Jugador jugador) {
+        return jugador == null ? null : new MatchState.Seat(jugador.getId(), jugador.getSessionToken());
+    }
+
+    private Mesa loadMesa(Long mesaId) {
+        return mesaRepository.findById(mesaId).orElseThrow(() -> notFound("Mesa no encontrada"));
+    }
+
+    /**
+     * Loads the partida entity for a structural change. Turn fields are taken
+     * from the match state because shots may still be waiting to be written.
+     */
+    private Partida loadPartida(MatchState state) {
+        Partida partida = partidaRepository.findById(state.getPartidaId())
+                .orElseThrow(() -> notFound("Partida no encontrada"));
+        partida.setTurnoActualJugadorId(state.getTurnoActualJugadorId());
+        partida.setTurnDeadlineAt(state.getTurnDeadlineAt());
+        partida.setLastAutoActionAt(state.getLastAutoActionAt());
+        return partida;
     }
 
     private Optional<Partida> currentPartida(Mesa mesa) {
-        return partidaRepository.findByMesaIdOrderByIdDesc(mesa.getId()).stream().findFirst();
+        return mesa.getCurrentPartidaId() == null
+                ? Optional.empty()
+                : partidaRepository.findById(mesa.getCurrentPartidaId());
+    }
+
+    /**
+     * Estado shown for the table: the live partida wins over the stored mesa
+     * estado, as in {@link #syncMesaState}, without touching the entity.
+     */
+    private EstadoPartida tableEstado(Mesa mesa, MatchState state) {
+        if (state.hasMatch() && state.getEstado() != null
+                && state.getEstado() != EstadoPartida.CANCELLED
+                && state.getEstado() != EstadoPartida.CANCELADA) {
+            return state.getEstado();
+        }
+        return mesa.getEstado();
     }
 
     private void syncMesaState(Mesa mesa) {
-        Optional<Partida> partida = currentPartida(mesa);
-        if (partida.isPresent() && partida.get().getEstado() != null
-                && partida.get().getEstado() != EstadoPartida.CANCELLED
-                && partida.get().getEstado() != EstadoPartida.CANCELADA) {
-            mesa.setEstado(partida.get().getEstado());
+        MatchState state = state(mesa.getId());
+        if (state.hasMatch() && state.getEstado() != null
+                && state.getEstado() != EstadoPartida.CANCELLED
+                && state.getEstado() != EstadoPartida.CANCELADA) {
+            mesa.setEstado(state.getEstado());
             return;
         }
         int seats = (mesa.getSeatA() == null ? 0 : 1) + (mesa.getSeatB() == null ? 0 : 1);
@@ -1271,21 +1853,18 @@ public class MultiplayerService {
         mesa.setReadyA(false);
         mesa.setReadyB(false);
         mesa.setReadyDeadlineAt(null);
+        deadlines.schedule(mesa.getId(), DeadlineScheduler.Kind.READY, null);
     }
 
     private boolean requiresForfeit(Mesa mesa) {
-        return currentPartida(mesa)
-                .map(p -> p.getEstado() == EstadoPartida.IN_PROGRESS
-                        || p.getEstado() == EstadoPartida.PLACING_SHIPS
-                        || p.getEstado() == EstadoPartida.READY_TO_START)
-                .orElse(false);
+        return state(mesa.getId()).isActive();
     }
 
-    private boolean isSeat(Jugador jugador, SesionJugador session) {
-        return jugador != null && session != null && session.getToken().equals(jugador.getSessionToken());
+    private boolean isSeat(Jugador jugador, SessionRef session) {
+        return jugador != null && session != null && session.token().equals(jugador.getSessionToken());
     }
 
-    private Jugador seatedJugador(Mesa mesa, SesionJugador session) {
+    private Jugador seatedJugador(Mesa mesa, SessionRef session) {
         if (isSeat(mesa.getSeatA(), session)) {
             return mesa.getSeatA();
         }
@@ -1311,23 +1890,17 @@ public class MultiplayerService {
         throw forbidden("El jugador no pertenece a esta mesa");
     }
 
-    private boolean boardPlaced(Partida partida, Jugador jugador) {
+    private boolean boardPlaced(MatchState state, Jugador jugador) {
         if (jugador == null) {
             return false;
         }
-        return tableroRepository.findByJugadorIdAndPartidaId(jugador.getId(), partida.getId())
-                .map(this::hasFleet)
-                .orElse(false);
-    }
-
-    private boolean hasFleet(Tablero tablero) {
-        return tablero.getPosicionesBarcos() != null && tablero.getPosicionesBarcos().size() == FLEET_CELLS
-                && tablero.getBarcosPorCelda() != null && tablero.getBarcosPorCelda().size() == FLEET_CELLS;
+        MatchState.Seat seat = state.seat(jugador.getId());
+        return seat != null && seat.isPlaced();
     }
 
-    private boolean shouldReveal(Partida partida) {
-        return partida.getEstado() == EstadoPartida.FINISHED || partida.getEstado() == EstadoPartida.ABANDONED
-                || partida.getEstado() == EstadoPartida.FINALIZADA;
+    private boolean shouldReveal(EstadoPartida estado) {
+        return estado == EstadoPartida.FINISHED || estado == EstadoPartida.ABANDONED
+                || estado == EstadoPartida.FINALIZADA;
     }
 
     private String normalizeSeat(String seat) {
@@ -1372,7 +1945,7 @@ public class MultiplayerService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Barco sin clave");
         }
         String normalized = key.trim().toLowerCase(Locale.ROOT);
-        if (!FLEET_BY_KEY.containsKey(normalized)) {
+        if (!ClassicFleet.idsByKey().containsKey(normalized)) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Barco desconocido: " + key);
         }
         return normalized;
@@ -1407,52 +1980,127 @@ public class MultiplayerService {
     }
 
     private void broadcastRoomAndTable(Mesa mesa) {
+        broadcastRoomAndTable(mesa.getId(), mesa.getSala() == null ? null : mesa.getSala().getId());
+    }
+
+    /**
+     * Drops the cached snapshots and queues the event diff on the mesa lane.
+     * Called from a command, the diff runs right after it, once its transaction
+     * has committed; repeated calls within one command queue a single diff.
+     */
+    private void broadcastRoomAndTable(Long mesaId, Long salaId) {
+        markTableChanged(mesaId, salaId);
+        queueTableEvents(mesaId);
+    }
+
+    private void seatChanged(Mesa mesa) {
+        Long salaId = mesa.getSala() == null ? null : mesa.getSala().getId();
+        tableChanged(mesa.getId(), salaId, new DomainEvents.SeatChanged(mesa.getId(), salaId));
+    }
+
+    /**
+     * Like {@link #broadcastRoomAndTable(Long, Long)}, but the event diff is
+     * left to the broadcast consumer of the event, published once the
+     * command commits.
+     */
+    private void tableChanged(Long mesaId, Long salaId, DomainEvents.Event event) {
+        markTableChanged(mesaId, salaId);
+        afterCommit(() -> events.publish(event));
+    }
+
+    private void markTableChanged(Long mesaId, Long salaId) {
+        tableSnapshots.invalidate(mesaId);
+        roomsChanged(salaId == null ? List.of() : List.of(salaId));
+        versionWatch.changed(VersionWatch.mesa(mesaId));
         broadcastLobby();
-        if (mesa.getSala() != null) {
-            messagingTemplate.convertAndSend("/topic/salas/" + mesa.getSala().getId(), "UPDATE");
+    }
+
+    private void queueTableEvents(Long mesaId) {
+        if (mesaId != null && pendingTableEvents.add(mesaId)) {
+            mesaExecutor.submit(mesaId, () -> {
+                publishTableEvents(mesaId);
+                return null;
+            });
         }
-        messagingTemplate.convertAndSend("/topic/mesas/" + mesa.getId(), "UPDATE");
     }
 
+    /**
+     * Diffs the spectator snapshot against the last published one and sends the
+     * events. The snapshot is cached stamped with the new sequence number, so a
+     * client that resyncs from it continues exactly after these events.
+     */
+    private void publishTableEvents(Long mesaId) {
+        pendingTableEvents.remove(mesaId);
+        long version = tableSnapshots.version(mesaId);
+        TableSnapshot table;
+        try {
+            writeBehind.flush(mesaId);
+            table = readOnlyTransaction.execute(status -> tableSnapshot(loadMesa(mesaId), null));
+        } catch (ResponseStatusException e) {
+            tableEvents.forget(mesaId);
+            return;
+        }
+        List<TableEvent> events = tableEvents.record(table);
+        tableSnapshots.put(mesaId, TableSnapshotCache.Role.SPECTATOR, version,
+                table.withEventSeq(tableEvents.seq(mesaId)));
+        for (TableEvent event : events) {
+            byte[] json = eventJson(event);
+            if (event.salaId() != null) {
+                sendJson("/topic/salas/" + event.salaId(), json);
+            }
+            sendJson("/topic/mesas/" + mesaId, json);
+            send("/topic/bin/mesas/" + mesaId, TableFrameCodec.encode(event),
+                    MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        }
+    }
+
+    private void roomsChanged(List<Long> salaIds) {
+        for (Long salaId : salaIds) {
+            tableSnapshots.roomChanged(salaId);
+            versionWatch.changed(VersionWatch.sala(salaId));
+        }
+    }
+
+    /**
+     * The lobby is pushed by {@link #publishLobby}; this only marks it changed.
+     */
     private void broadcastLobby() {
-        messagingTemplate.convertAndSend("/topic/lobby", "UPDATE");
+        lobbyView.changed();
     }
 
-    private void broadcastRankingUpdate() {
-        List<Map<String, Object>> ranking = rankingPayload();
-        messagingTemplate.convertAndSend("/topic/ranking/dia", ranking);
-        messagingTemplate.convertAndSend("/topic/ranking/semana", ranking);
-        messagingTemplate.convertAndSend("/topic/ranking/mes", ranking);
-        messagingTemplate.convertAndSend("/topic/ranking/historico", ranking);
+    private byte[] eventJson(TableEvent event) {
+        try {
+            return objectMapper.writeValueAsBytes(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el evento de la mesa", e);
+        }
     }
 
-    private List<Map<String, Object>> rankingPayload() {
-        List<Usuario> users = usuarioRepository.findAll().stream()
-                .filter(usuario -> usuario.getGamesPlayed() > 0)
-                .sorted(Comparator.comparingInt(Usuario::getRating).reversed()
-                        .thenComparing(Usuario::getWins, Comparator.reverseOrder())
-                        .thenComparing(Usuario::getUsername))
-                .limit(10)
-                .toList();
-        List<Map<String, Object>> ranking = new ArrayList<>();
-        int rank = 1;
-        for (Usuario usuario : users) {
-            Map<String, Object> item = new LinkedHashMap<>();
-            item.put("rank", rank++);
-            item.put("jugadorId", usuario.getId());
-            item.put("nombre", usuario.getUsername());
-            item.put("puntos", usuario.getRating());
-            item.put("gamesPlayed", usuario.getGamesPlayed());
-            item.put("wins", usuario.getWins());
-            item.put("losses", usuario.getLosses());
-            ranking.add(item);
-        }
-        return ranking;
+    private void sendJson(String destination, byte[] json) {
+        send(destination, json, MimeTypeUtils.APPLICATION_JSON);
     }
 
-    private record Cell(int row, int col) {
+    /**
+     * Sends an already serialized payload as is, skipping the message
+     * converters. Octet-stream payloads go out as binary WebSocket frames on
+     * /ws-native.
+     */
+    private void send(String destination, byte[] payload, MimeType contentType) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create();
+        headers.setContentType(contentType);
+        headers.setLeaveMutable(true);
+        messagingTemplate.send(destination, MessageBuilder.createMessage(payload, headers.getMessageHeaders()));
     }
 
-    private record BoardBuild(Map<String, Boolean> positions, Map<String, String> shipsByCell) {
+    private void publishRanking(RankingWindows.Window window) {
+        broadcasts.publish("/topic/ranking/" + window.periodo(),
+                () -> rankingWindows.top(window, RANKING_SIZE, Instant.now()));
+    }
+
+    private List<Map<String, Object>> rankingPayload() {
+        return leaderboard.top(RANKING_SIZE).stream().map(Leaderboard.Standing::row).toList();
+    }
+
+    private record Cell(int row, int col) {
     }
 }
@@ -9,5 +9,7 @@ public interface RankingService {
 
     List<Map<String, Object>> obtenerRanking(String periodo);
 
+    Map<String, Object> obtenerPosicion(Long usuarioId, int radio);
+
     Map<String, Object> obtenerPuntuacion(Long partidaId, Long jugadorId);
 }
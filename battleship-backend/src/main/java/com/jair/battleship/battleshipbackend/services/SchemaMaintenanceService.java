@@ -1,44 +1,258 @@
 package com.jair.battleship.battleshipbackend.services;
 
+import com.jair.battleship.battleshipbackend.models.board.BitBoard;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Versioned schema changes on top of what Hibernate generates. Each migration
+ * runs once, in its own transaction, and is recorded in schema_migration with
+ * a checksum of its statements, so a boot with nothing pending only reads the
+ * ledger. A recorded migration whose checksum changed stops startup: applied
+ * steps are never edited, a new version is added instead. SQL steps use syntax
+ * both H2 and PostgreSQL accept. The checksum cannot see inside a Java step,
+ * so its action, and everything it calls, is frozen once released; a fix goes
+ * in a new version, and the drift check does not catch an edit.
+ */
 @Service
 public class SchemaMaintenanceService {
 
+    private static final Logger log = LoggerFactory.getLogger(SchemaMaintenanceService.class);
+
     private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final List<Migration> migrations;
 
-    public SchemaMaintenanceService(JdbcTemplate jdbcTemplate) {
+    public SchemaMaintenanceService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
         this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.migrations = List.of(
+                Migration.sql(1, "Classic rules columns",
+                        "ALTER TABLE disparo ADD COLUMN IF NOT EXISTS automatic boolean DEFAULT false",
+                        "UPDATE disparo SET automatic = false WHERE automatic IS NULL",
+                        "ALTER TABLE disparo ALTER COLUMN automatic SET DEFAULT false",
+                        "ALTER TABLE disparo ALTER COLUMN automatic SET NOT NULL",
+                        "ALTER TABLE disparo ADD COLUMN IF NOT EXISTS reason varchar(64) DEFAULT 'MANUAL'",
+                        "UPDATE disparo SET reason = 'MANUAL' WHERE reason IS NULL",
+                        "ALTER TABLE disparo ALTER COLUMN reason SET DEFAULT 'MANUAL'",
+                        "ALTER TABLE partida ADD COLUMN IF NOT EXISTS placement_deadline_at timestamp(6) with time zone",
+                        "ALTER TABLE partida ADD COLUMN IF NOT EXISTS turn_deadline_at timestamp(6) with time zone",
+                        "ALTER TABLE partida ADD COLUMN IF NOT EXISTS last_auto_action_at timestamp(6) with time zone",
+                        "ALTER TABLE partida ADD COLUMN IF NOT EXISTS ruleset varchar(255) DEFAULT 'SEA_BATTLE_2_CLASSIC'",
+                        "UPDATE partida SET ruleset = 'SEA_BATTLE_2_CLASSIC' WHERE ruleset IS NULL",
+                        "ALTER TABLE partida ALTER COLUMN ruleset SET DEFAULT 'SEA_BATTLE_2_CLASSIC'",
+                        "ALTER TABLE mesa ADD COLUMN IF NOT EXISTS ready_deadline_at timestamp(6) with time zone",
+                        "ALTER TABLE tablero ADD COLUMN IF NOT EXISTS ship_layout bytea",
+                        "ALTER TABLE tablero ADD COLUMN IF NOT EXISTS shots_lo bigint DEFAULT 0",
+                        "UPDATE tablero SET shots_lo = 0 WHERE shots_lo IS NULL",
+                        "ALTER TABLE tablero ALTER COLUMN shots_lo SET NOT NULL",
+                        "ALTER TABLE tablero ADD COLUMN IF NOT EXISTS shots_hi bigint DEFAULT 0",
+                        "UPDATE tablero SET shots_hi = 0 WHERE shots_hi IS NULL",
+                        "ALTER TABLE tablero ALTER COLUMN shots_hi SET NOT NULL"),
+                Migration.java(2, "Compact classic boards", this::compactClassicBoards),
+                Migration.sql(3, "Current partida on mesa",
+                        "ALTER TABLE mesa ADD COLUMN IF NOT EXISTS current_partida_id bigint"),
+                Migration.java(4, "Backfill current partida", this::backfillCurrentPartidas),
+                Migration.sql(5, "Indexes for hot lookups",
+                        "CREATE INDEX IF NOT EXISTS ix_tablero_jugador_partida ON tablero (jugador_id, partida_id)",
+                        "CREATE INDEX IF NOT EXISTS ix_partida_mesa_id ON partida (mesa_id, id)",
+                        "CREATE INDEX IF NOT EXISTS ix_partida_estado_mesa ON partida (estado, mesa_id)",
+                        "CREATE INDEX IF NOT EXISTS ix_disparo_partida_timestamp ON disparo (partida_id, timestamp, id)",
+                        "CREATE INDEX IF NOT EXISTS ix_jugador_session_sala ON jugador (session_token, sala_id, id)",
+                        "CREATE INDEX IF NOT EXISTS ix_mesa_ready_deadline ON mesa (ready_deadline_at)",
+                        "CREATE INDEX IF NOT EXISTS ix_sesion_jugador_last_seen ON sesion_jugador (last_seen_at)"),
+                Migration.sql(6, "Ranking buckets",
+                        "CREATE TABLE IF NOT EXISTS ranking_bucket ("
+                                + "granularity varchar(1) NOT NULL, "
+                                + "bucket_start timestamp(6) with time zone NOT NULL, "
+                                + "usuario_id bigint NOT NULL, "
+                                + "puntos integer NOT NULL, "
+                                + "partidas integer NOT NULL, "
+                                + "victorias integer NOT NULL, "
+                                + "derrotas integer NOT NULL, "
+                                + "PRIMARY KEY (granularity, bucket_start, usuario_id))"),
+                Migration.java(7, "Backfill ranking buckets", this::backfillRankingBuckets),
+                Migration.sql(8, "Backfill puntaje jugador",
+                        "INSERT INTO puntaje_jugador (clave, total, actualizado_at) "
+                                + "SELECT k.clave, GREATEST(0, SUM(k.total)), MAX(k.fecha) FROM ("
+                                + "SELECT CASE WHEN j.usuario_id IS NOT NULL THEN CONCAT('u', j.usuario_id) "
+                                + "ELSE CONCAT('j', j.id) END AS clave, p.total AS total, p.fecha AS fecha "
+                                + "FROM puntuacion p JOIN jugador j ON j.id = p.jugador_id "
+                                + "JOIN partida pt ON pt.id = p.partida_id WHERE pt.rating_processed = false) k "
+                                + "WHERE NOT EXISTS (SELECT 1 FROM puntaje_jugador e WHERE e.clave = k.clave) "
+                                + "GROUP BY k.clave"));
     }
 
     @EventListener(ApplicationReadyEvent.class)
     @Order(Ordered.HIGHEST_PRECEDENCE)
-    @Transactional
-    public void ensureClassicRulesColumns() {
-        for (String statement : List.of(
-                "ALTER TABLE disparo ADD COLUMN IF NOT EXISTS automatic boolean DEFAULT false",
-                "UPDATE disparo SET automatic = false WHERE automatic IS NULL",
-                "ALTER TABLE disparo ALTER COLUMN automatic SET DEFAULT false",
-                "ALTER TABLE disparo ALTER COLUMN automatic SET NOT NULL",
-                "ALTER TABLE disparo ADD COLUMN IF NOT EXISTS reason varchar(64) DEFAULT 'MANUAL'",
-                "UPDATE disparo SET reason = 'MANUAL' WHERE reason IS NULL",
-                "ALTER TABLE disparo ALTER COLUMN reason SET DEFAULT 'MANUAL'",
-                "ALTER TABLE partida ADD COLUMN IF NOT EXISTS placement_deadline_at timestamp(6) with time zone",
-                "ALTER TABLE partida ADD COLUMN IF NOT EXISTS turn_deadline_at timestamp(6) with time zone",
-                "ALTER TABLE partida ADD COLUMN IF NOT EXISTS last_auto_action_at timestamp(6) with time zone",
-                "ALTER TABLE partida ADD COLUMN IF NOT EXISTS ruleset varchar(255) DEFAULT 'SEA_BATTLE_2_CLASSIC'",
-                "UPDATE partida SET ruleset = 'SEA_BATTLE_2_CLASSIC' WHERE ruleset IS NULL",
-                "ALTER TABLE partida ALTER COLUMN ruleset SET DEFAULT 'SEA_BATTLE_2_CLASSIC'",
-                "ALTER TABLE mesa ADD COLUMN IF NOT EXISTS ready_deadline_at timestamp(6) with time zone")) {
-            jdbcTemplate.execute(statement);
+    public void migrate() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS schema_migration ("
+                + "version integer PRIMARY KEY, "
+                + "description varchar(200) NOT NULL, "
+                + "checksum varchar(64) NOT NULL, "
+                + "applied_at timestamp(6) with time zone NOT NULL, "
+                + "duration_ms bigint NOT NULL)");
+        Map<Integer, String> applied = new HashMap<>();
+        jdbcTemplate.query("SELECT version, checksum FROM schema_migration",
+                (RowCallbackHandler) rs -> applied.put(rs.getInt(1), rs.getString(2)));
+        for (Migration migration : migrations) {
+            String checksum = applied.get(migration.version());
+            if (checksum == null) {
+                apply(migration);
+            } else if (!checksum.equals(migration.checksum())) {
+                throw new IllegalStateException("La migracion " + migration.version() + " (" + migration.description()
+                        + ") cambio despues de aplicarse");
+            }
+        }
+    }
+
+    public int latestVersion() {
+        return migrations.get(migrations.size() - 1).version();
+    }
+
+    private void apply(Migration migration) {
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            migration.statements().forEach(jdbcTemplate::execute);
+            if (migration.action() != null) {
+                migration.action().run();
+            }
+            jdbcTemplate.update("INSERT INTO schema_migration (version, description, checksum, applied_at, duration_ms) "
+                            + "VALUES (?, ?, ?, ?, ?)",
+                    migration.version(), migration.description(), migration.checksum(),
+                    Timestamp.from(Instant.now()), (System.nanoTime() - start) / 1_000_000);
+        });
+        log.info("Migracion {} aplicada: {}", migration.version(), migration.description());
+    }
+
+    /**
+     * Moves classic boards still stored in the per-cell collection tables into
+     * the single-row layout/shot-mask columns and drops their collection rows.
+     */
+    public void compactClassicBoards() {
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT t.id FROM tablero t JOIN partida p ON p.id = t.partida_id "
+                        + "WHERE t.ship_layout IS NULL AND p.ruleset = 'SEA_BATTLE_2_CLASSIC'",
+                Long.class);
+        for (Long id : ids) {
+            Map<String, String> ships = new HashMap<>();
+            jdbcTemplate.query(
+                    "SELECT barcos_por_celda_key, barcos_por_celda FROM tablero_barcos_por_celda WHERE tablero_id = ?",
+                    (RowCallbackHandler) rs -> ships.put(rs.getString(1), rs.getString(2)), id);
+            Map<String, Boolean> attacked = new HashMap<>();
+            jdbcTemplate.query(
+                    "SELECT posiciones_atacadas_key, posiciones_atacadas FROM tablero_posiciones_atacadas WHERE tablero_id = ?",
+                    (RowCallbackHandler) rs -> attacked.put(rs.getString(1), rs.getBoolean(2)), id);
+            BitBoard board = BitBoard.fromCells(ships, attacked);
+            jdbcTemplate.update("UPDATE tablero SET ship_layout = ?, shots_lo = ?, shots_hi = ? WHERE id = ?",
+                    board.layout(), board.shotsLo(), board.shotsHi(), id);
+            jdbcTemplate.update("DELETE FROM tablero_posiciones_barcos WHERE tablero_id = ?", id);
+            jdbcTemplate.update("DELETE FROM tablero_barcos_por_celda WHERE tablero_id = ?", id);
+            jdbcTemplate.update("DELETE FROM tablero_posiciones_atacadas WHERE tablero_id = ?", id);
+        }
+    }
+
+    /**
+     * Points every mesa without a current partida at the latest one played there.
+     */
+    public void backfillCurrentPartidas() {
+        jdbcTemplate.update("UPDATE mesa SET current_partida_id = "
+                + "(SELECT MAX(p.id) FROM partida p WHERE p.mesa_id = mesa.id) WHERE current_partida_id IS NULL");
+    }
+
+    /**
+     * Fills ranking_bucket from the puntuacion rows of the last 30 days:
+     * hourly buckets for the last day and daily ones for the month. Rated
+     * matches store the new rating in total, so their points are puntos_base.
+     */
+    public void backfillRankingBuckets() {
+        Instant now = Instant.now();
+        Instant month = now.truncatedTo(ChronoUnit.DAYS).minus(29, ChronoUnit.DAYS);
+        Instant day = now.truncatedTo(ChronoUnit.HOURS).minus(23, ChronoUnit.HOURS);
+        Map<List<Object>, int[]> buckets = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT j.usuario_id, p.fecha, "
+                        + "CASE WHEN pt.rating_processed THEN p.puntos_base ELSE p.total END, pa.resultado "
+                        + "FROM puntuacion p JOIN jugador j ON j.id = p.jugador_id "
+                        + "JOIN partida pt ON pt.id = p.partida_id "
+                        + "LEFT JOIN participacion pa ON pa.partida_id = p.partida_id AND pa.jugador_id = p.jugador_id "
+                        + "WHERE j.usuario_id IS NOT NULL AND p.fecha >= ?",
+                (RowCallbackHandler) rs -> {
+                    Instant fecha = rs.getTimestamp(2).toInstant();
+                    int[] tally = {rs.getInt(3), 1, "GANO".equals(rs.getString(4)) ? 1 : 0,
+                            "GANO".equals(rs.getString(4)) ? 0 : 1};
+                    addBucket(buckets, "D", fecha.truncatedTo(ChronoUnit.DAYS), rs.getLong(1), tally);
+                    if (!fecha.isBefore(day)) {
+                        addBucket(buckets, "H", fecha.truncatedTo(ChronoUnit.HOURS), rs.getLong(1), tally);
+                    }
+                },
+                Timestamp.from(month));
+        List<Object[]> rows = new ArrayList<>(buckets.size());
+        buckets.forEach((key, tally) -> rows.add(new Object[]{key.get(0),
+                OffsetDateTime.ofInstant((Instant) key.get(1), ZoneOffset.UTC), key.get(2),
+                tally[0], tally[1], tally[2], tally[3]}));
+        jdbcTemplate.batchUpdate("INSERT INTO ranking_bucket "
+                + "(granularity, bucket_start, usuario_id, puntos, partidas, victorias, derrotas) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)", rows);
+    }
+
+    private static void addBucket(Map<List<Object>, int[]> buckets, String granularity, Instant start,
+                                  Long usuarioId, int[] tally) {
+        int[] sum = buckets.computeIfAbsent(List.of(granularity, start, usuarioId), key -> new int[4]);
+        for (int i = 0; i < sum.length; i++) {
+            sum[i] += tally[i];
+        }
+    }
+
+    /**
+     * One schema step: SQL statements, or a Java action for data that SQL
+     * alone cannot move. The checksum covers the version, description and
+     * statements; for a Java step that is only the version and description,
+     * so the action must never be edited after release.
+     */
+    private record Migration(int version, String description, List<String> statements, Runnable action) {
+
+        static Migration sql(int version, String description, String... statements) {
+            return new Migration(version, description, List.of(statements), null);
+        }
+
+        static Migration java(int version, String description, Runnable action) {
+            return new Migration(version, description, List.of(), action);
+        }
+
+        String checksum() {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                digest.update((version + "\n" + description + "\n").getBytes(StandardCharsets.UTF_8));
+                for (String statement : statements) {
+                    digest.update((statement + ";\n").getBytes(StandardCharsets.UTF_8));
+                }
+                return HexFormat.of().formatHex(digest.digest());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 no disponible", e);
+            }
         }
     }
 }
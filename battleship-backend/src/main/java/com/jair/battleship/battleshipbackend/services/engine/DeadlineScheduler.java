@@ -0,0 +1,128 @@
+package com.jair.battleship.battleshipbackend.services.engine;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Fires mesas whose ready, placement or turn deadline has passed. Deadlines are
+ * registered when they are set and kept in a {@link TimingWheel} advanced by a
+ * single ticker thread, so only due mesas are visited. Due mesas are resolved in
+ * parallel through the {@link MesaSweeper}. A mesa may fire for a deadline that
+ * was cleared meanwhile; the resolver re-checks the table state.
+ */
+@Component
+public class DeadlineScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(DeadlineScheduler.class);
+    private static final long LAG_WARN_MS = 1_000;
+
+    public enum Kind {
+        READY,
+        PLACEMENT,
+        TURN
+    }
+
+    private record Key(Long mesaId, Kind kind) {
+    }
+
+    private final long tickMs;
+    private final MesaSweeper sweeper;
+    private final TimingWheel<Key> wheel;
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mesa-deadlines");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Function<Long, Boolean> resolver;
+    private long nextTickMs;
+    private boolean lagging;
+
+    public DeadlineScheduler(@Value("${app.engine.deadline-tick-ms:100}") long tickMs, MesaSweeper sweeper) {
+        this.tickMs = tickMs;
+        this.sweeper = sweeper;
+        this.wheel = new TimingWheel<>(tickMs, System.currentTimeMillis());
+    }
+
+    /**
+     * Registers the deadline of the given kind for the mesa, replacing the
+     * previous one. A null deadline cancels it.
+     */
+    public void schedule(Long mesaId, Kind kind, Instant deadline) {
+        if (mesaId == null) {
+            return;
+        }
+        Key key = new Key(mesaId, kind);
+        synchronized (wheel) {
+            if (deadline == null) {
+                wheel.cancel(key);
+            } else {
+                wheel.schedule(key, deadline.toEpochMilli());
+            }
+        }
+    }
+
+    public int pending() {
+        synchronized (wheel) {
+            return wheel.size();
+        }
+    }
+
+    /**
+     * Starts ticking. Each tick sweeps the due mesas with the resolver and waits
+     * for them, so an overloaded tick delays the next one instead of piling up
+     * work; the delay is reported as the sweep lag.
+     */
+    public synchronized void start(Function<Long, Boolean> dueResolver) {
+        if (resolver != null) {
+            return;
+        }
+        resolver = dueResolver;
+        nextTickMs = System.currentTimeMillis() + tickMs;
+        ticker.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        ticker.shutdownNow();
+    }
+
+    private void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            long lagMs = now - nextTickMs;
+            nextTickMs += tickMs;
+            List<Key> expired;
+            synchronized (wheel) {
+                expired = wheel.advance(now);
+            }
+            if (lagMs > LAG_WARN_MS != lagging) {
+                lagging = !lagging;
+                if (lagging) {
+                    log.warn("Los vencimientos de mesa van {} ms atrasados", lagMs);
+                } else {
+                    log.info("Los vencimientos de mesa se pusieron al dia");
+                }
+            }
+            if (expired.isEmpty()) {
+                return;
+            }
+            Set<Long> due = new LinkedHashSet<>();
+            expired.forEach(key -> due.add(key.mesaId()));
+            sweeper.sweep("deadlines", due, lagMs, resolver);
+        } catch (RuntimeException e) {
+            log.error("Fallo al despachar vencimientos de mesa", e);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.jair.battleship.battleshipbackend.services.engine;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * In-process pipeline for what happens after a match command commits. Events
+ * go into a bounded ring buffer: producers claim a slot with a CAS on the
+ * cursor and mark it published, without locks. Every consumer keeps its own
+ * read position and is drained by its own thread, so a slow or failing
+ * consumer never holds up the others; it only holds the slots it has not read
+ * yet. When the ring is full the producer delivers the event itself, on its
+ * own thread, so nothing is dropped. Consumers must therefore act on current
+ * state and tolerate an event arriving out of order or twice.
+ */
+@Component
+public class DomainEvents {
+
+    private static final Logger log = LoggerFactory.getLogger(DomainEvents.class);
+
+    private final int mask;
+    private final AtomicReferenceArray<Event> slots;
+    private final AtomicLongArray published;
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final long pollMs;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final LongAdder publishedCount = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public DomainEvents(@Value("${app.events.capacity:4096}") int capacity,
+                        @Value("${app.events.poll-ms:5}") long pollMs) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+        this.pollMs = Math.max(1, pollMs);
+    }
+
+    /**
+     * Registers a consumer that sees every event published from now on and
+     * starts its drain thread.
+     */
+    public synchronized void subscribe(String name, Consumer<Event> handler) {
+        Subscriber subscriber = new Subscriber(name, handler, cursor.get() + 1);
+        subscribers.add(subscriber);
+        subscriber.thread.scheduleWithFixedDelay(() -> drain(subscriber), pollMs, pollMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues the event for every consumer. Returns false when the ring was
+     * full and the event was delivered on the calling thread instead.
+     */
+    public boolean publish(Event event) {
+        publishedCount.increment();
+        long sequence;
+        do {
+            sequence = cursor.get() + 1;
+            if (sequence - slowest(sequence) > mask) {
+                overflowed.increment();
+                subscribers.forEach(subscriber -> deliverNow(subscriber, event));
+                return false;
+            }
+        } while (!cursor.compareAndSet(sequence - 1, sequence));
+        int index = (int) sequence & mask;
+        slots.set(index, event);
+        published.set(index, sequence);
+        return true;
+    }
+
+    /**
+     * Delivers everything published so far to every consumer, waiting for a
+     * drain already running on a consumer thread.
+     */
+    public void drain() {
+        subscribers.forEach(this::drain);
+    }
+
+    public EventStats stats() {
+        long backlog = 0;
+        long head = cursor.get() + 1;
+        for (Subscriber subscriber : subscribers) {
+            backlog = Math.max(backlog, head - subscriber.next.get());
+        }
+        return new EventStats(publishedCount.sum(), overflowed.sum(), failed.sum(), backlog);
+    }
+
+    @PreDestroy
+    public void stop() {
+        subscribers.forEach(subscriber -> subscriber.thread.shutdownNow());
+    }
+
+    private long slowest(long fallback) {
+        long slowest = fallback;
+        for (Subscriber subscriber : subscribers) {
+            slowest = Math.min(slowest, subscriber.next.get());
+        }
+        return slowest;
+    }
+
+    private void drain(Subscriber subscriber) {
+        subscriber.lock.lock();
+        try {
+            long next = subscriber.next.get();
+            while (true) {
+                int index = (int) next & mask;
+                if (published.get(index) != next) {
+                    return;
+                }
+                Event event = slots.get(index);
+                deliver(subscriber, event);
+                subscriber.next.set(++next);
+            }
+        } finally {
+            subscriber.lock.unlock();
+        }
+    }
+
+    /**
+     * Holds the consumer's lock, so a consumer never runs two events at once.
+     */
+    private void deliverNow(Subscriber subscriber, Event event) {
+        subscriber.lock.lock();
+        try {
+            deliver(subscriber, event);
+        } finally {
+            subscriber.lock.unlock();
+        }
+    }
+
+    private void deliver(Subscriber subscriber, Event event) {
+        try {
+            subscriber.handler.accept(event);
+        } catch (RuntimeException e) {
+            failed.increment();
+            log.warn("El consumidor {} fallo con {}", subscriber.name, event, e);
+        }
+    }
+
+    private static final class Subscriber {
+        private final String name;
+        private final Consumer<Event> handler;
+        private final AtomicLong next;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ScheduledExecutorService thread;
+
+        private Subscriber(String name, Consumer<Event> handler, long next) {
+            this.name = name;
+            this.handler = handler;
+            this.next = new AtomicLong(next);
+            this.thread = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread t = new Thread(runnable, "events-" + name);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * Something that happened to a match or a table, published once the
+     * transaction that did it has committed.
+     */
+    public sealed interface Event permits ShotApplied, MatchFinished, SeatChanged, RatingChanged {
+    }
+
+    public record ShotApplied(Long mesaId, Long salaId, Long partidaId, Long atacanteId, String posicion,
+                              String resultado) implements Event {
+    }
+
+    public record MatchFinished(Long mesaId, Long salaId, Long partidaId, Long ganadorId, Long perdedorId,
+                                boolean abandono) implements Event {
+    }
+
+    public record SeatChanged(Long mesaId, Long salaId) implements Event {
+    }
+
+    /**
+     * The ratings a finished match moved, published once they are stored.
+     */
+    public record RatingChanged(Long mesaId, Long salaId, Long partidaId, Leaderboard.Player winner,
+                                Leaderboard.Player loser, int delta, Instant at) implements Event {
+    }
+
+    /**
+     * Lifetime counters: events published, events the producer delivered
+     * itself because the ring was full, consumer failures, and how far the
+     * slowest consumer is behind.
+     */
+    public record EventStats(long published, long overflowed, long failed, long backlog) {
+    }
+}
@@ -0,0 +1,123 @@
+package com.jair.battleship.battleshipbackend.services.engine;
+
+import com.jair.battleship.battleshipbackend.models.entities.Usuario;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * All-time ranking of registered players with at least one rated game, kept
+ * in memory in a {@link RankIndex} ordered by rating, then wins, then
+ * username, so top-N, the rank of a player and the players around someone are
+ * O(log n). Loaded from usuario at startup and updated once a match that
+ * moves ratings commits.
+ */
+@Component
+public class Leaderboard {
+
+    private static final Logger log = LoggerFactory.getLogger(Leaderboard.class);
+    private static final Comparator<Player> ORDER = Comparator.comparingInt(Player::rating).reversed()
+            .thenComparing(Comparator.comparingInt(Player::wins).reversed())
+            .thenComparing(Player::username)
+            .thenComparing(Player::id);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RankIndex<Player> index = new RankIndex<>(ORDER, Player::id);
+
+    public Leaderboard(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        index.clear();
+        jdbcTemplate.query("select id, username, rating, games_played, wins, losses from usuario "
+                        + "where games_played > 0",
+                row -> {
+                    put(new Player(row.getLong(1), row.getString(2), row.getInt(3), row.getInt(4),
+                            row.getInt(5), row.getInt(6)));
+                });
+        log.info("Ranking cargado: {} jugadores", index.size());
+    }
+
+    /**
+     * Places the player at its current rating; players without rated games
+     * are left out, as the ranking never lists them.
+     */
+    public synchronized void put(Player player) {
+        if (player.gamesPlayed() > 0) {
+            index.put(player);
+        } else {
+            index.remove(player.id());
+        }
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public synchronized List<Standing> top(int limit) {
+        return standings(index.top(limit));
+    }
+
+    /**
+     * The player's standing, or null when the player has no rated games.
+     */
+    public synchronized Standing standing(Long usuarioId) {
+        Player player = index.get(usuarioId);
+        return player == null ? null : new Standing(index.rank(usuarioId), player);
+    }
+
+    /**
+     * Up to {@code radius} players on each side of the given one, the player
+     * included, or an empty list when the player is not ranked.
+     */
+    public synchronized List<Standing> around(Long usuarioId, int radius) {
+        return standings(index.around(usuarioId, radius));
+    }
+
+    private static List<Standing> standings(List<RankIndex.Ranked<Player>> ranked) {
+        List<Standing> standings = new ArrayList<>(ranked.size());
+        ranked.forEach(r -> standings.add(new Standing(r.rank(), r.entry())));
+        return standings;
+    }
+
+    /**
+     * The ranking fields of a user, copied so the index never sees a managed
+     * entity change under it.
+     */
+    public record Player(Long id, String username, int rating, int gamesPlayed, int wins, int losses) {
+
+        public static Player of(Usuario usuario) {
+            return new Player(usuario.getId(), usuario.getUsername(), usuario.getRating(),
+                    usuario.getGamesPlayed(), usuario.getWins(), usuario.getLosses());
+        }
+    }
+
+    /**
+     * A player at its 1-based rank.
+     */
+    public record Standing(int rank, Player player) {
+
+        public Map<String, Object> row() {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("rank", rank);
+            item.put("jugadorId", player.id());
+            item.put("nombre", player.username());
+            item.put("puntos", player.rating());
+            item.put("gamesPlayed", player.gamesPlayed());
+            item.put("wins", player.wins());
+            item.put("losses", player.losses());
+            return item;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.jair.battleship.battleshipbackend.services.engine;
+
+import com.jair.battleship.battleshipbackend.repositories.SesionJugadorRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Revocation check for signed session tokens. A valid signature only proves
+ * the token was issued; the session row may have been deleted since. A
+ * session found in the database is trusted for {@code app.session.recheck-ms},
+ * so a revoked session stops working within that window while an active one
+ * costs one lookup per window instead of one per request.
+ */
+@Component
+public class LiveSessions {
+
+    private final SesionJugadorRepository sesionRepository;
+    private final Duration recheck;
+    private final ConcurrentMap<Long, Instant> confirmedAt = new ConcurrentHashMap<>();
+
+    public LiveSessions(SesionJugadorRepository sesionRepository,
+                        @Value("${app.session.recheck-ms:60000}") long recheckMs) {
+        this.sesionRepository = sesionRepository;
+        this.recheck = Duration.ofMillis(recheckMs);
+    }
+
+    public void requireLive(Long sessionId, Instant now) {
+        Instant confirmed = confirmedAt.get(sessionId);
+        if (confirmed != null && now.isBefore(confirmed.plus(recheck))) {
+            return;
+        }
+        if (!sesionRepository.existsById(sessionId)) {
+            confirmedAt.remove(sessionId);
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Sesion invalida");
+        }
+        confirmedAt.put(sessionId, now);
+    }
+
+    /**
+     * Forgets confirmations that are due for a recheck anyway.
+     */
+    @Scheduled(fixedDelayString = "${app.session.recheck-ms:60000}")
+    public void prune() {
+        Instant cutoff = Instant.now().minus(recheck);
+        confirmedAt.values().removeIf(confirmed -> confirmed.isBefore(cutoff));
+    }
+}
@@ -0,0 +1,262 @@
+package com.jair.battleship.battleshipbackend.services.engine;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.LobbySnapshot;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.RoomSnapshot;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.SessionUser;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.TableSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Materialized lobby. Rooms keep the spectator snapshot of each of their tables
+ * and only rooms with a changed table are rebuilt; the online list keeps just
+ * the 50 most recently seen sessions, which is exact because lastSeenAt only
+ * moves forward. {@link #publish} folds the pending changes into a new version
+ * and serializes it once; readers get the published version without any work.
+ * Lane commands report sessions and tables here, so those paths never take the
+ * monitor that {@link #publish} holds while it builds table snapshots.
+ */
+@Component
+public class LobbyView {
+
+    private static final Logger log = LoggerFactory.getLogger(LobbyView.class);
+    private static final int ONLINE_LIMIT = 50;
+    private static final Comparator<Seen> MOST_RECENT_FIRST = Comparator.comparing(Seen::lastSeenAt)
+            .thenComparing(seen -> seen.user().id())
+            .reversed();
+
+    private final ObjectMapper objectMapper;
+    private final Set<Long> dirtyTables = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    private final Map<Long, Room> rooms = new TreeMap<>();
+    private final Map<Long, Long> roomByMesa = new HashMap<>();
+    private final TreeSet<Seen> online = new TreeSet<>(MOST_RECENT_FIRST);
+    private final Map<Long, Seen> onlineById = new HashMap<>();
+    private final TableSnapshotCache tableSnapshots;
+    private volatile Published published;
+    private long version = System.currentTimeMillis() * 1000;
+
+    public LobbyView(ObjectMapper objectMapper, TableSnapshotCache tableSnapshots) {
+        this.objectMapper = objectMapper;
+        this.tableSnapshots = tableSnapshots;
+        tableSnapshots.onInvalidate(this::tableChanged);
+    }
+
+    public void tableChanged(Long mesaId) {
+        dirtyTables.add(mesaId);
+        dirty.set(true);
+    }
+
+    public void changed() {
+        dirty.set(true);
+    }
+
+    public void sessionSeen(SessionUser user, Instant lastSeenAt) {
+        synchronized (online) {
+            track(user, lastSeenAt);
+        }
+        dirty.set(true);
+    }
+
+    /**
+     * Moves the listed sessions to their new lastSeenAt; the lobby only changes
+     * when that reorders the list. Returns the ids of the most recent ones the
+     * list does not hold, at most as many as it keeps, so the caller can read
+     * them and pass them to {@link #sessionSeen}.
+     */
+    public Set<Long> sessionsSeen(Map<Long, Instant> seen) {
+        Set<Long> untracked = new HashSet<>();
+        if (seen.isEmpty()) {
+            return untracked;
+        }
+        synchronized (online) {
+            List<Long> before = onlineIds();
+            seen.forEach((sessionId, lastSeenAt) -> {
+                Seen previous = onlineById.get(sessionId);
+                if (previous == null) {
+                    untracked.add(sessionId);
+                } else if (lastSeenAt.isAfter(previous.lastSeenAt())) {
+                    track(previous.user(), lastSeenAt);
+                }
+            });
+            if (!before.equals(onlineIds())) {
+                dirty.set(true);
+            }
+        }
+        if (untracked.size() <= ONLINE_LIMIT) {
+            return untracked;
+        }
+        Set<Long> recent = new HashSet<>();
+        untracked.stream()
+                .sorted(Comparator.comparing(seen::get).reversed())
+                .limit(ONLINE_LIMIT)
+                .forEach(recent::add);
+        return recent;
+    }
+
+    private List<Long> onlineIds() {
+        List<Long> ids = new ArrayList<>(online.size());
+        online.forEach(seen -> ids.add(seen.user().id()));
+        return ids;
+    }
+
+    private void track(SessionUser user, Instant lastSeenAt) {
+        Seen previous = onlineById.remove(user.id());
+        if (previous != null) {
+            online.remove(previous);
+        }
+        Seen seen = new Seen(user, lastSeenAt == null ? Instant.EPOCH : lastSeenAt);
+        online.add(seen);
+        onlineById.put(user.id(), seen);
+        while (online.size() > ONLINE_LIMIT) {
+            onlineById.remove(online.pollLast().user().id());
+        }
+    }
+
+    /**
+     * Replaces the rooms, tables and online list with a fresh read of the
+     * database. Every table is rebuilt on the next publish.
+     */
+    public synchronized void reload(Map<Long, String> salas, Collection<Long> mesaIds, Map<SessionUser, Instant> seen) {
+        rooms.clear();
+        roomByMesa.clear();
+        salas.forEach((salaId, nombre) -> rooms.put(salaId, new Room(salaId, nombre)));
+        dirtyTables.addAll(mesaIds);
+        synchronized (online) {
+            online.clear();
+            onlineById.clear();
+            seen.forEach(this::track);
+        }
+        dirty.set(true);
+    }
+
+    public boolean isDirty() {
+        return dirty.get();
+    }
+
+    public Published current() {
+        return published;
+    }
+
+    /**
+     * Applies pending changes and publishes a new version. The loader returns
+     * the spectator snapshot of a mesa, or null once the mesa is gone. A mesa
+     * whose loader fails keeps its last snapshot and is retried on the next
+     * publish, so one broken table does not hold back the lobby. Returns null
+     * when nothing changed since the last publish.
+     */
+    public synchronized Published publish(Function<Long, TableSnapshot> tableLoader) {
+        if (!dirty.getAndSet(false) && published != null) {
+            return null;
+        }
+        Set<Long> tables = new HashSet<>(dirtyTables);
+        dirtyTables.removeAll(tables);
+        Set<Long> failed = new HashSet<>();
+        for (Long mesaId : tables) {
+            TableSnapshot table;
+            try {
+                table = tableLoader.apply(mesaId);
+            } catch (RuntimeException e) {
+                log.warn("No se pudo cargar la mesa {} para el lobby", mesaId, e);
+                failed.add(mesaId);
+                continue;
+            }
+            applyTable(mesaId, table);
+        }
+        if (!failed.isEmpty()) {
+            dirtyTables.addAll(failed);
+            dirty.set(true);
+        }
+        List<RoomSnapshot> salas = new ArrayList<>(rooms.size());
+        for (Room room : rooms.values()) {
+            salas.add(room.snapshot(tableSnapshots));
+        }
+        List<SessionUser> onlinePlayers;
+        synchronized (online) {
+            onlinePlayers = online.stream().map(Seen::user).toList();
+        }
+        LobbySnapshot snapshot = new LobbySnapshot(List.copyOf(salas), onlinePlayers, ++version);
+        try {
+            published = new Published(version, snapshot, objectMapper.writeValueAsBytes(snapshot));
+        } catch (JsonProcessingException e) {
+            dirty.set(true);
+            throw new IllegalStateException("No se pudo serializar el lobby", e);
+        }
+        return published;
+    }
+
+    private void applyTable(Long mesaId, TableSnapshot table) {
+        Long previousRoom = roomByMesa.remove(mesaId);
+        if (previousRoom != null && rooms.containsKey(previousRoom)) {
+            rooms.get(previousRoom).remove(mesaId);
+        }
+        if (table == null || table.salaId() == null) {
+            return;
+        }
+        rooms.computeIfAbsent(table.salaId(), id -> new Room(id, table.salaNombre())).put(table);
+        roomByMesa.put(mesaId, table.salaId());
+    }
+
+    /**
+     * One lobby version with its JSON form.
+     */
+    public record Published(long version, LobbySnapshot snapshot, byte[] json) {
+    }
+
+    private record Seen(SessionUser user, Instant lastSeenAt) {
+    }
+
+    private static final class Room {
+        private final Long id;
+        private final String nombre;
+        private final Map<Long, TableSnapshot> tables = new TreeMap<>();
+        private RoomSnapshot snapshot;
+
+        private Room(Long id, String nombre) {
+            this.id = id;
+            this.nombre = nombre;
+        }
+
+        private void put(TableSnapshot table) {
+            tables.put(table.id(), table);
+            snapshot = null;
+        }
+
+        private void remove(Long mesaId) {
+            if (tables.remove(mesaId) != null) {
+                snapshot = null;
+            }
+        }
+
+        private RoomSnapshot snapshot(TableSnapshotCache tableSnapshots) {
+            if (snapshot == null) {
+                List<TableSnapshot> mesas = List.copyOf(tables.values());
+                int players = mesas.stream()
+                        .mapToInt(t -> (t.seatA().occupied() ? 1 : 0) + (t.seatB().occupied() ? 1 : 0))
+                        .sum();
+                int spectators = mesas.stream().mapToInt(TableSnapshot::spectators).sum();
+                snapshot = new RoomSnapshot(id, nombre, true, players, spectators, mesas,
+                        tableSnapshots.roomVersion(id));
+            }
+            return snapshot;
+        }
+    }
+}
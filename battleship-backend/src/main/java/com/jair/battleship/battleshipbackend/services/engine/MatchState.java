@@ -0,0 +1,100 @@
+package com.jair.battleship.battleshipbackend.services.engine;
+
+import com.jair.battleship.battleshipbackend.models.board.BitBoard;
+import com.jair.battleship.battleshipbackend.models.board.ClassicFleet;
+import com.jair.battleship.battleshipbackend.models.enums.EstadoPartida;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Resident state of the current match of one mesa: seated players, their boards
+ * and the shot history. Only the mesa's {@link MesaCommandExecutor} lane reads or
+ * mutates it; the database is reloaded into a fresh instance whenever the state
+ * is evicted.
+ */
+@Getter
+@Setter
+public class MatchState {
+
+    private final Long mesaId;
+    private final Long salaId;
+    private final Seat seatA;
+    private final Seat seatB;
+    private final ShotHistory history = new ShotHistory();
+    private Long partidaId;
+    private EstadoPartida estado;
+    private String ruleset;
+    private Long turnoActualJugadorId;
+    private Instant placementDeadlineAt;
+    private Instant turnDeadlineAt;
+    private Instant lastAutoActionAt;
+    private Long ganadorId;
+
+    public MatchState(Long mesaId, Long salaId, Seat seatA, Seat seatB) {
+        this.mesaId = mesaId;
+        this.salaId = salaId;
+        this.seatA = seatA;
+        this.seatB = seatB;
+    }
+
+    public boolean hasMatch() {
+        return partidaId != null;
+    }
+
+    public boolean isActive() {
+        return estado == EstadoPartida.PLACING_SHIPS
+                || estado == EstadoPartida.READY_TO_START
+                || estado == EstadoPartida.IN_PROGRESS;
+    }
+
+    public Seat seat(Long jugadorId) {
+        if (jugadorId == null) {
+            return null;
+        }
+        if (seatA != null && Objects.equals(seatA.getJugadorId(), jugadorId)) {
+            return seatA;
+        }
+        if (seatB != null && Objects.equals(seatB.getJugadorId(), jugadorId)) {
+            return seatB;
+        }
+        return null;
+    }
+
+    public Seat seatForToken(String sessionToken) {
+        if (sessionToken == null) {
+            return null;
+        }
+        if (seatA != null && sessionToken.equals(seatA.getSessionToken())) {
+            return seatA;
+        }
+        if (seatB != null && sessionToken.equals(seatB.getSessionToken())) {
+            return seatB;
+        }
+        return null;
+    }
+
+    public Seat opponentOf(Seat seat) {
+        return seat == seatA ? seatB : seat == seatB ? seatA : null;
+    }
+
+    @Getter
+    @Setter
+    public static class Seat {
+        private final Long jugadorId;
+        private final String sessionToken;
+        private Long tableroId;
+        private BitBoard board;
+
+        public Seat(Long jugadorId, String sessionToken) {
+            this.jugadorId = jugadorId;
+            this.sessionToken = sessionToken;
+        }
+
+        public boolean isPlaced() {
+            return board != null && board.shipCells() == ClassicFleet.CELLS;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.jair.battleship.battleshipbackend.services.engine;
+
+import com.jair.battleship.battleshipbackend.models.entities.Mesa;
+import com.jair.battleship.battleshipbackend.models.entities.Partida;
+import com.jair.battleship.battleshipbackend.models.entities.Tablero;
+import org.springframework.stereotype.Component;
+
+/**
+ * Called by code that writes Mesa, Partida or Tablero rows outside the mesa
+ * lane (startup cleanup, legacy services): evicts the resident match state so
+ * the next command reloads it from the database. The lane keeps its own state
+ * in sync and is skipped.
+ */
+@Component
+public class MatchStateInvalidator {
+
+    private final MatchStateStore matchStates;
+    private final MesaCommandExecutor mesaExecutor;
+
+    public MatchStateInvalidator(MatchStateStore matchStates, MesaCommandExecutor mesaExecutor) {
+        this.matchStates = matchStates;
+        this.mesaExecutor = mesaExecutor;
+    }
+
+    public void changed(Mesa mesa) {
+        changed(mesa.getId());
+    }
+
+    public void changed(Partida partida) {
+        changed(partida.getMesa() == null ? null : partida.getMesa().getId());
+    }
+
+    public void changed(Tablero tablero) {
+        if (tablero.getPartida() != null) {
+            changed(tablero.getPartida());
+        }
+    }
+
+    private void changed(Long mesaId) {
+        if (mesaId != null && !mesaExecutor.isOwner(mesaId)) {
+            matchStates.evictAfterCompletion(mesaId);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.jair.battleship.battleshipbackend.services.engine;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Resident {@link MatchState} per mesa. States are only installed from the mesa
+ * lane; a per-mesa generation counter keeps a load that raced with an eviction
+ * from installing stale data. Evicting a state also drops the table snapshots
+ * built from it.
+ */
+@Component
+public class MatchStateStore {
+
+    private final ConcurrentMap<Long, MatchState> states = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final MesaCommandExecutor mesaExecutor;
+    private final TableSnapshotCache tableSnapshots;
+
+    public MatchStateStore(MesaCommandExecutor mesaExecutor, TableSnapshotCache tableSnapshots) {
+        this.mesaExecutor = mesaExecutor;
+        this.tableSnapshots = tableSnapshots;
+    }
+
+    public MatchState get(Long mesaId, Supplier<MatchState> loader) {
+        MatchState state = states.get(mesaId);
+        if (state != null) {
+            return state;
+        }
+        long generation = generation(mesaId).get();
+        MatchState loaded = loader.get();
+        if (mesaExecutor.isOwner(mesaId) && generation(mesaId).get() == generation) {
+            states.put(mesaId, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * The resident state, or null. Never loads; safe to call off the lane for
+     * the immutable parts of the state such as the seats.
+     */
+    public MatchState peek(Long mesaId) {
+        return states.get(mesaId);
+    }
+
+    public void evict(Long mesaId) {
+        generation(mesaId).incrementAndGet();
+        states.remove(mesaId);
+        tableSnapshots.invalidate(mesaId);
+    }
+
+    /**
+     * Evicts now and again once the surrounding transaction completes, so a
+     * reload that happens before the commit does not survive it.
+     */
+    public void evictAfterCompletion(Long mesaId) {
+        evict(mesaId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(mesaId);
+                }
+            });
+        }
+    }
+
+    public int size() {
+        return states.size();
+    }
+
+    private AtomicLong generation(Long mesaId) {
+        return generations.computeIfAbsent(mesaId, id -> new AtomicLong());
+    }
+}
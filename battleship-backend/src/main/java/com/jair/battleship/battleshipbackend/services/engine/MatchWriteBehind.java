@@ -0,0 +1,296 @@
+package com.jair.battleship.battleshipbackend.services.engine;
+
+import com.jair.battleship.battleshipbackend.models.entities.Disparo;
+import com.jair.battleship.battleshipbackend.repositories.DisparoRepository;
+import com.jair.battleship.battleshipbackend.repositories.JugadorRepository;
+import com.jair.battleship.battleshipbackend.repositories.PartidaRepository;
+import com.jair.battleship.battleshipbackend.repositories.TableroRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Persists shots applied in memory by the match engine. Each shot becomes one
+ * Disparo row; the defender's shot mask and the partida turn are collapsed to
+ * their latest value per batch. Writes are queued per mesa, each queue with its
+ * own lock, so a lane flushing its mesa only waits for writes of that mesa, and
+ * every mesa is written in its own transaction. A flush that runs inside a
+ * transaction joins it, so a winning shot and the end of the match commit
+ * together. Shots leave the queue only once their rows commit: a failed or
+ * rolled back batch goes back to the head of its queue. A batch the database
+ * rejects is written shot by shot instead, and the shots it still rejects are
+ * logged and dropped, so one bad row cannot block its mesa.
+ */
+@Component
+public class MatchWriteBehind {
+
+    private static final Logger log = LoggerFactory.getLogger(MatchWriteBehind.class);
+
+    /**
+     * Failed attempts after which a batch is split even if the failure does not
+     * look like bad data.
+     */
+    private static final int MAX_ATTEMPTS = 5;
+
+    private final ConcurrentMap<Long, MesaQueue> pending = new ConcurrentHashMap<>();
+    private final TransactionTemplate transactionTemplate;
+    private final DisparoRepository disparoRepository;
+    private final TableroRepository tableroRepository;
+    private final PartidaRepository partidaRepository;
+    private final JugadorRepository jugadorRepository;
+    private final MatchStateStore matchStates;
+
+    public MatchWriteBehind(TransactionTemplate transactionTemplate,
+                            DisparoRepository disparoRepository,
+                            TableroRepository tableroRepository,
+                            PartidaRepository partidaRepository,
+                            JugadorRepository jugadorRepository,
+                            MatchStateStore matchStates) {
+        this.transactionTemplate = transactionTemplate;
+        this.disparoRepository = disparoRepository;
+        this.tableroRepository = tableroRepository;
+        this.partidaRepository = partidaRepository;
+        this.jugadorRepository = jugadorRepository;
+        this.matchStates = matchStates;
+    }
+
+    public void enqueue(ShotWrite write) {
+        pending.computeIfAbsent(write.mesaId(), MesaQueue::new).writes.add(write);
+    }
+
+    public int pendingCount() {
+        return pending.values().stream().mapToInt(queue -> queue.writes.size()).sum();
+    }
+
+    /**
+     * Skips mesas whose queue is being written right now; their lane or the
+     * next tick picks them up.
+     */
+    @Scheduled(fixedDelayString = "${app.engine.write-behind-ms:50}")
+    public void flushPending() {
+        flush(false);
+    }
+
+    /**
+     * Writes everything queued so far, one transaction per mesa; a mesa that
+     * fails keeps its shots queued and does not hold up the others.
+     */
+    public void flush() {
+        flush(true);
+    }
+
+    /**
+     * Writes what is queued for one mesa. Waits for a flush of the same mesa in
+     * progress, so afterwards the database has every shot of the mesa.
+     */
+    public void flush(Long mesaId) {
+        MesaQueue queue = pending.get(mesaId);
+        if (queue == null) {
+            return;
+        }
+        queue.lock.lock();
+        try {
+            write(queue);
+        } finally {
+            queue.lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+        if (pendingCount() > 0) {
+            log.error("No se pudieron persistir {} disparos pendientes", pendingCount());
+        }
+    }
+
+    private void flush(boolean wait) {
+        pending.forEach((mesaId, queue) -> {
+            if (wait) {
+                queue.lock.lock();
+            } else if (!queue.lock.tryLock()) {
+                return;
+            }
+            try {
+                write(queue);
+            } catch (RuntimeException e) {
+                log.warn("No se pudieron persistir los disparos de la mesa {}", mesaId, e);
+            } finally {
+                queue.lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Writes the queued shots of one mesa; the caller holds the mesa's lock.
+     * Inside a transaction the batch joins it, the lock is kept until that
+     * transaction completes and the batch is queued again if it does not
+     * commit. Otherwise the batch gets its own transaction; when it fails it is
+     * queued again and the mesa evicted, so the next command reloads the state
+     * and retries the write first. A batch that violates a constraint, or keeps
+     * failing, is split by {@link #salvage}.
+     */
+    private void write(MesaQueue queue) {
+        List<ShotWrite> batch = new ArrayList<>();
+        ShotWrite next;
+        while ((next = queue.writes.poll()) != null) {
+            batch.add(next);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            queue.lock.lock();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    try {
+                        if (status != STATUS_COMMITTED) {
+                            requeue(queue, batch);
+                            matchStates.evict(queue.mesaId);
+                        }
+                    } finally {
+                        queue.lock.unlock();
+                    }
+                }
+            });
+            insert(batch);
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(batch));
+            queue.failures = 0;
+        } catch (RuntimeException e) {
+            matchStates.evict(queue.mesaId);
+            if (e instanceof DataIntegrityViolationException || ++queue.failures >= MAX_ATTEMPTS) {
+                salvage(queue, batch, e);
+                return;
+            }
+            requeue(queue, batch);
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the batch one shot per transaction. A shot that fails while the
+     * database is unreachable stops the salvage and goes back to the queue with
+     * the rest; any other failure means the row itself is bad, so it is logged
+     * and dropped.
+     */
+    private void salvage(MesaQueue queue, List<ShotWrite> batch, RuntimeException cause) {
+        log.warn("Lote de {} disparos rechazado en la mesa {}, se escribe uno por uno", batch.size(),
+                queue.mesaId, cause);
+        for (int i = 0; i < batch.size(); i++) {
+            ShotWrite write = batch.get(i);
+            try {
+                transactionTemplate.executeWithoutResult(status -> insert(List.of(write)));
+            } catch (RuntimeException e) {
+                if (unavailable(e)) {
+                    requeue(queue, batch.subList(i, batch.size()));
+                    throw e;
+                }
+                log.error("Se descarta un disparo que no se puede persistir: {}", write, e);
+            }
+        }
+        queue.failures = 0;
+    }
+
+    private static boolean unavailable(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    private static void requeue(MesaQueue queue, List<ShotWrite> batch) {
+        ListIterator<ShotWrite> it = batch.listIterator(batch.size());
+        while (it.hasPrevious()) {
+            queue.writes.addFirst(it.previous());
+        }
+    }
+
+    private void insert(List<ShotWrite> batch) {
+        List<Disparo> disparos = new ArrayList<>(batch.size());
+        Map<Long, ShotWrite> latestByTablero = new LinkedHashMap<>();
+        Map<Long, ShotWrite> latestByPartida = new LinkedHashMap<>();
+        for (ShotWrite write : batch) {
+            Disparo disparo = new Disparo();
+            disparo.setPartida(partidaRepository.getReferenceById(write.partidaId()));
+            disparo.setAtacante(jugadorRepository.getReferenceById(write.atacanteId()));
+            disparo.setDefensor(jugadorRepository.getReferenceById(write.defensorId()));
+            disparo.setPosicion(write.posicion());
+            disparo.setAcierto(write.acierto());
+            disparo.setResultado(write.resultado());
+            disparo.setBarcoHundido(write.barcoHundido());
+            disparo.setAutomatic(write.automatic());
+            disparo.setReason(write.reason());
+            disparo.setTimestamp(write.timestamp());
+            disparos.add(disparo);
+            latestByTablero.put(write.tableroId(), write);
+            latestByPartida.put(write.partidaId(), write);
+        }
+        disparoRepository.saveAll(disparos);
+        latestByTablero.forEach((tableroId, write) ->
+                tableroRepository.updateShots(tableroId, write.shotsLo(), write.shotsHi()));
+        latestByPartida.forEach((partidaId, write) ->
+                partidaRepository.updateTurn(partidaId, write.turnoActualJugadorId(), write.turnDeadlineAt(),
+                        write.lastAutoActionAt()));
+    }
+
+    private static final class MesaQueue {
+        private final Long mesaId;
+        private final Deque<ShotWrite> writes = new ConcurrentLinkedDeque<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private int failures;
+
+        private MesaQueue(Long mesaId) {
+            this.mesaId = mesaId;
+        }
+    }
+
+    /**
+     * One applied shot together with the row values it leaves behind.
+     */
+    public record ShotWrite(
+            Long mesaId,
+            Long partidaId,
+            Long tableroId,
+            Long atacanteId,
+            Long defensorId,
+            String posicion,
+            boolean acierto,
+            String resultado,
+            String barcoHundido,
+            boolean automatic,
+            String reason,
+            Instant timestamp,
+            long shotsLo,
+            long shotsHi,
+            Long turnoActualJugadorId,
+            Instant turnDeadlineAt,
+            Instant lastAutoActionAt
+    ) {
+    }
+}
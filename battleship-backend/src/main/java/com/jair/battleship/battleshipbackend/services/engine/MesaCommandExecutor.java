@@ -0,0 +1,105 @@
+package com.jair.battleship.battleshipbackend.services.engine;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Single-writer executor per mesa. Commands for the same mesa run one at a time
+ * in submission order; commands for different mesas run in parallel on a shared
+ * pool of virtual threads. This replaces the pessimistic row lock on mesa, so
+ * it assumes a single backend instance owns every table.
+ */
+@Component
+public class MesaCommandExecutor {
+
+    private static final ThreadLocal<Long> CURRENT_MESA = new ThreadLocal<>();
+
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final ConcurrentMap<Long, Lane> lanes = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the command on the mesa lane and waits for it. Runtime exceptions thrown
+     * by the command are rethrown unchanged. Re-entrant calls from the lane itself
+     * run inline.
+     */
+    public <T> T call(Long mesaId, Supplier<T> command) {
+        if (isOwner(mesaId)) {
+            return command.get();
+        }
+        try {
+            return submit(mesaId, command).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    public <T> CompletableFuture<T> submit(Long mesaId, Supplier<T> command) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        lanes.computeIfAbsent(mesaId, id -> new Lane()).execute(() -> {
+            CURRENT_MESA.set(mesaId);
+            try {
+                result.complete(command.get());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            } finally {
+                CURRENT_MESA.remove();
+            }
+        });
+        return result;
+    }
+
+    /**
+     * True when the calling thread is currently running a command of this mesa.
+     */
+    public boolean isOwner(Long mesaId) {
+        return mesaId != null && mesaId.equals(CURRENT_MESA.get());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    private final class Lane {
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private boolean running;
+
+        synchronized void execute(Runnable task) {
+            tasks.add(task);
+            if (!running) {
+                running = true;
+                workers.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Runnable next;
+                synchronized (this) {
+                    next = tasks.poll();
+                    if (next == null) {
+                        running = false;
+                        return;
+                    }
+                }
+                next.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.jair.battleship.battleshipbackend.services.engine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Runs timeout resolution for many mesas at once. Each mesa runs on its own lane
+ * with its own short transaction, so a slow or failing table neither holds up
+ * nor rolls back the others. A semaphore caps the mesas in flight so a large
+ * sweep cannot take every pooled connection away from player requests.
+ */
+@Component
+public class MesaSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(MesaSweeper.class);
+
+    private final MesaCommandExecutor mesaExecutor;
+    private final Semaphore permits;
+    private final ConcurrentMap<String, SweepStats> lastSweeps = new ConcurrentHashMap<>();
+    private final AtomicLong processedTotal = new AtomicLong();
+    private final AtomicLong failuresTotal = new AtomicLong();
+
+    public MesaSweeper(MesaCommandExecutor mesaExecutor,
+                       @Value("${app.engine.sweep-parallelism:8}") int parallelism) {
+        this.mesaExecutor = mesaExecutor;
+        this.permits = new Semaphore(Math.max(1, parallelism));
+    }
+
+    /**
+     * Resolves every mesa with the task and waits until all of them are done.
+     * The task returns whether it changed the mesa. Failures are logged and
+     * counted, never rethrown. {@code lagMs} is how late the caller started the
+     * sweep compared with when it was due.
+     */
+    public SweepStats sweep(String name, Collection<Long> mesaIds, long lagMs, Function<Long, Boolean> task) {
+        long started = System.nanoTime();
+        AtomicInteger changed = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        Collection<Long> distinct = new LinkedHashSet<>(mesaIds);
+        List<CompletableFuture<Boolean>> inFlight = new ArrayList<>(distinct.size());
+        for (Long mesaId : distinct) {
+            permits.acquireUninterruptibly();
+            CompletableFuture<Boolean> future;
+            try {
+                future = mesaExecutor.submit(mesaId, () -> task.apply(mesaId));
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+            inFlight.add(future.whenComplete((result, error) -> {
+                permits.release();
+                if (error != null) {
+                    failures.incrementAndGet();
+                    log.warn("Fallo al resolver vencimientos de la mesa {} ({})", mesaId, name, error);
+                } else if (Boolean.TRUE.equals(result)) {
+                    changed.incrementAndGet();
+                }
+            }));
+        }
+        CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).handle((ignored, error) -> null).join();
+
+        SweepStats stats = new SweepStats(name, distinct.size(), changed.get(), failures.get(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), Math.max(0, lagMs), Instant.now());
+        lastSweeps.put(name, stats);
+        processedTotal.addAndGet(stats.processed());
+        failuresTotal.addAndGet(stats.failures());
+        if (stats.processed() > 0) {
+            log.debug("Barrido {}: {} mesas, {} cambios, {} fallos, {} ms, retraso {} ms", name, stats.processed(),
+                    stats.changed(), stats.failures(), stats.durationMs(), stats.lagMs());
+        }
+        return stats;
+    }
+
+    public Map<String, SweepStats> lastSweeps() {
+        return Map.copyOf(lastSweeps);
+    }
+
+    public long processedTotal() {
+        return processedTotal.get();
+    }
+
+    public long failuresTotal() {
+        return failuresTotal.get();
+    }
+
+    /**
+     * Outcome of one sweep.
+     */
+    public record SweepStats(
+            String name,
+            int processed,
+            int changed,
+            int failures,
+            long durationMs,
+            long lagMs,
+            Instant finishedAt
+    ) {
+    }
+}
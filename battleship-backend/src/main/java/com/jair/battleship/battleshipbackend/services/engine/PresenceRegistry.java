@@ -0,0 +1,258 @@
+package com.jair.battleship.battleshipbackend.services.engine;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Who is at each mesa and which sessions have a realtime connection open, kept
+ * in memory. A viewer counts once per mesa whether it joined through REST,
+ * follows /topic/mesas/{id} or /topic/bin/mesas/{id}, or several of those;
+ * anonymous connections count per connection. Reads are a map lookup. Joins
+ * made through REST are written to mesa_spectator_session_ids in batches by
+ * {@link #flush} and read back at startup; subscriptions are rebuilt by the
+ * clients when they reconnect.
+ */
+@Component
+public class PresenceRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(PresenceRegistry.class);
+    private static final Pattern MESA_TOPIC = Pattern.compile("^/topic/(?:bin/)?mesas/(\\d+)$");
+    private static final String INSERT = "insert into mesa_spectator_session_ids (mesa_id, spectator_session_ids) "
+            + "select ?, ? where exists (select 1 from mesa where id = ?) and not exists ("
+            + "select 1 from mesa_spectator_session_ids where mesa_id = ? and spectator_session_ids = ?)";
+    private static final String DELETE = "delete from mesa_spectator_session_ids "
+            + "where mesa_id = ? and spectator_session_ids = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, Connection> connections = new HashMap<>();
+    private final Map<Long, Map<String, Viewer>> viewers = new HashMap<>();
+    private final Map<Long, Integer> connectedSessions = new HashMap<>();
+    private final Map<Membership, Boolean> pendingWrites = new LinkedHashMap<>();
+    private final Set<Long> changed = new HashSet<>();
+    private final ConcurrentMap<Long, Integer> counts = new ConcurrentHashMap<>();
+
+    public PresenceRegistry(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        jdbcTemplate.query("select mesa_id, spectator_session_ids from mesa_spectator_session_ids", row -> {
+            viewer(row.getLong(1), sessionKey(row.getLong(2))).joined = true;
+            recount(row.getLong(1));
+        });
+        changed.clear();
+    }
+
+    public int spectators(Long mesaId) {
+        return counts.getOrDefault(mesaId, 0);
+    }
+
+    public synchronized Set<Long> connectedSessionIds() {
+        return new HashSet<>(connectedSessions.keySet());
+    }
+
+    public synchronized void joined(Long mesaId, Long sessionId) {
+        Viewer viewer = viewer(mesaId, sessionKey(sessionId));
+        if (!viewer.joined) {
+            viewer.joined = true;
+            pendingWrites.put(new Membership(mesaId, sessionId), true);
+            if (viewer.subscriptions == 0) {
+                recount(mesaId);
+            }
+        }
+    }
+
+    public synchronized void left(Long mesaId, Long sessionId) {
+        Map<String, Viewer> atMesa = viewers.get(mesaId);
+        Viewer viewer = atMesa == null ? null : atMesa.get(sessionKey(sessionId));
+        if (viewer != null && viewer.joined) {
+            viewer.joined = false;
+            pendingWrites.put(new Membership(mesaId, sessionId), false);
+            release(mesaId, sessionKey(sessionId), viewer);
+        }
+    }
+
+    /**
+     * A realtime connection opened, by a session or anonymously when
+     * {@code sessionId} is null.
+     */
+    public synchronized void connected(String connectionId, Long sessionId) {
+        if (connections.putIfAbsent(connectionId, new Connection(sessionId)) == null && sessionId != null) {
+            connectedSessions.merge(sessionId, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Drops the connection and its subscriptions. Safe to call more than once.
+     */
+    public synchronized void disconnected(String connectionId) {
+        Connection connection = connections.remove(connectionId);
+        if (connection == null) {
+            return;
+        }
+        for (Long mesaId : connection.subscriptions.values()) {
+            unwatch(mesaId, connection.viewerKey(connectionId));
+        }
+        if (connection.sessionId != null) {
+            connectedSessions.computeIfPresent(connection.sessionId, (id, open) -> open > 1 ? open - 1 : null);
+        }
+    }
+
+    public synchronized void subscribed(String connectionId, String subscriptionId, String destination) {
+        Long mesaId = mesaOf(destination);
+        Connection connection = connections.get(connectionId);
+        if (mesaId == null || connection == null || subscriptionId == null
+                || connection.subscriptions.putIfAbsent(subscriptionId, mesaId) != null) {
+            return;
+        }
+        String key = connection.viewerKey(connectionId);
+        Viewer viewer = viewer(mesaId, key);
+        viewer.subscriptions++;
+        if (viewer.subscriptions == 1 && !viewer.joined) {
+            recount(mesaId);
+        }
+    }
+
+    public synchronized void unsubscribed(String connectionId, String subscriptionId) {
+        Connection connection = connections.get(connectionId);
+        Long mesaId = connection == null || subscriptionId == null ? null : connection.subscriptions.remove(subscriptionId);
+        if (mesaId != null) {
+            unwatch(mesaId, connection.viewerKey(connectionId));
+        }
+    }
+
+    /**
+     * Mesas whose count changed since the last call.
+     */
+    public synchronized Set<Long> drainChanged() {
+        Set<Long> drained = new HashSet<>(changed);
+        changed.clear();
+        return drained;
+    }
+
+    /**
+     * Writes the joins and leaves recorded since the last flush, collapsed to
+     * the latest per session and mesa, as two JDBC batches.
+     */
+    public void flush() {
+        List<Membership> inserts = new ArrayList<>();
+        List<Membership> deletes = new ArrayList<>();
+        synchronized (this) {
+            pendingWrites.forEach((membership, joined) -> (joined ? inserts : deletes).add(membership));
+            pendingWrites.clear();
+        }
+        try {
+            if (!deletes.isEmpty()) {
+                jdbcTemplate.batchUpdate(DELETE, deletes.stream()
+                        .map(m -> new Object[]{m.mesaId(), m.sessionId()})
+                        .toList());
+            }
+            if (!inserts.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT, inserts.stream()
+                        .map(m -> new Object[]{m.mesaId(), m.sessionId(), m.mesaId(), m.mesaId(), m.sessionId()})
+                        .toList());
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                deletes.forEach(m -> pendingWrites.putIfAbsent(m, false));
+                inserts.forEach(m -> pendingWrites.putIfAbsent(m, true));
+            }
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("No se pudo guardar la presencia de las mesas", e);
+        }
+    }
+
+    static Long mesaOf(String destination) {
+        if (destination == null) {
+            return null;
+        }
+        Matcher matcher = MESA_TOPIC.matcher(destination);
+        return matcher.matches() ? Long.valueOf(matcher.group(1)) : null;
+    }
+
+    private void unwatch(Long mesaId, String key) {
+        Map<String, Viewer> atMesa = viewers.get(mesaId);
+        Viewer viewer = atMesa == null ? null : atMesa.get(key);
+        if (viewer != null && viewer.subscriptions > 0) {
+            viewer.subscriptions--;
+            release(mesaId, key, viewer);
+        }
+    }
+
+    private void release(Long mesaId, String key, Viewer viewer) {
+        if (viewer.joined || viewer.subscriptions > 0) {
+            return;
+        }
+        Map<String, Viewer> atMesa = viewers.get(mesaId);
+        atMesa.remove(key);
+        if (atMesa.isEmpty()) {
+            viewers.remove(mesaId);
+        }
+        recount(mesaId);
+    }
+
+    private Viewer viewer(Long mesaId, String key) {
+        return viewers.computeIfAbsent(mesaId, id -> new HashMap<>()).computeIfAbsent(key, k -> new Viewer());
+    }
+
+    private void recount(Long mesaId) {
+        Map<String, Viewer> atMesa = viewers.get(mesaId);
+        if (atMesa == null) {
+            counts.remove(mesaId);
+        } else {
+            counts.put(mesaId, atMesa.size());
+        }
+        changed.add(mesaId);
+    }
+
+    private static String sessionKey(Long sessionId) {
+        return "s" + sessionId;
+    }
+
+    private static final class Connection {
+        private final Long sessionId;
+        private final Map<String, Long> subscriptions = new HashMap<>();
+
+        private Connection(Long sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        private String viewerKey(String connectionId) {
+            return sessionId == null ? "c" + connectionId : sessionKey(sessionId);
+        }
+    }
+
+    private static final class Viewer {
+        private boolean joined;
+        private int subscriptions;
+    }
+
+    private record Membership(Long mesaId, Long sessionId) {
+    }
+}
@@ -0,0 +1,214 @@
+package com.jair.battleship.battleshipbackend.services.engine;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Indexed skip list of entries keyed by id. Every link stores how many entries
+ * it jumps over, so the entry at a rank and the rank of an entry are both found
+ * in O(log n); top-N and the entries around one walk the bottom level from
+ * there. The order must be total and consistent with the id: two entries only
+ * compare equal when they are the same entry. Not thread-safe; owners lock.
+ */
+public class RankIndex<T> {
+
+    private static final int MAX_LEVEL = 32;
+
+    private final Comparator<T> order;
+    private final Function<T, Long> idOf;
+    private final Map<Long, T> entries = new HashMap<>();
+    private final Node<T> head = new Node<>(null, MAX_LEVEL);
+    private int level = 1;
+
+    public RankIndex(Comparator<T> order, Function<T, Long> idOf) {
+        this.order = order;
+        this.idOf = idOf;
+    }
+
+    public void put(T entry) {
+        remove(idOf.apply(entry));
+        entries.put(idOf.apply(entry), entry);
+        insert(entry);
+    }
+
+    public void remove(Long id) {
+        T previous = entries.remove(id);
+        if (previous != null) {
+            delete(previous);
+        }
+    }
+
+    public T get(Long id) {
+        return entries.get(id);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+        for (int i = 0; i < MAX_LEVEL; i++) {
+            head.next[i] = null;
+            head.span[i] = 0;
+        }
+        level = 1;
+    }
+
+    /**
+     * 1-based rank of the entry with this id, or 0 when it is not indexed.
+     */
+    public int rank(Long id) {
+        T entry = entries.get(id);
+        if (entry == null) {
+            return 0;
+        }
+        int rank = 0;
+        Node<T> x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && order.compare(x.next[i].entry, entry) <= 0) {
+                rank += x.span[i];
+                x = x.next[i];
+            }
+            if (x != head && order.compare(x.entry, entry) == 0) {
+                return rank;
+            }
+        }
+        return 0;
+    }
+
+    public List<Ranked<T>> top(int limit) {
+        return walk(1, limit);
+    }
+
+    /**
+     * Up to {@code radius} entries on each side of the one with this id, that
+     * one included, or an empty list when it is not indexed.
+     */
+    public List<Ranked<T>> around(Long id, int radius) {
+        int rank = rank(id);
+        if (rank == 0) {
+            return List.of();
+        }
+        int from = Math.max(1, rank - radius);
+        return walk(from, rank + radius - from + 1);
+    }
+
+    private List<Ranked<T>> walk(int fromRank, int limit) {
+        List<Ranked<T>> ranked = new ArrayList<>(Math.max(0, Math.min(limit, entries.size())));
+        Node<T> node = byRank(fromRank);
+        for (int rank = fromRank; node != null && ranked.size() < limit; rank++) {
+            ranked.add(new Ranked<>(rank, node.entry));
+            node = node.next[0];
+        }
+        return ranked;
+    }
+
+    private void insert(T entry) {
+        @SuppressWarnings("unchecked")
+        Node<T>[] update = new Node[MAX_LEVEL];
+        int[] rank = new int[MAX_LEVEL];
+        Node<T> x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.next[i] != null && order.compare(x.next[i].entry, entry) < 0) {
+                rank[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        int nodeLevel = randomLevel();
+        if (nodeLevel > level) {
+            for (int i = level; i < nodeLevel; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                head.span[i] = entries.size() - 1;
+            }
+            level = nodeLevel;
+        }
+        Node<T> node = new Node<>(entry, nodeLevel);
+        for (int i = 0; i < nodeLevel; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+            node.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = rank[0] - rank[i] + 1;
+        }
+        for (int i = nodeLevel; i < level; i++) {
+            update[i].span[i]++;
+        }
+    }
+
+    private void delete(T entry) {
+        @SuppressWarnings("unchecked")
+        Node<T>[] update = new Node[MAX_LEVEL];
+        Node<T> x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && order.compare(x.next[i].entry, entry) < 0) {
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        Node<T> target = x.next[0];
+        if (target == null || order.compare(target.entry, entry) != 0) {
+            return;
+        }
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == target) {
+                update[i].span[i] += target.span[i] - 1;
+                update[i].next[i] = target.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+    }
+
+    private Node<T> byRank(int rank) {
+        int traversed = 0;
+        Node<T> x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && traversed + x.span[i] <= rank) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+            if (traversed == rank) {
+                return x == head ? null : x;
+            }
+        }
+        return null;
+    }
+
+    private static int randomLevel() {
+        int nodeLevel = 1;
+        while (nodeLevel < MAX_LEVEL && ThreadLocalRandom.current().nextInt(4) == 0) {
+            nodeLevel++;
+        }
+        return nodeLevel;
+    }
+
+    /**
+     * An entry at its 1-based rank.
+     */
+    public record Ranked<T>(int rank, T entry) {
+    }
+
+    private static final class Node<T> {
+        private final T entry;
+        private final Node<T>[] next;
+        private final int[] span;
+
+        @SuppressWarnings("unchecked")
+        private Node(T entry, int level) {
+            this.entry = entry;
+            this.next = new Node[level];
+            this.span = new int[level];
+        }
+    }
+}
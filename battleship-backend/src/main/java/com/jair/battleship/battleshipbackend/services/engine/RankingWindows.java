@@ -0,0 +1,333 @@
+package com.jair.battleship.battleshipbackend.services.engine;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Rolling dia, semana and mes rankings built from per-player score buckets:
+ * hourly for the day, daily (UTC) for the week and the month. A score adds to
+ * the current bucket of each window and to the player's total in that window's
+ * {@link RankIndex}; {@link #slide} subtracts the buckets that fall out of a
+ * window, so reading a ranking never touches the score history. Buckets are
+ * written to ranking_bucket in batches by {@link #flush}, once more on
+ * shutdown, and read back at startup.
+ */
+@Component
+public class RankingWindows {
+
+    private static final Logger log = LoggerFactory.getLogger(RankingWindows.class);
+    private static final Comparator<Score> ORDER = Comparator.comparingInt(Score::puntos).reversed()
+            .thenComparing(Comparator.comparingInt(Score::victorias).reversed())
+            .thenComparing(Score::username)
+            .thenComparing(Score::usuarioId);
+    private static final String UPDATE = "update ranking_bucket set puntos = puntos + ?, partidas = partidas + ?, "
+            + "victorias = victorias + ?, derrotas = derrotas + ? "
+            + "where granularity = ? and bucket_start = ? and usuario_id = ?";
+    private static final String INSERT = "insert into ranking_bucket "
+            + "(granularity, bucket_start, usuario_id, puntos, partidas, victorias, derrotas) "
+            + "select ?, ?, ?, ?, ?, ?, ? where exists (select 1 from usuario where id = ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Window, WindowState> windows = new EnumMap<>(Window.class);
+    private final Map<BucketKey, Tally> pending = new LinkedHashMap<>();
+
+    public RankingWindows(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        for (Window window : Window.values()) {
+            windows.put(window, new WindowState());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        windows.values().forEach(WindowState::clear);
+        Instant now = Instant.now();
+        jdbcTemplate.query("select r.granularity, r.bucket_start, r.usuario_id, u.username, r.puntos, r.partidas, "
+                        + "r.victorias, r.derrotas from ranking_bucket r join usuario u on u.id = r.usuario_id "
+                        + "where r.bucket_start >= ?",
+                row -> {
+                    Granularity granularity = Granularity.valueOf(row.getString(1));
+                    long bucket = row.getObject(2, OffsetDateTime.class).toInstant().getEpochSecond();
+                    Tally tally = new Tally(row.getInt(5), row.getInt(6), row.getInt(7), row.getInt(8));
+                    for (Window window : Window.values()) {
+                        if (window.granularity == granularity && bucket >= window.cutoff(now)) {
+                            windows.get(window).add(bucket, row.getLong(3), row.getString(4), tally);
+                        }
+                    }
+                },
+                OffsetDateTime.ofInstant(Instant.ofEpochSecond(oldestCutoff(now)), ZoneOffset.UTC));
+        log.info("Rankings por periodo cargados: {} jugadores en el mes", windows.get(Window.MES).index.size());
+    }
+
+    /**
+     * Adds one finished match of a player, scored at {@code at}, to every
+     * window; a window that no longer covers that time drops it on its next
+     * {@link #slide}.
+     */
+    public synchronized void record(Long usuarioId, String username, int puntos, boolean won, Instant at) {
+        Tally tally = new Tally(puntos, 1, won ? 1 : 0, won ? 0 : 1);
+        for (Window window : Window.values()) {
+            windows.get(window).add(window.granularity.truncate(at), usuarioId, username, tally);
+        }
+        for (Granularity granularity : Granularity.values()) {
+            pending.merge(new BucketKey(granularity, granularity.truncate(at), usuarioId), tally, Tally::plus);
+        }
+    }
+
+    /**
+     * Drops the buckets that fell out of each window by {@code now} and
+     * returns the windows whose ranking changed.
+     */
+    public synchronized Set<Window> slide(Instant now) {
+        Set<Window> changed = EnumSet.noneOf(Window.class);
+        windows.forEach((window, state) -> {
+            if (state.expire(window.cutoff(now))) {
+                changed.add(window);
+            }
+        });
+        return changed;
+    }
+
+    public synchronized List<Map<String, Object>> top(Window window, int limit, Instant now) {
+        WindowState state = windows.get(window);
+        state.expire(window.cutoff(now));
+        List<Map<String, Object>> rows = new ArrayList<>();
+        state.index.top(limit).forEach(ranked -> rows.add(ranked.entry().row(ranked.rank())));
+        return rows;
+    }
+
+    /**
+     * Writes the buckets recorded since the last run and deletes the ones no
+     * window covers any more, in one transaction; a failed run is kept for the
+     * next one.
+     */
+    public void flush() {
+        Map<BucketKey, Tally> batch;
+        synchronized (this) {
+            batch = new LinkedHashMap<>(pending);
+            pending.clear();
+        }
+        Instant now = Instant.now();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!batch.isEmpty()) {
+                    write(batch);
+                }
+                for (Granularity granularity : Granularity.values()) {
+                    jdbcTemplate.update("delete from ranking_bucket where granularity = ? and bucket_start < ?",
+                            granularity.name(), timestamp(oldestCutoff(granularity, now)));
+                }
+            });
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                batch.forEach((key, tally) -> pending.merge(key, tally, Tally::plus));
+            }
+            log.warn("No se pudieron guardar los rankings por periodo", e);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+        synchronized (this) {
+            if (!pending.isEmpty()) {
+                log.error("No se pudieron guardar {} buckets de ranking pendientes", pending.size());
+            }
+        }
+    }
+
+    private void write(Map<BucketKey, Tally> batch) {
+        List<BucketKey> keys = new ArrayList<>(batch.keySet());
+        List<Object[]> updates = new ArrayList<>(keys.size());
+        for (BucketKey key : keys) {
+            Tally tally = batch.get(key);
+            updates.add(new Object[]{tally.puntos(), tally.partidas(), tally.victorias(), tally.derrotas(),
+                    key.granularity().name(), timestamp(key.bucket()), key.usuarioId()});
+        }
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE, updates);
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            if (updated[i] == 0) {
+                BucketKey key = keys.get(i);
+                Tally tally = batch.get(key);
+                inserts.add(new Object[]{key.granularity().name(), timestamp(key.bucket()), key.usuarioId(),
+                        tally.puntos(), tally.partidas(), tally.victorias(), tally.derrotas(), key.usuarioId()});
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT, inserts);
+        }
+    }
+
+    private static long oldestCutoff(Instant now) {
+        long oldest = Long.MAX_VALUE;
+        for (Window window : Window.values()) {
+            oldest = Math.min(oldest, window.cutoff(now));
+        }
+        return oldest;
+    }
+
+    private static long oldestCutoff(Granularity granularity, Instant now) {
+        long oldest = Long.MAX_VALUE;
+        for (Window window : Window.values()) {
+            if (window.granularity == granularity) {
+                oldest = Math.min(oldest, window.cutoff(now));
+            }
+        }
+        return oldest;
+    }
+
+    private static OffsetDateTime timestamp(long epochSecond) {
+        return OffsetDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ZoneOffset.UTC);
+    }
+
+    private enum Granularity {
+        H(3_600), D(86_400);
+
+        private final long seconds;
+
+        Granularity(long seconds) {
+            this.seconds = seconds;
+        }
+
+        long truncate(Instant at) {
+            return Math.floorDiv(at.getEpochSecond(), seconds) * seconds;
+        }
+    }
+
+    /**
+     * A rolling ranking period: the current bucket plus the previous ones up to
+     * {@code buckets} in total.
+     */
+    public enum Window {
+        DIA(Granularity.H, 24), SEMANA(Granularity.D, 7), MES(Granularity.D, 30);
+
+        private final Granularity granularity;
+        private final int buckets;
+
+        Window(Granularity granularity, int buckets) {
+            this.granularity = granularity;
+            this.buckets = buckets;
+        }
+
+        long cutoff(Instant now) {
+            return granularity.truncate(now) - (buckets - 1) * granularity.seconds;
+        }
+
+        public String periodo() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        /**
+         * The window named by a ranking periodo, or null for any other value.
+         */
+        public static Window fromPeriodo(String periodo) {
+            for (Window window : values()) {
+                if (window.periodo().equals(periodo)) {
+                    return window;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A player's points and matches in one window.
+     */
+    public record Score(Long usuarioId, String username, int puntos, int partidas, int victorias, int derrotas) {
+
+        public Map<String, Object> row(int rank) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("rank", rank);
+            item.put("jugadorId", usuarioId);
+            item.put("nombre", username);
+            item.put("puntos", puntos);
+            item.put("gamesPlayed", partidas);
+            item.put("wins", victorias);
+            item.put("losses", derrotas);
+            return item;
+        }
+    }
+
+    private record Tally(int puntos, int partidas, int victorias, int derrotas) {
+
+        Tally plus(Tally other) {
+            return new Tally(puntos + other.puntos, partidas + other.partidas, victorias + other.victorias,
+                    derrotas + other.derrotas);
+        }
+
+        Tally minus(Tally other) {
+            return new Tally(puntos - other.puntos, partidas - other.partidas, victorias - other.victorias,
+                    derrotas - other.derrotas);
+        }
+    }
+
+    private record BucketKey(Granularity granularity, long bucket, Long usuarioId) {
+    }
+
+    private static final class WindowState {
+        private final TreeMap<Long, Map<Long, Tally>> buckets = new TreeMap<>();
+        private final Map<Long, Tally> totals = new HashMap<>();
+        private final RankIndex<Score> index = new RankIndex<>(ORDER, Score::usuarioId);
+
+        private void add(long bucket, Long usuarioId, String username, Tally tally) {
+            buckets.computeIfAbsent(bucket, b -> new HashMap<>()).merge(usuarioId, tally, Tally::plus);
+            reindex(usuarioId, username, totals.merge(usuarioId, tally, Tally::plus));
+        }
+
+        private boolean expire(long cutoff) {
+            Map<Long, Map<Long, Tally>> expired = buckets.headMap(cutoff);
+            if (expired.isEmpty()) {
+                return false;
+            }
+            for (Map<Long, Tally> bucket : expired.values()) {
+                bucket.forEach((usuarioId, tally) -> {
+                    Tally left = totals.get(usuarioId).minus(tally);
+                    reindex(usuarioId, index.get(usuarioId).username(), left);
+                });
+            }
+            expired.clear();
+            return true;
+        }
+
+        private void reindex(Long usuarioId, String username, Tally total) {
+            if (total.partidas() <= 0) {
+                totals.remove(usuarioId);
+                index.remove(usuarioId);
+                return;
+            }
+            totals.put(usuarioId, total);
+            index.put(new Score(usuarioId, username, total.puntos(), total.partidas(), total.victorias(),
+                    total.derrotas()));
+        }
+
+        private void clear() {
+            buckets.clear();
+            totals.clear();
+            index.clear();
+        }
+    }
+}
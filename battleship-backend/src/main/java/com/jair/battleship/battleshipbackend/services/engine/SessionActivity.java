@@ -0,0 +1,88 @@
+package com.jair.battleship.battleshipbackend.services.engine;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * lastSeenAt of the sessions, kept in memory between flushes. Requests only
+ * record the latest time per session; {@link #flush} writes them as one JDBC
+ * batch and never moves a row's lastSeenAt backwards.
+ */
+@Component
+public class SessionActivity {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionActivity.class);
+    private static final String UPDATE = "update sesion_jugador set last_seen_at = ? "
+            + "where id = ? and (last_seen_at is null or last_seen_at < ?)";
+
+    private final ConcurrentMap<Long, Instant> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final JdbcTemplate jdbcTemplate;
+
+    public SessionActivity(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void seen(Long sessionId, Instant at) {
+        pending.merge(sessionId, at, (previous, next) -> next.isAfter(previous) ? next : previous);
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Writes every recorded time and returns them, by session id.
+     */
+    public Map<Long, Instant> flush() {
+        flushLock.lock();
+        try {
+            Map<Long, Instant> batch = new LinkedHashMap<>();
+            for (Long sessionId : pending.keySet()) {
+                Instant at = pending.remove(sessionId);
+                if (at != null) {
+                    batch.put(sessionId, at);
+                }
+            }
+            if (batch.isEmpty()) {
+                return batch;
+            }
+            List<Object[]> rows = new ArrayList<>(batch.size());
+            batch.forEach((sessionId, at) -> {
+                Object time = at.atOffset(ZoneOffset.UTC);
+                rows.add(new Object[]{time, sessionId, time});
+            });
+            try {
+                jdbcTemplate.batchUpdate(UPDATE, rows);
+            } catch (RuntimeException e) {
+                batch.forEach(this::seen);
+                throw e;
+            }
+            return batch;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("No se pudo guardar la actividad de {} sesiones", pendingCount(), e);
+        }
+    }
+}
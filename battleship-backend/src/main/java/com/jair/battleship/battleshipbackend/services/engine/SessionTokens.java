@@ -0,0 +1,153 @@
+package com.jair.battleship.battleshipbackend.services.engine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Signed session tokens: {@code v1.<session>.<usuario>.<g|u>.<expiry>.<hmac>},
+ * numbers in base 36 and the HMAC-SHA256 of everything before it. A token is
+ * checked with the key alone, so authenticated requests do not read the
+ * session row. Tokens without the prefix are the opaque ones issued before;
+ * they are still looked up in the database until {@code app.session.legacy-until}.
+ */
+@Component
+public class SessionTokens {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionTokens.class);
+    private static final String PREFIX = "v1.";
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder BASE64 = Base64.getUrlEncoder().withoutPadding();
+
+    private final SecretKeySpec key;
+    private final Duration ttl;
+    private final Instant legacyUntil;
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+
+    /**
+     * Without {@code app.session.secret} only the dev and test profiles start,
+     * with a random key; anywhere else tokens would break on every restart and
+     * differ between instances, so startup fails.
+     */
+    public SessionTokens(@Value("${app.session.secret:}") String secret,
+                         @Value("${app.session.ttl-days:30}") long ttlDays,
+                         @Value("${app.session.legacy-until:}") String legacyUntil,
+                         Environment environment) {
+        byte[] keyBytes;
+        if (secret == null || secret.isBlank()) {
+            if (!environment.acceptsProfiles(Profiles.of("dev", "test"))) {
+                throw new IllegalStateException(
+                        "app.session.secret (APP_SESSION_SECRET) es obligatorio fuera de los perfiles dev y test");
+            }
+            log.warn("app.session.secret no esta configurado; las sesiones no sobreviven un reinicio");
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+        this.ttl = Duration.ofDays(ttlDays);
+        this.legacyUntil = legacyUntil == null || legacyUntil.isBlank() ? null : Instant.parse(legacyUntil);
+        newMac();
+    }
+
+    public String issue(Long sessionId, Long usuarioId, boolean guest) {
+        return issue(sessionId, usuarioId, guest, Instant.now().plus(ttl));
+    }
+
+    String issue(Long sessionId, Long usuarioId, boolean guest, Instant expiresAt) {
+        String body = PREFIX
+                + Long.toString(sessionId, 36) + '.'
+                + (usuarioId == null ? "" : Long.toString(usuarioId, 36)) + '.'
+                + (guest ? 'g' : 'u') + '.'
+                + Long.toString(expiresAt.getEpochSecond(), 36);
+        return body + '.' + BASE64.encodeToString(sign(body));
+    }
+
+    public boolean isSigned(String token) {
+        return token.startsWith(PREFIX);
+    }
+
+    /**
+     * Checks the signature and expiry of a signed token, without I/O.
+     */
+    public Claims verify(String token, Instant now) {
+        int macStart = token.lastIndexOf('.');
+        String[] fields = token.substring(0, Math.max(macStart, 0)).split("\\.", -1);
+        if (!isSigned(token) || fields.length != 5) {
+            throw invalid();
+        }
+        byte[] mac;
+        try {
+            mac = Base64.getUrlDecoder().decode(token.substring(macStart + 1));
+        } catch (IllegalArgumentException e) {
+            throw invalid();
+        }
+        if (!MessageDigest.isEqual(mac, sign(token.substring(0, macStart)))) {
+            throw invalid();
+        }
+        Claims claims;
+        try {
+            claims = new Claims(
+                    Long.parseLong(fields[1], 36),
+                    fields[2].isEmpty() ? null : Long.parseLong(fields[2], 36),
+                    "g".equals(fields[3]),
+                    Instant.ofEpochSecond(Long.parseLong(fields[4], 36)));
+        } catch (NumberFormatException e) {
+            throw invalid();
+        }
+        if (!now.isBefore(claims.expiresAt())) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Sesion expirada");
+        }
+        return claims;
+    }
+
+    /**
+     * Whether opaque tokens may still be looked up; after the window they are
+     * rejected like expired signed tokens.
+     */
+    public void requireLegacyAllowed(Instant now) {
+        if (legacyUntil != null && !now.isBefore(legacyUntil)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Sesion expirada");
+        }
+    }
+
+    private byte[] sign(String body) {
+        return macs.get().doFinal(body.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudo iniciar " + ALGORITHM, e);
+        }
+    }
+
+    private static ResponseStatusException invalid() {
+        return new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Sesion invalida");
+    }
+
+    /**
+     * What a verified token says about its session.
+     */
+    public record Claims(Long sessionId, Long usuarioId, boolean guest, Instant expiresAt) {
+    }
+}
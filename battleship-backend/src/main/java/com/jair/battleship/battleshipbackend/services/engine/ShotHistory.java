@@ -0,0 +1,56 @@
+package com.jair.battleship.battleshipbackend.services.engine;
+
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.ShotSnapshot;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only shot history of one match. The mesa lane is the only writer;
+ * readers may page through it from any thread without locking, because a shot
+ * is stored before the size that exposes it is published and stored shots are
+ * never replaced.
+ * <p>
+ * Shots are numbered from 1 in the order they were fired, so the size doubles
+ * as the sequence number of the last shot and as the cursor a client passes back
+ * as {@code afterShotSeq}.
+ */
+public class ShotHistory {
+
+    private volatile ShotSnapshot[] shots = new ShotSnapshot[16];
+    private volatile int size;
+
+    public void append(ShotSnapshot shot) {
+        ShotSnapshot[] current = shots;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[size] = shot;
+        shots = current;
+        size = size + 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Up to {@code limit} shots after the given sequence number, oldest first.
+     */
+    public List<ShotSnapshot> after(int afterShotSeq, int limit) {
+        int end = size;
+        ShotSnapshot[] current = shots;
+        int from = Math.max(0, Math.min(afterShotSeq, end));
+        int to = (int) Math.min(end, (long) from + Math.max(0, limit));
+        return List.of(Arrays.copyOfRange(current, from, to));
+    }
+
+    /**
+     * The last {@code count} shots, oldest first.
+     */
+    public List<ShotSnapshot> tail(int count) {
+        int end = size;
+        ShotSnapshot[] current = shots;
+        return List.of(Arrays.copyOfRange(current, Math.max(0, end - count), end));
+    }
+}
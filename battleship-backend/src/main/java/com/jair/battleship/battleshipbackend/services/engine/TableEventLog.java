@@ -0,0 +1,192 @@
+package com.jair.battleship.battleshipbackend.services.engine;
+
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.SeatSnapshot;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.ShotSnapshot;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.TableEvent;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.TableSnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Turns table changes into sequenced events. It keeps the last published
+ * spectator snapshot of each mesa and diffs the next one against it, so the
+ * commands never have to describe what they changed. The most recent events of
+ * each mesa stay in a bounded buffer so a reconnecting client can resume from
+ * its last sequence number. {@link #record} must run on the mesa lane; the
+ * readers may run anywhere.
+ * <p>
+ * Sequence numbers start at the boot time in milliseconds times 1000, so the
+ * numbers of a previous run are always lower than the current ones and a client
+ * that outlived a restart sees a gap instead of a replay.
+ */
+@Component
+public class TableEventLog {
+
+    private static final class Entry {
+        private final ArrayDeque<TableEvent> recent = new ArrayDeque<>();
+        private volatile long seq;
+        private TableSnapshot last;
+
+        private Entry(long base) {
+            this.seq = base;
+        }
+    }
+
+    private final ConcurrentMap<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final int capacity;
+    private final long base = System.currentTimeMillis() * 1000;
+
+    public TableEventLog(@Value("${app.engine.event-buffer:256}") int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    public long seq(Long mesaId) {
+        Entry entry = entries.get(mesaId);
+        return entry == null ? base : entry.seq;
+    }
+
+    /**
+     * Events of the mesa after the given sequence number, oldest first. Returns
+     * null when the buffer no longer reaches back that far, the number does not
+     * belong to this run or the mesa has no events yet; the caller then needs a
+     * full snapshot.
+     */
+    public List<TableEvent> since(Long mesaId, long afterSeq) {
+        Entry entry = entries.get(mesaId);
+        if (entry == null) {
+            return null;
+        }
+        synchronized (entry) {
+            long oldest = entry.recent.isEmpty() ? entry.seq + 1 : entry.recent.peekFirst().seq();
+            if (afterSeq > entry.seq || afterSeq < oldest - 1) {
+                return null;
+            }
+            List<TableEvent> events = new ArrayList<>((int) (entry.seq - afterSeq));
+            for (TableEvent event : entry.recent) {
+                if (event.seq() > afterSeq) {
+                    events.add(event);
+                }
+            }
+            return events;
+        }
+    }
+
+    /**
+     * Diffs the spectator snapshot against the previous one and returns the
+     * resulting events with their sequence numbers. The first snapshot seen for
+     * a mesa yields a single RESYNC, since what changed before it is unknown.
+     */
+    public List<TableEvent> record(TableSnapshot current) {
+        Entry entry = entries.computeIfAbsent(current.id(), id -> new Entry(base));
+        TableSnapshot previous = entry.last;
+        entry.last = current;
+        List<Change> changes = previous == null
+                ? List.of(new Change(TableEvent.RESYNC, null))
+                : diff(previous, current);
+        List<TableEvent> events = new ArrayList<>(changes.size());
+        synchronized (entry) {
+            for (Change change : changes) {
+                TableEvent event = new TableEvent(change.type(), current.id(), current.salaId(), entry.seq + 1,
+                        current.serverNow(), change.data());
+                entry.recent.addLast(event);
+                if (entry.recent.size() > capacity) {
+                    entry.recent.removeFirst();
+                }
+                entry.seq = event.seq();
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    public void forget(Long mesaId) {
+        Entry entry = entries.get(mesaId);
+        if (entry != null) {
+            entry.last = null;
+        }
+    }
+
+    private List<Change> diff(TableSnapshot previous, TableSnapshot current) {
+        List<Change> changes = new ArrayList<>();
+        seatChanges(previous.seatA(), current.seatA(), changes);
+        seatChanges(previous.seatB(), current.seatB(), changes);
+
+        if (!Objects.equals(previous.estado(), current.estado())
+                || !Objects.equals(previous.partidaId(), current.partidaId())
+                || !Objects.equals(previous.ganadorId(), current.ganadorId())) {
+            changes.add(change(TableEvent.PHASE_CHANGED, new TableEvent.PhaseChanged(current.estado(),
+                    current.partidaId(), current.turnoActualJugadorId(), current.ganadorId())));
+        }
+
+        boolean shots = false;
+        if (Objects.equals(previous.partidaId(), current.partidaId())
+                && previous.spectatorView() != null && current.spectatorView() != null) {
+            // The snapshot only carries the latest shots; if more were fired than
+            // it holds, the client has to page the history again.
+            List<ShotSnapshot> tail = current.spectatorView().history();
+            int lastSeq = current.spectatorView().shotSeq();
+            int firstSeq = lastSeq - tail.size() + 1;
+            int fromSeq = previous.spectatorView().shotSeq() + 1;
+            if (fromSeq < firstSeq) {
+                return List.of(change(TableEvent.RESYNC, null));
+            }
+            for (int seq = fromSeq; seq <= lastSeq; seq++) {
+                changes.add(change(TableEvent.SHOT_APPLIED, new TableEvent.ShotApplied(current.partidaId(), seq - 1,
+                        tail.get(seq - firstSeq), current.turnoActualJugadorId(), current.turnDeadlineAt(),
+                        current.ganadorId())));
+                shots = true;
+            }
+        }
+
+        boolean turnChanged = !Objects.equals(previous.turnDeadlineAt(), current.turnDeadlineAt())
+                || !Objects.equals(previous.turnoActualJugadorId(), current.turnoActualJugadorId());
+        if (!Objects.equals(previous.readyDeadlineAt(), current.readyDeadlineAt())
+                || !Objects.equals(previous.placementDeadlineAt(), current.placementDeadlineAt())
+                || (turnChanged && !shots)) {
+            changes.add(change(TableEvent.DEADLINE_UPDATED, new TableEvent.DeadlineUpdated(
+                    current.readyDeadlineAt(), current.placementDeadlineAt(), current.turnDeadlineAt(),
+                    current.turnoActualJugadorId())));
+        }
+
+        if (!Objects.equals(previous.nombre(), current.nombre())
+                || previous.spectators() != current.spectators()
+                || previous.rematchA() != current.rematchA()
+                || previous.rematchB() != current.rematchB()) {
+            changes.add(change(TableEvent.TABLE_UPDATED, new TableEvent.TableUpdated(current.nombre(),
+                    current.spectators(), current.rematchA(), current.rematchB())));
+        }
+        return changes;
+    }
+
+    private void seatChanges(SeatSnapshot previous, SeatSnapshot current, List<Change> changes) {
+        if (!sameOccupant(previous, current)) {
+            changes.add(change(TableEvent.SEAT_CHANGED, new TableEvent.SeatChanged(current)));
+        } else if (previous.ready() != current.ready()) {
+            changes.add(change(TableEvent.READY_TOGGLED,
+                    new TableEvent.ReadyToggled(current.seat(), current.ready())));
+        }
+    }
+
+    private boolean sameOccupant(SeatSnapshot previous, SeatSnapshot current) {
+        return previous.occupied() == current.occupied()
+                && previous.guest() == current.guest()
+                && previous.shipsPlaced() == current.shipsPlaced()
+                && Objects.equals(previous.jugadorId(), current.jugadorId())
+                && Objects.equals(previous.displayName(), current.displayName())
+                && Objects.equals(previous.rating(), current.rating());
+    }
+
+    private static Change change(String type, Object data) {
+        return new Change(type, data);
+    }
+
+    private record Change(String type, Object data) {
+    }
+}
@@ -0,0 +1,182 @@
+package com.jair.battleship.battleshipbackend.services.engine;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.TableSnapshot;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Built table snapshots per mesa and viewer role. Every change to a table bumps
+ * the mesa version; a snapshot is only served while the version it was built
+ * under is current, so readers never need the lane or the database for a hit.
+ * Rooms get their own version, bumped with any of their tables. Versions start
+ * at the boot time in milliseconds times 1000, so they keep growing across
+ * restarts and can serve as ETags.
+ * Each snapshot is serialized once when it is stored; {@link #json} hands out
+ * those bytes with only the server clock spliced in, so every viewer of a role
+ * shares one serialization per table change.
+ */
+@Component
+public class TableSnapshotCache {
+
+    private static final byte[] CLOCK_PLACEHOLDER = "\"serverNow\":\"1970-01-01T00:00:00Z\""
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final int CLOCK_PREFIX = "\"serverNow\":".length();
+
+    public enum Role {
+        SEAT_A,
+        SEAT_B,
+        SPECTATOR
+    }
+
+    private record Key(Long mesaId, Role role) {
+    }
+
+    private record Cached(long version, TableSnapshot snapshot, Json json) {
+    }
+
+    /**
+     * Serialized snapshot split around the value of serverNow.
+     */
+    private record Json(byte[] head, byte[] tail) {
+
+        byte[] at(Instant now) {
+            byte[] clock = ('"' + DateTimeFormatter.ISO_INSTANT.format(now) + '"').getBytes(StandardCharsets.US_ASCII);
+            byte[] json = Arrays.copyOf(head, head.length + clock.length + tail.length);
+            System.arraycopy(clock, 0, json, head.length, clock.length);
+            System.arraycopy(tail, 0, json, head.length + clock.length, tail.length);
+            return json;
+        }
+    }
+
+    private final ObjectMapper objectMapper;
+    private final long base = System.currentTimeMillis() * 1000;
+    private final ConcurrentMap<Long, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, AtomicLong> roomVersions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Key, Cached> snapshots = new ConcurrentHashMap<>();
+    private final List<Consumer<Long>> listeners = new CopyOnWriteArrayList<>();
+
+    public TableSnapshotCache(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Registers a callback run with the mesa id on every invalidation. It runs
+     * on the invalidating thread and must not block.
+     */
+    public void onInvalidate(Consumer<Long> listener) {
+        listeners.add(listener);
+    }
+
+    public long version(Long mesaId) {
+        return counter(mesaId).get();
+    }
+
+    public TableSnapshot get(Long mesaId, Role role) {
+        Cached cached = snapshots.get(new Key(mesaId, role));
+        return cached != null && cached.version() == version(mesaId) ? cached.snapshot() : null;
+    }
+
+    public long roomVersion(Long salaId) {
+        return roomCounter(salaId).get();
+    }
+
+    /**
+     * Bumps the room version. Call it after the tables of the room were
+     * invalidated, so a reader that sees the new version also misses them.
+     */
+    public void roomChanged(Long salaId) {
+        if (salaId != null) {
+            roomCounter(salaId).incrementAndGet();
+        }
+    }
+
+    /**
+     * JSON of the cached snapshot with serverNow set to the given instant, or
+     * null when there is no current snapshot for the role.
+     */
+    public VersionedJson json(Long mesaId, Role role, Instant now) {
+        Cached cached = snapshots.get(new Key(mesaId, role));
+        return cached != null && cached.version() == version(mesaId)
+                ? new VersionedJson(cached.version(), cached.json().at(now))
+                : null;
+    }
+
+    /**
+     * Serializes a snapshot outside the cache, for the rare reads that lost a
+     * race with a change.
+     */
+    public byte[] toJson(TableSnapshot snapshot) {
+        try {
+            return objectMapper.writeValueAsBytes(snapshot);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar la mesa", e);
+        }
+    }
+
+    /**
+     * Stores a snapshot built under the given version. It is dropped when the
+     * table changed while it was being built.
+     */
+    public void put(Long mesaId, Role role, long version, TableSnapshot snapshot) {
+        if (version(mesaId) == version) {
+            snapshots.put(new Key(mesaId, role), new Cached(version, snapshot, split(snapshot)));
+        }
+    }
+
+    private Json split(TableSnapshot snapshot) {
+        byte[] json = toJson(snapshot.withServerNow(Instant.EPOCH));
+        // Quotes inside string values are escaped, so the first match is the field itself.
+        int at = indexOf(json, CLOCK_PLACEHOLDER);
+        if (at < 0) {
+            throw new IllegalStateException("serverNow no encontrado en la mesa serializada");
+        }
+        int value = at + CLOCK_PREFIX;
+        return new Json(Arrays.copyOfRange(json, 0, value),
+                Arrays.copyOfRange(json, at + CLOCK_PLACEHOLDER.length, json.length));
+    }
+
+    private static int indexOf(byte[] bytes, byte[] pattern) {
+        outer:
+        for (int i = 0; i <= bytes.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (bytes[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    public void invalidate(Long mesaId) {
+        counter(mesaId).incrementAndGet();
+        for (Role role : Role.values()) {
+            snapshots.remove(new Key(mesaId, role));
+        }
+        listeners.forEach(listener -> listener.accept(mesaId));
+    }
+
+    public int size() {
+        return snapshots.size();
+    }
+
+    private AtomicLong counter(Long mesaId) {
+        return versions.computeIfAbsent(mesaId, id -> new AtomicLong(base));
+    }
+
+    private AtomicLong roomCounter(Long salaId) {
+        return roomVersions.computeIfAbsent(salaId, id -> new AtomicLong(base));
+    }
+}
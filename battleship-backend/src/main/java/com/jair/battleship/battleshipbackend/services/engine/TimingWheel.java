@@ -0,0 +1,154 @@
+package com.jair.battleship.battleshipbackend.services.engine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hierarchical timing wheel keyed by K. Level 0 has one slot per tick; every
+ * higher level covers 64 slots of the level below and is cascaded down when the
+ * lower wheel wraps. Scheduling a key again replaces its previous deadline.
+ * Deadlines are rounded up to the next tick, so a key never expires early.
+ * Not thread-safe; {@link DeadlineScheduler} guards it.
+ */
+public final class TimingWheel<K> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickMs;
+    private final List<List<Set<Entry<K>>>> levels = new ArrayList<>(LEVELS);
+    private final Map<K, Entry<K>> entries = new HashMap<>();
+    private final List<Entry<K>> overdue = new ArrayList<>();
+    private long currentTick;
+
+    public TimingWheel(long tickMs, long startMs) {
+        if (tickMs <= 0) {
+            throw new IllegalArgumentException("tickMs must be positive");
+        }
+        this.tickMs = tickMs;
+        this.currentTick = Math.floorDiv(startMs, tickMs);
+        for (int level = 0; level < LEVELS; level++) {
+            List<Set<Entry<K>>> slots = new ArrayList<>(SLOTS);
+            for (int slot = 0; slot < SLOTS; slot++) {
+                slots.add(new LinkedHashSet<>());
+            }
+            levels.add(slots);
+        }
+    }
+
+    public void schedule(K key, long deadlineMs) {
+        cancel(key);
+        Entry<K> entry = new Entry<>(key, Math.floorDiv(deadlineMs + tickMs - 1, tickMs));
+        entries.put(key, entry);
+        place(entry);
+    }
+
+    public void cancel(K key) {
+        Entry<K> entry = entries.remove(key);
+        if (entry == null) {
+            return;
+        }
+        if (entry.slot != null) {
+            entry.slot.remove(entry);
+            entry.slot = null;
+        } else {
+            overdue.remove(entry);
+        }
+    }
+
+    /**
+     * Moves the wheel up to the given time and returns the keys whose deadline
+     * has passed, in tick order.
+     */
+    public List<K> advance(long nowMs) {
+        List<K> expired = new ArrayList<>();
+        drainOverdue(expired);
+        long target = Math.floorDiv(nowMs, tickMs);
+        while (currentTick < target) {
+            currentTick++;
+            cascade(1);
+            drainOverdue(expired);
+            Set<Entry<K>> slot = levels.get(0).get((int) (currentTick & SLOT_MASK));
+            for (Entry<K> entry : slot) {
+                entry.slot = null;
+                entries.remove(entry.key);
+                expired.add(entry.key);
+            }
+            slot.clear();
+        }
+        return expired;
+    }
+
+    private void drainOverdue(List<K> expired) {
+        for (Entry<K> entry : overdue) {
+            entries.remove(entry.key);
+            expired.add(entry.key);
+        }
+        overdue.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean contains(K key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * When the wheel below the given level has just wrapped, re-places the
+     * entries of the current slot of this level; they land on lower levels.
+     */
+    private void cascade(int level) {
+        if (level >= LEVELS || (currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+            return;
+        }
+        cascade(level + 1);
+        Set<Entry<K>> slot = levels.get(level).get((int) ((currentTick >> (SLOT_BITS * level)) & SLOT_MASK));
+        List<Entry<K>> moved = new ArrayList<>(slot);
+        slot.clear();
+        for (Entry<K> entry : moved) {
+            entry.slot = null;
+            place(entry);
+        }
+    }
+
+    private void place(Entry<K> entry) {
+        long delta = entry.tick - currentTick;
+        if (delta <= 0) {
+            overdue.add(entry);
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < 1L << (SLOT_BITS * (level + 1))) {
+                insert(entry, level, entry.tick);
+                return;
+            }
+        }
+        // Beyond the top level: park it in the furthest top slot; it is re-placed when cascaded.
+        insert(entry, LEVELS - 1, currentTick + (1L << (SLOT_BITS * LEVELS)) - 1);
+    }
+
+    private void insert(Entry<K> entry, int level, long tick) {
+        Set<Entry<K>> slot = levels.get(level).get((int) ((tick >> (SLOT_BITS * level)) & SLOT_MASK));
+        slot.add(entry);
+        entry.slot = slot;
+    }
+
+    private static final class Entry<K> {
+        private final K key;
+        private final long tick;
+        private Set<Entry<K>> slot;
+
+        private Entry(K key, long tick) {
+            this.key = key;
+            this.tick = tick;
+        }
+    }
+}
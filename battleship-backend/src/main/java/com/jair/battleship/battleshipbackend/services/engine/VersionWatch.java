@@ -0,0 +1,64 @@
+package com.jair.battleship.battleshipbackend.services.engine;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Parked long-poll requests by key ("mesa:1", "sala:2", "lobby"). A change
+ * wakes every waiter of the key once, on its own virtual thread so the caller
+ * (often a mesa lane) never runs or waits for the re-read; a waiter that still
+ * wants to wait registers again.
+ */
+@Component
+public class VersionWatch {
+
+    public static final String LOBBY = "lobby";
+
+    private final ConcurrentMap<String, Set<Runnable>> waiters = new ConcurrentHashMap<>();
+    private final ExecutorService notifier = Executors.newVirtualThreadPerTaskExecutor();
+
+    public static String mesa(Long mesaId) {
+        return "mesa:" + mesaId;
+    }
+
+    public static String sala(Long salaId) {
+        return "sala:" + salaId;
+    }
+
+    public void await(String key, Runnable waiter) {
+        waiters.compute(key, (k, set) -> {
+            Set<Runnable> armed = set == null ? ConcurrentHashMap.newKeySet() : set;
+            armed.add(waiter);
+            return armed;
+        });
+    }
+
+    public void cancel(String key, Runnable waiter) {
+        waiters.computeIfPresent(key, (k, set) -> {
+            set.remove(waiter);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    public void changed(String key) {
+        Set<Runnable> woken = waiters.remove(key);
+        if (woken != null) {
+            woken.forEach(notifier::execute);
+        }
+    }
+
+    public int size() {
+        return waiters.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        notifier.shutdown();
+    }
+}
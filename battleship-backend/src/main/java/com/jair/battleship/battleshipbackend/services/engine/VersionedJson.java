@@ -0,0 +1,8 @@
+package com.jair.battleship.battleshipbackend.services.engine;
+
+/**
+ * A serialized payload with the version it was read at. The version never
+ * runs ahead of the content, so it is safe to use as an ETag.
+ */
+public record VersionedJson(long version, byte[] json) {
+}
@@ -1,5 +1,6 @@
 package com.jair.battleship.battleshipbackend.services.impl;
 
+import com.jair.battleship.battleshipbackend.broker.BroadcastCoalescer;
 import com.jair.battleship.battleshipbackend.models.entities.Jugador;
 import com.jair.battleship.battleshipbackend.models.entities.Sala;
 import com.jair.battleship.battleshipbackend.models.entities.Tablero;
@@ -30,6 +31,8 @@ public class JuegoServiceImpl implements JuegoService {
 
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
+    @Autowired
+    private BroadcastCoalescer broadcasts;
 
     @Autowired
     private PartidaService partidaService;
@@ -159,16 +162,10 @@ public class JuegoServiceImpl implements JuegoService {
     }
 
     private void broadcastSalas() {
-        try {
-            messagingTemplate.convertAndSend("/topic/salas", salaRepository.findAll());
-        } catch (Exception ignored) {
-        }
+        broadcasts.publish("/topic/salas", () -> salaRepository.findAll());
     }
 
     private void broadcastEvento(Long salaId) {
-        try {
-            messagingTemplate.convertAndSend("/topic/sala/" + salaId + "/evento", "UPDATE");
-        } catch (Exception ignored) {
-        }
+        broadcasts.publish("/topic/sala/" + salaId + "/evento", () -> "UPDATE");
     }
 }
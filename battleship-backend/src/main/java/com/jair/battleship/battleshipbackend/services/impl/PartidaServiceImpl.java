@@ -1,13 +1,14 @@
 package com.jair.battleship.battleshipbackend.services.impl;
 
+import com.jair.battleship.battleshipbackend.broker.BroadcastCoalescer;
 import com.jair.battleship.battleshipbackend.models.entities.*;
 import com.jair.battleship.battleshipbackend.models.enums.EstadoPartida;
 import com.jair.battleship.battleshipbackend.models.enums.ResultadoParticipacion;
 import com.jair.battleship.battleshipbackend.repositories.*;
 import com.jair.battleship.battleshipbackend.services.PartidaService;
+import com.jair.battleship.battleshipbackend.services.engine.MatchStateInvalidator;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
@@ -34,31 +35,43 @@ public class PartidaServiceImpl implements PartidaService {
     @Autowired
     private SalaRepository salaRepository;
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private BroadcastCoalescer broadcasts;
     @Autowired
     private EspectadorRepository espectadorRepository;
     @Autowired
+    private MatchStateInvalidator matchStateInvalidator;
+    @Autowired
     private com.jair.battleship.battleshipbackend.services.RankingService rankingService;
 
     @Autowired
     private com.jair.battleship.battleshipbackend.services.SalaService salaService;
 
+    /**
+     * Saves through here so a partida of a mesa, reached by id, drops the
+     * mesa's resident match state.
+     */
+    private Partida guardar(Partida partida) {
+        Partida saved = partidaRepository.save(partida);
+        matchStateInvalidator.changed(saved);
+        return saved;
+    }
+
+    private Tablero guardar(Tablero tablero) {
+        Tablero saved = tableroRepository.save(tablero);
+        matchStateInvalidator.changed(saved);
+        return saved;
+    }
+
     private void broadcastEvento(Long salaId) {
         if (TransactionSynchronizationManager.isActualTransactionActive()) {
             TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
                 @Override
                 public void afterCommit() {
-                    try {
-                        messagingTemplate.convertAndSend("/topic/sala/" + salaId + "/evento", "UPDATE");
-                    } catch (Exception ignored) {
-                    }
+                    broadcasts.publish("/topic/sala/" + salaId + "/evento", () -> "UPDATE");
                 }
             });
         } else {
-            try {
-                messagingTemplate.convertAndSend("/topic/sala/" + salaId + "/evento", "UPDATE");
-            } catch (Exception ignored) {
-            }
+            broadcasts.publish("/topic/sala/" + salaId + "/evento", () -> "UPDATE");
         }
     }
 
@@ -71,7 +84,7 @@ public class PartidaServiceImpl implements PartidaService {
             Sala sala = salaRepository.findById(salaId).orElseThrow();
             partida.setSala(sala);
         }
-        partida = partidaRepository.save(partida);
+        partida = guardar(partida);
 
         Participacion p = new Participacion();
         p.setPartida(partida);
@@ -82,7 +95,7 @@ public class PartidaServiceImpl implements PartidaService {
         participacionRepository.save(p);
 
         partida.setTurnoActualJugadorId(host.getId());
-        return partidaRepository.save(partida);
+        return guardar(partida);
     }
 
     @Override
@@ -107,7 +120,7 @@ public class PartidaServiceImpl implements PartidaService {
             partida.setEstado(EstadoPartida.EN_CURSO);
             partida.setInicio(Instant.now());
         }
-        return partidaRepository.save(partida);
+        return guardar(partida);
     }
 
     @Override
@@ -133,7 +146,7 @@ public class PartidaServiceImpl implements PartidaService {
         t.setPosicionesBarcos(limpia);
         if (t.getPosicionesAtacadas() == null)
             t.setPosicionesAtacadas(new HashMap<>());
-        tableroRepository.save(t);
+        guardar(t);
 
         // Broadcast event so the opponent knows ships were placed
         if (partida.getSala() != null) {
@@ -164,7 +177,7 @@ public class PartidaServiceImpl implements PartidaService {
         }
         boolean acierto = Boolean.TRUE.equals(tableroDefensor.getPosicionesBarcos().get(posicion));
         atacadas.put(posicion, acierto);
-        tableroRepository.save(tableroDefensor);
+        guardar(tableroDefensor);
 
         Disparo d = new Disparo();
         d.setPartida(partida);
@@ -185,7 +198,7 @@ public class PartidaServiceImpl implements PartidaService {
             partida.setFin(Instant.now());
             partida.setGanador(atacantePar.getJugador());
             partida.setRematchDeadline(Instant.now().plusSeconds(30));
-            partidaRepository.save(partida);
+            guardar(partida);
 
             atacantePar.setResultado(ResultadoParticipacion.GANO);
             defensorPar.setResultado(ResultadoParticipacion.PERDIO);
@@ -202,9 +215,9 @@ public class PartidaServiceImpl implements PartidaService {
         } else {
             if (!acierto) {
                 partida.setTurnoActualJugadorId(defensorPar.getJugador().getId());
-                partidaRepository.save(partida);
+                guardar(partida);
             } else {
-                partidaRepository.save(partida);
+                guardar(partida);
             }
             if (partida.getSala() != null) {
                 broadcastEvento(partida.getSala().getId());
@@ -225,7 +238,7 @@ public class PartidaServiceImpl implements PartidaService {
                 .orElseThrow();
         Map<String, Boolean> atacadas = tableroDef.getPosicionesAtacadas();
         atacadas.remove(d.getPosicion());
-        tableroRepository.save(tableroDef);
+        guardar(tableroDef);
 
         if (d.isAcierto())
             restarPuntos(d.getAtacante().getId(), 1);
@@ -248,7 +261,7 @@ public class PartidaServiceImpl implements PartidaService {
         }
 
         partida.setTurnoActualJugadorId(d.getAtacante().getId());
-        partidaRepository.save(partida);
+        guardar(partida);
         disparoRepository.delete(d);
     }
 
@@ -257,7 +270,7 @@ public class PartidaServiceImpl implements PartidaService {
         Partida partida = partidaRepository.findById(partidaId).orElseThrow();
         partida.setEstado(EstadoPartida.CANCELADA);
         partida.setFin(Instant.now());
-        partidaRepository.save(partida);
+        guardar(partida);
         if (partida.getSala() != null)
             broadcastEvento(partida.getSala().getId());
     }
@@ -268,7 +281,7 @@ public class PartidaServiceImpl implements PartidaService {
         partida.setEstado(EstadoPartida.FINALIZADA);
         partida.setFin(Instant.now());
         partida.setGanador(null);
-        partidaRepository.save(partida);
+        guardar(partida);
         for (Participacion p : participacionRepository.findByPartidaId(partidaId)) {
             p.setResultado(ResultadoParticipacion.EMPATE);
             participacionRepository.save(p);
@@ -505,7 +518,7 @@ public class PartidaServiceImpl implements PartidaService {
         partida.setInicio(Instant.now());
         boolean startHost = Math.random() < 0.5;
         partida.setTurnoActualJugadorId(startHost ? host.getId() : challenger.getId());
-        partida = partidaRepository.save(partida);
+        partida = guardar(partida);
 
         // Create new blank boards for this game (don't reuse old ones)
         Tablero t1 = new Tablero();
@@ -513,14 +526,14 @@ public class PartidaServiceImpl implements PartidaService {
         t1.setPartida(partida);
         t1.setPosicionesBarcos(new HashMap<>());
         t1.setPosicionesAtacadas(new HashMap<>());
-        tableroRepository.save(t1);
+        guardar(t1);
 
         Tablero t2 = new Tablero();
         t2.setJugador(challenger);
         t2.setPartida(partida);
         t2.setPosicionesBarcos(new HashMap<>());
         t2.setPosicionesAtacadas(new HashMap<>());
-        tableroRepository.save(t2);
+        guardar(t2);
 
         Participacion p1 = new Participacion();
         p1.setPartida(partida);
@@ -567,14 +580,14 @@ public class PartidaServiceImpl implements PartidaService {
         } else {
             return; // Not a seated player
         }
-        partidaRepository.save(partida);
+        guardar(partida);
         broadcastEvento(sala.getId());
 
         if (partida.isRematchRequestJ1() && partida.isRematchRequestJ2()) {
             // Both want rematch — start a new game
             // Clear the rematch deadline so the old game doesn't interfere
             partida.setRematchDeadline(null);
-            partidaRepository.save(partida);
+            guardar(partida);
 
             // Reset the JuegoServiceImpl PrepState for this sala
             resetPrepState(sala.getId());
@@ -599,7 +612,7 @@ public class PartidaServiceImpl implements PartidaService {
             }
             // Clear rematch deadline
             partida.setRematchDeadline(null);
-            partidaRepository.save(partida);
+            guardar(partida);
             broadcastEvento(sala.getId());
         }
     }
@@ -618,7 +631,7 @@ public class PartidaServiceImpl implements PartidaService {
                     }
                 }
                 partida.setRematchDeadline(null);
-                partidaRepository.save(partida);
+                guardar(partida);
                 if (sala != null) {
                     broadcastEvento(sala.getId());
                 }
@@ -1,14 +1,19 @@
 package com.jair.battleship.battleshipbackend.services.impl;
 
+import com.jair.battleship.battleshipbackend.broker.BroadcastCoalescer;
 import com.jair.battleship.battleshipbackend.models.entities.*;
 import com.jair.battleship.battleshipbackend.models.enums.ResultadoParticipacion;
 import com.jair.battleship.battleshipbackend.repositories.*;
 import com.jair.battleship.battleshipbackend.services.RankingService;
+import com.jair.battleship.battleshipbackend.services.engine.Leaderboard;
+import com.jair.battleship.battleshipbackend.services.engine.RankingWindows;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
@@ -17,9 +22,15 @@ import java.util.*;
 @Service
 public class RankingServiceImpl implements RankingService {
 
+    private static final int RANKING_SIZE = 10;
+    private static final int MAX_RADIO = 25;
+
     @Autowired
     private PuntuacionRepository puntuacionRepository;
 
+    @Autowired
+    private PuntajeJugadorRepository puntajeJugadorRepository;
+
     @Autowired
     private EstadisticaJugadorRepository estadisticaJugadorRepository;
 
@@ -30,24 +41,53 @@ public class RankingServiceImpl implements RankingService {
     private ParticipacionRepository participacionRepository;
 
     @Autowired
-    private UsuarioRepository usuarioRepository;
+    private Leaderboard leaderboard;
+
+    @Autowired
+    private RankingWindows rankingWindows;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private BroadcastCoalescer broadcasts;
 
     @Override
     @Transactional
     public void procesarPartida(Partida partida) {
         List<Participacion> participaciones = participacionRepository.findByPartidaId(partida.getId());
 
+        List<Runnable> scored = new ArrayList<>();
         for (Participacion p : participaciones) {
-            calcularYGuardarPuntuacion(p, partida);
+            Puntuacion puntuacion = calcularYGuardarPuntuacion(p, partida);
+            Usuario usuario = p.getJugador().getUsuario();
+            if (usuario != null) {
+                Long usuarioId = usuario.getId();
+                String username = usuario.getUsername();
+                int total = puntuacion.getTotal();
+                boolean gano = p.getResultado() == ResultadoParticipacion.GANO;
+                Instant fecha = puntuacion.getFecha();
+                scored.add(() -> rankingWindows.record(usuarioId, username, total, gano, fecha));
+            }
         }
 
-        broadcastRankingUpdate();
+        afterCommit(() -> {
+            scored.forEach(Runnable::run);
+            broadcastRankingUpdate();
+        });
     }
 
-    private void calcularYGuardarPuntuacion(Participacion p, Partida partida) {
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private Puntuacion calcularYGuardarPuntuacion(Participacion p, Partida partida) {
         Jugador jugador = p.getJugador();
         boolean esGanador = p.getResultado() == ResultadoParticipacion.GANO;
 
@@ -109,14 +149,10 @@ public class RankingServiceImpl implements RankingService {
         int total = puntosBase + puntosPrecision + puntosBarcos + puntosSupervivencia + puntosRacha;
 
         // No negativos
-        Integer puntajeActual = puntuacionRepository.findGlobalLeaderboard(PageRequest.of(0, 1000)).stream()
-                .filter(obj -> jugador.getNombre().equals(obj[0]))
-                .map(obj -> ((Number) obj[2]).intValue())
-                .findFirst()
-                .orElse(0);
-
-        if (puntajeActual + total < 0) {
-            total = -puntajeActual; // Para que quede en 0
+        PuntajeJugador puntaje = puntajeJugadorRepository.findForUpdate(claveDe(jugador))
+                .orElseGet(() -> new PuntajeJugador(claveDe(jugador), 0, null));
+        if (puntaje.getTotal() + total < 0) {
+            total = -puntaje.getTotal(); // Para que quede en 0
         }
 
         Puntuacion puntuacion = new Puntuacion();
@@ -131,11 +167,19 @@ public class RankingServiceImpl implements RankingService {
         puntuacion.setFecha(Instant.now());
 
         puntuacionRepository.save(puntuacion);
+        puntaje.setTotal(puntaje.getTotal() + total);
+        puntaje.setActualizadoAt(puntuacion.getFecha());
+        puntajeJugadorRepository.save(puntaje);
 
         if (stats.getJugador() == null)
             stats.setJugador(jugador);
         stats.setPuntosTotales(Math.max(0, stats.getPuntosTotales() + total));
         estadisticaJugadorRepository.save(stats);
+        return puntuacion;
+    }
+
+    private static String claveDe(Jugador jugador) {
+        return jugador.getUsuario() != null ? "u" + jugador.getUsuario().getId() : "j" + jugador.getId();
     }
 
     private int contarBarcosHundidos(Tablero tablero) {
@@ -180,36 +224,34 @@ public class RankingServiceImpl implements RankingService {
 
     @Override
     public List<Map<String, Object>> obtenerRanking(String periodo) {
-        List<Map<String, Object>> ranking = new ArrayList<>();
-        int rank = 1;
-        var users = usuarioRepository.findAll().stream()
-                .filter(usuario -> usuario.getGamesPlayed() > 0)
-                .sorted(Comparator.comparingInt(Usuario::getRating).reversed()
-                        .thenComparing(Usuario::getWins, Comparator.reverseOrder())
-                        .thenComparing(Usuario::getUsername))
-                .limit(10)
-                .toList();
-        for (Usuario usuario : users) {
-            Map<String, Object> item = new HashMap<>();
-            item.put("rank", rank++);
-            item.put("jugadorId", usuario.getId());
-            item.put("nombre", usuario.getUsername());
-            item.put("puntos", usuario.getRating());
-            item.put("gamesPlayed", usuario.getGamesPlayed());
-            item.put("wins", usuario.getWins());
-            item.put("losses", usuario.getLosses());
-            ranking.add(item);
+        if ("historico".equals(periodo)) {
+            return leaderboard.top(RANKING_SIZE).stream().map(Leaderboard.Standing::row).toList();
         }
-        return ranking;
+        RankingWindows.Window window = RankingWindows.Window.fromPeriodo(periodo);
+        if (window == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Periodo invalido");
+        }
+        return rankingWindows.top(window, RANKING_SIZE, Instant.now());
     }
 
-    private void broadcastRankingUpdate() {
-        try {
-            messagingTemplate.convertAndSend("/topic/ranking/dia", obtenerRanking("dia"));
-            messagingTemplate.convertAndSend("/topic/ranking/semana", obtenerRanking("semana"));
-            messagingTemplate.convertAndSend("/topic/ranking/mes", obtenerRanking("mes"));
-            messagingTemplate.convertAndSend("/topic/ranking/historico", obtenerRanking("historico"));
-        } catch (Exception ignored) {
+    @Override
+    public Map<String, Object> obtenerPosicion(Long usuarioId, int radio) {
+        Leaderboard.Standing standing = leaderboard.standing(usuarioId);
+        if (standing == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Jugador sin partidas clasificatorias");
         }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("jugador", standing.row());
+        result.put("total", leaderboard.size());
+        result.put("cercanos", leaderboard.around(usuarioId, Math.max(0, Math.min(radio, MAX_RADIO)))
+                .stream().map(Leaderboard.Standing::row).toList());
+        return result;
+    }
+
+    private void broadcastRankingUpdate() {
+        broadcasts.publish("/topic/ranking/dia", () -> obtenerRanking("dia"));
+        broadcasts.publish("/topic/ranking/semana", () -> obtenerRanking("semana"));
+        broadcasts.publish("/topic/ranking/mes", () -> obtenerRanking("mes"));
+        broadcasts.publish("/topic/ranking/historico", () -> obtenerRanking("historico"));
     }
 }
@@ -1,5 +1,6 @@
 package com.jair.battleship.battleshipbackend.services.impl;
 
+import com.jair.battleship.battleshipbackend.broker.BroadcastCoalescer;
 import com.jair.battleship.battleshipbackend.models.entities.Sala;
 import com.jair.battleship.battleshipbackend.repositories.SalaRepository;
 import com.jair.battleship.battleshipbackend.repositories.JugadorRepository;
@@ -9,7 +10,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.http.HttpStatus;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 
 import com.jair.battleship.battleshipbackend.services.PartidaService;
 import org.springframework.context.annotation.Lazy;
@@ -27,7 +27,7 @@ public class SalaServiceImpl implements SalaService {
     private JugadorRepository jugadorRepository;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private BroadcastCoalescer broadcasts;
 
     @Autowired
     @Lazy
@@ -162,10 +162,7 @@ public class SalaServiceImpl implements SalaService {
      * Broadcast full room list to the lobby page (/topic/salas)
      */
     private void broadcastSalasList() {
-        try {
-            messagingTemplate.convertAndSend("/topic/salas", obtenerTodas());
-        } catch (Exception ignored) {
-        }
+        broadcasts.publish("/topic/salas", () -> obtenerTodas());
     }
 
     /**
@@ -175,10 +172,7 @@ public class SalaServiceImpl implements SalaService {
      * real-time.
      */
     private void broadcastEvento(Long salaId) {
-        try {
-            messagingTemplate.convertAndSend("/topic/sala/" + salaId + "/evento", "UPDATE");
-        } catch (Exception ignored) {
-        }
+        broadcasts.publish("/topic/sala/" + salaId + "/evento", () -> "UPDATE");
     }
 
     @PostConstruct
@@ -4,6 +4,8 @@ import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 @SpringBootTest
 @ActiveProfiles("test")
 class BattleshipBackendApplicationTests {
@@ -12,4 +14,11 @@ class BattleshipBackendApplicationTests {
 	void contextLoads() {
 	}
 
+	@Test
+	void scheduledJobsRunOnTheirOwnPool() {
+		assertThat(Thread.getAllStackTraces().keySet())
+				.extracting(Thread::getName)
+				.anyMatch(name -> name.startsWith("jobs-"));
+	}
+
 }
@@ -0,0 +1,72 @@
+package com.jair.battleship.battleshipbackend;
+
+import com.jair.battleship.battleshipbackend.models.board.BitBoard;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BitBoardTests {
+
+    @Test
+    void labelsRoundTripAcrossBothWords() {
+        assertThat(BitBoard.parse("A1")).isZero();
+        assertThat(BitBoard.parse("G5")).isEqualTo(64);
+        assertThat(BitBoard.parse("J10")).isEqualTo(99);
+        assertThat(BitBoard.label(64)).isEqualTo("G5");
+        assertThat(BitBoard.parse("K1")).isEqualTo(-1);
+        assertThat(BitBoard.parse("A11")).isEqualTo(-1);
+        assertThat(BitBoard.parse("A0")).isEqualTo(-1);
+    }
+
+    @Test
+    void detectsTouchingShipsIncludingDiagonalsAndAcrossTheWordBoundary() {
+        BitBoard board = new BitBoard();
+        board.place(1, BitBoard.parse("F4"));
+
+        assertThat(board.touches(BitBoard.parse("G5"))).isTrue();
+        assertThat(board.touches(BitBoard.parse("G6"))).isFalse();
+        assertThat(board.touches(BitBoard.parse("F6"))).isFalse();
+
+        board.place(2, BitBoard.parse("G5"));
+        assertThat(board.touchesOtherShips(1)).isTrue();
+        assertThat(board.touchesOtherShips(2)).isTrue();
+    }
+
+    @Test
+    void tracksHitSunkAndWin() {
+        BitBoard board = new BitBoard();
+        board.place(1, BitBoard.parse("A1"), BitBoard.parse("A2"));
+        board.place(7, BitBoard.parse("J10"));
+
+        assertThat(board.fire(BitBoard.parse("A1"))).isEqualTo(1);
+        assertThat(board.isSunk(1)).isFalse();
+        assertThat(board.fire(BitBoard.parse("B5"))).isZero();
+        assertThat(board.fire(BitBoard.parse("A2"))).isEqualTo(1);
+        assertThat(board.isSunk(1)).isTrue();
+        assertThat(board.allSunk()).isFalse();
+        assertThat(board.fire(BitBoard.parse("J10"))).isEqualTo(7);
+        assertThat(board.allSunk()).isTrue();
+
+        assertThat(board.shotStatus()).isEqualTo(Map.of(
+                "A1", "SUNK",
+                "A2", "SUNK",
+                "B5", "MISS",
+                "J10", "SUNK"));
+    }
+
+    @Test
+    void randomUnshotCellOnlyReturnsFreeCells() {
+        BitBoard board = new BitBoard();
+        Random random = new Random(7);
+        for (int i = 0; i < BitBoard.CELLS; i++) {
+            int cell = board.randomUnshotCell(random);
+            assertThat(board.isShot(cell)).isFalse();
+            board.fire(cell);
+        }
+        assertThat(board.shotCount()).isEqualTo(BitBoard.CELLS);
+        assertThat(board.randomUnshotCell(random)).isEqualTo(-1);
+    }
+}
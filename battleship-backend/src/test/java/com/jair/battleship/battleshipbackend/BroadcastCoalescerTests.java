@@ -0,0 +1,85 @@
+package com.jair.battleship.battleshipbackend;
+
+import com.jair.battleship.battleshipbackend.broker.BroadcastCoalescer;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BroadcastCoalescerTests {
+
+    private static final Instant T0 = Instant.parse("2026-03-31T12:00:00Z");
+
+    @Test
+    void rapidChangesSendAtMostOncePerWindowWithTheLatestState() {
+        List<Sent> sent = new ArrayList<>();
+        AtomicInteger clock = new AtomicInteger();
+        BroadcastCoalescer coalescer = new BroadcastCoalescer(template(sent, clock), 200);
+        AtomicInteger state = new AtomicInteger();
+        AtomicInteger builds = new AtomicInteger();
+
+        for (int ms = 0; ms < 1_000; ms++) {
+            clock.set(ms);
+            state.set(ms);
+            coalescer.publish("/topic/ranking/historico", () -> {
+                builds.incrementAndGet();
+                return state.get();
+            }, T0.plusMillis(ms));
+            if (ms % 50 == 0) {
+                coalescer.flush(T0.plusMillis(ms));
+            }
+        }
+        clock.set(1_200);
+        coalescer.flush(T0.plusMillis(1_200));
+
+        assertThat(sent).hasSize(6);
+        for (int i = 1; i < sent.size(); i++) {
+            assertThat(sent.get(i).atMs() - sent.get(i - 1).atMs()).isGreaterThanOrEqualTo(200);
+        }
+        assertThat(sent.get(sent.size() - 1).payload()).isEqualTo("999");
+        assertThat(builds).hasValue(6);
+        BroadcastCoalescer.CoalescerStats stats = coalescer.stats();
+        assertThat(stats.requested()).isEqualTo(1_000);
+        assertThat(stats.sent()).isEqualTo(6);
+        assertThat(stats.suppressed()).isEqualTo(994);
+        assertThat(stats.pending()).isZero();
+    }
+
+    @Test
+    void aQuietDestinationSendsAtOnceAndDestinationsDoNotShareWindows() {
+        List<Sent> sent = new ArrayList<>();
+        BroadcastCoalescer coalescer = new BroadcastCoalescer(template(sent, new AtomicInteger()), 200);
+
+        coalescer.publish("/topic/salas", () -> "a", T0);
+        coalescer.publish("/topic/sala/1/evento", () -> "UPDATE", T0);
+        coalescer.publish("/topic/salas", () -> "b", T0.plus(Duration.ofMillis(10)));
+        assertThat(sent).extracting(Sent::destination).containsExactly("/topic/salas", "/topic/sala/1/evento");
+
+        coalescer.flush(T0.plus(Duration.ofMillis(200)));
+        assertThat(sent).extracting(Sent::payload).containsExactly("a", "UPDATE", "b");
+
+        coalescer.flush(T0.plus(Duration.ofMillis(400)));
+        coalescer.publish("/topic/salas", () -> "c", T0.plus(Duration.ofMillis(401)));
+        assertThat(sent).extracting(Sent::payload).containsExactly("a", "UPDATE", "b", "c");
+        assertThat(coalescer.stats().suppressed()).isZero();
+    }
+
+    private static SimpMessagingTemplate template(List<Sent> sent, AtomicInteger clock) {
+        return new SimpMessagingTemplate((Message<?> message, long timeout) -> {
+            sent.add(new Sent(SimpMessageHeaderAccessor.getDestination(message.getHeaders()),
+                    String.valueOf(message.getPayload()), clock.get()));
+            return true;
+        });
+    }
+
+    private record Sent(String destination, String payload, int atMs) {
+    }
+}
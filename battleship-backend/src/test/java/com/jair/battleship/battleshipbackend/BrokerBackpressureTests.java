@@ -0,0 +1,163 @@
+package com.jair.battleship.battleshipbackend;
+
+import com.jair.battleship.battleshipbackend.broker.SessionOutboxes;
+import com.jair.battleship.battleshipbackend.broker.ShardedSubscriptionRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BrokerBackpressureTests {
+
+    private final ExecutorService outboundExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ExecutorSubscribableChannel inbound = new ExecutorSubscribableChannel();
+    private final ExecutorSubscribableChannel outbound = new ExecutorSubscribableChannel(outboundExecutor);
+    private final ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+    private final SessionOutboxes outboxes = new SessionOutboxes(8, "/topic/lobby");
+    private final SimpleBrokerMessageHandler broker =
+            new SimpleBrokerMessageHandler(inbound, outbound, brokerChannel, List.of("/topic"));
+    private final Map<String, List<String>> received = new ConcurrentHashMap<>();
+    private final CountDownLatch slowGate = new CountDownLatch(1);
+    private final Set<String> connected = new HashSet<>();
+
+    BrokerBackpressureTests() {
+        outbound.addInterceptor(outboxes);
+        outbound.subscribe(message -> {
+            if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+                return;
+            }
+            String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+            if (sessionId.startsWith("slow")) {
+                try {
+                    slowGate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            received.computeIfAbsent(sessionId, id -> new CopyOnWriteArrayList<>())
+                    .add(new String((byte[]) message.getPayload(), StandardCharsets.UTF_8));
+        });
+        broker.setSubscriptionRegistry(new ShardedSubscriptionRegistry(4));
+        broker.start();
+    }
+
+    @AfterEach
+    void stop() {
+        slowGate.countDown();
+        broker.stop();
+        outboundExecutor.shutdownNow();
+    }
+
+    @Test
+    void slowSessionsKeepABoundedQueueDroppingOldestAndConflatingStates() {
+        for (String session : List.of("fast", "slow")) {
+            subscribe(session, "/topic/mesas/1");
+            subscribe(session, "/topic/lobby");
+        }
+
+        for (int i = 0; i < 50; i++) {
+            publish("/topic/mesas/1", "event-" + i);
+            awaitFast(i + 1);
+        }
+        for (int i = 0; i < 20; i++) {
+            publish("/topic/lobby", "lobby-" + i);
+            awaitFast(51 + i);
+        }
+
+        SessionOutboxes.OutboxStats stalled = outboxes.stats();
+        assertThat(stalled.deepestQueue()).isEqualTo(8);
+        assertThat(stalled.queued()).isEqualTo(8);
+        assertThat(stalled.dropped()).isEqualTo(42);
+        assertThat(stalled.conflated()).isEqualTo(19);
+
+        slowGate.countDown();
+        await(() -> received("slow").size() == 9);
+        assertThat(received("slow")).containsExactly("event-0", "event-43", "event-44", "event-45", "event-46",
+                "event-47", "event-48", "event-49", "lobby-19");
+        assertThat(received("fast")).hasSize(70);
+        await(() -> outboxes.stats().delivered() == 79);
+        assertThat(outboxes.stats().queued()).isZero();
+    }
+
+    @Test
+    void shardedSubscriptionsMatchExactAndPatternDestinationsUntilTheSessionLeaves() {
+        subscribe("a", "/topic/mesas/1");
+        subscribe("b", "/topic/mesas/2");
+        subscribe("c", "/topic/mesas/*");
+
+        publish("/topic/mesas/1", "uno");
+        publish("/topic/mesas/2", "dos");
+        await(() -> received("c").size() == 2);
+        assertThat(received("a")).containsExactly("uno");
+        assertThat(received("b")).containsExactly("dos");
+
+        SimpMessageHeaderAccessor unsubscribe = SimpMessageHeaderAccessor.create(SimpMessageType.UNSUBSCRIBE);
+        unsubscribe.setSessionId("c");
+        unsubscribe.setSubscriptionId("sub-/topic/mesas/*");
+        inbound.send(MessageBuilder.createMessage(new byte[0], unsubscribe.getMessageHeaders()));
+        SimpMessageHeaderAccessor disconnect = SimpMessageHeaderAccessor.create(SimpMessageType.DISCONNECT);
+        disconnect.setSessionId("a");
+        inbound.send(MessageBuilder.createMessage(new byte[0], disconnect.getMessageHeaders()));
+
+        publish("/topic/mesas/1", "tres");
+        publish("/topic/mesas/2", "cuatro");
+        await(() -> received("b").size() == 2);
+        assertThat(received("a")).containsExactly("uno");
+        assertThat(received("c")).containsExactly("uno", "dos");
+    }
+
+    private void subscribe(String sessionId, String destination) {
+        if (connected.add(sessionId)) {
+            SimpMessageHeaderAccessor connect = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+            connect.setSessionId(sessionId);
+            inbound.send(MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()));
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId("sub-" + destination);
+        accessor.setDestination(destination);
+        inbound.send(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+    }
+
+    private void publish(String destination, String payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        Message<byte[]> message = MessageBuilder.createMessage(payload.getBytes(StandardCharsets.UTF_8),
+                accessor.getMessageHeaders());
+        brokerChannel.send(message);
+    }
+
+    private List<String> received(String sessionId) {
+        return received.getOrDefault(sessionId, List.of());
+    }
+
+    private void awaitFast(int count) {
+        await(() -> received("fast").size() == count);
+    }
+
+    private void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.onSpinWait();
+        }
+    }
+}
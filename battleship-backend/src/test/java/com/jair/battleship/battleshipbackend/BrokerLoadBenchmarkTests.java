@@ -0,0 +1,133 @@
+package com.jair.battleship.battleshipbackend;
+
+import com.jair.battleship.battleshipbackend.broker.SessionOutboxes;
+import com.jair.battleship.battleshipbackend.broker.ShardedSubscriptionRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Fan-out through the sharded broker and the session outboxes with thousands of
+ * simulated subscribers, a share of them slow. Run with
+ * {@code mvn test -Pbenchmark}; excluded from the default build.
+ */
+@Tag("benchmark")
+class BrokerLoadBenchmarkTests {
+
+    private static final int SESSIONS = 10_000;
+    private static final int MESAS = 1_000;
+    private static final int ROUNDS = 50;
+    private static final int SLOW_EVERY = 20;
+    private static final int QUEUE = 64;
+
+    @Test
+    void slowSubscribersStayBoundedWhileEveryoneEndsOnTheLatestState() throws InterruptedException {
+        ExecutorService outboundExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        ExecutorSubscribableChannel inbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel outbound = new ExecutorSubscribableChannel(outboundExecutor);
+        ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+        SessionOutboxes outboxes = new SessionOutboxes(QUEUE, "/topic/lobby");
+        outbound.addInterceptor(outboxes);
+        Map<String, String> lastEvent = new ConcurrentHashMap<>();
+        Map<String, String> lastLobby = new ConcurrentHashMap<>();
+        outbound.subscribe(message -> {
+            if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+                return;
+            }
+            String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+            if (Integer.parseInt(sessionId) % SLOW_EVERY == 0) {
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            String payload = new String((byte[]) message.getPayload(), StandardCharsets.UTF_8);
+            (payload.startsWith("lobby") ? lastLobby : lastEvent).put(sessionId, payload);
+        });
+        SimpleBrokerMessageHandler broker =
+                new SimpleBrokerMessageHandler(inbound, outbound, brokerChannel, List.of("/topic"));
+        broker.setSubscriptionRegistry(new ShardedSubscriptionRegistry(16));
+        broker.start();
+        try {
+            for (int session = 0; session < SESSIONS; session++) {
+                String sessionId = Integer.toString(session);
+                send(inbound, SimpMessageType.CONNECT, sessionId, null);
+                send(inbound, SimpMessageType.SUBSCRIBE, sessionId, "/topic/mesas/" + (session % MESAS));
+                send(inbound, SimpMessageType.SUBSCRIBE, sessionId, "/topic/lobby");
+            }
+
+            long started = System.nanoTime();
+            int deepest = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                for (int mesa = 0; mesa < MESAS; mesa++) {
+                    publish(brokerChannel, "/topic/mesas/" + mesa, "event-" + round);
+                }
+                publish(brokerChannel, "/topic/lobby", "lobby-" + round);
+                deepest = Math.max(deepest, outboxes.stats().deepestQueue());
+            }
+            long published = System.nanoTime() - started;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+            while (outboxes.stats().queued() > 0 || !allOnLatest(lastEvent, lastLobby)) {
+                assertThat(System.nanoTime()).as("outboxes did not drain").isLessThan(deadline);
+                Thread.sleep(10);
+            }
+            long drained = System.nanoTime() - started;
+
+            SessionOutboxes.OutboxStats stats = outboxes.stats();
+            long frames = (long) SESSIONS * ROUNDS * 2;
+            System.out.printf("sessions=%d frames=%d publish=%d ms drain=%d ms (%.0f frames/s) "
+                            + "deepest=%d delivered=%d conflated=%d dropped=%d%n",
+                    SESSIONS, frames, TimeUnit.NANOSECONDS.toMillis(published),
+                    TimeUnit.NANOSECONDS.toMillis(drained), frames / (drained / 1e9), deepest,
+                    stats.delivered(), stats.conflated(), stats.dropped());
+            assertThat(deepest).isLessThanOrEqualTo(QUEUE);
+            assertThat(stats.delivered() + stats.conflated() + stats.dropped()).isEqualTo(frames);
+        } finally {
+            broker.stop();
+            outboundExecutor.shutdownNow();
+        }
+    }
+
+    private boolean allOnLatest(Map<String, String> lastEvent, Map<String, String> lastLobby) {
+        String event = "event-" + (ROUNDS - 1);
+        String lobby = "lobby-" + (ROUNDS - 1);
+        if (lastEvent.size() < SESSIONS || lastLobby.size() < SESSIONS) {
+            return false;
+        }
+        return lastEvent.values().stream().allMatch(event::equals)
+                && lastLobby.values().stream().allMatch(lobby::equals);
+    }
+
+    private void send(ExecutorSubscribableChannel channel, SimpMessageType type, String sessionId,
+                      String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setSessionId(sessionId);
+        if (destination != null) {
+            accessor.setSubscriptionId(destination);
+            accessor.setDestination(destination);
+        }
+        channel.send(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+    }
+
+    private void publish(ExecutorSubscribableChannel channel, String destination, String payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        channel.send(MessageBuilder.createMessage(payload.getBytes(StandardCharsets.UTF_8),
+                accessor.getMessageHeaders()));
+    }
+}
@@ -0,0 +1,83 @@
+package com.jair.battleship.battleshipbackend;
+
+import com.jair.battleship.battleshipbackend.services.engine.DomainEvents;
+import com.jair.battleship.battleshipbackend.services.engine.DomainEvents.Event;
+import com.jair.battleship.battleshipbackend.services.engine.DomainEvents.SeatChanged;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DomainEventsTests {
+
+    private final DomainEvents events = new DomainEvents(4, 600_000);
+
+    @AfterEach
+    void stop() {
+        events.stop();
+    }
+
+    @Test
+    void everyConsumerSeesEveryEventInOrderDespiteAFailingOne() {
+        List<Long> seen = new CopyOnWriteArrayList<>();
+        events.subscribe("failing", event -> {
+            throw new IllegalStateException("boom");
+        });
+        events.subscribe("table", event -> seen.add(((SeatChanged) event).mesaId()));
+
+        for (long mesaId = 1; mesaId <= 3; mesaId++) {
+            assertThat(events.publish(new SeatChanged(mesaId, null))).isTrue();
+        }
+        assertThat(seen).isEmpty();
+        assertThat(events.stats().backlog()).isEqualTo(3);
+
+        events.drain();
+
+        assertThat(seen).containsExactly(1L, 2L, 3L);
+        assertThat(events.stats().failed()).isEqualTo(3);
+        assertThat(events.stats().backlog()).isZero();
+    }
+
+    @Test
+    void aFullRingDeliversOnTheProducerInsteadOfDropping() throws InterruptedException {
+        List<Event> seen = new CopyOnWriteArrayList<>();
+        events.subscribe("table", seen::add);
+
+        for (long mesaId = 1; mesaId <= 4; mesaId++) {
+            assertThat(events.publish(new SeatChanged(mesaId, null))).isTrue();
+        }
+        assertThat(events.publish(new SeatChanged(5L, null))).isFalse();
+        assertThat(seen).containsExactly(new SeatChanged(5L, null));
+
+        events.drain();
+        assertThat(events.publish(new SeatChanged(6L, null))).isTrue();
+        events.drain();
+
+        assertThat(seen).hasSize(6);
+        assertThat(events.stats().overflowed()).isEqualTo(1);
+
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    events.publish(new SeatChanged((long) i, null));
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        while (producers.stream().anyMatch(Thread::isAlive)) {
+            events.drain();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        events.drain();
+        assertThat(seen).hasSize(4_006);
+        assertThat(events.stats().published()).isEqualTo(4_006);
+    }
+}
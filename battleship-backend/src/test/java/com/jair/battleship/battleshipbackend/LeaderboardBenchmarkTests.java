@@ -0,0 +1,83 @@
+package com.jair.battleship.battleshipbackend;
+
+import com.jair.battleship.battleshipbackend.services.engine.Leaderboard;
+import com.jair.battleship.battleshipbackend.services.engine.Leaderboard.Player;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ranking reads and rating updates while the number of ranked players grows
+ * from 10,000 to 1,000,000, against the sort of every user the ranking did
+ * before. Run with {@code mvn test -Pbenchmark}; excluded from the default build.
+ */
+@Tag("benchmark")
+class LeaderboardBenchmarkTests {
+
+    private static final int[] PLAYERS = {10_000, 100_000, 1_000_000};
+    private static final int SAMPLES = 2_000;
+    private static final int SORT_SAMPLES = 5;
+
+    @Test
+    void rankQueriesStayLogarithmicUpToAMillionPlayers() {
+        Leaderboard leaderboard = new Leaderboard(null);
+        List<Player> all = new ArrayList<>();
+        Random random = new Random(1);
+        long baseline = 0;
+        for (int target : PLAYERS) {
+            long loadStart = System.nanoTime();
+            for (long id = all.size() + 1; id <= target; id++) {
+                Player player = new Player(id, "jugador" + id, 800 + random.nextInt(1600), 1 + random.nextInt(200),
+                        random.nextInt(100), random.nextInt(100));
+                all.add(player);
+                leaderboard.put(player);
+            }
+            long loadMillis = (System.nanoTime() - loadStart) / 1_000_000;
+
+            long topNanos = median(SAMPLES, () -> leaderboard.top(10));
+            long rankNanos = median(SAMPLES, () -> leaderboard.standing(1L + random.nextInt(target)));
+            long aroundNanos = median(SAMPLES, () -> leaderboard.around(1L + random.nextInt(target), 5));
+            long updateNanos = median(SAMPLES, () -> {
+                Player player = all.get(random.nextInt(target));
+                leaderboard.put(new Player(player.id(), player.username(), player.rating() + random.nextInt(21) - 10,
+                        player.gamesPlayed() + 1, player.wins(), player.losses()));
+            });
+            long sortNanos = median(SORT_SAMPLES, () -> all.stream()
+                    .sorted(Comparator.comparingInt(Player::rating).reversed()
+                            .thenComparing(Player::wins, Comparator.reverseOrder())
+                            .thenComparing(Player::username))
+                    .limit(10)
+                    .toList());
+            System.out.printf("players=%8d load=%6d ms top10=%7.2f us rank=%7.2f us around=%7.2f us "
+                            + "update=%7.2f us previous sort p50=%9.3f ms%n",
+                    target, loadMillis, topNanos / 1e3, rankNanos / 1e3, aroundNanos / 1e3, updateNanos / 1e3,
+                    sortNanos / 1e6);
+
+            assertThat(leaderboard.size()).isEqualTo(target);
+            long worst = Math.max(rankNanos, Math.max(aroundNanos, updateNanos));
+            if (baseline == 0) {
+                baseline = worst;
+            }
+            assertThat(worst).isLessThan(Math.max(baseline * 3, baseline + 50_000));
+            assertThat(worst).isLessThan(sortNanos / 100);
+        }
+    }
+
+    private long median(int count, Runnable call) {
+        long[] samples = new long[count];
+        for (int i = 0; i < count; i++) {
+            long start = System.nanoTime();
+            call.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[count / 2];
+    }
+}
@@ -0,0 +1,69 @@
+package com.jair.battleship.battleshipbackend;
+
+import com.jair.battleship.battleshipbackend.services.engine.Leaderboard;
+import com.jair.battleship.battleshipbackend.services.engine.Leaderboard.Player;
+import com.jair.battleship.battleshipbackend.services.engine.Leaderboard.Standing;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LeaderboardTests {
+
+    @Test
+    void ordersByRatingThenWinsThenUsername() {
+        Leaderboard leaderboard = new Leaderboard(null);
+        leaderboard.put(new Player(1L, "carla", 1300, 5, 3, 2));
+        leaderboard.put(new Player(2L, "bruno", 1300, 6, 4, 2));
+        leaderboard.put(new Player(3L, "ana", 1300, 5, 3, 2));
+        leaderboard.put(new Player(4L, "dario", 1400, 1, 1, 0));
+        leaderboard.put(new Player(5L, "nuevo", 1200, 0, 0, 0));
+
+        assertThat(leaderboard.top(10)).extracting(s -> s.player().username())
+                .containsExactly("dario", "bruno", "ana", "carla");
+        assertThat(leaderboard.standing(3L).rank()).isEqualTo(3);
+        assertThat(leaderboard.standing(5L)).isNull();
+        assertThat(leaderboard.around(1L, 1)).extracting(Standing::rank).containsExactly(3, 4);
+
+        leaderboard.put(new Player(1L, "carla", 1450, 6, 4, 2));
+        assertThat(leaderboard.top(2)).extracting(s -> s.player().username()).containsExactly("carla", "dario");
+        assertThat(leaderboard.top(10).get(0).row()).containsEntry("rank", 1).containsEntry("puntos", 1450);
+    }
+
+    @Test
+    void ranksMatchASortedListThroughRandomUpdates() {
+        Leaderboard leaderboard = new Leaderboard(null);
+        Map<Long, Player> expected = new HashMap<>();
+        Random random = new Random(21);
+        for (int step = 0; step < 5_000; step++) {
+            long id = random.nextInt(400);
+            Player player = new Player(id, "p" + id, 900 + random.nextInt(60), random.nextInt(4),
+                    random.nextInt(3), random.nextInt(3));
+            leaderboard.put(player);
+            if (player.gamesPlayed() > 0) {
+                expected.put(id, player);
+            } else {
+                expected.remove(id);
+            }
+        }
+        List<Player> sorted = new ArrayList<>(expected.values());
+        sorted.sort(Comparator.comparingInt(Player::rating).reversed()
+                .thenComparing(Comparator.comparingInt(Player::wins).reversed())
+                .thenComparing(Player::username));
+
+        assertThat(leaderboard.size()).isEqualTo(sorted.size());
+        assertThat(leaderboard.top(sorted.size() + 5)).extracting(Standing::player).containsExactlyElementsOf(sorted);
+        for (int i = 0; i < sorted.size(); i++) {
+            assertThat(leaderboard.standing(sorted.get(i).id()).rank()).isEqualTo(i + 1);
+        }
+        Player middle = sorted.get(sorted.size() / 2);
+        assertThat(leaderboard.around(middle.id(), 3)).extracting(Standing::player)
+                .containsExactlyElementsOf(sorted.subList(sorted.size() / 2 - 3, sorted.size() / 2 + 4));
+    }
+}
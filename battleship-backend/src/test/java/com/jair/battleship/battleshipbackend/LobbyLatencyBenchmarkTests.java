@@ -0,0 +1,131 @@
+package com.jair.battleship.battleshipbackend;
+
+import com.jair.battleship.battleshipbackend.models.entities.Jugador;
+import com.jair.battleship.battleshipbackend.models.entities.Mesa;
+import com.jair.battleship.battleshipbackend.models.entities.Partida;
+import com.jair.battleship.battleshipbackend.models.entities.Sala;
+import com.jair.battleship.battleshipbackend.models.enums.EstadoPartida;
+import com.jair.battleship.battleshipbackend.repositories.JugadorRepository;
+import com.jair.battleship.battleshipbackend.repositories.MesaRepository;
+import com.jair.battleship.battleshipbackend.repositories.PartidaRepository;
+import com.jair.battleship.battleshipbackend.repositories.SalaRepository;
+import com.jair.battleship.battleshipbackend.services.MultiplayerService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Lobby and room latency while the number of active tables grows from 10 to
+ * 10,000. Run with {@code mvn test -Pbenchmark}; excluded from the default build.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+class LobbyLatencyBenchmarkTests {
+
+    private static final int[] ACTIVE_TABLES = {10, 100, 1_000, 10_000};
+    private static final int ROOM_TABLES = 5;
+    private static final int SAMPLES = 200;
+
+    @Autowired
+    private MultiplayerService service;
+    @Autowired
+    private SalaRepository salaRepository;
+    @Autowired
+    private MesaRepository mesaRepository;
+    @Autowired
+    private JugadorRepository jugadorRepository;
+    @Autowired
+    private PartidaRepository partidaRepository;
+
+    @Test
+    void lobbyAndRoomLatencyStayFlatAsActiveTablesGrow() {
+        Sala room = salaRepository.save(new Sala("Sala Bench", true));
+        for (int i = 0; i < ROOM_TABLES; i++) {
+            createTable(room, "Mesa " + (i + 1), false);
+        }
+        Sala load = salaRepository.save(new Sala("Sala Carga", true));
+
+        int active = 0;
+        long roomBaseline = 0;
+        long lobbyBaseline = 0;
+        for (int target : ACTIVE_TABLES) {
+            while (active < target) {
+                createTable(load, "Activa " + (++active), true);
+            }
+            service.publishLobby();
+            long roomNanos = median(() -> service.room(room.getId(), null));
+            long lobbyNanos = median(() -> service.lobby(null));
+            System.out.printf("active=%6d room p50=%8.3f ms lobby p50=%8.3f ms%n",
+                    active, roomNanos / 1e6, lobbyNanos / 1e6);
+            if (roomBaseline == 0) {
+                roomBaseline = roomNanos;
+                lobbyBaseline = lobbyNanos;
+            }
+            assertThat(roomNanos).isLessThan(flatLimit(roomBaseline));
+            assertThat(lobbyNanos).isLessThan(flatLimit(lobbyBaseline));
+        }
+    }
+
+    private long flatLimit(long baselineNanos) {
+        return Math.max(baselineNanos * 3, baselineNanos + 5_000_000);
+    }
+
+    private void createTable(Sala sala, String nombre, boolean inProgress) {
+        Mesa mesa = new Mesa();
+        mesa.setSala(sala);
+        mesa.setNombre(nombre);
+        if (inProgress) {
+            Jugador a = jugador(sala, nombre + " A");
+            Jugador b = jugador(sala, nombre + " B");
+            mesa.setSeatA(a);
+            mesa.setSeatB(b);
+            mesa.setEstado(EstadoPartida.IN_PROGRESS);
+            mesa = mesaRepository.save(mesa);
+            Partida partida = new Partida();
+            partida.setSala(sala);
+            partida.setMesa(mesa);
+            partida.setEstado(EstadoPartida.IN_PROGRESS);
+            partida.setRuleset("SEA_BATTLE_2_CLASSIC");
+            partida.setTurnoActualJugadorId(a.getId());
+            partida.setTurnDeadlineAt(Instant.now().plus(Duration.ofHours(1)));
+            mesa.setCurrentPartidaId(partidaRepository.save(partida).getId());
+            mesaRepository.save(mesa);
+        } else {
+            mesaRepository.save(mesa);
+        }
+    }
+
+    private Jugador jugador(Sala sala, String nombre) {
+        Jugador jugador = new Jugador();
+        jugador.setNombre(nombre);
+        jugador.setSala(sala);
+        return jugadorRepository.save(jugador);
+    }
+
+    private long median(Supplier<?> call) {
+        for (int i = 0; i < SAMPLES / 2; i++) {
+            call.get();
+        }
+        List<Long> samples = new ArrayList<>(SAMPLES);
+        for (int i = 0; i < SAMPLES; i++) {
+            long started = System.nanoTime();
+            call.get();
+            samples.add(System.nanoTime() - started);
+        }
+        long[] sorted = samples.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
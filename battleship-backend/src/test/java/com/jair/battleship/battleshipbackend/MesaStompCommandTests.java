@@ -0,0 +1,258 @@
+package com.jair.battleship.battleshipbackend;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.ErrorResponse;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.SessionUser;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.ShipPlacement;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.ShipPlacementRequest;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.ShotRequest;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.ShotResult;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.TableSnapshot;
+import com.jair.battleship.battleshipbackend.models.entities.Sala;
+import com.jair.battleship.battleshipbackend.repositories.SalaRepository;
+import com.jair.battleship.battleshipbackend.services.MultiplayerService;
+import com.jair.battleship.battleshipbackend.services.engine.PresenceRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Mesa commands over a real STOMP connection on /ws-native. Uses its own
+ * in-memory database so it does not share rows with the other Spring tests.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties =
+        "spring.datasource.url=jdbc:h2:mem:battleship-stomp;MODE=MSSQLServer;DATABASE_TO_UPPER=false;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+class MesaStompCommandTests {
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private MultiplayerService service;
+    @Autowired
+    private SalaRepository salaRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private PresenceRegistry presence;
+
+    private final List<StompSession> sessions = new ArrayList<>();
+
+    @AfterEach
+    void disconnect() {
+        sessions.stream().filter(StompSession::isConnected).forEach(StompSession::disconnect);
+    }
+
+    @Test
+    void readyShipsAndShotsTravelAsFramesAndAnswerOnlyTheSender() throws Exception {
+        Sala sala = salaRepository.save(new Sala("Sala Stomp", true));
+        SessionUser alpha = service.createGuest("Alpha");
+        SessionUser bravo = service.createGuest("Bravo");
+        Long mesaId = service.createTable(sala.getId(), alpha.token(), "Mesa Stomp").id();
+        service.sit(mesaId, "A", alpha.token());
+        service.sit(mesaId, "B", bravo.token());
+
+        StompSession alphaSession = connect(alpha.token());
+        StompSession bravoSession = connect(bravo.token());
+        StompSession spectator = connect(null);
+        String queue = "/user/queue/mesas/" + mesaId;
+        BlockingQueue<TableSnapshot> alphaTables = subscribe(alphaSession, queue + "/ready", TableSnapshot.class);
+        BlockingQueue<TableSnapshot> bravoTables = subscribe(bravoSession, queue + "/ready", TableSnapshot.class);
+        BlockingQueue<TableSnapshot> alphaShips = subscribe(alphaSession, queue + "/ships", TableSnapshot.class);
+        BlockingQueue<TableSnapshot> bravoShips = subscribe(bravoSession, queue + "/ships", TableSnapshot.class);
+        BlockingQueue<ShotResult> alphaShots = subscribe(alphaSession, queue + "/shots", ShotResult.class);
+        BlockingQueue<ShotResult> bravoShots = subscribe(bravoSession, queue + "/shots", ShotResult.class);
+        BlockingQueue<ErrorResponse> spectatorErrors =
+                subscribe(spectator, "/user/queue/errors", ErrorResponse.class);
+        BlockingQueue<ErrorResponse> alphaErrors = subscribe(alphaSession, "/user/queue/errors", ErrorResponse.class);
+        BlockingQueue<ErrorResponse> bravoErrors = subscribe(bravoSession, "/user/queue/errors", ErrorResponse.class);
+
+        alphaSession.send("/app/mesas/" + mesaId + "/ready", new byte[0]);
+        assertThat(poll(alphaTables).seatA().ready()).isTrue();
+        bravoSession.send("/app/mesas/" + mesaId + "/ready", new byte[0]);
+        assertThat(poll(bravoTables).partidaId()).isNotNull();
+
+        alphaSession.send("/app/mesas/" + mesaId + "/ships", classicFleet());
+        assertThat(poll(alphaShips).privateView().ownShipsPlaced()).isTrue();
+        bravoSession.send("/app/mesas/" + mesaId + "/ships", classicFleet());
+        TableSnapshot started = poll(bravoShips);
+        assertThat(started.turnoActualJugadorId()).isNotNull();
+
+        boolean alphaTurn = started.turnoActualJugadorId().equals(started.seatA().jugadorId());
+        StompSession shooter = alphaTurn ? alphaSession : bravoSession;
+        shooter.send("/app/mesas/" + mesaId + "/shots", new ShotRequest("A1"));
+        ShotResult result = poll(alphaTurn ? alphaShots : bravoShots);
+        assertThat(result.position()).isEqualTo("A1");
+        assertThat(result.hit()).isTrue();
+        assertThat((alphaTurn ? bravoShots : alphaShots).poll(200, TimeUnit.MILLISECONDS)).isNull();
+
+        StompSession waiting = alphaTurn ? bravoSession : alphaSession;
+        waiting.send("/app/mesas/" + mesaId + "/shots", new ShotRequest("B1"));
+        assertThat(poll(alphaTurn ? bravoErrors : alphaErrors).status()).isEqualTo(409);
+        spectator.send("/app/mesas/" + mesaId + "/shots", new ShotRequest("B1"));
+        ErrorResponse anonymous = poll(spectatorErrors);
+        assertThat(anonymous.status()).isEqualTo(401);
+        assertThat(anonymous.message()).isEqualTo("Sesion requerida");
+    }
+
+    @Test
+    void everyCommandIsAnsweredWithItsCommandId() throws Exception {
+        Sala sala = salaRepository.save(new Sala("Sala Respuestas", true));
+        SessionUser alpha = service.createGuest("Alpha");
+        SessionUser bravo = service.createGuest("Bravo");
+        Long mesaId = service.createTable(sala.getId(), alpha.token(), "Mesa Respuestas").id();
+        service.sit(mesaId, "A", alpha.token());
+        service.sit(mesaId, "B", bravo.token());
+
+        StompSession session = connect(alpha.token());
+        BlockingQueue<StompHeaders> readyReplies = new LinkedBlockingQueue<>();
+        BlockingQueue<StompHeaders> errorReplies = new LinkedBlockingQueue<>();
+        session.subscribe("/user/queue/mesas/" + mesaId + "/ready", headersInto(readyReplies, TableSnapshot.class));
+        session.subscribe("/user/queue/errors", headersInto(errorReplies, ErrorResponse.class));
+
+        session.send(command("/app/mesas/" + mesaId + "/ready", "cmd-1"), new byte[0]);
+        assertThat(poll(readyReplies).getFirst("x-command-id")).isEqualTo("cmd-1");
+
+        session.send(command("/app/mesas/" + mesaId + "/shots", "cmd-2"), "not a shot");
+        assertThat(poll(errorReplies).getFirst("x-command-id")).isEqualTo("cmd-2");
+    }
+
+    @Test
+    void spectatorCountFollowsTableSubscriptionsAndClosedConnections() throws Exception {
+        Sala sala = salaRepository.save(new Sala("Sala Presencia", true));
+        SessionUser host = service.createGuest("Host");
+        Long mesaId = service.createTable(sala.getId(), host.token(), "Mesa Presencia").id();
+        assertThat(service.table(mesaId, null).spectators()).isEqualTo(1);
+
+        StompSession hostSession = connect(host.token());
+        StompSession first = connect(null);
+        StompSession second = connect(null);
+        subscribe(hostSession, "/topic/mesas/" + mesaId, byte[].class);
+        subscribe(first, "/topic/mesas/" + mesaId, byte[].class);
+        StompSession.Subscription binary = second.subscribe("/topic/bin/mesas/" + mesaId, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders frameHeaders) {
+                return byte[].class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders frameHeaders, Object payload) {
+            }
+        });
+        awaitSpectators(mesaId, 3);
+
+        binary.unsubscribe();
+        first.disconnect();
+        awaitSpectators(mesaId, 1);
+    }
+
+    private void awaitSpectators(Long mesaId, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (presence.spectators(mesaId) != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        service.flushPresence();
+        assertThat(service.table(mesaId, null).spectators()).isEqualTo(expected);
+    }
+
+    private StompSession connect(String token) throws Exception {
+        WebSocketStompClient client = new WebSocketStompClient(new StandardWebSocketClient());
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(objectMapper);
+        client.setMessageConverter(converter);
+        StompHeaders connectHeaders = new StompHeaders();
+        if (token != null) {
+            connectHeaders.add("X-Session-Token", token);
+        }
+        StompSession session = client.connectAsync("ws://localhost:" + port + "/ws-native",
+                new WebSocketHttpHeaders(), connectHeaders, new StompSessionHandlerAdapter() {
+                }).get(5, TimeUnit.SECONDS);
+        sessions.add(session);
+        return session;
+    }
+
+    /**
+     * The endpoint handles a connection's frames in order, so commands sent
+     * after this never overtake the subscription.
+     */
+    private <T> BlockingQueue<T> subscribe(StompSession session, String destination, Class<T> type) {
+        BlockingQueue<T> received = new LinkedBlockingQueue<>();
+        session.subscribe(destination, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders frameHeaders) {
+                return type;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders frameHeaders, Object payload) {
+                received.add(type.cast(payload));
+            }
+        });
+        return received;
+    }
+
+    private StompHeaders command(String destination, String commandId) {
+        StompHeaders headers = new StompHeaders();
+        headers.setDestination(destination);
+        headers.add("x-command-id", commandId);
+        return headers;
+    }
+
+    private StompFrameHandler headersInto(BlockingQueue<StompHeaders> received, Class<?> type) {
+        return new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders frameHeaders) {
+                return type;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders frameHeaders, Object payload) {
+                received.add(frameHeaders);
+            }
+        };
+    }
+
+    private <T> T poll(BlockingQueue<T> queue) throws InterruptedException {
+        T value = queue.poll(5, TimeUnit.SECONDS);
+        assertThat(value).as("no reply in time").isNotNull();
+        return value;
+    }
+
+    private ShipPlacementRequest classicFleet() {
+        return new ShipPlacementRequest(List.of(
+                ship("battleship_1", 4, "A1", "A2", "A3", "A4"),
+                ship("cruiser_1", 3, "C1", "C2", "C3"),
+                ship("cruiser_2", 3, "C6", "C7", "C8"),
+                ship("destroyer_1", 2, "E1", "E2"),
+                ship("destroyer_2", 2, "E5", "E6"),
+                ship("destroyer_3", 2, "E9", "E10"),
+                ship("boat_1", 1, "G1"),
+                ship("boat_2", 1, "G3"),
+                ship("boat_3", 1, "G5"),
+                ship("boat_4", 1, "G7")));
+    }
+
+    private ShipPlacement ship(String key, int size, String... cells) {
+        return new ShipPlacement(key, key, size, "H", List.of(cells));
+    }
+}
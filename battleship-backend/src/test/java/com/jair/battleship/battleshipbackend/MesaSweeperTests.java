@@ -0,0 +1,68 @@
+package com.jair.battleship.battleshipbackend;
+
+import com.jair.battleship.battleshipbackend.services.engine.MesaCommandExecutor;
+import com.jair.battleship.battleshipbackend.services.engine.MesaSweeper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MesaSweeperTests {
+
+    private final MesaCommandExecutor executor = new MesaCommandExecutor();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void failingMesaDoesNotStopTheOthers() {
+        MesaSweeper sweeper = new MesaSweeper(executor, 4);
+        Set<Long> resolved = ConcurrentHashMap.newKeySet();
+
+        MesaSweeper.SweepStats stats = sweeper.sweep("test", List.of(1L, 2L, 3L, 2L), 15, mesaId -> {
+            if (mesaId == 2L) {
+                throw new IllegalStateException("boom");
+            }
+            resolved.add(mesaId);
+            return mesaId == 1L;
+        });
+
+        assertThat(resolved).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(stats.processed()).isEqualTo(3);
+        assertThat(stats.changed()).isEqualTo(1);
+        assertThat(stats.failures()).isEqualTo(1);
+        assertThat(stats.lagMs()).isEqualTo(15);
+        assertThat(sweeper.lastSweeps()).containsEntry("test", stats);
+        assertThat(sweeper.failuresTotal()).isEqualTo(1);
+    }
+
+    @Test
+    void runsMesasInParallelUpToTheLimit() {
+        MesaSweeper sweeper = new MesaSweeper(executor, 3);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        MesaSweeper.SweepStats stats = sweeper.sweep("test", LongStream.rangeClosed(1, 12).boxed().toList(), 0,
+                mesaId -> {
+                    peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    return true;
+                });
+
+        assertThat(stats.changed()).isEqualTo(12);
+        assertThat(peak.get()).isBetween(2, 3);
+    }
+}
@@ -1,15 +1,26 @@
 package com.jair.battleship.battleshipbackend;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.jair.battleship.battleshipbackend.models.board.BitBoard;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.LobbySnapshot;
 import com.jair.battleship.battleshipbackend.models.dto.multiplayer.SessionUser;
 import com.jair.battleship.battleshipbackend.models.dto.multiplayer.ShipPlacement;
 import com.jair.battleship.battleshipbackend.models.dto.multiplayer.ShipPlacementRequest;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.ShotPage;
 import com.jair.battleship.battleshipbackend.models.dto.multiplayer.ShotRequest;
 import com.jair.battleship.battleshipbackend.models.dto.multiplayer.ShotResult;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.ShotSnapshot;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.SpectatorMatchView;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.TableResume;
 import com.jair.battleship.battleshipbackend.models.dto.multiplayer.TableSnapshot;
 import com.jair.battleship.battleshipbackend.models.entities.Disparo;
 import com.jair.battleship.battleshipbackend.models.entities.Mesa;
 import com.jair.battleship.battleshipbackend.models.entities.Partida;
 import com.jair.battleship.battleshipbackend.models.entities.Sala;
+import com.jair.battleship.battleshipbackend.models.entities.SesionJugador;
+import com.jair.battleship.battleshipbackend.models.entities.Tablero;
 import com.jair.battleship.battleshipbackend.models.entities.Usuario;
 import com.jair.battleship.battleshipbackend.models.enums.EstadoPartida;
 import com.jair.battleship.battleshipbackend.repositories.DisparoRepository;
@@ -23,20 +34,47 @@ import com.jair.battleship.battleshipbackend.repositories.SesionJugadorRepositor
 import com.jair.battleship.battleshipbackend.repositories.TableroRepository;
 import com.jair.battleship.battleshipbackend.repositories.UsuarioRepository;
 import com.jair.battleship.battleshipbackend.services.MultiplayerService;
+import com.jair.battleship.battleshipbackend.services.SchemaMaintenanceService;
+import com.jair.battleship.battleshipbackend.services.engine.DomainEvents;
+import com.jair.battleship.battleshipbackend.services.engine.Leaderboard;
+import com.jair.battleship.battleshipbackend.services.engine.MatchStateStore;
+import com.jair.battleship.battleshipbackend.services.engine.MatchWriteBehind;
+import com.jair.battleship.battleshipbackend.services.engine.MesaCommandExecutor;
+import com.jair.battleship.battleshipbackend.services.engine.RankingWindows;
+import com.jair.battleship.battleshipbackend.services.engine.TableSnapshotCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 @ActiveProfiles("test")
@@ -60,6 +98,10 @@ class MultiplayerServiceClassicRulesTests {
     @Autowired
     private UsuarioRepository usuarioRepository;
     @Autowired
+    private Leaderboard leaderboard;
+    @Autowired
+    private RankingWindows rankingWindows;
+    @Autowired
     private JugadorRepository jugadorRepository;
     @Autowired
     private MesaRepository mesaRepository;
@@ -73,6 +115,28 @@ class MultiplayerServiceClassicRulesTests {
     private DisparoRepository disparoRepository;
     @Autowired
     private PuntuacionRepository puntuacionRepository;
+    @Autowired
+    private SchemaMaintenanceService schemaMaintenanceService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MatchStateStore matchStates;
+    @Autowired
+    private MatchWriteBehind writeBehind;
+    @Autowired
+    private TableSnapshotCache tableSnapshots;
+    @Autowired
+    private MesaCommandExecutor mesaExecutor;
+    @Autowired
+    private DomainEvents events;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private SubscribableChannel brokerChannel;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private WebApplicationContext webContext;
 
     @BeforeEach
     void cleanDatabase() {
@@ -134,6 +198,260 @@ class MultiplayerServiceClassicRulesTests {
         assertThat(miss.nextTurnJugadorId()).isEqualTo(turn.opponentJugadorId());
     }
 
+    @Test
+    void shotsAreWrittenBehindAndRecoveredFromTheDatabase() {
+        GameFixture game = startedGame();
+        TableSnapshot table = service.table(game.mesaId(), game.alpha().token());
+        PlayerTurn turn = currentTurn(game, table.turnoActualJugadorId());
+
+        service.shoot(game.mesaId(), turn.token(), new ShotRequest("A1"));
+        service.shoot(game.mesaId(), turn.token(), new ShotRequest("J10"));
+        writeBehind.flush();
+
+        assertThat(disparoRepository.findByPartidaIdOrderByTimestampAsc(game.partidaId()))
+                .extracting(Disparo::getPosicion)
+                .containsExactly("A1", "J10");
+        assertThat(partidaRepository.findById(game.partidaId()).orElseThrow().getTurnoActualJugadorId())
+                .isEqualTo(turn.opponentJugadorId());
+        assertThat(tableroRepository.findByJugadorIdAndPartidaId(turn.opponentJugadorId(), game.partidaId())
+                .orElseThrow().toBitBoard().shotCount()).isEqualTo(2);
+
+        matchStates.evict(game.mesaId());
+        TableSnapshot reloaded = service.table(game.mesaId(), turn.token());
+        assertThat(reloaded.turnoActualJugadorId()).isEqualTo(turn.opponentJugadorId());
+        assertThat(reloaded.privateView().history()).hasSize(2);
+        assertThat(reloaded.privateView().targetShots()).containsEntry("A1", "HIT").containsEntry("J10", "MISS");
+    }
+
+    @Test
+    void shotsStayQueuedUntilTheirBatchCommitsAndRejectedRowsAreDropped() {
+        GameFixture game = startedGame();
+        TableSnapshot table = service.table(game.mesaId(), game.alpha().token());
+        PlayerTurn turn = currentTurn(game, table.turnoActualJugadorId());
+        service.shoot(game.mesaId(), turn.token(), new ShotRequest("A1"));
+        service.shoot(game.mesaId(), turn.token(), new ShotRequest("J10"));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            writeBehind.flush(game.mesaId());
+            status.setRollbackOnly();
+        });
+        assertThat(writeBehind.pendingCount()).isEqualTo(2);
+        assertThat(disparoRepository.findByPartidaIdOrderByTimestampAsc(game.partidaId())).isEmpty();
+
+        Instant now = Instant.now();
+        writeBehind.enqueue(new MatchWriteBehind.ShotWrite(game.mesaId(), game.partidaId(), null, Long.MAX_VALUE,
+                turn.opponentJugadorId(), "B2", false, "MISS", null, false, "MANUAL", now, 0, 0, null, null, null));
+        writeBehind.flush(game.mesaId());
+        assertThat(writeBehind.pendingCount()).isZero();
+        assertThat(disparoRepository.findByPartidaIdOrderByTimestampAsc(game.partidaId()))
+                .extracting(Disparo::getPosicion)
+                .containsExactly("A1", "J10");
+        assertThat(service.table(game.mesaId(), null).spectatorView().shotSeq()).isEqualTo(2);
+    }
+
+    @Test
+    void snapshotsCarryTheLatestShotsAndTheHistoryIsPagedByCursor() {
+        GameFixture game = startedGame();
+        TableSnapshot table = service.table(game.mesaId(), null);
+        PlayerTurn turn = currentTurn(game, table.turnoActualJugadorId());
+        List<String> fired = CLASSIC_CELLS.subList(0, 12);
+        for (String cell : fired) {
+            service.shoot(game.mesaId(), turn.token(), new ShotRequest(cell));
+        }
+
+        SpectatorMatchView view = service.table(game.mesaId(), null).spectatorView();
+        assertThat(view.shotSeq()).isEqualTo(12);
+        assertThat(view.history()).extracting(ShotSnapshot::posicion).containsExactlyElementsOf(fired.subList(2, 12));
+
+        ShotPage first = service.history(game.mesaId(), 0, 5);
+        assertThat(first.partidaId()).isEqualTo(game.partidaId());
+        assertThat(first.shotSeq()).isEqualTo(12);
+        assertThat(first.shots()).extracting(ShotSnapshot::posicion).containsExactlyElementsOf(fired.subList(0, 5));
+        assertThat(service.history(game.mesaId(), 10, 5).shots())
+                .extracting(ShotSnapshot::posicion).containsExactly(fired.get(10), fired.get(11));
+        assertThat(service.history(game.mesaId(), 40, 5).shots()).isEmpty();
+
+        writeBehind.flush();
+        matchStates.evict(game.mesaId());
+        ShotPage reloaded = service.history(game.mesaId(), 3, 100);
+        assertThat(reloaded.afterShotSeq()).isEqualTo(3);
+        assertThat(reloaded.shots()).extracting(ShotSnapshot::posicion)
+                .containsExactlyElementsOf(fired.subList(3, 12));
+    }
+
+    @Test
+    void tableReadsAreServedFromTheSnapshotUntilTheTableChanges() {
+        GameFixture game = startedGame();
+        TableSnapshot first = service.table(game.mesaId(), null);
+        long version = tableSnapshots.version(game.mesaId());
+        TableSnapshot second = service.table(game.mesaId(), null);
+
+        assertThat(tableSnapshots.version(game.mesaId())).isEqualTo(version);
+        assertThat(second.spectatorView()).isSameAs(first.spectatorView());
+        assertThat(second.serverNow()).isAfterOrEqualTo(first.serverNow());
+        assertThat(service.table(game.mesaId(), game.alpha().token()).privateView()).isNotNull();
+
+        PlayerTurn turn = currentTurn(game, first.turnoActualJugadorId());
+        service.shoot(game.mesaId(), turn.token(), new ShotRequest("A1"));
+
+        assertThat(tableSnapshots.version(game.mesaId())).isGreaterThan(version);
+        assertThat(service.table(game.mesaId(), null).spectatorView().history()).hasSize(1);
+        assertThatThrownBy(() -> service.table(game.mesaId(), "not-a-session"))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Sesion invalida");
+    }
+
+    @Test
+    void signedSessionsSkipTheDatabaseAndLegacyTokensStillWork() {
+        SeatedFixture table = newSeatedTable();
+        assertThat(table.alpha().token()).startsWith("v1.");
+        Instant before = Instant.parse("2025-01-01T00:00:00Z");
+        SesionJugador alphaRow = sesionRepository.findById(table.alpha().id()).orElseThrow();
+        alphaRow.setLastSeenAt(before);
+        sesionRepository.save(alphaRow);
+        SesionJugador legacy = new SesionJugador();
+        legacy.setToken("0f1e2d3c4b5a69788796a5b4c3d2e1f0abcdef12");
+        legacy.setDisplayName("Legacy");
+        legacy.setLastSeenAt(before);
+        legacy = sesionRepository.save(legacy);
+
+        service.ready(table.mesaId(), table.alpha().token());
+        service.stand(table.mesaId(), table.bravo().token());
+        service.sit(table.mesaId(), "B", legacy.getToken());
+
+        assertThat(service.table(table.mesaId(), legacy.getToken()).mySeat()).isEqualTo("B");
+        assertThat(sesionRepository.findById(alphaRow.getId()).orElseThrow().getLastSeenAt()).isEqualTo(before);
+        service.flushSessionActivity();
+        assertThat(sesionRepository.findById(alphaRow.getId()).orElseThrow().getLastSeenAt()).isAfter(before);
+        assertThat(sesionRepository.findById(legacy.getId()).orElseThrow().getLastSeenAt()).isAfter(before);
+        service.publishLobby();
+        assertThat(service.lobby(null).onlinePlayers()).extracting(SessionUser::id).contains(legacy.getId());
+        assertThatThrownBy(() -> service.ready(table.mesaId(), table.alpha().token() + "x"))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Sesion invalida");
+    }
+
+    @Test
+    void tableJsonIsWrittenFromTheCachedBytesWithTheCurrentClock() throws IOException {
+        GameFixture game = startedGame();
+        Instant start = Instant.now();
+
+        ObjectNode spectator = (ObjectNode) objectMapper.readTree(service.tableJson(game.mesaId(), null).json());
+        ObjectNode expected = (ObjectNode) objectMapper.readTree(
+                objectMapper.writeValueAsBytes(service.table(game.mesaId(), null)));
+        assertThat(Instant.parse(spectator.remove("serverNow").asText())).isAfterOrEqualTo(start);
+        expected.remove("serverNow");
+        assertThat(spectator).isEqualTo(expected);
+        assertThat(spectator.get("privateView").isNull()).isTrue();
+
+        ObjectNode player = (ObjectNode) objectMapper.readTree(service.tableJson(game.mesaId(), game.alpha().token()).json());
+        assertThat(player.at("/privateView/ownShips").size()).isEqualTo(20);
+    }
+
+    @Test
+    void pollingClientsGetNotModifiedAndLongPollsWakeOnChange() throws Exception {
+        SeatedFixture seated = newSeatedTable();
+        MockMvc mvc = MockMvcBuilders.webAppContextSetup(webContext).build();
+
+        MvcResult first = mvc.perform(get("/api/mesas/{id}", seated.mesaId()))
+                .andExpect(status().isOk())
+                .andReturn();
+        String etag = first.getResponse().getHeader("ETag");
+        assertThat(etag).isEqualTo("\"" + tableSnapshots.version(seated.mesaId()) + "\"");
+        mvc.perform(get("/api/mesas/{id}", seated.mesaId()).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        MvcResult parked = mvc.perform(get("/api/mesas/{id}", seated.mesaId())
+                        .param("sinceVersion", etag.replace("\"", "")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        service.ready(seated.mesaId(), seated.alpha().token());
+        MvcResult woken = mvc.perform(asyncDispatch(parked))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.seatA.ready").value(true))
+                .andReturn();
+        assertThat(woken.getResponse().getHeader("ETag")).isNotEqualTo(etag);
+
+        String lobbyEtag = mvc.perform(get("/api/lobby")).andReturn().getResponse().getHeader("ETag");
+        mvc.perform(get("/api/lobby").header("If-None-Match", lobbyEtag)).andExpect(status().isNotModified());
+    }
+
+    @Test
+    void engineStatsReportTheLastSweeps() throws Exception {
+        service.processDueAutoActions();
+        MockMvc mvc = MockMvcBuilders.webAppContextSetup(webContext).build();
+
+        mvc.perform(get("/api/engine/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.sweeps.last.matches.processed").isNumber())
+                .andExpect(jsonPath("$.sweeps.last.ready.failures").value(0))
+                .andExpect(jsonPath("$.sweeps.processedTotal").isNumber())
+                .andExpect(jsonPath("$.outboxes.dropped").isNumber())
+                .andExpect(jsonPath("$.broadcasts.sent").isNumber())
+                .andExpect(jsonPath("$.broadcasts.suppressed").isNumber())
+                .andExpect(jsonPath("$.events.backlog").isNumber());
+    }
+
+    @Test
+    void tableChangesArePublishedAsSequencedEvents() {
+        GameFixture game = startedGame();
+        mesaExecutor.call(game.mesaId(), () -> null);
+        TableSnapshot before = service.table(game.mesaId(), null);
+        PlayerTurn turn = currentTurn(game, before.turnoActualJugadorId());
+
+        List<JsonNode> events = new CopyOnWriteArrayList<>();
+        String topic = "/topic/mesas/" + game.mesaId();
+        MessageHandler capture = message -> {
+            if (topic.equals(SimpMessageHeaderAccessor.getDestination(message.getHeaders()))) {
+                try {
+                    events.add(objectMapper.readTree((byte[]) message.getPayload()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        brokerChannel.subscribe(capture);
+        try {
+            service.shoot(game.mesaId(), turn.token(), new ShotRequest("A1"));
+            service.shoot(game.mesaId(), turn.token(), new ShotRequest("J10"));
+            settle(game.mesaId());
+        } finally {
+            brokerChannel.unsubscribe(capture);
+        }
+
+        assertThat(events).extracting(event -> event.get("type").asText())
+                .containsExactly("SHOT_APPLIED", "SHOT_APPLIED");
+        assertThat(events).extracting(event -> event.get("seq").asLong())
+                .containsExactly(before.eventSeq() + 1, before.eventSeq() + 2);
+        assertThat(events.get(0).at("/data/shot/posicion").asText()).isEqualTo("A1");
+        assertThat(events.get(1).at("/data/index").asInt()).isEqualTo(1);
+        assertThat(events.get(1).at("/data/turnoActualJugadorId").asLong()).isEqualTo(turn.opponentJugadorId());
+        assertThat(service.table(game.mesaId(), null).eventSeq()).isEqualTo(before.eventSeq() + 2);
+    }
+
+    @Test
+    void reconnectingClientsResumeFromTheirLastEvent() {
+        GameFixture game = startedGame();
+        mesaExecutor.call(game.mesaId(), () -> null);
+        TableSnapshot before = service.table(game.mesaId(), game.alpha().token());
+        PlayerTurn turn = currentTurn(game, before.turnoActualJugadorId());
+
+        service.shoot(game.mesaId(), turn.token(), new ShotRequest("A1"));
+        service.shoot(game.mesaId(), turn.token(), new ShotRequest("J10"));
+        settle(game.mesaId());
+
+        TableResume resumed = service.resume(game.mesaId(), game.alpha().token(), before.eventSeq());
+        assertThat(resumed.snapshot()).isNull();
+        assertThat(resumed.events()).extracting(event -> event.type()).containsExactly("SHOT_APPLIED", "SHOT_APPLIED");
+        assertThat(resumed.seq()).isEqualTo(before.eventSeq() + 2);
+        assertThat(service.resume(game.mesaId(), null, resumed.seq()).events()).isEmpty();
+
+        TableResume stale = service.resume(game.mesaId(), game.alpha().token(), 0);
+        assertThat(stale.events()).isEmpty();
+        assertThat(stale.snapshot().privateView().history()).hasSize(2);
+        assertThat(stale.seq()).isEqualTo(resumed.seq());
+    }
+
     @Test
     void sinkingAllShipsWinsAndLocksOutFurtherShots() {
         GameFixture game = startedGame();
@@ -165,6 +483,7 @@ class MultiplayerServiceClassicRulesTests {
         Partida partida = partidaRepository.findById(game.partidaId()).orElseThrow();
         partida.setPlacementDeadlineAt(Instant.now().minusSeconds(1));
         partidaRepository.save(partida);
+        matchStates.evict(game.mesaId());
 
         service.processDueAutoActions();
 
@@ -184,6 +503,7 @@ class MultiplayerServiceClassicRulesTests {
         Partida partida = partidaRepository.findById(game.partidaId()).orElseThrow();
         partida.setTurnDeadlineAt(Instant.now().minusSeconds(1));
         partidaRepository.save(partida);
+        matchStates.evict(game.mesaId());
 
         service.processDueAutoActions();
 
@@ -205,6 +525,9 @@ class MultiplayerServiceClassicRulesTests {
         for (String cell : CLASSIC_CELLS) {
             service.shoot(game.mesaId(), turn.token(), new ShotRequest(cell));
         }
+        assertThat(service.table(game.mesaId(), turn.token()).estado()).isEqualTo("FINISHED");
+        assertThat(usuarioRepository.findById(winnerUsuarioId).orElseThrow().getRating()).isEqualTo(1200);
+        settle(game.mesaId());
 
         Usuario winner = usuarioRepository.findById(winnerUsuarioId).orElseThrow();
         Usuario loser = usuarioRepository.findById(loserUsuarioId).orElseThrow();
@@ -215,22 +538,55 @@ class MultiplayerServiceClassicRulesTests {
         assertThat(winner.getWins()).isEqualTo(11);
         assertThat(loser.getLosses()).isEqualTo(11);
         assertThat(puntuacionRepository.findAll()).hasSize(2);
+        assertThat(leaderboard.standing(winnerUsuarioId).player().rating()).isEqualTo(1212);
+        assertThat(leaderboard.standing(winnerUsuarioId).rank())
+                .isLessThan(leaderboard.standing(loserUsuarioId).rank());
 
         service.table(game.mesaId(), turn.token());
+        service.processDueAutoActions();
+        settle(game.mesaId());
         assertThat(puntuacionRepository.findAll()).hasSize(2);
         assertThat(partidaRepository.findById(game.partidaId()).orElseThrow().isRatingProcessed()).isTrue();
     }
 
+    @Test
+    void ratedMatchReachesThePeriodRankingsAndSurvivesARestart() {
+        GameFixture game = startedRegisteredGame(1200, 1200, 20, 20);
+        TableSnapshot table = service.table(game.mesaId(), game.alpha().token());
+        PlayerTurn turn = currentTurn(game, table.turnoActualJugadorId());
+        Long winnerUsuarioId = usuarioIdForTurn(game, turn);
+        Long loserUsuarioId = opponentUsuarioIdForTurn(game, turn);
+        for (String cell : CLASSIC_CELLS) {
+            service.shoot(game.mesaId(), turn.token(), new ShotRequest(cell));
+        }
+        settle(game.mesaId());
+
+        assertThat(windowPoints(RankingWindows.Window.DIA, winnerUsuarioId)).isEqualTo(12);
+        assertThat(windowPoints(RankingWindows.Window.MES, loserUsuarioId)).isEqualTo(-12);
+
+        rankingWindows.flush();
+        rankingWindows.load();
+        assertThat(windowPoints(RankingWindows.Window.SEMANA, winnerUsuarioId)).isEqualTo(12);
+
+        jdbcTemplate.update("delete from ranking_bucket");
+        schemaMaintenanceService.backfillRankingBuckets();
+        rankingWindows.load();
+        assertThat(windowPoints(RankingWindows.Window.DIA, winnerUsuarioId)).isEqualTo(12);
+        assertThat(windowPoints(RankingWindows.Window.MES, loserUsuarioId)).isEqualTo(-12);
+    }
+
     @Test
     void provisionalUpsetGetsMeaningfulButCappedRatingMove() {
         GameFixture game = startedRegisteredGame(1000, 1400, 0, 30);
         Partida partida = partidaRepository.findById(game.partidaId()).orElseThrow();
         partida.setTurnoActualJugadorId(game.alphaJugadorId());
         partidaRepository.save(partida);
+        matchStates.evict(game.mesaId());
 
         for (String cell : CLASSIC_CELLS) {
             service.shoot(game.mesaId(), game.alpha().token(), new ShotRequest(cell));
         }
+        settle(game.mesaId());
 
         Usuario alpha = usuarioRepository.findById(game.alpha().usuarioId()).orElseThrow();
         Usuario bravo = usuarioRepository.findById(game.bravo().usuarioId()).orElseThrow();
@@ -243,6 +599,7 @@ class MultiplayerServiceClassicRulesTests {
         GameFixture game = startedRegisteredGame(1200, 1200, 20, 20);
 
         service.resign(game.mesaId(), game.alpha().token());
+        settle(game.mesaId());
 
         Usuario alpha = usuarioRepository.findById(game.alpha().usuarioId()).orElseThrow();
         Usuario bravo = usuarioRepository.findById(game.bravo().usuarioId()).orElseThrow();
@@ -262,6 +619,7 @@ class MultiplayerServiceClassicRulesTests {
         for (String cell : CLASSIC_CELLS) {
             service.shoot(game.mesaId(), turn.token(), new ShotRequest(cell));
         }
+        settle(game.mesaId());
 
         assertThat(puntuacionRepository.findAll()).isEmpty();
         assertThat(partidaRepository.findById(game.partidaId()).orElseThrow().isRatingProcessed()).isFalse();
@@ -276,6 +634,7 @@ class MultiplayerServiceClassicRulesTests {
         Mesa mesa = mesaRepository.findById(table.mesaId()).orElseThrow();
         mesa.setReadyDeadlineAt(Instant.now().minusSeconds(1));
         mesaRepository.save(mesa);
+        matchStates.evict(table.mesaId());
 
         service.processDueAutoActions();
 
@@ -300,6 +659,17 @@ class MultiplayerServiceClassicRulesTests {
         assertThat(started.partidaId()).isNotNull();
     }
 
+    @Test
+    void signedTokensOfDeletedSessionsAreRejected() {
+        Sala sala = salaRepository.save(new Sala("Sala Revocada", true));
+        SessionUser ghost = service.createGuest("Fantasma");
+        sesionRepository.deleteById(ghost.id());
+
+        assertThatThrownBy(() -> service.createTable(sala.getId(), ghost.token(), "Mesa Revocada"))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Sesion invalida");
+    }
+
     @Test
     void lobbyToleratesPartialActiveTablesFromOlderData() {
         Sala sala = salaRepository.save(new Sala("Sala Legacy", true));
@@ -313,11 +683,99 @@ class MultiplayerServiceClassicRulesTests {
         partida.setMesa(mesa);
         partida.setEstado(EstadoPartida.PLACING_SHIPS);
         partida.setRuleset("SEA_BATTLE_2_CLASSIC");
-        partidaRepository.save(partida);
+        partida = partidaRepository.save(partida);
+        schemaMaintenanceService.backfillCurrentPartidas();
 
+        assertThat(mesaRepository.findById(mesa.getId()).orElseThrow().getCurrentPartidaId())
+                .isEqualTo(partida.getId());
         assertThatCode(() -> service.lobby(null)).doesNotThrowAnyException();
     }
 
+    @Test
+    void lobbyIsServedFromThePublishedViewAndFollowsTableChanges() {
+        SeatedFixture table = newSeatedTable();
+        service.publishLobby();
+
+        LobbySnapshot lobby = service.lobby(null);
+        assertThat(service.lobby(null)).isSameAs(lobby);
+        assertThat(lobby.onlinePlayers()).extracting(SessionUser::id)
+                .contains(table.alpha().id(), table.bravo().id());
+        TableSnapshot listed = lobby.salas().stream()
+                .flatMap(room -> room.mesas().stream())
+                .filter(mesa -> mesa.id().equals(table.mesaId()))
+                .findFirst()
+                .orElseThrow();
+        assertThat(listed.seatB().occupied()).isTrue();
+
+        service.stand(table.mesaId(), table.bravo().token());
+        assertThat(service.lobby(null)).isSameAs(lobby);
+        service.publishLobby();
+
+        TableSnapshot updated = service.lobby(null).salas().stream()
+                .flatMap(room -> room.mesas().stream())
+                .filter(mesa -> mesa.id().equals(table.mesaId()))
+                .findFirst()
+                .orElseThrow();
+        assertThat(updated.seatB().occupied()).isFalse();
+    }
+
+    @Test
+    void migrationsRunOnceAndRefuseAnEditedStep() {
+        schemaMaintenanceService.migrate();
+        assertThat(jdbcTemplate.queryForObject("select max(version) from schema_migration", Integer.class))
+                .isEqualTo(schemaMaintenanceService.latestVersion());
+        assertThat(jdbcTemplate.queryForObject("select count(*) from schema_migration", Integer.class))
+                .isEqualTo(schemaMaintenanceService.latestVersion());
+
+        String checksum = jdbcTemplate.queryForObject("select checksum from schema_migration where version = 1",
+                String.class);
+        jdbcTemplate.update("update schema_migration set checksum = 'edited' where version = 1");
+        try {
+            assertThatThrownBy(() -> schemaMaintenanceService.migrate())
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("cambio despues de aplicarse");
+        } finally {
+            jdbcTemplate.update("update schema_migration set checksum = ? where version = 1", checksum);
+        }
+    }
+
+    @Test
+    void legacyCollectionBoardsAreCompactedIntoTheTableroRow() {
+        GameFixture game = newGame();
+        Tablero tablero = tableroRepository.findByJugadorIdAndPartidaId(game.alphaJugadorId(), game.partidaId())
+                .orElseThrow();
+        Map<String, String> shipsByCell = new HashMap<>();
+        Map<String, Boolean> positions = new HashMap<>();
+        for (ShipPlacement ship : classicFleet().ships()) {
+            for (String cell : ship.cells()) {
+                shipsByCell.put(cell, ship.key());
+                positions.put(cell, true);
+            }
+        }
+        tablero.setShipLayout(null);
+        tablero.setBarcosPorCelda(shipsByCell);
+        tablero.setPosicionesBarcos(positions);
+        tablero.setPosicionesAtacadas(new HashMap<>(Map.of("A1", true, "J10", false)));
+        tableroRepository.save(tablero);
+
+        schemaMaintenanceService.compactClassicBoards();
+        // The rows were rewritten behind the service; drop any state loaded before.
+        matchStates.evict(game.mesaId());
+
+        BitBoard board = tableroRepository.findById(tablero.getId()).orElseThrow().toBitBoard();
+        assertThat(board.shipCells()).isEqualTo(20);
+        assertThat(board.shotCount()).isEqualTo(2);
+        assertThat(board.isShot(BitBoard.parse("A1"))).isTrue();
+        assertThat(board.shipsByCell()).isEqualTo(shipsByCell);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM tablero_barcos_por_celda WHERE tablero_id = ?", Long.class, tablero.getId()))
+                .isZero();
+
+        TableSnapshot table = service.table(game.mesaId(), game.alpha().token());
+        assertThat(table.privateView().ownShipsPlaced()).isTrue();
+        assertThat(table.privateView().ownReceivedShots()).containsEntry("A1", "HIT").containsEntry("J10", "MISS");
+    }
+
     private GameFixture startedGame() {
         GameFixture game = newGame();
         service.placeShips(game.mesaId(), game.alpha().token(), classicFleet());
@@ -325,6 +783,25 @@ class MultiplayerServiceClassicRulesTests {
         return game;
     }
 
+    /**
+     * Runs what a committed command set off: the event consumers, then the
+     * rating they queued on the mesa lane, then the consumers of its result.
+     */
+    private void settle(Long mesaId) {
+        for (int round = 0; round < 2; round++) {
+            events.drain();
+            mesaExecutor.call(mesaId, () -> null);
+        }
+    }
+
+    private Object windowPoints(RankingWindows.Window window, Long usuarioId) {
+        return rankingWindows.top(window, 1_000, Instant.now()).stream()
+                .filter(row -> usuarioId.equals(row.get("jugadorId")))
+                .map(row -> row.get("puntos"))
+                .findFirst()
+                .orElse(null);
+    }
+
     private GameFixture startedRegisteredGame(int alphaRating, int bravoRating, int alphaGames, int bravoGames) {
         GameFixture game = newRegisteredGame(alphaRating, bravoRating, alphaGames, bravoGames);
         service.placeShips(game.mesaId(), game.alpha().token(), classicFleet());
@@ -0,0 +1,54 @@
+package com.jair.battleship.battleshipbackend;
+
+import com.jair.battleship.battleshipbackend.services.engine.PresenceRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PresenceRegistryTests {
+
+    @Test
+    void aSessionCountsOncePerMesaHoweverItWatches() {
+        PresenceRegistry presence = new PresenceRegistry(null);
+        presence.connected("ws-1", 7L);
+        presence.connected("ws-2", 7L);
+        presence.connected("ws-3", null);
+
+        presence.joined(10L, 7L);
+        presence.subscribed("ws-1", "sub-0", "/topic/mesas/10");
+        presence.subscribed("ws-2", "sub-0", "/topic/bin/mesas/10");
+        presence.subscribed("ws-3", "sub-0", "/topic/mesas/10");
+        presence.subscribed("ws-3", "sub-1", "/topic/mesas/10/chat");
+
+        assertThat(presence.spectators(10L)).isEqualTo(2);
+        assertThat(presence.connectedSessionIds()).containsExactly(7L);
+        assertThat(presence.drainChanged()).containsExactly(10L);
+
+        presence.left(10L, 7L);
+        presence.disconnected("ws-1");
+        assertThat(presence.spectators(10L)).isEqualTo(2);
+        assertThat(presence.drainChanged()).isEmpty();
+
+        presence.unsubscribed("ws-2", "sub-0");
+        presence.disconnected("ws-3");
+        presence.disconnected("ws-3");
+        assertThat(presence.spectators(10L)).isZero();
+        assertThat(presence.drainChanged()).containsExactly(10L);
+        assertThat(presence.connectedSessionIds()).containsExactly(7L);
+    }
+
+    @Test
+    void closingAConnectionDropsItsSubscriptionsButNotRestJoins() {
+        PresenceRegistry presence = new PresenceRegistry(null);
+        presence.connected("ws-1", 7L);
+        presence.subscribed("ws-1", "sub-0", "/topic/mesas/10");
+        presence.subscribed("ws-1", "sub-1", "/topic/mesas/11");
+        presence.joined(11L, 7L);
+
+        presence.disconnected("ws-1");
+
+        assertThat(presence.spectators(10L)).isZero();
+        assertThat(presence.spectators(11L)).isEqualTo(1);
+        assertThat(presence.connectedSessionIds()).isEmpty();
+    }
+}
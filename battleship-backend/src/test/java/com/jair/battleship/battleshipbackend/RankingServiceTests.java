@@ -0,0 +1,96 @@
+package com.jair.battleship.battleshipbackend;
+
+import com.jair.battleship.battleshipbackend.models.entities.Jugador;
+import com.jair.battleship.battleshipbackend.models.entities.Participacion;
+import com.jair.battleship.battleshipbackend.models.entities.Partida;
+import com.jair.battleship.battleshipbackend.models.entities.PuntajeJugador;
+import com.jair.battleship.battleshipbackend.models.entities.Usuario;
+import com.jair.battleship.battleshipbackend.models.enums.ResultadoParticipacion;
+import com.jair.battleship.battleshipbackend.repositories.EstadisticaJugadorRepository;
+import com.jair.battleship.battleshipbackend.repositories.JugadorRepository;
+import com.jair.battleship.battleshipbackend.repositories.ParticipacionRepository;
+import com.jair.battleship.battleshipbackend.repositories.PartidaRepository;
+import com.jair.battleship.battleshipbackend.repositories.PuntajeJugadorRepository;
+import com.jair.battleship.battleshipbackend.repositories.PuntuacionRepository;
+import com.jair.battleship.battleshipbackend.repositories.UsuarioRepository;
+import com.jair.battleship.battleshipbackend.services.RankingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class RankingServiceTests {
+
+    @Autowired
+    private RankingService rankingService;
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+    @Autowired
+    private JugadorRepository jugadorRepository;
+    @Autowired
+    private PartidaRepository partidaRepository;
+    @Autowired
+    private ParticipacionRepository participacionRepository;
+    @Autowired
+    private PuntuacionRepository puntuacionRepository;
+    @Autowired
+    private PuntajeJugadorRepository puntajeJugadorRepository;
+    @Autowired
+    private EstadisticaJugadorRepository estadisticaJugadorRepository;
+
+    @AfterEach
+    void cleanDatabase() {
+        puntajeJugadorRepository.deleteAll();
+        estadisticaJugadorRepository.deleteAll();
+        puntuacionRepository.deleteAll();
+        participacionRepository.deleteAll();
+        partidaRepository.deleteAll();
+        jugadorRepository.deleteAll();
+        usuarioRepository.deleteAll();
+    }
+
+    @Test
+    void lossesClampAtZeroAgainstThePlayersOwnRunningTotal() {
+        Usuario usuario = new Usuario();
+        usuario.setUsername("puntaje_ganador");
+        usuario.setPasswordHash("x");
+        usuario = usuarioRepository.save(usuario);
+        Jugador ganador = jugador("Ganador", usuario);
+        Jugador perdedor = jugador("Perdedor", null);
+        Jugador homonimo = jugador("Perdedor", null);
+        Partida partida = new Partida();
+        partida = partidaRepository.save(partida);
+        participacion(partida, ganador, ResultadoParticipacion.GANO);
+        participacion(partida, perdedor, ResultadoParticipacion.PERDIO);
+        puntajeJugadorRepository.save(new PuntajeJugador("j" + perdedor.getId(), 10, null));
+        puntajeJugadorRepository.save(new PuntajeJugador("j" + homonimo.getId(), 500, null));
+
+        rankingService.procesarPartida(partida);
+
+        assertThat(puntajeJugadorRepository.findById("u" + usuario.getId()).orElseThrow().getTotal()).isEqualTo(100);
+        assertThat(puntajeJugadorRepository.findById("j" + perdedor.getId()).orElseThrow().getTotal()).isZero();
+        assertThat(puntajeJugadorRepository.findById("j" + homonimo.getId()).orElseThrow().getTotal()).isEqualTo(500);
+        assertThat(puntuacionRepository.findByPartidaIdAndJugadorId(partida.getId(), perdedor.getId())
+                .orElseThrow().getTotal()).isEqualTo(-10);
+    }
+
+    private Jugador jugador(String nombre, Usuario usuario) {
+        Jugador jugador = new Jugador();
+        jugador.setNombre(nombre);
+        jugador.setUsuario(usuario);
+        return jugadorRepository.save(jugador);
+    }
+
+    private void participacion(Partida partida, Jugador jugador, ResultadoParticipacion resultado) {
+        Participacion participacion = new Participacion();
+        participacion.setPartida(partida);
+        participacion.setJugador(jugador);
+        participacion.setResultado(resultado);
+        participacionRepository.save(participacion);
+    }
+}
@@ -0,0 +1,59 @@
+package com.jair.battleship.battleshipbackend;
+
+import com.jair.battleship.battleshipbackend.services.engine.RankingWindows;
+import com.jair.battleship.battleshipbackend.services.engine.RankingWindows.Window;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RankingWindowsTests {
+
+    private static final Instant NOW = Instant.parse("2026-03-31T12:30:00Z");
+
+    @Test
+    void eachPeriodSumsOnlyTheMatchesItCovers() {
+        RankingWindows windows = new RankingWindows(null, null);
+        windows.record(1L, "ana", 20, true, NOW.minus(Duration.ofDays(20)));
+        windows.record(2L, "bruno", 15, true, NOW.minus(Duration.ofDays(3)));
+        windows.record(2L, "bruno", -5, false, NOW.minus(Duration.ofHours(2)));
+        windows.record(3L, "carla", 8, true, NOW.minus(Duration.ofMinutes(10)));
+        windows.record(1L, "ana", -12, false, NOW.minus(Duration.ofDays(40)));
+
+        assertThat(names(windows.top(Window.DIA, 10, NOW))).containsExactly("carla", "bruno");
+        assertThat(windows.top(Window.DIA, 10, NOW).get(1))
+                .containsEntry("puntos", -5).containsEntry("gamesPlayed", 1).containsEntry("losses", 1);
+        assertThat(names(windows.top(Window.SEMANA, 10, NOW))).containsExactly("bruno", "carla");
+        assertThat(windows.top(Window.SEMANA, 10, NOW).get(0)).containsEntry("puntos", 10);
+        assertThat(names(windows.top(Window.MES, 10, NOW))).containsExactly("ana", "bruno", "carla");
+        assertThat(windows.top(Window.MES, 10, NOW).get(0)).containsEntry("puntos", 20).containsEntry("rank", 1);
+    }
+
+    @Test
+    void oldBucketsSlideOutAsTimePasses() {
+        RankingWindows windows = new RankingWindows(null, null);
+        windows.record(1L, "ana", 30, true, NOW);
+        windows.record(2L, "bruno", 10, true, NOW.plus(Duration.ofHours(5)));
+        assertThat(windows.slide(NOW)).isEmpty();
+
+        Instant later = NOW.plus(Duration.ofHours(24));
+        assertThat(windows.slide(later)).containsExactly(Window.DIA);
+        assertThat(names(windows.top(Window.DIA, 10, later))).containsExactly("bruno");
+        assertThat(names(windows.top(Window.SEMANA, 10, later))).containsExactly("ana", "bruno");
+
+        Instant nextWeek = NOW.plus(Duration.ofDays(7));
+        assertThat(windows.slide(nextWeek)).containsExactly(Window.DIA, Window.SEMANA);
+        assertThat(windows.top(Window.SEMANA, 10, nextWeek)).isEmpty();
+        assertThat(names(windows.top(Window.MES, 10, nextWeek))).containsExactly("ana", "bruno");
+        assertThat(Window.fromPeriodo("semana")).isEqualTo(Window.SEMANA);
+        assertThat(Window.fromPeriodo("historico")).isNull();
+    }
+
+    private static List<Object> names(List<Map<String, Object>> rows) {
+        return rows.stream().map(row -> row.get("nombre")).toList();
+    }
+}
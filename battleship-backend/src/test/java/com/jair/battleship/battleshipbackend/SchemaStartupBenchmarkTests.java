@@ -0,0 +1,108 @@
+package com.jair.battleship.battleshipbackend;
+
+import com.jair.battleship.battleshipbackend.models.entities.Jugador;
+import com.jair.battleship.battleshipbackend.models.entities.Partida;
+import com.jair.battleship.battleshipbackend.models.entities.Sala;
+import com.jair.battleship.battleshipbackend.repositories.JugadorRepository;
+import com.jair.battleship.battleshipbackend.repositories.PartidaRepository;
+import com.jair.battleship.battleshipbackend.repositories.SalaRepository;
+import com.jair.battleship.battleshipbackend.services.SchemaMaintenanceService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Schema work done at boot while disparo grows from 1,000 to 200,000 rows:
+ * the migration ledger check against the disparo scans every boot ran before
+ * it. Run with {@code mvn test -Pbenchmark}; excluded from the default build.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+class SchemaStartupBenchmarkTests {
+
+    private static final int[] DISPAROS = {1_000, 10_000, 100_000, 200_000};
+    private static final int BATCH = 5_000;
+    private static final int SAMPLES = 15;
+    private static final List<String> PREVIOUS_BOOT = List.of(
+            "UPDATE disparo SET automatic = false WHERE automatic IS NULL",
+            "ALTER TABLE disparo ALTER COLUMN automatic SET NOT NULL",
+            "UPDATE disparo SET reason = 'MANUAL' WHERE reason IS NULL");
+
+    @Autowired
+    private SchemaMaintenanceService schemaMaintenanceService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private SalaRepository salaRepository;
+    @Autowired
+    private JugadorRepository jugadorRepository;
+    @Autowired
+    private PartidaRepository partidaRepository;
+
+    @Test
+    void bootSchemaWorkStaysFlatAsDisparoGrows() {
+        Sala sala = salaRepository.save(new Sala("Sala Arranque", true));
+        Jugador a = jugador(sala, "Arranque A");
+        Jugador b = jugador(sala, "Arranque B");
+        Partida partida = new Partida();
+        partida.setSala(sala);
+        partida = partidaRepository.save(partida);
+
+        int rows = 0;
+        long baseline = 0;
+        for (int target : DISPAROS) {
+            rows = insertDisparos(partida.getId(), a.getId(), b.getId(), rows, target);
+            long migrateNanos = median(schemaMaintenanceService::migrate);
+            long previousNanos = median(() -> PREVIOUS_BOOT.forEach(jdbcTemplate::execute));
+            System.out.printf("disparos=%7d migrate p50=%8.3f ms previous boot p50=%8.3f ms%n",
+                    rows, migrateNanos / 1e6, previousNanos / 1e6);
+            if (baseline == 0) {
+                baseline = migrateNanos;
+            }
+            assertThat(migrateNanos).isLessThan(Math.max(baseline * 3, baseline + 5_000_000));
+        }
+    }
+
+    private int insertDisparos(Long partidaId, Long atacanteId, Long defensorId, int from, int to) {
+        Timestamp now = Timestamp.from(Instant.now());
+        for (int start = from; start < to; start += BATCH) {
+            List<Object[]> batch = new ArrayList<>(BATCH);
+            for (int i = start; i < Math.min(to, start + BATCH); i++) {
+                batch.add(new Object[]{partidaId, atacanteId, defensorId, "A" + (i % 10 + 1), i % 3 == 0, now});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO disparo (partida_id, atacante_id, defensor_id, posicion, acierto, "
+                    + "automatic, reason, timestamp) VALUES (?, ?, ?, ?, ?, false, 'MANUAL', ?)", batch);
+        }
+        return to;
+    }
+
+    private Jugador jugador(Sala sala, String nombre) {
+        Jugador jugador = new Jugador();
+        jugador.setNombre(nombre);
+        jugador.setSala(sala);
+        return jugadorRepository.save(jugador);
+    }
+
+    private long median(Runnable call) {
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            call.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2];
+    }
+}
@@ -0,0 +1,74 @@
+package com.jair.battleship.battleshipbackend;
+
+import com.jair.battleship.battleshipbackend.services.engine.SessionTokens;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SessionTokensTests {
+
+    private static final MockEnvironment ENV = new MockEnvironment();
+
+    @Test
+    void signedTokensCarryTheirClaimsAndFitTheTokenColumn() {
+        SessionTokens tokens = new SessionTokens("secreto-de-prueba", 30, "", ENV);
+        String token = tokens.issue(Long.MAX_VALUE, Long.MAX_VALUE, false);
+
+        SessionTokens.Claims claims = tokens.verify(token, Instant.now());
+        assertThat(tokens.isSigned(token)).isTrue();
+        assertThat(token.length()).isLessThanOrEqualTo(96);
+        assertThat(claims.sessionId()).isEqualTo(Long.MAX_VALUE);
+        assertThat(claims.usuarioId()).isEqualTo(Long.MAX_VALUE);
+        assertThat(claims.guest()).isFalse();
+        assertThat(tokens.verify(tokens.issue(7L, null, true), Instant.now()).usuarioId()).isNull();
+    }
+
+    @Test
+    void tamperedForeignAndExpiredTokensAreRejected() {
+        SessionTokens tokens = new SessionTokens("secreto-de-prueba", 30, "", ENV);
+        String token = tokens.issue(41L, null, true);
+        String otherSession = token.replaceFirst("^v1\\.15\\.", "v1.16.");
+
+        assertThatThrownBy(() -> tokens.verify(otherSession, Instant.now()))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Sesion invalida");
+        assertThatThrownBy(() -> new SessionTokens("otro-secreto", 30, "", ENV).verify(token, Instant.now()))
+                .hasMessageContaining("Sesion invalida");
+        assertThatThrownBy(() -> tokens.verify("v1.garbage", Instant.now()))
+                .hasMessageContaining("Sesion invalida");
+        assertThatThrownBy(() -> tokens.verify(token, Instant.now().plus(Duration.ofDays(31))))
+                .hasMessageContaining("Sesion expirada");
+    }
+
+    @Test
+    void opaqueTokensAreOnlyAcceptedDuringTheLegacyWindow() {
+        Instant cutoff = Instant.parse("2026-01-01T00:00:00Z");
+        SessionTokens tokens = new SessionTokens("secreto-de-prueba", 30, cutoff.toString(), ENV);
+
+        assertThat(tokens.isSigned("0f1e2d3c4b5a69788796a5b4c3d2e1f0abcdef12")).isFalse();
+        assertThatCode(() -> tokens.requireLegacyAllowed(cutoff.minusSeconds(1))).doesNotThrowAnyException();
+        assertThatThrownBy(() -> tokens.requireLegacyAllowed(cutoff))
+                .hasMessageContaining("Sesion expirada");
+        assertThatCode(() -> new SessionTokens("secreto-de-prueba", 30, "", ENV).requireLegacyAllowed(Instant.MAX))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void aMissingSecretOnlyStartsInDevAndTest() {
+        assertThatThrownBy(() -> new SessionTokens("", 30, "", ENV))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("app.session.secret");
+
+        MockEnvironment dev = new MockEnvironment();
+        dev.setActiveProfiles("dev");
+        SessionTokens tokens = new SessionTokens("", 30, "", dev);
+        assertThat(tokens.verify(tokens.issue(3L, null, true), Instant.now()).sessionId()).isEqualTo(3L);
+    }
+}
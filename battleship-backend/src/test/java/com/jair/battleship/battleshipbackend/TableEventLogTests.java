@@ -0,0 +1,113 @@
+package com.jair.battleship.battleshipbackend;
+
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.SeatSnapshot;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.ShotSnapshot;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.SpectatorMatchView;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.TableEvent;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.TableSnapshot;
+import com.jair.battleship.battleshipbackend.services.engine.TableEventLog;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TableEventLogTests {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+
+    private final TableEventLog log = new TableEventLog(4);
+
+    @Test
+    void firstSnapshotAsksForResyncAndUnchangedTablesEmitNothing() {
+        TableSnapshot table = table("WAITING_FOR_PLAYERS", seat("A", null, false), seat("B", null, false), null, null);
+        long base = log.seq(1L);
+
+        assertThat(log.record(table)).extracting(TableEvent::type).containsExactly(TableEvent.RESYNC);
+        assertThat(log.record(table)).isEmpty();
+        assertThat(log.seq(1L)).isEqualTo(base + 1);
+    }
+
+    @Test
+    void seatsReadyPhaseAndShotsBecomeTypedEvents() {
+        log.record(table("WAITING_FOR_PLAYERS", seat("A", null, false), seat("B", null, false), null, null));
+
+        List<TableEvent> seated = log.record(
+                table("PLAYERS_SEATED", seat("A", 10L, false), seat("B", null, false), null, null));
+        assertThat(seated).extracting(TableEvent::type)
+                .containsExactly(TableEvent.SEAT_CHANGED, TableEvent.PHASE_CHANGED);
+
+        List<TableEvent> ready = log.record(
+                table("PLAYERS_SEATED", seat("A", 10L, true), seat("B", null, false), null, null));
+        assertThat(ready).extracting(TableEvent::type).containsExactly(TableEvent.READY_TOGGLED);
+        assertThat(ready.get(0).data()).isEqualTo(new TableEvent.ReadyToggled("A", true));
+
+        log.record(table("IN_PROGRESS", seat("A", 10L, true), seat("B", 20L, true), 10L, List.of()));
+        ShotSnapshot shot = new ShotSnapshot(10L, 20L, "A1", false, "MISS", null, false, "MANUAL", NOW);
+        List<TableEvent> shots = log.record(
+                table("IN_PROGRESS", seat("A", 10L, true), seat("B", 20L, true), 20L, List.of(shot)));
+
+        assertThat(shots).extracting(TableEvent::type).containsExactly(TableEvent.SHOT_APPLIED);
+        assertThat(shots.get(0).data())
+                .isEqualTo(new TableEvent.ShotApplied(5L, 0, shot, 20L, NOW.plusSeconds(20), null));
+        assertThat(shots.get(0).seq()).isEqualTo(log.seq(1L));
+    }
+
+    @Test
+    void shotsAreNumberedByTheirSeqAndAResyncIsAskedWhenTheTailFallsShort() {
+        ShotSnapshot a1 = new ShotSnapshot(10L, 20L, "A1", false, "MISS", null, false, "MANUAL", NOW);
+        ShotSnapshot b1 = new ShotSnapshot(20L, 10L, "B1", false, "MISS", null, false, "MANUAL", NOW);
+        ShotSnapshot c1 = new ShotSnapshot(10L, 20L, "C1", false, "MISS", null, false, "MANUAL", NOW);
+        log.record(table("IN_PROGRESS", seat("A", 10L, true), seat("B", 20L, true), 10L, List.of(), 40));
+
+        List<TableEvent> shots = log.record(
+                table("IN_PROGRESS", seat("A", 10L, true), seat("B", 20L, true), 20L, List.of(a1, b1), 42));
+        assertThat(shots).extracting(event -> ((TableEvent.ShotApplied) event.data()).index())
+                .containsExactly(40, 41);
+
+        assertThat(log.record(table("IN_PROGRESS", seat("A", 10L, true), seat("B", 20L, true), 20L,
+                List.of(c1), 44))).extracting(TableEvent::type).containsExactly(TableEvent.RESYNC);
+    }
+
+    @Test
+    void resumesFromTheBufferUntilItNoLongerReachesBack() {
+        long base = log.seq(1L);
+        assertThat(log.since(1L, base)).isNull();
+
+        log.record(table("WAITING_FOR_PLAYERS", seat("A", null, false), seat("B", null, false), null, null));
+        for (long jugador = 10; jugador < 15; jugador++) {
+            log.record(table("WAITING_FOR_PLAYERS", seat("A", jugador, false), seat("B", null, false), null, null));
+        }
+        long seq = log.seq(1L);
+
+        assertThat(seq).isEqualTo(base + 6);
+        assertThat(log.since(1L, seq)).isEmpty();
+        assertThat(log.since(1L, seq - 2)).extracting(TableEvent::seq).containsExactly(seq - 1, seq);
+        assertThat(log.since(1L, seq - 4)).hasSize(4);
+        assertThat(log.since(1L, seq - 5)).isNull();
+        assertThat(log.since(1L, seq + 1)).isNull();
+        assertThat(log.since(1L, 3)).isNull();
+    }
+
+    private TableSnapshot table(String estado, SeatSnapshot seatA, SeatSnapshot seatB, Long turno,
+            List<ShotSnapshot> history) {
+        return table(estado, seatA, seatB, turno, history, history == null ? 0 : history.size());
+    }
+
+    private TableSnapshot table(String estado, SeatSnapshot seatA, SeatSnapshot seatB, Long turno,
+            List<ShotSnapshot> history, int shotSeq) {
+        SpectatorMatchView spectatorView = history == null
+                ? null
+                : new SpectatorMatchView(Map.of(), Map.of(), Map.of(), history, shotSeq);
+        return new TableSnapshot(1L, 2L, "Sala", "Mesa", estado, NOW, null, null,
+                turno == null ? null : NOW.plusSeconds(20), "SEA_BATTLE_2_CLASSIC", List.of(), seatA, seatB, null, 0,
+                history == null ? null : 5L, turno, null, false, false, null, spectatorView, 0, 0);
+    }
+
+    private SeatSnapshot seat(String seat, Long jugadorId, boolean ready) {
+        return new SeatSnapshot(seat, jugadorId, jugadorId == null ? null : "J" + jugadorId, true, null, ready,
+                jugadorId != null, false);
+    }
+}
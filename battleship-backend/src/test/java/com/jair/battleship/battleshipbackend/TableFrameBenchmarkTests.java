@@ -0,0 +1,162 @@
+package com.jair.battleship.battleshipbackend;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jair.battleship.battleshipbackend.broker.TableFrameCodec;
+import com.jair.battleship.battleshipbackend.models.board.BitBoard;
+import com.jair.battleship.battleshipbackend.models.board.ClassicFleet;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.PrivateMatchView;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.SeatSnapshot;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.ShotSnapshot;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.TableEvent;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.TableResume;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.TableSnapshot;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.sockjs.frame.Jackson2SockJsMessageCodec;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Bytes on the wire and CPU per message for table frames as JSON over SockJS
+ * (/ws) and as {@link TableFrameCodec} binary over plain WebSocket
+ * (/ws-native). Counts the STOMP frame each subscriber gets and, for SockJS,
+ * the JSON-escaped array it is wrapped in. Run with {@code mvn test -Pbenchmark};
+ * excluded from the default build.
+ */
+@Tag("benchmark")
+class TableFrameBenchmarkTests {
+
+    private static final int ITERATIONS = 200_000;
+    private static final Instant NOW = Instant.parse("2026-01-01T00:00:00.123Z");
+    private static final long SEQ = 1_767_225_600_000_000L;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final StompEncoder stompEncoder = new StompEncoder();
+    private final Jackson2SockJsMessageCodec sockJsCodec = new Jackson2SockJsMessageCodec();
+
+    @Test
+    void binaryFramesOnTheNativeEndpointAreSmallerAndCheaperThanJsonOverSockJs() {
+        ShotSnapshot shot = new ShotSnapshot(10L, 20L, "F7", true, "HIT", null, false, "MANUAL", NOW);
+        Map<String, Object> cases = new LinkedHashMap<>();
+        cases.put("shot", event(TableEvent.SHOT_APPLIED,
+                new TableEvent.ShotApplied(5L, 41, shot, 20L, NOW.plusSeconds(20), null)));
+        cases.put("ready", event(TableEvent.READY_TOGGLED, new TableEvent.ReadyToggled("A", true)));
+        cases.put("deadline", event(TableEvent.DEADLINE_UPDATED,
+                new TableEvent.DeadlineUpdated(null, null, NOW.plusSeconds(20), 20L)));
+        cases.put("snapshot", new TableResume(1L, SEQ, List.of(), midGameSnapshot()));
+
+        System.out.printf("%-9s %10s %10s %7s %12s %12s %12s %12s%n", "message", "sockjs B", "native B",
+                "saved", "json ns", "binary ns", "sockjs ns", "native ns");
+        for (Map.Entry<String, Object> entry : cases.entrySet()) {
+            Object message = entry.getValue();
+            Supplier<byte[]> json = () -> {
+                try {
+                    return objectMapper.writeValueAsBytes(message);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            };
+            Supplier<byte[]> binary = () -> message instanceof TableEvent event
+                    ? TableFrameCodec.encode(event)
+                    : TableFrameCodec.encode((TableResume) message);
+            byte[] jsonPayload = json.get();
+            byte[] binaryPayload = binary.get();
+            Supplier<byte[]> sockJsFrame = () -> sockJs(stomp("/topic/mesas/1", MimeTypeUtils.APPLICATION_JSON,
+                    jsonPayload));
+            Supplier<byte[]> nativeFrame = () -> stomp("/topic/bin/mesas/1",
+                    MimeTypeUtils.APPLICATION_OCTET_STREAM, binaryPayload);
+
+            int sockJsBytes = sockJsFrame.get().length;
+            int nativeBytes = nativeFrame.get().length;
+            System.out.printf("%-9s %10d %10d %6.0f%% %12.0f %12.0f %12.0f %12.0f%n", entry.getKey(), sockJsBytes,
+                    nativeBytes, 100.0 * (sockJsBytes - nativeBytes) / sockJsBytes, nanosPerCall(json),
+                    nanosPerCall(binary), nanosPerCall(sockJsFrame), nanosPerCall(nativeFrame));
+            assertThat(nativeBytes).isLessThan(sockJsBytes);
+        }
+    }
+
+    /**
+     * Serialization cost is paid once per event; framing once per subscriber.
+     */
+    private double nanosPerCall(Supplier<byte[]> work) {
+        long sink = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += work.get().length;
+        }
+        long started = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += work.get().length;
+        }
+        long elapsed = System.nanoTime() - started;
+        assertThat(sink).isPositive();
+        return (double) elapsed / ITERATIONS;
+    }
+
+    private byte[] stomp(String destination, MimeType contentType, byte[] payload) {
+        StompHeaderAccessor headers = StompHeaderAccessor.create(StompCommand.MESSAGE);
+        headers.setDestination(destination);
+        headers.setSubscriptionId("sub-0");
+        headers.setMessageId("f3c1a2b4-6d8e-4f00-9a1b-2c3d4e5f6a7b-42");
+        headers.setContentType(contentType);
+        return stompEncoder.encode(headers.getMessageHeaders(), payload);
+    }
+
+    private byte[] sockJs(byte[] stompFrame) {
+        return sockJsCodec.encode(new String(stompFrame, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private TableEvent event(String type, Object data) {
+        return new TableEvent(type, 1L, 2L, SEQ, NOW, data);
+    }
+
+    /**
+     * Forty shots into each side and the player's own fleet, as a seated player
+     * gets it on resume.
+     */
+    private TableSnapshot midGameSnapshot() {
+        Map<String, String> ownShips = new HashMap<>();
+        int cell = 0;
+        for (int ship = 1; ship <= ClassicFleet.SHIPS.size(); ship++) {
+            for (int i = 0; i < ClassicFleet.spec(ship).size(); i++) {
+                ownShips.put(BitBoard.label(cell++), ClassicFleet.key(ship));
+            }
+            cell += 2;
+        }
+        Map<String, String> received = new HashMap<>();
+        Map<String, String> target = new HashMap<>();
+        List<ShotSnapshot> history = new ArrayList<>();
+        for (int shot = 0; shot < 40; shot++) {
+            int at = (shot * 37) % 100;
+            String label = BitBoard.label(at);
+            received.put(label, ownShips.containsKey(label) ? "HIT" : "MISS");
+            String status = shot % 5 == 0 ? "HIT" : shot % 7 == 0 ? "SUNK" : "MISS";
+            target.put(BitBoard.label((shot * 53 + 7) % 100), status);
+            if (shot >= 30) {
+                history.add(new ShotSnapshot(shot % 2 == 0 ? 10L : 20L, shot % 2 == 0 ? 20L : 10L, label,
+                        false, "MISS", null, false, "MANUAL", NOW.minusSeconds(40 - shot)));
+            }
+        }
+        PrivateMatchView view = new PrivateMatchView("PLAYER", "A", 10L, ownShips, received, target, true, true,
+                Map.of(), history, 80);
+        return new TableSnapshot(1L, 2L, "Sala Norte", "Mesa 1", "IN_PROGRESS", NOW, null, null,
+                NOW.plusSeconds(20), "SEA_BATTLE_2_CLASSIC", ClassicFleet.SHIPS,
+                new SeatSnapshot("A", 10L, "Ana", false, 1200, true, true, true),
+                new SeatSnapshot("B", 20L, "Beto", true, null, true, true, true),
+                "A", 4, 5L, 10L, null, false, false, view, null, SEQ, SEQ + 42);
+    }
+}
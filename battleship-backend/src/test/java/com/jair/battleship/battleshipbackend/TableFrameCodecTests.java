@@ -0,0 +1,92 @@
+package com.jair.battleship.battleshipbackend;
+
+import com.jair.battleship.battleshipbackend.broker.TableFrameCodec;
+import com.jair.battleship.battleshipbackend.models.board.ClassicFleet;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.PrivateMatchView;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.SeatSnapshot;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.ShotSnapshot;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.SpectatorMatchView;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.TableEvent;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.TableResume;
+import com.jair.battleship.battleshipbackend.models.dto.multiplayer.TableSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TableFrameCodecTests {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T00:00:00.123Z");
+    private static final long SEQ = 1_767_225_600_000_000L;
+
+    @Test
+    void everyEventTypeSurvivesTheRoundTrip() {
+        ShotSnapshot sunk = new ShotSnapshot(10L, 20L, "J10", true, "SUNK", "cruiser_2", true, "SHOT_TIMEOUT",
+                NOW.minusMillis(1500));
+        List<TableEvent> events = List.of(
+                event(TableEvent.SHOT_APPLIED, new TableEvent.ShotApplied(5L, 41, sunk, 20L, NOW.plusSeconds(20),
+                        null)),
+                event(TableEvent.SEAT_CHANGED, new TableEvent.SeatChanged(
+                        new SeatSnapshot("B", 20L, "Íñigo", false, 1350, true, true, false))),
+                event(TableEvent.READY_TOGGLED, new TableEvent.ReadyToggled("A", true)),
+                event(TableEvent.PHASE_CHANGED, new TableEvent.PhaseChanged("FINISHED", 5L, null, 10L)),
+                event(TableEvent.DEADLINE_UPDATED, new TableEvent.DeadlineUpdated(null, NOW.plusSeconds(60),
+                        NOW.minusSeconds(3), 10L)),
+                event(TableEvent.TABLE_UPDATED, new TableEvent.TableUpdated("Mesa 7", 3, false, true)),
+                event(TableEvent.RESYNC, null));
+
+        for (TableEvent event : events) {
+            assertThat(TableFrameCodec.decodeEvent(TableFrameCodec.encode(event))).isEqualTo(event);
+        }
+        ShotSnapshot custom = new ShotSnapshot(10L, 20L, "A1", false, "MISS", null, false, "ADMIN", NOW);
+        TableEvent literal = event(TableEvent.SHOT_APPLIED,
+                new TableEvent.ShotApplied(5L, 0, custom, 20L, null, null));
+        assertThat(TableFrameCodec.decodeEvent(TableFrameCodec.encode(literal))).isEqualTo(literal);
+        assertThat(TableFrameCodec.encode(events.get(0))).hasSizeLessThan(40);
+    }
+
+    @Test
+    void snapshotsAndResumesSurviveTheRoundTripForPlayersAndSpectators() {
+        List<ShotSnapshot> history = List.of(
+                new ShotSnapshot(10L, 20L, "A1", true, "HIT", null, false, "MANUAL", NOW.minusSeconds(4)),
+                new ShotSnapshot(10L, 20L, "A2", true, "SUNK", "destroyer_1", false, "MANUAL", NOW.minusSeconds(2)),
+                new ShotSnapshot(20L, 10L, "E5", false, "MISS", null, true, "SHOT_TIMEOUT", NOW));
+        Map<String, String> targetShots = Map.of("A1", "SUNK", "A2", "SUNK", "C3", "MISS");
+        PrivateMatchView privateView = new PrivateMatchView("PLAYER", "A", 10L,
+                Map.of("B2", "battleship_1", "B3", "battleship_1", "H8", "boat_4"), Map.of("E5", "MISS"),
+                targetShots, true, true, Map.of(20L, Map.of("A1", "destroyer_1", "A2", "destroyer_1")), history,
+                57);
+        SpectatorMatchView spectatorView = new SpectatorMatchView(Map.of(10L, "Ana", 20L, "Beto"),
+                Map.of(10L, Map.of("E5", "MISS"), 20L, targetShots), Map.of(), history, 57);
+
+        TableSnapshot player = table(privateView, null);
+        TableSnapshot spectator = table(null, spectatorView);
+        assertThat(TableFrameCodec.decodeSnapshot(TableFrameCodec.encode(player))).isEqualTo(player);
+        assertThat(TableFrameCodec.decodeSnapshot(TableFrameCodec.encode(spectator))).isEqualTo(spectator);
+
+        TableResume fallback = new TableResume(1L, SEQ, List.of(), spectator);
+        TableResume events = new TableResume(1L, SEQ + 1, List.of(event(TableEvent.READY_TOGGLED,
+                new TableEvent.ReadyToggled("B", false))), null);
+        assertThat(TableFrameCodec.decodeResume(TableFrameCodec.encode(fallback))).isEqualTo(fallback);
+        assertThat(TableFrameCodec.decodeResume(TableFrameCodec.encode(events))).isEqualTo(events);
+        assertThatThrownBy(() -> TableFrameCodec.decodeEvent(TableFrameCodec.encode(player)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private TableEvent event(String type, Object data) {
+        return new TableEvent(type, 1L, 2L, SEQ, NOW, data);
+    }
+
+    private TableSnapshot table(PrivateMatchView privateView, SpectatorMatchView spectatorView) {
+        return new TableSnapshot(1L, 2L, "Sala Norte", "Mesa 1", "IN_PROGRESS", NOW, null, null,
+                NOW.plusSeconds(20), "SEA_BATTLE_2_CLASSIC", ClassicFleet.SHIPS,
+                new SeatSnapshot("A", 10L, "Ana", false, 1200, true, true, true),
+                new SeatSnapshot("B", 20L, "Beto", true, null, true, true, true),
+                privateView == null ? null : "A", 4, 5L, 10L, null, false, false, privateView, spectatorView,
+                SEQ, 1_767_225_600_000_042L);
+    }
+}
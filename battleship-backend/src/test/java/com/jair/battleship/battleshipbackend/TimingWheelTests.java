@@ -0,0 +1,72 @@
+package com.jair.battleship.battleshipbackend;
+
+import com.jair.battleship.battleshipbackend.services.engine.TimingWheel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimingWheelTests {
+
+    @Test
+    void expiresKeysInDeadlineOrderAndNeverEarly() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 0);
+        wheel.schedule("b", 450);
+        wheel.schedule("a", 250);
+
+        assertThat(wheel.advance(200)).isEmpty();
+        assertThat(wheel.advance(299)).isEmpty();
+        assertThat(wheel.advance(300)).containsExactly("a");
+        assertThat(wheel.advance(499)).isEmpty();
+        assertThat(wheel.advance(500)).containsExactly("b");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void reschedulingReplacesAndCancelRemoves() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 0);
+        wheel.schedule("turn", 300);
+        wheel.schedule("turn", 900);
+        wheel.schedule("ready", 500);
+        wheel.cancel("ready");
+
+        assertThat(wheel.advance(800)).isEmpty();
+        assertThat(wheel.contains("turn")).isTrue();
+        assertThat(wheel.advance(900)).containsExactly("turn");
+    }
+
+    @Test
+    void cascadesLongDeadlinesThroughHigherLevels() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(10, 0);
+        long[] deadlines = {640, 650, 4_096_0, 4_096_1, 2_621_440, 9_000_000};
+        for (int i = 0; i < deadlines.length; i++) {
+            wheel.schedule(i, deadlines[i]);
+        }
+
+        List<Integer> expired = new ArrayList<>();
+        long[] fireAt = new long[deadlines.length];
+        for (long now = 0; now <= 9_000_000; now += 10) {
+            for (Integer key : wheel.advance(now)) {
+                expired.add(key);
+                fireAt[key] = now;
+            }
+        }
+
+        assertThat(expired).containsExactly(0, 1, 2, 3, 4, 5);
+        assertThat(fireAt[3]).isEqualTo(40_970);
+        for (int i = 0; i < deadlines.length; i++) {
+            assertThat(fireAt[i]).isGreaterThanOrEqualTo(deadlines[i]).isLessThan(deadlines[i] + 10);
+        }
+    }
+
+    @Test
+    void pastDeadlinesExpireOnTheNextAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 1_000);
+        wheel.schedule("late", 400);
+
+        assertThat(wheel.advance(1_000)).containsExactly("late");
+        assertThat(wheel.advance(5_000)).isEmpty();
+    }
+}
@@ -55,7 +55,14 @@ export default function Salas() {
   const connected = useRealtime([
     {
       topic: "/topic/lobby",
-      onMessage: () => refresh(),
+      onMessage: (message) => {
+        try {
+          setLobby(JSON.parse(message.body) as LobbySnapshot);
+          setError(null);
+        } catch {
+          refresh();
+        }
+      },
     },
   ]);
 
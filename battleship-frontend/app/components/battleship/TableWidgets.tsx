@@ -1,6 +1,8 @@
 "use client";
 
-import type { SeatSnapshot, TableSnapshot } from "../../lib/types";
+import { useState } from "react";
+import { api } from "../../lib/api";
+import type { SeatSnapshot, ShotSnapshot, TableSnapshot } from "../../lib/types";
 import {
   EmptyState,
   GameBadge,
@@ -167,7 +169,35 @@ export function SpectatorBoards({ table }: { table: TableSnapshot }) {
 }
 
 export function ShotHistory({ table }: { table: TableSnapshot }) {
-  const history = table.privateView?.history ?? table.spectatorView?.history ?? [];
+  const [earlier, setEarlier] = useState<{ partidaId: number | null; shots: ShotSnapshot[] }>({
+    partidaId: null,
+    shots: [],
+  });
+  const [loading, setLoading] = useState(false);
+  const view = table.privateView ?? table.spectatorView;
+  const latest = view?.history ?? [];
+  // The snapshot only carries the latest shots; the ones before them are paged on demand.
+  const missing = Math.max(0, (view?.shotSeq ?? 0) - latest.length);
+  const loaded = earlier.partidaId === table.partidaId ? earlier.shots.slice(0, missing) : [];
+  const history = [...loaded, ...latest];
+
+  async function loadEarlier() {
+    setLoading(true);
+    try {
+      const shots: ShotSnapshot[] = [];
+      while (shots.length < missing) {
+        const page = await api.history(table.id, shots.length, missing - shots.length);
+        if (page.partidaId !== table.partidaId || page.shots.length === 0) break;
+        shots.push(...page.shots);
+      }
+      setEarlier({ partidaId: table.partidaId, shots });
+    } catch {
+      // Keep showing the latest shots; the button stays available to retry.
+    } finally {
+      setLoading(false);
+    }
+  }
+
   if (history.length === 0) {
     return <EmptyState title="Sin disparos" body="El historial se activara cuando empiece el combate." />;
   }
@@ -189,6 +219,11 @@ export function ShotHistory({ table }: { table: TableSnapshot }) {
             <GameBadge tone={shot.acierto ? "danger" : "neutral"}>{shot.resultado}</GameBadge>
           </GameCard>
         ))}
+      {loaded.length < missing && (
+        <GameButton variant="secondary" size="sm" onClick={loadEarlier} disabled={loading} className="w-full">
+          Ver {missing - loaded.length} disparos anteriores
+        </GameButton>
+      )}
     </div>
   );
 }
@@ -1,36 +1,63 @@
 'use client'
 
-import { useEffect, useState } from 'react'
+import { useEffect, useRef, useState } from 'react'
 import SockJS from 'sockjs-client'
-import { Client, type IMessage, type StompSubscription } from '@stomp/stompjs'
-import { realtimeUrl } from '../lib/api'
+import { Client, type IMessage, type StompConfig, type StompSubscription } from '@stomp/stompjs'
+import { getStoredSession, NATIVE_REALTIME, nativeRealtimeUrl, realtimeUrl } from '../lib/api'
 
-type SubscriptionSpec = {
+export type SubscriptionSpec = {
   topic: string | null | undefined
   onMessage: (message: IMessage) => void
 }
 
-export function useRealtime(subscriptions: SubscriptionSpec[]) {
+type RealtimeOptions = {
+  /** Gets the client once connected, and null when the connection drops. */
+  onClient?: (client: Client | null) => void
+}
+
+// SockJS on /ws unless NEXT_PUBLIC_REALTIME_NATIVE opts into the plain endpoint.
+function transport(): Pick<StompConfig, 'brokerURL' | 'webSocketFactory'> {
+  if (NATIVE_REALTIME) return { brokerURL: nativeRealtimeUrl() }
+  // A fresh socket per connect: stompjs calls the factory again on every reconnect.
+  return { webSocketFactory: () => new SockJS(realtimeUrl()) as WebSocket }
+}
+
+export function useRealtime(subscriptions: SubscriptionSpec[], options: RealtimeOptions = {}) {
   const [connected, setConnected] = useState(false)
+  const onClientRef = useRef(options.onClient)
+
+  useEffect(() => {
+    onClientRef.current = options.onClient
+  }, [options.onClient])
 
   useEffect(() => {
     const activeSubs = subscriptions.filter((sub) => sub.topic)
     if (activeSubs.length === 0) return
 
-    const socket = new SockJS(realtimeUrl())
+    const disconnected = () => {
+      setConnected(false)
+      onClientRef.current?.(null)
+    }
     const client = new Client({
-      webSocketFactory: () => socket as WebSocket,
+      ...transport(),
       reconnectDelay: 3000,
+      // The session token goes in CONNECT so commands on this connection act as
+      // that session; read on every attempt in case the user logged in or out.
+      beforeConnect: () => {
+        const token = getStoredSession()?.token
+        client.connectHeaders = token ? { 'X-Session-Token': token } : {}
+      },
       onConnect: () => {
         setConnected(true)
         const handles: StompSubscription[] = activeSubs.map((sub) =>
           client.subscribe(sub.topic!, sub.onMessage),
         )
         ;(client as Client & { __handles?: StompSubscription[] }).__handles = handles
+        onClientRef.current?.(client)
       },
-      onDisconnect: () => setConnected(false),
-      onStompError: () => setConnected(false),
-      onWebSocketClose: () => setConnected(false),
+      onDisconnect: () => disconnected(),
+      onStompError: () => disconnected(),
+      onWebSocketClose: () => disconnected(),
     })
 
     client.activate()
@@ -38,7 +65,7 @@ export function useRealtime(subscriptions: SubscriptionSpec[]) {
       const handles = (client as Client & { __handles?: StompSubscription[] }).__handles || []
       handles.forEach((handle) => handle.unsubscribe())
       client.deactivate()
-      setConnected(false)
+      disconnected()
     }
     // eslint-disable-next-line react-hooks/exhaustive-deps
   }, [subscriptions.map((sub) => sub.topic).join('|')])
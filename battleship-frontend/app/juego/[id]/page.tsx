@@ -2,14 +2,20 @@
 
 import { useCallback, useEffect, useMemo, useRef, useState, useSyncExternalStore } from "react";
 import { useParams, useRouter } from "next/navigation";
+import type { Client } from "@stomp/stompjs";
 import EntryScreen from "../../components/EntryScreen";
-import { api } from "../../lib/api";
+import { api, NATIVE_REALTIME } from "../../lib/api";
+import { applyTableEvent } from "../../lib/tableEvents";
+import { decodeTableEvent } from "../../lib/tableFrames";
+import { MesaCommands } from "../../lib/mesaCommands";
 import {
   BOARD_SIZE,
   FLEET,
   type ChatMessage,
   type ShipPlacement,
   type ShipKey,
+  type ShotResult,
+  type TableEvent,
   type TableSnapshot,
 } from "../../lib/types";
 import { useSessionUser } from "../../hooks/useSessionUser";
@@ -101,6 +107,7 @@ function AuthedTableExperience({ mesaId }: { mesaId: number }) {
   const clientNow = useSyncExternalStore(subscribeClock, getClockSnapshot, getServerClockSnapshot);
   const [lastSnapshotAt, setLastSnapshotAt] = useState(() => Date.now());
   const lastPartidaIdRef = useRef<number | null>(null);
+  const tableRef = useRef<TableSnapshot | null>(null);
   const chatSendingRef = useRef(false);
 
   const applyTable = useCallback((snapshot: TableSnapshot) => {
@@ -117,6 +124,7 @@ function AuthedTableExperience({ mesaId }: { mesaId: number }) {
       setHoverCell(null);
     }
     lastPartidaIdRef.current = snapshot.partidaId;
+    tableRef.current = snapshot;
     setTable(snapshot);
     setLastSnapshotAt(Date.now());
   }, []);
@@ -154,11 +162,58 @@ function AuthedTableExperience({ mesaId }: { mesaId: number }) {
     };
   }, [applyTable, mesaId]);
 
+  const reportSyncError = useCallback((err: unknown) => {
+    setError(err instanceof Error ? err.message : "No se pudo actualizar la mesa");
+  }, []);
+
+  // Catches up from the last applied event. The server answers with a full
+  // snapshot once it no longer buffers events that far back.
+  const resumeTable = useCallback(async () => {
+    const from = tableRef.current;
+    if (!from) {
+      await loadTable(false);
+      return;
+    }
+    const resumed = await api.tableEvents(mesaId, from.eventSeq);
+    if (resumed.snapshot) {
+      applyTable(resumed.snapshot);
+      return;
+    }
+    let next: TableSnapshot | null = tableRef.current;
+    for (const event of resumed.events) {
+      if (!next || event.seq <= next.eventSeq) continue;
+      next = event.seq === next.eventSeq + 1 ? applyTableEvent(next, event) : null;
+    }
+    if (next) applyTable(next);
+    else await loadTable(false);
+  }, [applyTable, loadTable, mesaId]);
+
+  // Ready, ships and shots go as STOMP frames while connected, REST otherwise.
+  const commands = useMemo(() => new MesaCommands(mesaId), [mesaId]);
+  const attachCommands = useCallback((client: Client | null) => commands.attach(client), [commands]);
+
   const connected = useRealtime([
     {
-      topic: `/topic/mesas/${mesaId}`,
-      onMessage: () => {
-        loadTable(false).catch((err) => setError(err instanceof Error ? err.message : "No se pudo actualizar la mesa"));
+      topic: NATIVE_REALTIME ? `/topic/bin/mesas/${mesaId}` : `/topic/mesas/${mesaId}`,
+      onMessage: (message) => {
+        let event: TableEvent;
+        try {
+          event = NATIVE_REALTIME
+            ? decodeTableEvent(message.binaryBody)
+            : (JSON.parse(message.body) as TableEvent);
+        } catch {
+          return;
+        }
+        const current = tableRef.current;
+        if (current && event.seq <= current.eventSeq) return;
+        if (current && event.seq > current.eventSeq + 1) {
+          resumeTable().catch(reportSyncError);
+          return;
+        }
+        // Anything that cannot be applied locally means refetching the table.
+        const next = current ? applyTableEvent(current, event) : null;
+        if (next) applyTable(next);
+        else loadTable(false).catch(reportSyncError);
       },
     },
     {
@@ -171,7 +226,12 @@ function AuthedTableExperience({ mesaId }: { mesaId: number }) {
         }
       },
     },
-  ]);
+    ...commands.subscriptions(),
+  ], { onClient: attachCommands });
+
+  useEffect(() => {
+    if (connected && tableRef.current) resumeTable().catch(reportSyncError);
+  }, [connected, reportSyncError, resumeTable]);
 
   const mySeat = table?.mySeat ?? table?.privateView?.mySeat ?? null;
   const mySeatSnapshot = mySeat ? seatByCode(table, mySeat) : null;
@@ -214,13 +274,18 @@ function AuthedTableExperience({ mesaId }: { mesaId: number }) {
 
   const handleSit = (seat: Seat) => runAction(`sit-${seat}`, () => api.sit(mesaId, seat));
   const handleStand = () => runAction("stand", () => api.stand(mesaId));
-  const handleReady = () => runAction("ready", () => api.ready(mesaId));
+  const handleReady = () =>
+    runAction("ready", () =>
+      commands.available ? commands.send<TableSnapshot>("ready") : api.ready(mesaId),
+    );
   const handlePlaceFleet = () => {
     if (fleet.length !== fleetSpec.length) {
       setError(`Te faltan ${fleetSpec.length - fleet.length} barcos por colocar`);
       return;
     }
-    runAction("ships", () => api.ships(mesaId, fleet));
+    runAction("ships", () =>
+      commands.available ? commands.send<TableSnapshot>("ships", { ships: fleet }) : api.ships(mesaId, fleet),
+    );
   };
   const handleRandomFleet = () => {
     const nextFleet = randomFleet(fleetSpec);
@@ -264,10 +329,14 @@ function AuthedTableExperience({ mesaId }: { mesaId: number }) {
   const handleRematch = () => runAction("rematch", () => api.rematch(mesaId));
   const handleShot = (cell: string) =>
     runAction(`shot-${cell}`, async () => {
-      const result = await api.shot(mesaId, cell);
+      const live = commands.available;
+      const result = live
+        ? await commands.send<ShotResult>("shots", { position: cell })
+        : await api.shot(mesaId, cell);
       const label = result.result === "WIN" ? "Victoria" : result.result === "SUNK" ? "Hundido" : result.hit ? "Impacto" : "Agua";
       setShotMessage(`${cell}: ${label}`);
-      return api.table(mesaId);
+      // Connected, the shot event on the mesa topic updates the table.
+      return live ? tableRef.current : api.table(mesaId);
     });
 
   const handleLeave = () =>
@@ -6,7 +6,9 @@ import type {
   RoomSnapshot,
   SessionUser,
   ShipPlacement,
+  ShotPage,
   ShotResult,
+  TableResume,
   TableSnapshot,
 } from './types'
 
@@ -28,6 +30,19 @@ export function apiUrl(path: string) {
   return base ? `${base}${path}` : path
 }
 
+/**
+ * Opt-in plain WebSocket transport: /ws-native instead of SockJS on /ws, with
+ * table events in binary on /topic/bin/mesas/{id} (see lib/tableFrames).
+ */
+export const NATIVE_REALTIME = process.env.NEXT_PUBLIC_REALTIME_NATIVE === '1'
+
+export function nativeRealtimeUrl(path = '/ws-native') {
+  const base = typeof window === 'undefined' ? 'http://localhost' : window.location.href
+  const url = new URL(realtimeUrl(path), base)
+  url.protocol = url.protocol === 'https:' ? 'wss:' : 'ws:'
+  return url.toString()
+}
+
 export function realtimeUrl(path = '/ws') {
   const base = getApiBase()
   if (!base) {
@@ -152,6 +167,10 @@ export const api = {
       body: JSON.stringify({ name }),
     }),
   table: (mesaId: number) => request<TableSnapshot>(`/api/mesas/${mesaId}`),
+  tableEvents: (mesaId: number, after: number) =>
+    request<TableResume>(`/api/mesas/${mesaId}/events?after=${after}`),
+  history: (mesaId: number, afterShotSeq: number, limit = 100) =>
+    request<ShotPage>(`/api/mesas/${mesaId}/history?afterShotSeq=${afterShotSeq}&limit=${limit}`),
   joinTable: (mesaId: number) => request<TableSnapshot>(`/api/mesas/${mesaId}/join`, { method: 'POST' }),
   leaveTable: (mesaId: number) => request<TableSnapshot>(`/api/mesas/${mesaId}/leave`, { method: 'POST' }),
   sit: (mesaId: number, seat: 'A' | 'B') =>
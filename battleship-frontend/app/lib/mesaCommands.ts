@@ -0,0 +1,80 @@
+import type { Client, IMessage } from '@stomp/stompjs'
+import type { ErrorResponse } from './types'
+
+type Command = 'ready' | 'ships' | 'shots'
+
+const REPLY_TIMEOUT_MS = 10_000
+const COMMAND_ID = 'x-command-id'
+
+type Pending = {
+  resolve: (value: unknown) => void
+  reject: (error: Error) => void
+}
+
+/**
+ * Mesa commands over the open STOMP connection instead of REST: one SEND frame
+ * out, one reply frame back on the user queue. Each command carries an
+ * x-command-id header that the server echoes on its reply or error, so replies
+ * settle their own command; frames without a known id, such as errors of the
+ * table event resume, are ignored.
+ */
+export class MesaCommands {
+  private client: Client | null = null
+  private readonly pending = new Map<string, Pending>()
+  private nextId = 0
+
+  constructor(private readonly mesaId: number) {}
+
+  get available() {
+    return this.client?.connected === true
+  }
+
+  attach(client: Client | null) {
+    this.client = client
+    if (!client) {
+      const waiting = [...this.pending.values()]
+      this.pending.clear()
+      waiting.forEach((command) => command.reject(new Error('Se perdio la conexion con la mesa')))
+    }
+  }
+
+  subscriptions() {
+    const take = (message: IMessage) => {
+      const id = message.headers[COMMAND_ID]
+      const command = id === undefined ? undefined : this.pending.get(id)
+      if (command) this.pending.delete(id)
+      return command
+    }
+    const settle = (message: IMessage) => take(message)?.resolve(JSON.parse(message.body))
+    const fail = (message: IMessage) => {
+      const command = take(message)
+      if (!command) return
+      const error = JSON.parse(message.body) as ErrorResponse
+      command.reject(new Error(error.message || `Solicitud fallida (${error.status})`))
+    }
+    const queue = `/user/queue/mesas/${this.mesaId}`
+    return [
+      { topic: `${queue}/ready`, onMessage: settle },
+      { topic: `${queue}/ships`, onMessage: settle },
+      { topic: `${queue}/shots`, onMessage: settle },
+      { topic: '/user/queue/errors', onMessage: fail },
+    ]
+  }
+
+  send<T>(command: Command, body?: unknown): Promise<T> {
+    const client = this.client
+    if (!client?.connected) return Promise.reject(new Error('Sin conexion con la mesa'))
+    const id = `${this.mesaId}-${Date.now().toString(36)}-${++this.nextId}`
+    return new Promise<T>((resolve, reject) => {
+      setTimeout(() => {
+        if (this.pending.delete(id)) reject(new Error('La mesa no respondio a tiempo'))
+      }, REPLY_TIMEOUT_MS)
+      this.pending.set(id, { resolve: resolve as (value: unknown) => void, reject })
+      client.publish({
+        destination: `/app/mesas/${this.mesaId}/${command}`,
+        body: body === undefined ? '' : JSON.stringify(body),
+        headers: { 'content-type': 'application/json', [COMMAND_ID]: id },
+      })
+    })
+  }
+}
@@ -0,0 +1,93 @@
+import type { CellShot, SeatSnapshot, ShotSnapshot, TableEvent, TableSnapshot } from './types'
+
+/**
+ * Applies a table event to the snapshot it follows. Returns null when the event
+ * cannot be applied locally (phase changes, sunk ships, seats changing hands)
+ * and the table has to be refetched instead.
+ */
+export function applyTableEvent(table: TableSnapshot, event: TableEvent): TableSnapshot | null {
+  const next = { ...table, serverNow: event.serverNow, eventSeq: event.seq }
+  switch (event.type) {
+    case 'SHOT_APPLIED':
+      return applyShot(next, event.data)
+    case 'SEAT_CHANGED': {
+      const current = event.data.seat.seat === 'A' ? table.seatA : table.seatB
+      if (event.data.seat.seat === table.mySeat || current.jugadorId !== event.data.seat.jugadorId) return null
+      return withSeat(next, event.data.seat)
+    }
+    case 'READY_TOGGLED': {
+      const current = event.data.seat === 'A' ? table.seatA : table.seatB
+      return withSeat(next, { ...current, ready: event.data.ready })
+    }
+    case 'DEADLINE_UPDATED':
+      return { ...next, ...event.data }
+    case 'TABLE_UPDATED':
+      return { ...next, ...event.data }
+    default:
+      return null
+  }
+}
+
+function withSeat(table: TableSnapshot, seat: SeatSnapshot): TableSnapshot {
+  const next = seat.seat === 'A' ? { ...table, seatA: seat } : { ...table, seatB: seat }
+  if (next.privateView && seat.seat !== next.privateView.mySeat) {
+    next.privateView = { ...next.privateView, opponentShipsPlaced: seat.shipsPlaced }
+  }
+  return next
+}
+
+function applyShot(
+  table: TableSnapshot,
+  data: Extract<TableEvent, { type: 'SHOT_APPLIED' }>['data'],
+): TableSnapshot | null {
+  const matchView = table.privateView ?? table.spectatorView
+  if (data.partidaId !== table.partidaId || !matchView || data.index > matchView.shotSeq) return null
+  const history = matchView.history
+  const turn = {
+    turnoActualJugadorId: data.turnoActualJugadorId,
+    turnDeadlineAt: data.turnDeadlineAt,
+    ganadorId: data.ganadorId,
+  }
+  if (data.index < matchView.shotSeq) return { ...table, ...turn }
+
+  // Sinking marks every cell of the ship; the snapshot carries that, the event does not.
+  const cell = cellShot(data.shot)
+  if (!cell) return null
+  const nextHistory = [...history, data.shot]
+  if (table.privateView) {
+    const view = table.privateView
+    const mine = data.shot.defensorId === view.myJugadorId
+    return {
+      ...table,
+      ...turn,
+      privateView: {
+        ...view,
+        history: nextHistory,
+        shotSeq: data.index + 1,
+        ownReceivedShots: mine ? { ...view.ownReceivedShots, [data.shot.posicion]: cell } : view.ownReceivedShots,
+        targetShots: mine ? view.targetShots : { ...view.targetShots, [data.shot.posicion]: cell },
+      },
+    }
+  }
+  const view = table.spectatorView!
+  const defensor = String(data.shot.defensorId)
+  return {
+    ...table,
+    ...turn,
+    spectatorView: {
+      ...view,
+      history: nextHistory,
+      shotSeq: data.index + 1,
+      publicShots: {
+        ...view.publicShots,
+        [defensor]: { ...view.publicShots[defensor], [data.shot.posicion]: cell },
+      },
+    },
+  }
+}
+
+function cellShot(shot: ShotSnapshot): CellShot | null {
+  if (shot.resultado === 'MISS') return 'MISS'
+  if (shot.resultado === 'HIT') return 'HIT'
+  return null
+}
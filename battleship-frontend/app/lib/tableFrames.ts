@@ -0,0 +1,364 @@
+import type {
+  PrivateMatchView,
+  SeatSnapshot,
+  ShotSnapshot,
+  SpectatorMatchView,
+  TableEvent,
+  TableResume,
+  TableSnapshot,
+} from './types'
+
+/**
+ * Decoder for the binary table frames sent on /ws-native (TableFrameCodec on
+ * the server). Produces the same shapes as the JSON on /ws, so the rest of
+ * the client does not care which transport it is on.
+ */
+const VERSION = 1
+const EVENT = 1
+const SNAPSHOT = 2
+const RESUME = 3
+const LITERAL = 1
+const NO_CELL = 0xff
+
+const EVENT_TYPES = [
+  'SHOT_APPLIED',
+  'SEAT_CHANGED',
+  'READY_TOGGLED',
+  'PHASE_CHANGED',
+  'DEADLINE_UPDATED',
+  'TABLE_UPDATED',
+  'RESYNC',
+] as const
+
+// Same order as TableFrameCodec.TOKENS; append only.
+const TOKENS = [
+  'A', 'B', 'PLAYER', 'MISS', 'HIT', 'SUNK', 'WIN', 'MANUAL', 'SHOT_TIMEOUT', 'SEA_BATTLE_2_CLASSIC',
+  'WAITING_FOR_PLAYERS', 'PLAYERS_SEATED', 'PLACING_SHIPS', 'READY_TO_START', 'IN_PROGRESS',
+  'FINISHED', 'ABANDONED', 'CANCELLED', 'CREADA', 'EN_CURSO', 'FINALIZADA', 'CANCELADA',
+  'battleship_1', 'cruiser_1', 'cruiser_2', 'destroyer_1', 'destroyer_2', 'destroyer_3',
+  'boat_1', 'boat_2', 'boat_3', 'boat_4',
+  'Acorazado', 'Crucero 1', 'Crucero 2', 'Destructor 1', 'Destructor 2', 'Destructor 3',
+  'Lancha 1', 'Lancha 2', 'Lancha 3', 'Lancha 4',
+]
+
+const utf8 = new TextDecoder()
+
+export function decodeTableEvent(frame: Uint8Array): TableEvent {
+  return readEvent(new Reader(frame, EVENT))
+}
+
+export function decodeTableSnapshot(frame: Uint8Array): TableSnapshot {
+  return readSnapshot(new Reader(frame, SNAPSHOT))
+}
+
+export function decodeTableResume(frame: Uint8Array): TableResume {
+  const input = new Reader(frame, RESUME)
+  const mesaId = input.optLong() as number
+  const seq = input.varint()
+  const events: TableEvent[] = []
+  for (let count = input.varint(); count > 0; count--) events.push(readEvent(input))
+  const snapshot = input.flag() ? readSnapshot(input) : null
+  return { mesaId, seq, events, snapshot }
+}
+
+function readEvent(input: Reader): TableEvent {
+  const code = input.byte()
+  const type = EVENT_TYPES[code]
+  if (!type) throw new Error(`Tipo de evento binario desconocido: ${code}`)
+  const mesaId = input.optLong() as number
+  const salaId = input.optLong()
+  const seq = input.varint()
+  const serverNow = input.base()
+  const head = { mesaId, salaId, seq, serverNow }
+  switch (type) {
+    case 'SHOT_APPLIED':
+      return {
+        ...head,
+        type,
+        data: {
+          partidaId: input.optLong() as number,
+          index: input.varint(),
+          shot: readShot(input),
+          turnoActualJugadorId: input.optLong(),
+          turnDeadlineAt: input.optInstant(),
+          ganadorId: input.optLong(),
+        },
+      }
+    case 'SEAT_CHANGED':
+      return { ...head, type, data: { seat: readSeat(input) as SeatSnapshot } }
+    case 'READY_TOGGLED':
+      return { ...head, type, data: { seat: input.token() as 'A' | 'B', ready: input.flag() } }
+    case 'PHASE_CHANGED':
+      return {
+        ...head,
+        type,
+        data: {
+          estado: input.token() as TableSnapshot['estado'],
+          partidaId: input.optLong(),
+          turnoActualJugadorId: input.optLong(),
+          ganadorId: input.optLong(),
+        },
+      }
+    case 'DEADLINE_UPDATED':
+      return {
+        ...head,
+        type,
+        data: {
+          readyDeadlineAt: input.optInstant(),
+          placementDeadlineAt: input.optInstant(),
+          turnDeadlineAt: input.optInstant(),
+          turnoActualJugadorId: input.optLong(),
+        },
+      }
+    case 'TABLE_UPDATED': {
+      const nombre = input.string() as string
+      const spectators = input.varint()
+      const flags = input.byte()
+      return { ...head, type, data: { nombre, spectators, rematchA: (flags & 1) !== 0, rematchB: (flags & 2) !== 0 } }
+    }
+    default:
+      return { ...head, type: 'RESYNC', data: null }
+  }
+}
+
+function readSnapshot(input: Reader): TableSnapshot {
+  const id = input.optLong() as number
+  const salaId = input.optLong() as number
+  const salaNombre = input.string() as string
+  const nombre = input.string() as string
+  const estado = input.token() as TableSnapshot['estado']
+  const serverNow = input.base()
+  const readyDeadlineAt = input.optInstant()
+  const placementDeadlineAt = input.optInstant()
+  const turnDeadlineAt = input.optInstant()
+  const ruleset = input.token() as string
+  const fleetSpec: TableSnapshot['fleetSpec'] = []
+  for (let count = input.size(); count > 0; count--) {
+    fleetSpec.push({
+      key: input.token() as TableSnapshot['fleetSpec'][number]['key'],
+      name: input.token() as string,
+      size: input.varint(),
+    })
+  }
+  const seatA = readSeat(input) as SeatSnapshot
+  const seatB = readSeat(input) as SeatSnapshot
+  const mySeat = input.token() as TableSnapshot['mySeat']
+  const spectators = input.varint()
+  const partidaId = input.optLong()
+  const turnoActualJugadorId = input.optLong()
+  const ganadorId = input.optLong()
+  const flags = input.byte()
+  let privateView: PrivateMatchView | null = null
+  if (flags & 4) {
+    const role = input.token() as 'PLAYER'
+    const viewSeat = input.token() as 'A' | 'B'
+    const myJugadorId = input.optLong() as number
+    const ownShips = input.cells()
+    const ownReceivedShots = input.cells() as PrivateMatchView['ownReceivedShots']
+    const targetShots = input.cells() as PrivateMatchView['targetShots']
+    const placed = input.byte()
+    privateView = {
+      role,
+      mySeat: viewSeat,
+      myJugadorId,
+      ownShips,
+      ownReceivedShots,
+      targetShots,
+      ownShipsPlaced: (placed & 1) !== 0,
+      opponentShipsPlaced: (placed & 2) !== 0,
+      revealedShips: readBoards(input),
+      history: readShots(input),
+      shotSeq: input.varint(),
+    }
+  }
+  let spectatorView: SpectatorMatchView | null = null
+  if (flags & 8) {
+    const players: Record<string, string> = {}
+    for (let count = input.size(); count > 0; count--) {
+      players[String(input.optLong())] = input.string() as string
+    }
+    spectatorView = {
+      players,
+      publicShots: readBoards(input) as SpectatorMatchView['publicShots'],
+      revealedShips: readBoards(input),
+      history: readShots(input),
+      shotSeq: input.varint(),
+    }
+  }
+  return {
+    id,
+    salaId,
+    salaNombre,
+    nombre,
+    estado,
+    serverNow,
+    readyDeadlineAt,
+    placementDeadlineAt,
+    turnDeadlineAt,
+    ruleset,
+    fleetSpec,
+    seatA,
+    seatB,
+    mySeat,
+    spectators,
+    partidaId,
+    turnoActualJugadorId,
+    ganadorId,
+    rematchA: (flags & 1) !== 0,
+    rematchB: (flags & 2) !== 0,
+    privateView,
+    spectatorView,
+    eventSeq: input.varint(),
+    version: input.varint(),
+  }
+}
+
+function readSeat(input: Reader): SeatSnapshot | null {
+  const flags = input.byte()
+  if (flags & 0x80) return null
+  const seat = input.token() as 'A' | 'B'
+  const jugadorId = input.optLong()
+  const displayName = input.string()
+  const rating = flags & 16 ? input.signed() : null
+  return {
+    seat,
+    jugadorId,
+    displayName,
+    guest: (flags & 1) !== 0,
+    rating,
+    ready: (flags & 2) !== 0,
+    occupied: (flags & 4) !== 0,
+    shipsPlaced: (flags & 8) !== 0,
+  }
+}
+
+function readShot(input: Reader): ShotSnapshot {
+  const atacanteId = input.optLong() as number
+  const defensorId = input.optLong() as number
+  const posicion = input.cell()
+  const flags = input.byte()
+  return {
+    atacanteId,
+    defensorId,
+    posicion,
+    acierto: (flags & 1) !== 0,
+    resultado: input.token() as string,
+    barcoHundido: input.token(),
+    automatic: (flags & 2) !== 0,
+    reason: input.token() as string,
+    ts: input.optInstant() as string,
+  }
+}
+
+function readShots(input: Reader): ShotSnapshot[] {
+  const shots: ShotSnapshot[] = []
+  for (let count = input.size(); count > 0; count--) shots.push(readShot(input))
+  return shots
+}
+
+function readBoards(input: Reader): Record<string, Record<string, string>> {
+  const boards: Record<string, Record<string, string>> = {}
+  for (let count = input.size(); count > 0; count--) {
+    const key = String(input.optLong())
+    boards[key] = input.cells()
+  }
+  return boards
+}
+
+function label(cell: number) {
+  return `${String.fromCharCode(65 + Math.floor(cell / 10))}${(cell % 10) + 1}`
+}
+
+// Varints reach 2^52 (sequence numbers), past 32-bit bitwise math, so they are
+// accumulated with multiplication.
+class Reader {
+  private pos = 0
+  private baseMs = 0
+
+  constructor(private readonly buf: Uint8Array, kind: number) {
+    const version = this.byte()
+    const actual = this.byte()
+    if (version !== VERSION || actual !== kind) {
+      throw new Error(`Trama binaria no soportada: version ${version}, tipo ${actual}`)
+    }
+  }
+
+  byte() {
+    if (this.pos >= this.buf.length) throw new Error('Trama binaria truncada')
+    return this.buf[this.pos++]
+  }
+
+  varint() {
+    let value = 0
+    let scale = 1
+    for (;;) {
+      const b = this.byte()
+      value += (b & 0x7f) * scale
+      if ((b & 0x80) === 0) return value
+      scale *= 128
+    }
+  }
+
+  signed() {
+    return unzigzag(this.varint())
+  }
+
+  optLong(): number | null {
+    const value = this.varint()
+    return value === 0 ? null : unzigzag(value - 1)
+  }
+
+  flag() {
+    return this.byte() !== 0
+  }
+
+  base() {
+    this.baseMs = this.varint()
+    return new Date(this.baseMs).toISOString()
+  }
+
+  optInstant(): string | null {
+    const value = this.varint()
+    return value === 0 ? null : new Date(this.baseMs + unzigzag(value - 1)).toISOString()
+  }
+
+  string(): string | null {
+    const length = this.varint() - 1
+    if (length < 0) return null
+    if (this.pos + length > this.buf.length) throw new Error('Trama binaria truncada')
+    const value = utf8.decode(this.buf.subarray(this.pos, this.pos + length))
+    this.pos += length
+    return value
+  }
+
+  token(): string | null {
+    const id = this.varint()
+    if (id === 0) return null
+    if (id === LITERAL) return this.string()
+    const token = TOKENS[id - 2]
+    if (token === undefined) throw new Error(`Token binario desconocido: ${id}`)
+    return token
+  }
+
+  cell() {
+    const cell = this.byte()
+    return cell === NO_CELL ? (this.string() as string) : label(cell)
+  }
+
+  size() {
+    return this.varint() - 1
+  }
+
+  cells(): Record<string, string> {
+    const board: Record<string, string> = {}
+    for (let groups = this.size(); groups > 0; groups--) {
+      const value = this.token() as string
+      for (let count = this.varint(); count > 0; count--) board[this.cell()] = value
+    }
+    return board
+  }
+}
+
+function unzigzag(value: number) {
+  return value % 2 === 0 ? value / 2 : -(value + 1) / 2
+}
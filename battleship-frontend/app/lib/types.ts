@@ -18,6 +18,7 @@ export type SeatSnapshot = {
   rating: number | null
   ready: boolean
   occupied: boolean
+  shipsPlaced: boolean
 }
 
 export type ShotSnapshot = {
@@ -32,6 +33,14 @@ export type ShotSnapshot = {
   ts: string
 }
 
+export type ShotPage = {
+  mesaId: number
+  partidaId: number | null
+  afterShotSeq: number
+  shotSeq: number
+  shots: ShotSnapshot[]
+}
+
 export type PrivateMatchView = {
   role: 'PLAYER'
   mySeat: 'A' | 'B'
@@ -42,14 +51,18 @@ export type PrivateMatchView = {
   ownShipsPlaced: boolean
   opponentShipsPlaced: boolean
   revealedShips: Record<string, Record<string, string>>
+  /** Latest shots only; older ones are paged with api.history. */
   history: ShotSnapshot[]
+  shotSeq: number
 }
 
 export type SpectatorMatchView = {
   players: Record<string, string>
   publicShots: Record<string, Record<string, CellShot>>
   revealedShips: Record<string, Record<string, string>>
+  /** Latest shots only; older ones are paged with api.history. */
   history: ShotSnapshot[]
+  shotSeq: number
 }
 
 export type TableSnapshot = {
@@ -75,6 +88,50 @@ export type TableSnapshot = {
   rematchB: boolean
   privateView: PrivateMatchView | null
   spectatorView: SpectatorMatchView | null
+  eventSeq: number
+  version: number
+}
+
+export type TableEvent =
+  | TableEventOf<'SHOT_APPLIED', {
+      partidaId: number
+      index: number
+      shot: ShotSnapshot
+      turnoActualJugadorId: number | null
+      turnDeadlineAt: string | null
+      ganadorId: number | null
+    }>
+  | TableEventOf<'SEAT_CHANGED', { seat: SeatSnapshot }>
+  | TableEventOf<'READY_TOGGLED', { seat: 'A' | 'B'; ready: boolean }>
+  | TableEventOf<'PHASE_CHANGED', {
+      estado: GameState
+      partidaId: number | null
+      turnoActualJugadorId: number | null
+      ganadorId: number | null
+    }>
+  | TableEventOf<'DEADLINE_UPDATED', {
+      readyDeadlineAt: string | null
+      placementDeadlineAt: string | null
+      turnDeadlineAt: string | null
+      turnoActualJugadorId: number | null
+    }>
+  | TableEventOf<'TABLE_UPDATED', { nombre: string; spectators: number; rematchA: boolean; rematchB: boolean }>
+  | TableEventOf<'RESYNC', null>
+
+export type TableResume = {
+  mesaId: number
+  seq: number
+  events: TableEvent[]
+  snapshot: TableSnapshot | null
+}
+
+type TableEventOf<T extends string, D> = {
+  type: T
+  mesaId: number
+  salaId: number | null
+  seq: number
+  serverNow: string
+  data: D
 }
 
 export type RoomSnapshot = {
@@ -84,11 +141,13 @@ export type RoomSnapshot = {
   onlinePlayers: number
   spectators: number
   mesas: TableSnapshot[]
+  version: number
 }
 
 export type LobbySnapshot = {
   salas: RoomSnapshot[]
   onlinePlayers: SessionUser[]
+  version: number
 }
 
 export type ShipPlacement = {
@@ -114,6 +173,12 @@ export type ShotResult = {
   nextTurnJugadorId: number | null
 }
 
+export type ErrorResponse = {
+  message: string
+  status: number
+  timestamp: string
+}
+
 export type ChatMessage = {
   sender: string
   content: string